@@ -23,6 +23,17 @@ import org.springframework.context.expression.CachedExpressionEvaluator;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.CompoundExpression;
+import org.springframework.expression.spel.ast.Elvis;
+import org.springframework.expression.spel.ast.Indexer;
+import org.springframework.expression.spel.ast.InlineList;
+import org.springframework.expression.spel.ast.InlineMap;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.Operator;
+import org.springframework.expression.spel.ast.OperatorNot;
+import org.springframework.expression.spel.ast.Ternary;
+import org.springframework.expression.spel.standard.SpelExpression;
 
 /**
  * 缓存配置相关 SpEL 表达式解析。
@@ -38,6 +49,44 @@ public class CacheConfigExpressionEvaluator extends CachedExpressionEvaluator {
         return getExpression(this.expressionCache, elementKey, expression).getValue(evaluationContext, Integer.class);
     }
 
+    public Expression getExpression(String expression, AnnotatedElementKey elementKey) {
+        return getExpression(this.expressionCache, elementKey, expression);
+    }
+
+    /**
+     * 判断表达式的结果是否是常量，即表达式只由字面量、运算符、三元表达式以及内联的 list/map 组成。
+     * 例如 {@code "1000"}、{@code "60 * 1000"} 只需要计算一次；引用了方法参数、变量、root 对象、bean（比如
+     * {@code "@environment.getProperty('cache.maxSize')"}）或者调用了方法、静态方法的表达式，
+     * 结果可能随调用或者时间变化，需要每次调用时重新计算。
+     *
+     * @param expression the parsed expression
+     * @return {@code true} if the expression can be evaluated only once
+     */
+    public static boolean isInvocationIndependent(Expression expression) {
+        if (!(expression instanceof SpelExpression)) {
+            return false;
+        }
+        return isInvocationIndependent(((SpelExpression) expression).getAST(), false);
+    }
+
+    private static boolean isInvocationIndependent(SpelNode node, boolean qualified) {
+        boolean constant = node instanceof Literal || node instanceof Operator || node instanceof OperatorNot
+                || node instanceof Ternary || node instanceof Elvis || node instanceof InlineList
+                || node instanceof InlineMap || node instanceof CompoundExpression
+                // index into the preceding constant, such as {100, 200}[1]
+                || (qualified && node instanceof Indexer);
+        if (!constant) {
+            return false;
+        }
+        boolean compound = node instanceof CompoundExpression;
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (!isInvocationIndependent(node.getChild(i), compound && i > 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public ParameterNameDiscoverer getParameterNameDiscoverer() {
         return super.getParameterNameDiscoverer();
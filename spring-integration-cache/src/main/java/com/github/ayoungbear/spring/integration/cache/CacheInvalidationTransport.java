@@ -0,0 +1,61 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * 缓存失效消息的传输接口，用于把一个节点清除、更新缓存的消息广播给其他节点。
+ *
+ * <p>消息是编码后的字节，传输不需要理解内容；发送的消息可能会回传给发送方自己（比如消息队列的 topic），
+ * 由接收方忽略。实现需要是线程安全的，发送失败时抛出异常即可。</p>
+ *
+ * @author yangzexiong
+ * @see LoopbackInvalidationTransport
+ * @see UdpInvalidationTransport
+ */
+public interface CacheInvalidationTransport extends Closeable {
+
+    /**
+     * 开始接收消息。
+     *
+     * @param receiver the receiver of the messages from the peers
+     */
+    void start(Consumer<byte[]> receiver);
+
+    /**
+     * 广播消息。
+     *
+     * @param message the encoded message
+     */
+    void send(byte[] message);
+
+    /**
+     * 单条消息的最大字节数，超过时由调用方拆分。
+     *
+     * @return the max message size in bytes
+     */
+    default int getMaxMessageSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    default void close() {
+    }
+
+}
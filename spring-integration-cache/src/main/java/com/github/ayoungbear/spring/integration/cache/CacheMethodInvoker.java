@@ -0,0 +1,38 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+/**
+ * Invoke the cached method on the target object.
+ *
+ * @author yangzexiong
+ * @see CacheMethodInvokerFactory
+ */
+@FunctionalInterface
+public interface CacheMethodInvoker {
+
+    /**
+     * Invoke the method, the exception thrown by the method is rethrown as it is.
+     *
+     * @param target the target object, ignored for static methods
+     * @param args the arguments of the invocation
+     * @return the result of the invocation, {@code null} for {@code void} methods
+     * @throws Throwable the exception thrown by the method
+     */
+    Object invoke(Object target, Object[] args) throws Throwable;
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 构建并缓存方法对应的 {@link CacheMethodInvoker}，每个方法只构建一次。
+ *
+ * <p>优先使用转换为 {@code (Object, Object[])Object} 类型的 {@link MethodHandle} 通过 {@code invokeExact} 调用，
+ * 避免反射调用时的参数检查以及异常包装；如果无法构建 {@link MethodHandle}（比如没有访问权限），则使用反射调用。</p>
+ *
+ * <p>缓存通过软引用保存，不会阻止应用的类加载器被回收。</p>
+ *
+ * @author yangzexiong
+ */
+public class CacheMethodInvokerFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheMethodInvokerFactory.class);
+
+    private static final Map<Method, CacheMethodInvoker> invokerCache = new ConcurrentReferenceHashMap<>(64);
+
+    private CacheMethodInvokerFactory() {
+    }
+
+    /**
+     * Return the invoker of the method.
+     *
+     * @param method the method
+     * @return the cached invoker
+     */
+    public static CacheMethodInvoker getInvoker(Method method) {
+        CacheMethodInvoker invoker = invokerCache.get(method);
+        if (invoker == null) {
+            invoker = createInvoker(method);
+            CacheMethodInvoker existing = invokerCache.putIfAbsent(method, invoker);
+            if (existing != null) {
+                invoker = existing;
+            }
+        }
+        return invoker;
+    }
+
+    private static CacheMethodInvoker createInvoker(Method method) {
+        ReflectionUtils.makeAccessible(method);
+        try {
+            return new MethodHandleInvoker(toSpreadHandle(method));
+        } catch (Throwable ex) {
+            logger.debug("Unable to create method handle for [{}], fall back to reflection", method, ex);
+            return new ReflectiveInvoker(method);
+        }
+    }
+
+    /**
+     * 转换为 {@code (Object, Object[])Object} 类型的 {@link MethodHandle}，静态方法忽略第一个参数。
+     */
+    private static MethodHandle toSpreadHandle(Method method) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+        int parameterCount = method.getParameterCount();
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.genericMethodType(parameterCount + 1))
+                .asSpreader(Object[].class, parameterCount);
+    }
+
+    static class MethodHandleInvoker implements CacheMethodInvoker {
+
+        private final MethodHandle handle;
+
+        MethodHandleInvoker(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Throwable {
+            return (Object) handle.invokeExact(target, args);
+        }
+
+    }
+
+    static class ReflectiveInvoker implements CacheMethodInvoker {
+
+        private final Method method;
+
+        ReflectiveInvoker(Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public Object invoke(Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import javax.annotation.Nullable;
+
+/**
+ * 二级缓存存储接口，作为本地缓存之后的共享存储（比如 Redis），多个节点共用同一份缓存值，避免每个节点各自从后端加载。
+ *
+ * <p>key 和值都是序列化后的字节，按缓存名称隔离。实现需要是线程安全的，访问失败时抛出异常即可，
+ * 调用方会当作未命中或者跳过本次写入，不影响本地缓存的使用。</p>
+ *
+ * @author yangzexiong
+ * @see InMemoryCacheStore
+ * @see RespCacheStore
+ */
+public interface CacheStore {
+
+    /**
+     * 获取缓存值。
+     *
+     * @param cacheName the cache name
+     * @param key the serialized key
+     * @return the serialized value, or {@code null} if absent or expired
+     */
+    @Nullable
+    byte[] get(String cacheName, byte[] key);
+
+    /**
+     * 写入缓存值。
+     *
+     * @param cacheName the cache name
+     * @param key the serialized key
+     * @param value the serialized value
+     * @param ttlMillis the time to live in milliseconds, less than or equal to 0 means never expire
+     */
+    void put(String cacheName, byte[] key, byte[] value, long ttlMillis);
+
+    /**
+     * 移除缓存值。
+     *
+     * @param cacheName the cache name
+     * @param key the serialized key
+     */
+    void evict(String cacheName, byte[] key);
+
+    /**
+     * 移除缓存的所有值。
+     *
+     * @param cacheName the cache name
+     */
+    void clear(String cacheName);
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+/**
+ * 序列化后缓存值的压缩编码接口，比如 Deflate、LZ4。
+ *
+ * <p>实现需要是线程安全的，同个缓存的值只使用同一种编码，更换编码前需要清空使用压缩的缓存（包括快照和二级存储）。</p>
+ *
+ * @author yangzexiong
+ * @see DeflateCacheValueCodec
+ */
+public interface CacheValueCodec {
+
+    /**
+     * 压缩。
+     *
+     * @param bytes the serialized value
+     * @return the compressed bytes
+     */
+    byte[] encode(byte[] bytes);
+
+    /**
+     * 解压。
+     *
+     * @param bytes the compressed bytes
+     * @param length the length of the serialized value
+     * @return the serialized value
+     * @throws IllegalArgumentException if the bytes could not be decompressed
+     */
+    byte[] decode(byte[] bytes, int length);
+
+}
@@ -17,6 +17,7 @@
 package com.github.ayoungbear.spring.integration.cache;
 
 import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.function.Supplier;
@@ -31,6 +32,10 @@ import org.springframework.util.Assert;
 /**
  * CacheValueInvoker
  *
+ * <p>The invoker can be bound to the arguments of a invocation, or be shared by all the invocations
+ * of the same method and invoked by {@link #invoke(Object[])}.
+ * The method is invoked by the {@link CacheMethodInvoker} from {@link CacheMethodInvokerFactory}.</p>
+ *
  * @author yangzexiong
  * @see org.springframework.cache.interceptor.CacheOperationInvocationContext
  */
@@ -40,33 +45,127 @@ public class CacheValueInvoker implements CacheOperationInvoker {
     private static final Object[] EMPTY = new Object[0];
 
     private final Method method;
-    private final Object target;
+    private final Supplier<Object> targetSupplier;
     private final Supplier<Object[]> argsSupplier;
+    private CacheMethodInvoker methodInvoker;
 
     public CacheValueInvoker(CacheOperationInvocationContext<?> context, boolean softRefArgs) {
         this(context.getMethod(), context.getTarget(), context.getArgs(), softRefArgs);
     }
 
     public CacheValueInvoker(Method method, Object target, Object[] args, boolean softRefArgs) {
+        this(method, target, bindArgs(args, softRefArgs));
+    }
+
+    /**
+     * Create a invoker which is not bound to any arguments.
+     *
+     * @param method the cached method
+     * @param target the target object
+     * @see #invoke(Object[])
+     */
+    public CacheValueInvoker(Method method, Object target) {
+        this(method, target, false);
+    }
+
+    /**
+     * Create a invoker which is not bound to any arguments.
+     * The invoker holding the target weakly does not keep the target from being garbage collected,
+     * and fails to invoke the method after that.
+     *
+     * @param method the cached method
+     * @param target the target object
+     * @param weakRefTarget whether to hold the target by a weak reference
+     * @see #invoke(Object[])
+     */
+    public CacheValueInvoker(Method method, Object target, boolean weakRefTarget) {
+        this(method, target, (Supplier<Object[]>) null, weakRefTarget);
+    }
+
+    private CacheValueInvoker(Method method, Object target, Supplier<Object[]> argsSupplier) {
+        this(method, target, argsSupplier, false);
+    }
+
+    private CacheValueInvoker(Method method, Object target, Supplier<Object[]> argsSupplier, boolean weakRefTarget) {
         Assert.notNull(method, "cacheMethod must not be null");
         Assert.notNull(target, "target must not be null");
         Class<?> targetClass = AopProxyUtils.ultimateTargetClass(target);
         this.method = (!Proxy.isProxyClass(targetClass) ? AopUtils.getMostSpecificMethod(method, targetClass) : method);
-        this.target = target;
+        this.targetSupplier = bindTarget(target, weakRefTarget);
+        this.argsSupplier = argsSupplier;
+    }
+
+    private static Supplier<Object> bindTarget(Object target, boolean weakRefTarget) {
+        if (weakRefTarget) {
+            WeakReference<Object> weakReference = new WeakReference<>(target);
+            return weakReference::get;
+        }
+        return () -> target;
+    }
+
+    private static Supplier<Object[]> bindArgs(Object[] args, boolean softRefArgs) {
         Object[] arguments = args == null ? EMPTY : args;
         SoftReference<Object[]> softReference = new SoftReference<>(arguments);
-        this.argsSupplier = softRefArgs ? softReference::get : () -> arguments;
+        return softRefArgs ? softReference::get : () -> arguments;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Return the target, or {@code null} if the target is held weakly and has been garbage collected.
+     *
+     * @return the target object
+     */
+    public Object getTarget() {
+        return targetSupplier.get();
+    }
+
+    /**
+     * Return the bound arguments, or {@code null} if the invoker is not bound to any arguments
+     * or the arguments have been garbage collected.
+     *
+     * @return the bound arguments
+     */
+    public Object[] getArgs() {
+        return argsSupplier != null ? argsSupplier.get() : null;
     }
 
     @Override
     public Object invoke() throws ThrowableWrapper {
+        if (argsSupplier == null) {
+            logger.warn("Invoker is not bound to any args and the cached method is [{}]", method);
+            return null;
+        }
         Object[] arguments = argsSupplier.get();
         if (arguments == null) {
             logger.warn("Args soft references has bean garbage collection and the cached method is [{}]", method);
             return null;
         }
+        return invoke(arguments);
+    }
+
+    /**
+     * Invoke the cached method with the given arguments.
+     *
+     * @param args the arguments of the invocation
+     * @return the result of the invocation
+     * @throws ThrowableWrapper if the method throws an exception
+     */
+    public Object invoke(Object[] args) throws ThrowableWrapper {
+        CacheMethodInvoker invoker = this.methodInvoker;
+        if (invoker == null) {
+            invoker = CacheMethodInvokerFactory.getInvoker(method);
+            this.methodInvoker = invoker;
+        }
+        Object target = targetSupplier.get();
+        if (target == null) {
+            throw new ThrowableWrapper(new IllegalStateException(
+                    "Target of the cached method [" + method + "] has been garbage collected"));
+        }
         try {
-            return method.invoke(target, arguments);
+            return invoker.invoke(target, args == null ? EMPTY : args);
         } catch (Throwable ex) {
             throw new ThrowableWrapper(ex);
         }
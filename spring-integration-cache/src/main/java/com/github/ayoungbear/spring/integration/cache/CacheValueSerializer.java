@@ -0,0 +1,47 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+/**
+ * 缓存值的序列化接口，用于把缓存值保存到堆外内存等 JVM 堆以外的存储。
+ *
+ * <p>实现需要是线程安全的，无法序列化的值抛出异常即可，调用方会跳过这个值。</p>
+ *
+ * @author yangzexiong
+ * @see JdkCacheValueSerializer
+ */
+public interface CacheValueSerializer {
+
+    /**
+     * 序列化缓存值。
+     *
+     * @param value the cache value
+     * @return the serialized bytes
+     * @throws IllegalArgumentException if the value could not be serialized
+     */
+    byte[] serialize(Object value);
+
+    /**
+     * 反序列化缓存值。
+     *
+     * @param bytes the serialized bytes
+     * @return the cache value
+     * @throws IllegalArgumentException if the bytes could not be deserialized
+     */
+    Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 使用 JDK {@link Deflater} 的 {@link CacheValueCodec}，不需要额外依赖。默认使用压缩速度最快的级别。
+ *
+ * @author yangzexiong
+ */
+public class DeflateCacheValueCodec implements CacheValueCodec {
+
+    private static final Supplier<DeflateCacheValueCodec> INSTANCE = SingletonSupplier
+            .of(() -> new DeflateCacheValueCodec(Deflater.BEST_SPEED));
+
+    private final int level;
+
+    /**
+     * @param level the compression level (0-9)
+     */
+    public DeflateCacheValueCodec(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+    }
+
+    public static DeflateCacheValueCodec newInstance() {
+        return INSTANCE.get();
+    }
+
+    @Override
+    public byte[] encode(byte[] bytes) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] buffer = new byte[Math.min(8192, Math.max(64, bytes.length))];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(byte[] bytes, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int count = inflater.inflate(result, offset, length - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += count;
+            }
+            if (offset != length) {
+                throw new IllegalArgumentException("Corrupted compressed value, expected " + length
+                        + " bytes but was " + offset);
+            }
+            return result;
+        } catch (DataFormatException ex) {
+            throw new IllegalArgumentException("Corrupted compressed value", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+}
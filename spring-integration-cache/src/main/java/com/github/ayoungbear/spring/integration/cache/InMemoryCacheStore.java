@@ -0,0 +1,117 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * 进程内的 {@link CacheStore} 实现，作为二级缓存的参考实现，用于测试或者单机部署时在同个进程的多个缓存之间共享。
+ *
+ * <p>过期的值在读取时移除，也可以通过 {@link #purgeExpired()} 主动清理。</p>
+ *
+ * @author yangzexiong
+ */
+public class InMemoryCacheStore implements CacheStore {
+
+    private final ConcurrentMap<String, ConcurrentMap<ByteBuffer, Entry>> caches = new ConcurrentHashMap<>();
+
+    @Nullable
+    @Override
+    public byte[] get(String cacheName, byte[] key) {
+        ConcurrentMap<ByteBuffer, Entry> cache = caches.get(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        ByteBuffer storeKey = ByteBuffer.wrap(key);
+        Entry entry = cache.get(storeKey);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            cache.remove(storeKey, entry);
+            return null;
+        }
+        return entry.value.clone();
+    }
+
+    @Override
+    public void put(String cacheName, byte[] key, byte[] value, long ttlMillis) {
+        long expireTime = ttlMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        caches.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>())
+                .put(ByteBuffer.wrap(key.clone()), new Entry(value.clone(), expireTime));
+    }
+
+    @Override
+    public void evict(String cacheName, byte[] key) {
+        ConcurrentMap<ByteBuffer, Entry> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.remove(ByteBuffer.wrap(key));
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        caches.remove(cacheName);
+    }
+
+    /**
+     * 移除所有过期的值。
+     */
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        for (ConcurrentMap<ByteBuffer, Entry> cache : caches.values()) {
+            cache.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+        }
+    }
+
+    /**
+     * 缓存的值数量，包括还没有移除的过期值。
+     *
+     * @param cacheName the cache name
+     * @return the number of values
+     */
+    public int size(String cacheName) {
+        Map<ByteBuffer, Entry> cache = caches.get(cacheName);
+        return cache != null ? cache.size() : 0;
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+
+        /**
+         * 0 表示不过期
+         */
+        private final long expireTime;
+
+        Entry(byte[] value, long expireTime) {
+            this.value = value;
+            this.expireTime = expireTime;
+        }
+
+        boolean isExpired(long now) {
+            return expireTime != 0 && now - expireTime >= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.lang.ref.SoftReference;
+
+/**
+ * Cache key with context and the arguments of the invocation which produced the key,
+ * so that the context can be shared by all keys of the same cached method.
+ *
+ * <p>The arguments are retained only when they can not be derived from the key: no array is held
+ * when the only argument is the same instance as the key (the most common case with the default key
+ * generator), and the invocations without arguments share the same empty array.</p>
+ *
+ * @author yangzexiong
+ * @see CacheKey
+ */
+public class InvocationCacheKey<K, C> extends CacheKey<K, C> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * Marks the arguments as a single argument which is the key itself.
+     */
+    private static final Object KEY_ARG = new Object();
+
+    /**
+     * The arguments as {@code Object[]}, {@code SoftReference<Object[]>}, {@link #KEY_ARG} or {@code null}.
+     * Volatile since it is softened by the writing thread and read by the loading threads.
+     */
+    private volatile Object args;
+
+    public InvocationCacheKey(K key, C context, Object[] args) {
+        super(key, context);
+        this.args = compact(key, args);
+    }
+
+    private static Object compact(Object key, Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        if (args.length == 0) {
+            return NO_ARGS;
+        }
+        // an equal key may differ in identity or state from the argument passed by the caller
+        if (args.length == 1 && args[0] == key) {
+            return KEY_ARG;
+        }
+        return args;
+    }
+
+    /**
+     * Return the arguments of the invocation, or {@code null} if the arguments are unknown
+     * or have been garbage collected.
+     *
+     * @return the invocation arguments
+     */
+    public Object[] getArgs() {
+        Object arguments = this.args;
+        if (arguments == KEY_ARG) {
+            return new Object[] {key};
+        }
+        if (arguments instanceof SoftReference) {
+            return ((SoftReference<Object[]>) arguments).get();
+        }
+        return (Object[]) arguments;
+    }
+
+    /**
+     * Hold the arguments by {@link SoftReference}, called before the key is stored to the cache.
+     * The arguments derived from the key are not retained and need not to be softened.
+     */
+    public void softenArgs() {
+        Object arguments = this.args;
+        if (arguments instanceof Object[] && arguments != NO_ARGS) {
+            this.args = new SoftReference<>((Object[]) arguments);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.function.Supplier;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 使用 JDK 序列化的 {@link CacheValueSerializer}，缓存值需要实现 {@link java.io.Serializable}。
+ *
+ * @author yangzexiong
+ */
+public class JdkCacheValueSerializer implements CacheValueSerializer {
+
+    private static final Supplier<JdkCacheValueSerializer> INSTANCE = SingletonSupplier
+            .of(JdkCacheValueSerializer::new);
+
+    public static JdkCacheValueSerializer newInstance() {
+        return INSTANCE.get();
+    }
+
+    @Override
+    public byte[] serialize(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(value);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to serialize value of type " + value.getClass().getName(), ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        try (ObjectInputStream input = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readObject();
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Failed to deserialize value", ex);
+        }
+    }
+
+    /**
+     * 使用线程上下文的类加载器加载类，兼容 spring boot devtools 等自定义类加载器的场景。
+     */
+    private static class ContextObjectInputStream extends ObjectInputStream {
+
+        ContextObjectInputStream(ByteArrayInputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return ClassUtils.forName(desc.getName(), ClassUtils.getDefaultClassLoader());
+            } catch (ClassNotFoundException ex) {
+                return super.resolveClass(desc);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 同个 JVM 内的 {@link CacheInvalidationTransport}，同名 channel 的所有实例互相广播（包括发送方自己），用于测试。
+ *
+ * @author yangzexiong
+ */
+public class LoopbackInvalidationTransport implements CacheInvalidationTransport {
+
+    private static final ConcurrentMap<String, List<LoopbackInvalidationTransport>> CHANNELS
+            = new ConcurrentHashMap<>();
+
+    private final String channel;
+
+    private volatile Consumer<byte[]> receiver;
+
+    public LoopbackInvalidationTransport(String channel) {
+        this.channel = Objects.requireNonNull(channel, "channel must not be null");
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = Objects.requireNonNull(receiver, "receiver must not be null");
+        CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArrayList<>()).add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (LoopbackInvalidationTransport transport : CHANNELS.getOrDefault(channel, new CopyOnWriteArrayList<>())) {
+            transport.receiver.accept(message.clone());
+        }
+    }
+
+    @Override
+    public void close() {
+        List<LoopbackInvalidationTransport> transports = CHANNELS.get(channel);
+        if (transports != null) {
+            transports.remove(this);
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+}
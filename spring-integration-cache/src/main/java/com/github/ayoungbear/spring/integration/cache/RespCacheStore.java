@@ -0,0 +1,404 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.springframework.util.StringUtils;
+
+/**
+ * 通过 Redis 协议（RESP）访问的 {@link CacheStore}，可以使用 Redis 或者兼容 Redis 协议的存储，不依赖 Redis 客户端。
+ *
+ * <p>key 为 {@code keyPrefix + cacheName + ":"} 加上序列化后的 key，值通过 {@code SET key value PX ttl} 写入，
+ * 清除缓存时通过 {@code SCAN} 匹配前缀后批量 {@code DEL}。连接按需创建并复用，最多 {@code maxConnections} 个，
+ * 连接出错时关闭该连接。</p>
+ *
+ * @author yangzexiong
+ * @see CacheStore
+ */
+public class RespCacheStore implements CacheStore, Closeable {
+
+    private static final int DEFAULT_PORT = 6379;
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 8;
+
+    private static final int SCAN_COUNT = 500;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String host;
+
+    private final int port;
+
+    private final String password;
+
+    private final int database;
+
+    private final int timeoutMillis;
+
+    private final String keyPrefix;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+
+    private volatile boolean closed;
+
+    public RespCacheStore(String host, int port) {
+        this(host, port, null, 0, DEFAULT_TIMEOUT, DEFAULT_MAX_CONNECTIONS, "");
+    }
+
+    /**
+     * @param host the server host
+     * @param port the server port
+     * @param password the password, or {@code null} if no authentication
+     * @param database the database index
+     * @param timeoutMillis the connect and read timeout in milliseconds
+     * @param maxConnections the max number of connections
+     * @param keyPrefix the prefix of all keys
+     */
+    public RespCacheStore(String host, int port, @Nullable String password, int database, int timeoutMillis,
+            int maxConnections, String keyPrefix) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.host = Objects.requireNonNull(host, "host must not be null");
+        this.port = port;
+        this.password = password;
+        this.database = database;
+        this.timeoutMillis = timeoutMillis;
+        this.keyPrefix = keyPrefix != null ? keyPrefix : "";
+        this.permits = new Semaphore(maxConnections);
+    }
+
+    /**
+     * 通过 {@code redis://[[username]:password@]host[:port][/database]} 格式的地址创建。
+     *
+     * @param url the server url
+     * @param keyPrefix the prefix of all keys
+     * @return the store
+     */
+    public static RespCacheStore fromUrl(String url, String keyPrefix) {
+        URI uri = URI.create(url);
+        if (!"redis".equals(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid redis url: " + url);
+        }
+        String password = null;
+        if (uri.getUserInfo() != null) {
+            int index = uri.getUserInfo().indexOf(':');
+            password = index >= 0 ? uri.getUserInfo().substring(index + 1) : uri.getUserInfo();
+        }
+        String path = uri.getPath();
+        int database = StringUtils.hasLength(path) && path.length() > 1 ? Integer.parseInt(path.substring(1)) : 0;
+        return new RespCacheStore(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : DEFAULT_PORT,
+                StringUtils.hasLength(password) ? password : null, database, DEFAULT_TIMEOUT,
+                DEFAULT_MAX_CONNECTIONS, keyPrefix);
+    }
+
+    @Nullable
+    @Override
+    public byte[] get(String cacheName, byte[] key) {
+        return (byte[]) execute(bytes("GET"), storeKey(cacheName, key));
+    }
+
+    @Override
+    public void put(String cacheName, byte[] key, byte[] value, long ttlMillis) {
+        if (ttlMillis > 0) {
+            execute(bytes("SET"), storeKey(cacheName, key), value, bytes("PX"), bytes(String.valueOf(ttlMillis)));
+        } else {
+            execute(bytes("SET"), storeKey(cacheName, key), value);
+        }
+    }
+
+    @Override
+    public void evict(String cacheName, byte[] key) {
+        execute(bytes("DEL"), storeKey(cacheName, key));
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        byte[] pattern = bytes(escapePattern(keyPrefix + cacheName + ":") + "*");
+        byte[] cursor = bytes("0");
+        do {
+            List<Object> reply = (List<Object>) execute(bytes("SCAN"), cursor, bytes("MATCH"), pattern,
+                    bytes("COUNT"), bytes(String.valueOf(SCAN_COUNT)));
+            cursor = (byte[]) reply.get(0);
+            List<Object> keys = (List<Object>) reply.get(1);
+            if (!keys.isEmpty()) {
+                byte[][] command = new byte[keys.size() + 1][];
+                command[0] = bytes("DEL");
+                for (int i = 0; i < keys.size(); i++) {
+                    command[i + 1] = (byte[]) keys.get(i);
+                }
+                execute(command);
+            }
+        } while (!"0".equals(new String(cursor, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    /**
+     * 执行命令并返回结果：简单字符串为 {@link String}，整数为 {@link Long}，bulk string 为 {@code byte[]}，数组为 {@link List}。
+     *
+     * @param command the command and arguments
+     * @return the reply
+     * @throws IllegalStateException if the server replies an error
+     * @throws UncheckedIOException if the server could not be accessed
+     */
+    protected Object execute(byte[]... command) {
+        if (closed) {
+            throw new IllegalStateException("store is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new UncheckedIOException(new IOException("No connection available in " + timeoutMillis + "ms"));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a connection", ex);
+        }
+        Connection connection = null;
+        try {
+            connection = idleConnections.poll();
+            if (connection == null) {
+                connection = connect();
+            }
+            Object reply = connection.execute(command);
+            idleConnections.push(connection);
+            connection = null;
+            if (reply instanceof ErrorReply) {
+                throw new IllegalStateException(((ErrorReply) reply).message);
+            }
+            return reply;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+            permits.release();
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Connection connection = new Connection(host, port, timeoutMillis);
+        try {
+            if (password != null) {
+                connection.check(connection.execute(bytes("AUTH"), bytes(password)));
+            }
+            if (database != 0) {
+                connection.check(connection.execute(bytes("SELECT"), bytes(String.valueOf(database))));
+            }
+            return connection;
+        } catch (IOException | RuntimeException ex) {
+            connection.close();
+            throw ex;
+        }
+    }
+
+    private byte[] storeKey(String cacheName, byte[] key) {
+        byte[] prefix = bytes(keyPrefix + cacheName + ":");
+        byte[] storeKey = new byte[prefix.length + key.length];
+        System.arraycopy(prefix, 0, storeKey, 0, prefix.length);
+        System.arraycopy(key, 0, storeKey, prefix.length, key.length);
+        return storeKey;
+    }
+
+    private static String escapePattern(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 服务端返回的错误，连接仍然可以继续使用。
+     */
+    private static final class ErrorReply {
+
+        private final String message;
+
+        ErrorReply(String message) {
+            this.message = message;
+        }
+
+    }
+
+    /**
+     * 一个 RESP 连接，同时只会被一个线程使用。
+     */
+    private static final class Connection {
+
+        private final Socket socket;
+
+        private final InputStream input;
+
+        private final OutputStream output;
+
+        Connection(String host, int port, int timeoutMillis) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeoutMillis);
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                this.input = new BufferedInputStream(socket.getInputStream());
+                this.output = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException ex) {
+                socket.close();
+                throw ex;
+            }
+        }
+
+        Object execute(byte[]... command) throws IOException {
+            output.write('*');
+            output.write(bytes(String.valueOf(command.length)));
+            output.write(CRLF);
+            for (byte[] argument : command) {
+                output.write('$');
+                output.write(bytes(String.valueOf(argument.length)));
+                output.write(CRLF);
+                output.write(argument);
+                output.write(CRLF);
+            }
+            output.flush();
+            return read();
+        }
+
+        void check(Object reply) {
+            if (reply instanceof ErrorReply) {
+                throw new IllegalStateException(((ErrorReply) reply).message);
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+
+        private Object read() throws IOException {
+            int type = input.read();
+            switch (type) {
+                case '+':
+                    return readLine();
+                case '-':
+                    return new ErrorReply(readLine());
+                case ':':
+                    return Long.parseLong(readLine());
+                case '$': {
+                    int length = Integer.parseInt(readLine());
+                    if (length < 0) {
+                        return null;
+                    }
+                    byte[] value = new byte[length];
+                    int offset = 0;
+                    while (offset < length) {
+                        int read = input.read(value, offset, length - offset);
+                        if (read < 0) {
+                            throw new EOFException();
+                        }
+                        offset += read;
+                    }
+                    readLine();
+                    return value;
+                }
+                case '*': {
+                    int length = Integer.parseInt(readLine());
+                    if (length < 0) {
+                        return null;
+                    }
+                    List<Object> values = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++) {
+                        values.add(read());
+                    }
+                    return values;
+                }
+                case -1:
+                    throw new EOFException();
+                default:
+                    throw new IOException("Unknown reply type: " + (char) type);
+            }
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+            int b;
+            while ((b = input.read()) != '\r') {
+                if (b < 0) {
+                    throw new EOFException();
+                }
+                line.write(b);
+            }
+            if (input.read() != '\n') {
+                throw new IOException("Invalid line terminator");
+            }
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 通过 UDP 单播发送给固定节点列表的 {@link CacheInvalidationTransport}，不需要额外的中间件。
+ *
+ * <p>每条消息是一个数据报，不保证送达和顺序，丢失的失效消息由缓存的过期时间兜底。
+ * 节点列表可以包括自己，发送给自己的消息由接收方忽略。</p>
+ *
+ * <p>只监听指定的地址，丢弃来源地址不在节点列表中的数据报。每条消息末尾附带使用共享密钥计算的 HmacSHA256，
+ * 签名不正确的消息直接丢弃，不会交给接收方。</p>
+ *
+ * @author yangzexiong
+ */
+public class UdpInvalidationTransport implements CacheInvalidationTransport {
+
+    /**
+     * 避免 IP 分片的安全大小
+     */
+    private static final int MAX_MESSAGE_SIZE = 1400;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int MAC_LENGTH = 32;
+
+    /**
+     * 共享密钥的最小字节数
+     */
+    private static final int MIN_SECRET_LENGTH = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+
+    private final InetSocketAddress bindAddress;
+
+    private final List<InetSocketAddress> peers;
+
+    private final Set<InetAddress> peerAddresses = new HashSet<>();
+
+    private final SecretKeySpec secretKey;
+
+    private volatile DatagramSocket socket;
+
+    /**
+     * @param bindAddress the local address to receive the messages, port 0 for any free port
+     * @param peers the addresses of the peers, the datagrams from other addresses are dropped
+     * @param secret the secret shared by the peers to sign the messages, at least 16 bytes
+     */
+    public UdpInvalidationTransport(InetSocketAddress bindAddress, Collection<InetSocketAddress> peers,
+            byte[] secret) {
+        this.bindAddress = Objects.requireNonNull(bindAddress, "bind address must not be null");
+        this.peers = new ArrayList<>(Objects.requireNonNull(peers, "peers must not be null"));
+        for (InetSocketAddress peer : this.peers) {
+            if (peer.isUnresolved()) {
+                throw new IllegalArgumentException("Unresolved peer address: " + peer);
+            }
+            peerAddresses.add(peer.getAddress());
+        }
+        if (secret == null || secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("secret must be at least " + MIN_SECRET_LENGTH + " bytes");
+        }
+        this.secretKey = new SecretKeySpec(secret.clone(), MAC_ALGORITHM);
+    }
+
+    /**
+     * 解析 {@code host:port} 格式的节点地址。
+     *
+     * @param address the address
+     * @return the socket address
+     */
+    public static InetSocketAddress parseAddress(String address) {
+        int index = address.lastIndexOf(':');
+        if (index <= 0) {
+            throw new IllegalArgumentException("Invalid peer address: " + address);
+        }
+        return new InetSocketAddress(address.substring(0, index).trim(),
+                Integer.parseInt(address.substring(index + 1).trim()));
+    }
+
+    @Override
+    public synchronized void start(Consumer<byte[]> receiver) {
+        Objects.requireNonNull(receiver, "receiver must not be null");
+        if (socket != null) {
+            throw new IllegalStateException("transport is already started");
+        }
+        try {
+            socket = new DatagramSocket(bindAddress);
+        } catch (SocketException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        DatagramSocket receiveSocket = socket;
+        Thread thread = new Thread(() -> receive(receiveSocket, receiver), "caffeine-cache-invalidation-udp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(byte[] message) {
+        DatagramSocket sendSocket = socket;
+        if (sendSocket == null) {
+            throw new IllegalStateException("transport is not started");
+        }
+        byte[] signed = Arrays.copyOf(message, message.length + MAC_LENGTH);
+        System.arraycopy(sign(message), 0, signed, message.length, MAC_LENGTH);
+        for (InetSocketAddress peer : peers) {
+            try {
+                sendSocket.send(new DatagramPacket(signed, signed.length, peer));
+            } catch (IOException ex) {
+                logger.warn("cache invalidation could not be sent to {}: {}", peer, ex.toString());
+            }
+        }
+    }
+
+    @Override
+    public int getMaxMessageSize() {
+        return MAX_MESSAGE_SIZE - MAC_LENGTH;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            socket.close();
+            socket = null;
+        }
+    }
+
+    /**
+     * 实际监听的端口，未启动时返回 -1。
+     *
+     * @return the local port
+     */
+    public int getLocalPort() {
+        DatagramSocket current = socket;
+        return current != null ? current.getLocalPort() : -1;
+    }
+
+    public List<InetSocketAddress> getPeers() {
+        return peers;
+    }
+
+    private void receive(DatagramSocket socket, Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[65536];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException ex) {
+                if (!socket.isClosed()) {
+                    logger.warn("cache invalidation could not be received", ex);
+                }
+                continue;
+            }
+            if (!peerAddresses.contains(packet.getAddress())) {
+                logger.warn("cache invalidation from unknown address {} is dropped", packet.getSocketAddress());
+                continue;
+            }
+            byte[] message = verify(packet.getData(), packet.getOffset(), packet.getLength());
+            if (message == null) {
+                logger.warn("cache invalidation from {} has an invalid signature and is dropped",
+                        packet.getSocketAddress());
+                continue;
+            }
+            try {
+                receiver.accept(message);
+            } catch (RuntimeException ex) {
+                logger.warn("cache invalidation from {} could not be applied", packet.getSocketAddress(), ex);
+            }
+        }
+    }
+
+    /**
+     * 校验消息末尾的签名。
+     *
+     * @return the message without the signature, or {@code null} if the signature is invalid
+     */
+    private byte[] verify(byte[] data, int offset, int length) {
+        if (length <= MAC_LENGTH) {
+            return null;
+        }
+        byte[] message = Arrays.copyOfRange(data, offset, offset + length - MAC_LENGTH);
+        byte[] mac = Arrays.copyOfRange(data, offset + length - MAC_LENGTH, offset + length);
+        return MessageDigest.isEqual(sign(message), mac) ? message : null;
+    }
+
+    private byte[] sign(byte[] message) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(secretKey);
+            mac.update(message);
+            return mac.doFinal();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -21,6 +21,12 @@ import com.github.ayoungbear.spring.integration.cache.CacheExpressionRootObject;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.cache.interceptor.CacheOperationInvocationContext;
@@ -28,11 +34,16 @@ import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.context.expression.BeanFactoryResolver;
 import org.springframework.context.expression.MethodBasedEvaluationContext;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
 import org.springframework.util.StringUtils;
 
 /**
  * 注解式 CaffeineCache 缓存配置信息解析，根据注解配置覆盖默认配置。
  *
+ * <p>每个 (cache name, method, target class) 只会在第一次调用时解析一次注解，
+ * 常量配置（数字或者只由字面量和运算符组成的 SpEL）会直接计算并缓存起来，
+ * 之后的调用只需要计算其他 SpEL 表达式（引用了参数、bean 或者调用了方法）；如果所有配置都是常量，则直接返回缓存的配置。</p>
+ *
  * @author yangzexiong
  * @see CaffeineCacheConfig
  */
@@ -40,59 +51,299 @@ public class AnnotationCaffeineCacheConfigResolver extends DefaultCaffeineCacheC
 
     private final CacheConfigExpressionEvaluator evaluator = new CacheConfigExpressionEvaluator();
 
+    private final Map<CaffeineCacheConfigKey, CaffeineCacheConfigMetadata> metadataCache = new ConcurrentHashMap<>(64);
+
+    private volatile BeanFactoryResolver beanFactoryResolver;
+
     @Override
     public CaffeineCacheOperationConfig resolveConfig(String name, CacheOperationInvocationContext<?> context) {
-        CaffeineCacheOperationConfig defaultConfig = super.resolveConfig(name, context);
+        return getConfigMetadata(name, context).resolveConfig(context);
+    }
+
+    @Override
+    public boolean isInvocationIndependent(String name, CacheOperationInvocationContext<?> context) {
+        return getConfigMetadata(name, context).isInvocationIndependent();
+    }
 
+    /**
+     * 返回缓存的配置元数据，不存在则解析注解。
+     *
+     * @param name cache name
+     * @param context Representation of the context of the invocation of a cache operation
+     * @return the resolved config metadata
+     */
+    protected CaffeineCacheConfigMetadata getConfigMetadata(String name, CacheOperationInvocationContext<?> context) {
         Class<?> targetClass = AopProxyUtils.ultimateTargetClass(context.getTarget());
+        CaffeineCacheConfigKey configKey = new CaffeineCacheConfigKey(name, context.getMethod(), targetClass);
+        CaffeineCacheConfigMetadata metadata = this.metadataCache.get(configKey);
+        if (metadata == null) {
+            metadata = this.metadataCache
+                    .computeIfAbsent(configKey, key -> buildConfigMetadata(name, context, targetClass));
+        }
+        return metadata;
+    }
+
+    private CaffeineCacheConfigMetadata buildConfigMetadata(String name, CacheOperationInvocationContext<?> context,
+            Class<?> targetClass) {
         Method method = (!Proxy.isProxyClass(targetClass) ? AopUtils.getMostSpecificMethod(context.getMethod(),
                 targetClass) : context.getMethod());
+        CaffeineCacheConfigMetadata metadata = new CaffeineCacheConfigMetadata(method, targetClass);
+        MethodBasedEvaluationContext evaluationContext = metadata.createEvaluationContext(context);
+
+        CaffeineCacheOperationConfig defaultConfig = super.resolveConfig(name, context);
+        CaffeineCacheConfig classConfig = AnnotatedElementUtils
+                .getMergedAnnotation(targetClass, CaffeineCacheConfig.class);
+        CaffeineCacheConfig methodConfig = AnnotatedElementUtils.getMergedAnnotation(method, CaffeineCacheConfig.class);
+
+        CaffeineCacheOperationConfig staticConfig = metadata.staticConfig;
+        CaffeineCacheConfigUtils.mergeConfig(staticConfig, defaultConfig);
+        if (classConfig != null) {
+            staticConfig.setSoftRef(classConfig.softRef());
+            staticConfig.setAsync(classConfig.async());
+            staticConfig.setEarlyRefresh(classConfig.earlyRefresh());
+            staticConfig.setRecordStats(staticConfig.getRecordStats() || classConfig.recordStats());
+            if (classConfig.valueStrength() != ValueStrength.DEFAULT) {
+                staticConfig.setValueStrength(classConfig.valueStrength());
+            }
+        }
+        if (methodConfig != null) {
+            staticConfig.setSoftRef(methodConfig.softRef());
+            // the method config overrides the class config, so that a method can turn off the class level async
+            staticConfig.setAsync(methodConfig.async());
+            staticConfig.setEarlyRefresh(staticConfig.getEarlyRefresh() || methodConfig.earlyRefresh());
+            staticConfig.setRecordStats(staticConfig.getRecordStats() || methodConfig.recordStats());
+            if (methodConfig.valueStrength() != ValueStrength.DEFAULT) {
+                staticConfig.setValueStrength(methodConfig.valueStrength());
+            }
+        }
+        CaffeineCacheable cacheable = AnnotatedElementUtils.getMergedAnnotation(method, CaffeineCacheable.class);
+        if (cacheable != null && cacheable.bulk()) {
+            staticConfig.setBulk(true);
+            staticConfig.setBulkKey(StringUtils.hasText(cacheable.bulkKey()) ? cacheable.bulkKey() : null);
+        }
+        if (cacheable != null && StringUtils.hasText(cacheable.batchLoader())) {
+            staticConfig.setBatchLoader(cacheable.batchLoader());
+            staticConfig.setBatchSize(cacheable.batchSize());
+            staticConfig.setBatchWindow(cacheable.batchWindow());
+        }
+        String executor = methodConfig != null && StringUtils.hasText(methodConfig.executor()) ? methodConfig
+                .executor() : (classConfig != null && StringUtils.hasText(classConfig.executor()) ? classConfig
+                .executor() : null);
+        if (executor != null) {
+            staticConfig.setExecutor(findExecutor(executor));
+        }
+        String weigher = methodConfig != null && StringUtils.hasText(methodConfig.weigher()) ? methodConfig
+                .weigher() : (classConfig != null && StringUtils.hasText(classConfig.weigher()) ? classConfig
+                .weigher() : null);
+        if (weigher != null) {
+            staticConfig.setWeigher(findWeigher(weigher));
+        }
+
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::maximumSize, defaultConfig.getMaximumSize(),
+                CaffeineCacheOperationConfig::setMaximumSize);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::maximumWeight, defaultConfig.getMaximumWeight(),
+                CaffeineCacheOperationConfig::setMaximumWeight);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::offHeapCapacity, defaultConfig.getOffHeapCapacity(),
+                CaffeineCacheOperationConfig::setOffHeapCapacity);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::compressThreshold, defaultConfig.getCompressThreshold(),
+                CaffeineCacheOperationConfig::setCompressThreshold);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::expireAfterWrite, defaultConfig.getExpireAfterWrite(),
+                CaffeineCacheOperationConfig::setExpireAfterWrite);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::expireAfterAccess, defaultConfig.getExpireAfterAccess(),
+                CaffeineCacheOperationConfig::setExpireAfterAccess);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::maxStale, defaultConfig.getMaxStale(),
+                CaffeineCacheOperationConfig::setMaxStale);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::negativeExpireAfterWrite, defaultConfig.getNegativeExpireAfterWrite(),
+                CaffeineCacheOperationConfig::setNegativeExpireAfterWrite);
+        resolveAttribute(metadata, evaluationContext, method, methodConfig, targetClass, classConfig,
+                CaffeineCacheConfig::refreshAfterWrite, defaultConfig.getRefreshAfterWrite(),
+                CaffeineCacheOperationConfig::setRefreshAfterWrite);
+        return metadata;
+    }
 
-        CacheExpressionRootObject rootObject = new CacheExpressionRootObject(method, context.getArgs(),
-                context.getTarget(), targetClass);
-        MethodBasedEvaluationContext evaluationContext = new MethodBasedEvaluationContext(rootObject, method,
-                context.getArgs(), evaluator.getParameterNameDiscoverer());
-        if (beanFactory != null) {
-            evaluationContext.setBeanResolver(new BeanFactoryResolver(beanFactory));
+    /**
+     * 按方法注解、类注解、默认配置的优先级解析属性，优先级更高的非空结果生效。
+     * 与调用无关的表达式在这里直接计算，遇到非空的常量结果后，优先级更低的配置都不会再生效。
+     */
+    private void resolveAttribute(CaffeineCacheConfigMetadata metadata,
+            MethodBasedEvaluationContext evaluationContext, Method method, CaffeineCacheConfig methodConfig,
+            Class<?> targetClass, CaffeineCacheConfig classConfig, Function<CaffeineCacheConfig, String> attribute,
+            Integer defaultValue, BiConsumer<CaffeineCacheOperationConfig, Integer> setter) {
+        List<AnnotatedElement> elements = new ArrayList<>(2);
+        List<CaffeineCacheConfig> configs = new ArrayList<>(2);
+        if (methodConfig != null) {
+            elements.add(method);
+            configs.add(methodConfig);
+        }
+        if (classConfig != null) {
+            elements.add(targetClass);
+            configs.add(classConfig);
         }
 
-        CaffeineCacheOperationConfig classConfig = resolveConfig(targetClass, evaluationContext);
-        CaffeineCacheOperationConfig methodConfig = resolveConfig(method, evaluationContext);
+        List<Expression> expressions = new ArrayList<>(2);
+        Integer constant = defaultValue;
+        for (int i = 0; i < configs.size(); i++) {
+            String expressionString = attribute.apply(configs.get(i));
+            if (!StringUtils.hasText(expressionString)) {
+                continue;
+            }
+            AnnotatedElementKey elementKey = new AnnotatedElementKey(elements.get(i), null);
+            Expression expression = evaluator.getExpression(expressionString, elementKey);
+            if (!CacheConfigExpressionEvaluator.isInvocationIndependent(expression)) {
+                expressions.add(expression);
+                continue;
+            }
+            Integer value = expression.getValue(evaluationContext, Integer.class);
+            if (value != null) {
+                constant = value;
+                break;
+            }
+        }
+        if (expressions.isEmpty()) {
+            setter.accept(metadata.staticConfig, constant);
+        } else {
+            metadata.dynamicAttributes.add(new DynamicConfigAttribute(expressions, constant, setter));
+        }
+    }
 
-        CaffeineCacheOperationConfig config = CaffeineCacheConfigUtils.mergeConfig(defaultConfig, classConfig);
-        return CaffeineCacheConfigUtils.mergeConfig(config, methodConfig);
+    private BeanFactoryResolver getBeanFactoryResolver() {
+        if (beanFactoryResolver == null && beanFactory != null) {
+            beanFactoryResolver = new BeanFactoryResolver(beanFactory);
+        }
+        return beanFactoryResolver;
     }
 
-    private CaffeineCacheOperationConfig resolveConfig(AnnotatedElement element,
-            MethodBasedEvaluationContext evaluationContext) {
-        CaffeineCacheConfig caffeineCacheConfig = AnnotatedElementUtils
-                .getMergedAnnotation(element, CaffeineCacheConfig.class);
-        if (caffeineCacheConfig == null) {
-            return null;
+    /**
+     * 已解析的方法缓存配置元数据。
+     */
+    protected class CaffeineCacheConfigMetadata {
+
+        private final Method method;
+
+        private final Class<?> targetClass;
+
+        /**
+         * 与调用参数无关的配置
+         */
+        private final CaffeineCacheOperationConfig staticConfig = new CaffeineCacheOperationConfig();
+
+        /**
+         * 依赖调用参数的配置，每次调用都需要重新计算
+         */
+        private final List<DynamicConfigAttribute> dynamicAttributes = new ArrayList<>(4);
+
+        CaffeineCacheConfigMetadata(Method method, Class<?> targetClass) {
+            this.method = method;
+            this.targetClass = targetClass;
+        }
+
+        /**
+         * 配置是否与调用参数无关，如果是则每次解析都返回同一个配置对象。
+         *
+         * @return {@code true} if every attribute is a constant
+         */
+        public boolean isInvocationIndependent() {
+            return dynamicAttributes.isEmpty();
+        }
+
+        public CaffeineCacheOperationConfig resolveConfig(CacheOperationInvocationContext<?> context) {
+            if (dynamicAttributes.isEmpty()) {
+                return staticConfig;
+            }
+            CaffeineCacheOperationConfig config = CaffeineCacheConfigUtils
+                    .mergeConfig(new CaffeineCacheOperationConfig(), staticConfig);
+            MethodBasedEvaluationContext evaluationContext = createEvaluationContext(context);
+            for (DynamicConfigAttribute attribute : dynamicAttributes) {
+                attribute.resolve(config, evaluationContext);
+            }
+            return config;
+        }
+
+        MethodBasedEvaluationContext createEvaluationContext(CacheOperationInvocationContext<?> context) {
+            CacheExpressionRootObject rootObject = new CacheExpressionRootObject(method, context.getArgs(),
+                    context.getTarget(), targetClass);
+            MethodBasedEvaluationContext evaluationContext = new MethodBasedEvaluationContext(rootObject, method,
+                    context.getArgs(), evaluator.getParameterNameDiscoverer());
+            BeanFactoryResolver resolver = getBeanFactoryResolver();
+            if (resolver != null) {
+                evaluationContext.setBeanResolver(resolver);
+            }
+            return evaluationContext;
         }
-        AnnotatedElementKey elementKey = new AnnotatedElementKey(element, null);
-        CaffeineCacheOperationConfig config = new CaffeineCacheOperationConfig();
-        if (StringUtils.hasText(caffeineCacheConfig.maximumSize())) {
-            config.setMaximumSize(
-                    evaluator.evaluateInteger(caffeineCacheConfig.maximumSize(), elementKey, evaluationContext));
+
+    }
+
+    /**
+     * 依赖调用参数的配置属性，按优先级依次计算表达式，都为空时取常量配置。
+     */
+    private static class DynamicConfigAttribute {
+
+        private final List<Expression> expressions;
+
+        private final Integer fallback;
+
+        private final BiConsumer<CaffeineCacheOperationConfig, Integer> setter;
+
+        DynamicConfigAttribute(List<Expression> expressions, Integer fallback,
+                BiConsumer<CaffeineCacheOperationConfig, Integer> setter) {
+            this.expressions = expressions;
+            this.fallback = fallback;
+            this.setter = setter;
         }
-        if (StringUtils.hasText(caffeineCacheConfig.expireAfterWrite())) {
-            config.setExpireAfterWrite(
-                    evaluator.evaluateInteger(caffeineCacheConfig.expireAfterWrite(), elementKey, evaluationContext));
+
+        void resolve(CaffeineCacheOperationConfig config, MethodBasedEvaluationContext evaluationContext) {
+            for (Expression expression : expressions) {
+                Integer value = expression.getValue(evaluationContext, Integer.class);
+                if (value != null) {
+                    setter.accept(config, value);
+                    return;
+                }
+            }
+            setter.accept(config, fallback);
         }
-        if (StringUtils.hasText(caffeineCacheConfig.expireAfterAccess())) {
-            config.setExpireAfterAccess(
-                    evaluator.evaluateInteger(caffeineCacheConfig.expireAfterAccess(), elementKey, evaluationContext));
+
+    }
+
+    private static final class CaffeineCacheConfigKey {
+
+        private final String name;
+
+        private final Method method;
+
+        private final Class<?> targetClass;
+
+        CaffeineCacheConfigKey(String name, Method method, Class<?> targetClass) {
+            this.name = name;
+            this.method = method;
+            this.targetClass = targetClass;
         }
-        if (StringUtils.hasText(caffeineCacheConfig.refreshAfterWrite())) {
-            config.setRefreshAfterWrite(
-                    evaluator.evaluateInteger(caffeineCacheConfig.refreshAfterWrite(), elementKey, evaluationContext));
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CaffeineCacheConfigKey)) {
+                return false;
+            }
+            CaffeineCacheConfigKey otherKey = (CaffeineCacheConfigKey) other;
+            return this.name.equals(otherKey.name) && this.method.equals(otherKey.method)
+                    && this.targetClass == otherKey.targetClass;
         }
-        if (StringUtils.hasText(caffeineCacheConfig.executor())) {
-            config.setExecutor(findExecutor(caffeineCacheConfig.executor()));
+
+        @Override
+        public int hashCode() {
+            return (this.name.hashCode() * 31 + this.method.hashCode()) * 31 + this.targetClass.hashCode();
         }
-        config.setSoftRef(caffeineCacheConfig.softRef());
-        return config;
+
     }
 
 }
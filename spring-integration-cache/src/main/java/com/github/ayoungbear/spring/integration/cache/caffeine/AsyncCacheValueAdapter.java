@@ -0,0 +1,56 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 异步缓存值适配，用于缓存方法的返回值和异步缓存 {@link com.github.benmanes.caffeine.cache.AsyncCache} 中保存的 future 之间的转换。
+ *
+ * @author yangzexiong
+ * @see AsyncCacheValueAdapters
+ */
+public interface AsyncCacheValueAdapter {
+
+    /**
+     * 将缓存方法的返回值转换为缓存中保存的 future。
+     *
+     * @param value the value returned by the cached method
+     * @return the future to store
+     */
+    CompletableFuture<Object> toFuture(Object value);
+
+    /**
+     * 将缓存中保存的 future 转换为缓存方法的返回值。
+     *
+     * @param future the supplier of the cached future
+     * @return the value to return by the cached method
+     */
+    Object fromFuture(Supplier<CompletableFuture<Object>> future);
+
+    /**
+     * 缓存方法的返回值是否是延迟执行的（比如 Reactor 的 {@code Mono}、{@code Flux}），需要订阅后才会执行，
+     * 这类返回值不能直接保存到缓存，否则会和调用方各自订阅执行一次。
+     *
+     * @return {@code true} if the value is executed on subscription
+     */
+    default boolean isDeferred() {
+        return false;
+    }
+
+}
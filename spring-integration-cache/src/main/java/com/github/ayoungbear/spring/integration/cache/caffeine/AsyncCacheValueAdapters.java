@@ -0,0 +1,90 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 根据缓存方法的返回类型获取 {@link AsyncCacheValueAdapter}。
+ *
+ * <p>支持 {@link CompletionStage}，以及在 classpath 中存在 Reactor 时支持 {@code Mono}、{@code Flux}。</p>
+ *
+ * @author yangzexiong
+ */
+public final class AsyncCacheValueAdapters {
+
+    private static final boolean reactorPresent = ClassUtils
+            .isPresent("reactor.core.publisher.Flux", AsyncCacheValueAdapters.class.getClassLoader());
+
+    /**
+     * 缓存方法返回 {@link CompletionStage} 时使用的适配，直接返回缓存的 future。
+     */
+    public static final AsyncCacheValueAdapter FUTURE = new AsyncCacheValueAdapter() {
+        @Override
+        public CompletableFuture<Object> toFuture(Object value) {
+            if (value instanceof CompletionStage) {
+                return ((CompletionStage<Object>) value).toCompletableFuture();
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public Object fromFuture(Supplier<CompletableFuture<Object>> future) {
+            return future.get();
+        }
+    };
+
+    private AsyncCacheValueAdapters() {
+    }
+
+    /**
+     * 获取返回类型对应的适配。
+     *
+     * @param returnType the return type of the cached method
+     * @return the adapter, or {@code null} if the return type is a plain value
+     */
+    @Nullable
+    public static AsyncCacheValueAdapter forReturnType(Class<?> returnType) {
+        if (CompletionStage.class.isAssignableFrom(returnType)) {
+            return FUTURE;
+        }
+        if (reactorPresent) {
+            return ReactorCacheValueAdapter.forReturnType(returnType);
+        }
+        return null;
+    }
+
+    /**
+     * 获取缓存上下文对应的缓存方法的返回值适配。
+     *
+     * @param context the cache operation context
+     * @return the adapter, or {@code null} if the cached method returns a plain value
+     */
+    @Nullable
+    public static AsyncCacheValueAdapter forContext(@Nullable CaffeineCacheOperationContext context) {
+        if (context != null && context.getCacheLoader() instanceof CacheValueInvoker) {
+            return forReturnType(((CacheValueInvoker) context.getCacheLoader()).getMethod().getReturnType());
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 异步缓存 {@link com.github.benmanes.caffeine.cache.AsyncLoadingCache} 的缓存加载。
+ *
+ * <p>如果缓存方法返回的是 {@link CompletionStage} 或 Reactor 的 {@code Mono}、{@code Flux}，
+ * 通过 {@link AsyncCacheValueAdapter} 将方法返回值转换为 future 作为加载结果，不会占用线程等待；
+ * 否则在当前线程加载，异步刷新时则使用缓存的异步执行器。</p>
+ *
+ * @author yangzexiong
+ * @see CacheValueInvokerLoader
+ */
+public class AsyncCacheValueInvokerLoader implements
+        AsyncCacheLoader<CacheKey<Object, CaffeineCacheOperationContext>, Object> {
+
+    private static final Supplier<AsyncCacheValueInvokerLoader> INSTANCE = SingletonSupplier
+            .of(AsyncCacheValueInvokerLoader::new);
+
+    private final CacheValueInvokerLoader loader = CacheValueInvokerLoader.newInstance();
+
+    public static AsyncCacheValueInvokerLoader newInstance() {
+        return INSTANCE.get();
+    }
+
+    @Override
+    public CompletableFuture<Object> asyncLoad(CacheKey<Object, CaffeineCacheOperationContext> key,
+            Executor executor) {
+        AsyncCacheValueAdapter valueAdapter = AsyncCacheValueAdapters.forContext(key.getContext());
+        if (valueAdapter != null) {
+            return loadFuture(key, valueAdapter);
+        }
+        return CompletableFuture.completedFuture(load(key));
+    }
+
+    @Override
+    public CompletableFuture<Object> asyncReload(CacheKey<Object, CaffeineCacheOperationContext> key,
+            Object oldValue, Executor executor) {
+        CaffeineCacheBatchRefresher batchRefresher = key.getContext().getBatchRefresher();
+        if (batchRefresher != null) {
+            return batchRefresher.refresh(key, executor);
+        }
+        AsyncCacheValueAdapter valueAdapter = AsyncCacheValueAdapters.forContext(key.getContext());
+        if (valueAdapter != null) {
+            return loadFuture(key, valueAdapter);
+        }
+        return CompletableFuture.supplyAsync(() -> load(key), executor);
+    }
+
+    private CompletableFuture<Object> loadFuture(CacheKey<Object, CaffeineCacheOperationContext> key,
+            AsyncCacheValueAdapter valueAdapter) {
+        CaffeineCacheRefresher refresher = key.getContext().getEarlyRefresh() ? key.getContext().getRefresher() : null;
+        if (refresher == null) {
+            return valueAdapter.toFuture(load(key));
+        }
+        long startTime = refresher.getTicker().read();
+        CompletableFuture<Object> future = valueAdapter.toFuture(load(key));
+        future.whenComplete((value, error) -> refresher.recordLoadTime(refresher.getTicker().read() - startTime));
+        return future;
+    }
+
+    private Object load(CacheKey<Object, CaffeineCacheOperationContext> key) {
+        try {
+            return loader.load(key);
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+}
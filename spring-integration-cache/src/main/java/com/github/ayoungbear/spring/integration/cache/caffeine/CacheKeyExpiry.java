@@ -29,6 +29,9 @@ import org.springframework.util.function.SingletonSupplier;
 /**
  * CaffeineCache 根据 {@link CacheKey} 的过期策略。
  *
+ * <p>配置了 {@link CaffeineCacheOperationContext#getNegativeExpireAfterWrite()} 时，空结果按该时间和其他过期时间中
+ * 较短的过期，读取不会延长空结果的过期时间。</p>
+ *
  * @author yangzexiong
  * @see CacheKey
  * @see CaffeineCacheOperationContext
@@ -46,17 +49,33 @@ public class CacheKeyExpiry implements Expiry<CacheKey<Object, CaffeineCacheOper
     @Override
     public long expireAfterCreate(@NonNull CacheKey<Object, CaffeineCacheOperationContext> key, @NonNull Object value,
             long currentTime) {
+        long expireTime = getDurationNanos(key, value);
+        if (logger.isDebugEnabled()) {
+            logger.debug("key '{}' expire time after [create] time is [{}ms]", key,
+                    TimeUnit.NANOSECONDS.toMillis(expireTime));
+        }
+        return expireTime;
+    }
+
+    /**
+     * 新写入的缓存值的有效时间（包括 {@link CaffeineCacheOperationContext#getMaxStale()} 额外保留的时间），不记录任何统计，
+     * 用于其他地方按同样的过期策略保存缓存值。
+     *
+     * @param key the cache key
+     * @param value the cache value
+     * @return the duration in nanoseconds, or {@link Long#MAX_VALUE} if never expires
+     */
+    static long getDurationNanos(CacheKey<Object, CaffeineCacheOperationContext> key, Object value) {
         CaffeineCacheOperationContext context = key.getContext();
         long expireTime = Long.MAX_VALUE;
         if (context.getExpireAfterWrite() != null && context.getExpireAfterWrite() > 0) {
-            expireTime = Math.min(expireTime, TimeUnit.MILLISECONDS.toNanos(context.getExpireAfterWrite()));
+            expireTime = Math.min(expireTime, getExpireAfterWriteNanos(context));
         }
         if (context.getExpireAfterAccess() != null && context.getExpireAfterAccess() > 0) {
             expireTime = Math.min(expireTime, TimeUnit.MILLISECONDS.toNanos(context.getExpireAfterAccess()));
         }
-        if (logger.isDebugEnabled()) {
-            logger.debug("key '{}' expire time after [create] time is [{}ms]", key,
-                    TimeUnit.NANOSECONDS.toMillis(expireTime));
+        if (isNegative(context, value)) {
+            expireTime = Math.min(expireTime, TimeUnit.MILLISECONDS.toNanos(context.getNegativeExpireAfterWrite()));
         }
         return expireTime;
     }
@@ -65,9 +84,13 @@ public class CacheKeyExpiry implements Expiry<CacheKey<Object, CaffeineCacheOper
     public long expireAfterUpdate(@NonNull CacheKey<Object, CaffeineCacheOperationContext> key, @NonNull Object value,
             long currentTime, @NonNegative long currentDuration) {
         CaffeineCacheOperationContext context = key.getContext();
+        if (isNegativeCaching(context)) {
+            // the current duration may be shortened by the replaced negative value
+            return expireAfterCreate(key, value, currentTime);
+        }
         long expireTime = currentDuration;
         if (context.getExpireAfterWrite() != null && context.getExpireAfterWrite() > 0) {
-            expireTime = TimeUnit.MILLISECONDS.toNanos(context.getExpireAfterWrite());
+            expireTime = getExpireAfterWriteNanos(context);
         }
         if (context.getExpireAfterAccess() != null && context.getExpireAfterAccess() > 0) {
             expireTime = Math.min(expireTime, TimeUnit.MILLISECONDS.toNanos(context.getExpireAfterAccess()));
@@ -79,10 +102,56 @@ public class CacheKeyExpiry implements Expiry<CacheKey<Object, CaffeineCacheOper
         return expireTime;
     }
 
+    /**
+     * 写入后的过期时间，配置了 {@link CaffeineCacheOperationContext#getMaxStale()} 时缓存会多保留这段时间，
+     * 用于加载失败时返回旧值，是否过期由 {@link CaffeineCacheRefresher} 判断。
+     */
+    private static long getExpireAfterWriteNanos(CaffeineCacheOperationContext context) {
+        long expireAfterWrite = context.getExpireAfterWrite();
+        if (context.getMaxStale() != null && context.getMaxStale() > 0) {
+            expireAfterWrite += context.getMaxStale();
+        }
+        return TimeUnit.MILLISECONDS.toNanos(expireAfterWrite);
+    }
+
+    private static boolean isNegativeCaching(CaffeineCacheOperationContext context) {
+        return context.getNegativeExpireAfterWrite() != null && context.getNegativeExpireAfterWrite() > 0;
+    }
+
+    private static boolean isNegative(CaffeineCacheOperationContext context, Object value) {
+        return isNegativeCaching(context) && CaffeineCacheNegativeStats.isNegative(value);
+    }
+
+    /**
+     * 缓存剩余的有效时间，不包括 {@link CaffeineCacheOperationContext#getMaxStale()} 额外保留的时间，
+     * 用于把缓存保存到其他地方后按剩余的有效时间恢复。
+     *
+     * @param key the cache key
+     * @param expiresAfterNanos the remaining time until the entry is removed
+     * @return the remaining fresh time in nanoseconds, may be negative
+     */
+    static long getFreshNanos(Object key, long expiresAfterNanos) {
+        Object context = key instanceof CacheKey ? ((CacheKey) key).getContext() : null;
+        if (context instanceof CaffeineCacheOperationContext) {
+            Integer maxStale = ((CaffeineCacheOperationContext) context).getMaxStale();
+            if (maxStale != null && maxStale > 0) {
+                return expiresAfterNanos - TimeUnit.MILLISECONDS.toNanos(maxStale);
+            }
+        }
+        return expiresAfterNanos;
+    }
+
     @Override
     public long expireAfterRead(@NonNull CacheKey<Object, CaffeineCacheOperationContext> key, @NonNull Object value,
             long currentTime, @NonNegative long currentDuration) {
         CaffeineCacheOperationContext context = key.getContext();
+        if (isNegative(context, value)) {
+            CaffeineCacheNegativeStats negativeStats = context.getNegativeStats();
+            if (negativeStats != null) {
+                negativeStats.recordHit();
+            }
+            return currentDuration;
+        }
         long expireTime = currentDuration;
         if (context.getExpireAfterAccess() != null && context.getExpireAfterAccess() > 0) {
             expireTime = TimeUnit.MILLISECONDS.toNanos(context.getExpireAfterAccess());
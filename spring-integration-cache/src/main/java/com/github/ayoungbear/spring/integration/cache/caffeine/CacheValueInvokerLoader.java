@@ -17,15 +17,24 @@
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
 import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
 import com.github.benmanes.caffeine.cache.CacheLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.interceptor.CacheOperationInvoker;
+import org.springframework.cache.support.NullValue;
 import org.springframework.util.function.SingletonSupplier;
 
 /**
  * 通过 {@link CaffeineCacheOperationContext#getCacheLoader()} 实现的缓存加载。
+ * 如果 key 是 {@link InvocationCacheKey}，则使用 key 上保存的调用参数执行共享的 {@link CacheValueInvoker}。
+ * 如果配置了批量刷新 {@link CaffeineCacheBatchRefresher}，异步刷新时交给批量刷新处理。
+ * 如果配置了缓存值压缩 {@link CaffeineCacheValueCompressor}，返回压缩后保存的值；
+ * 如果配置了空结果的过期时间，加载结果为 {@code null} 时返回 {@link NullValue} 而不是移除缓存。
  *
  * @author yangzexiong
  */
@@ -42,13 +51,70 @@ public class CacheValueInvokerLoader implements CacheLoader<CacheKey<Object, Caf
 
     @Override
     public Object load(CacheKey<Object, CaffeineCacheOperationContext> key) throws Exception {
+        CaffeineCacheOperationContext context = key.getContext();
+        CaffeineCacheRefresher refresher = context.getEarlyRefresh() ? context.getRefresher() : null;
+        if (refresher == null || AsyncCacheValueAdapters.forContext(context) != null) {
+            // the load time of the future values is recorded on completion
+            return toStoreValue(context, invoke(key));
+        }
+        long startTime = refresher.getTicker().read();
+        Object value = invoke(key);
+        refresher.recordLoadTime(refresher.getTicker().read() - startTime);
+        return toStoreValue(context, value);
+    }
+
+    private static Object toStoreValue(CaffeineCacheOperationContext context, Object value) {
+        CaffeineCacheNegativeStats negativeStats = CaffeineCacheNegativeStats.forContext(context);
+        if (value == null) {
+            if (negativeStats == null) {
+                return null;
+            }
+            negativeStats.recordWrite(NullValue.INSTANCE);
+            return NullValue.INSTANCE;
+        }
+        if (negativeStats != null) {
+            negativeStats.recordWrite(value);
+        }
+        CaffeineCacheValueCompressor compressor = context.getValueCompressor();
+        return compressor != null ? compressor.compress(value) : value;
+    }
+
+    private Object invoke(CacheKey<Object, CaffeineCacheOperationContext> key) throws Exception {
         CaffeineCacheOperationContext caffeineCacheOperationContext = key.getContext();
         CacheOperationInvoker valueLoader = caffeineCacheOperationContext.getCacheLoader();
         if (valueLoader == null) {
             logger.warn("Unable to reload for key={}, return null then the mapping will be removed", key);
             return null;
         }
+        if (key instanceof InvocationCacheKey && valueLoader instanceof CacheValueInvoker) {
+            InvocationCacheKey<Object, CaffeineCacheOperationContext> invocationKey = (InvocationCacheKey) key;
+            Object[] args = invocationKey.getArgs();
+            if (args == null) {
+                logger.warn("Unable to reload for key={} without args, return null then the mapping will be removed",
+                        key);
+                return null;
+            }
+            if (caffeineCacheOperationContext.getSoftRef()) {
+                invocationKey.softenArgs();
+            }
+            CaffeineCacheBulkLoader bulkLoader = caffeineCacheOperationContext.getBulkLoader();
+            if (bulkLoader != null) {
+                return bulkLoader.loadOne(args);
+            }
+            return ((CacheValueInvoker) valueLoader).invoke(args);
+        }
         return valueLoader.invoke();
     }
 
+    @Override
+    public CompletableFuture<Object> asyncReload(CacheKey<Object, CaffeineCacheOperationContext> key,
+            Object oldValue, Executor executor) {
+        CaffeineCacheBatchRefresher batchRefresher = key.getContext().getBatchRefresher();
+        if (batchRefresher != null) {
+            CaffeineCacheOperationContext context = key.getContext();
+            return batchRefresher.refresh(key, executor).thenApply(value -> toStoreValue(context, value));
+        }
+        return CacheLoader.super.asyncReload(key, oldValue, executor);
+    }
+
 }
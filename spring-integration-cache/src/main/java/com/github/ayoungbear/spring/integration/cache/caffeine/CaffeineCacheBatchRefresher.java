@@ -0,0 +1,179 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheMethodInvoker;
+import com.github.ayoungbear.spring.integration.cache.CacheMethodInvokerFactory;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.RejectableTask;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 批量刷新缓存 {@link CaffeineCacheable#batchLoader()}。
+ *
+ * <p>同个 cache 到期需要刷新的 key 先收集起来，在等待时间窗口 {@code batchWindow} 结束或者数量达到 {@code batchSize} 时，
+ * 通过缓存方法所在 bean 上的批量加载方法一次加载，再用结果完成每个 key 的刷新。
+ * 批量加载方法的参数为缓存 key 的列表，返回缓存 key 到缓存值的 {@link Map}，结果中不存在的 key 会被移除，加载失败则保留旧值。</p>
+ *
+ * <p>和 {@link com.github.ayoungbear.spring.integration.cache.CacheValueInvoker} 一样只弱引用 bean，
+ * bean 被回收后刷新失败，保留旧值。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheable#batchLoader()
+ */
+public class CaffeineCacheBatchRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheBatchRefresher.class);
+
+    private final WeakReference<Object> target;
+
+    private final Method batchMethod;
+
+    private final CacheMethodInvoker batchInvoker;
+
+    private final int batchSize;
+
+    private final long batchWindow;
+
+    private Map<Object, CompletableFuture<Object>> pending = new LinkedHashMap<>();
+
+    private Executor pendingExecutor;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public CaffeineCacheBatchRefresher(Object target, String batchLoader, int batchSize, long batchWindow) {
+        this.target = new WeakReference<>(target);
+        this.batchMethod = findBatchMethod(target, batchLoader);
+        this.batchInvoker = CacheMethodInvokerFactory.getInvoker(batchMethod);
+        this.batchSize = Math.max(batchSize, 1);
+        this.batchWindow = Math.max(batchWindow, 0);
+    }
+
+    private static Method findBatchMethod(Object target, String batchLoader) {
+        Class<?> targetClass = AopUtils.getTargetClass(target);
+        for (Method method : ReflectionUtils.getUniqueDeclaredMethods(targetClass)) {
+            if (method.getName().equals(batchLoader) && method.getParameterCount() == 1
+                    && method.getParameterTypes()[0].isAssignableFrom(ArrayList.class)
+                    && Map.class.isAssignableFrom(method.getReturnType())) {
+                return method;
+            }
+        }
+        throw new IllegalStateException("No batch loader method [" + batchLoader + "] which accepts a list of keys "
+                + "and returns a map in " + ClassUtils.getQualifiedName(targetClass));
+    }
+
+    public Method getBatchMethod() {
+        return batchMethod;
+    }
+
+    /**
+     * 添加需要刷新的 key，返回 key 刷新结果的 future。
+     *
+     * @param key the cache key to refresh
+     * @param executor the executor to run the batch loader
+     * @return the future of the refreshed value
+     */
+    public CompletableFuture<Object> refresh(CacheKey<Object, ?> key, Executor executor) {
+        Map<Object, CompletableFuture<Object>> batch = null;
+        CompletableFuture<Object> future;
+        synchronized (this) {
+            future = pending.get(key.getKey());
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            pending.put(key.getKey(), future);
+            if (pending.size() >= batchSize || batchWindow == 0) {
+                batch = drain();
+            } else if (pending.size() == 1) {
+                pendingExecutor = executor;
+                scheduledFlush = CaffeineCacheScheduler.get().schedule(this::flush, batchWindow, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            submit(batch, executor);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<Object, CompletableFuture<Object>> batch;
+        Executor executor;
+        synchronized (this) {
+            executor = pendingExecutor;
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            submit(batch, executor);
+        }
+    }
+
+    private Map<Object, CompletableFuture<Object>> drain() {
+        Map<Object, CompletableFuture<Object>> batch = pending;
+        pending = new LinkedHashMap<>();
+        pendingExecutor = null;
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void submit(Map<Object, CompletableFuture<Object>> batch, Executor executor) {
+        try {
+            executor.execute(RejectableTask.of(() -> load(batch),
+                    ex -> batch.values().forEach(future -> future.completeExceptionally(ex))));
+        } catch (RuntimeException ex) {
+            batch.values().forEach(future -> future.completeExceptionally(ex));
+        }
+    }
+
+    private void load(Map<Object, CompletableFuture<Object>> batch) {
+        try {
+            Object bean = target.get();
+            if (bean == null) {
+                throw new IllegalStateException("Target of the batch loader [" + batchMethod
+                        + "] has been garbage collected");
+            }
+            Map<?, ?> values = (Map<?, ?>) batchInvoker.invoke(bean, new Object[]{new ArrayList<>(batch.keySet())});
+            if (values == null) {
+                values = Collections.emptyMap();
+            }
+            for (Map.Entry<Object, CompletableFuture<Object>> entry : batch.entrySet()) {
+                entry.getValue().complete(values.get(entry.getKey()));
+            }
+        } catch (Throwable ex) {
+            logger.warn("Batch refresh failed by [{}] for {} keys", batchMethod, batch.size(), ex);
+            batch.values().forEach(future -> future.completeExceptionally(ex));
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+/**
+ * 批量缓存 {@link CaffeineCacheable#bulk()} 的加载。
+ *
+ * <p>将缓存方法的集合参数拆分为元素，每个元素（和其他参数）单独作为缓存 key；
+ * 只使用未命中的元素调用缓存方法，将方法返回的结果按元素拆分后缓存，再按集合参数中元素的顺序合并返回。
+ * 集合参数中的 {@code null} 元素被忽略，不会传给缓存方法，也不会出现在返回值中。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheable#bulk()
+ */
+public class CaffeineCacheBulkLoader {
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser();
+
+    private final CacheValueInvoker invoker;
+
+    private final int collectionIndex;
+
+    private final Class<?> collectionType;
+
+    private final Class<?> returnType;
+
+    private final Expression bulkKey;
+
+    public CaffeineCacheBulkLoader(CacheValueInvoker invoker, @Nullable String bulkKey) {
+        this.invoker = invoker;
+        Class<?>[] parameterTypes = invoker.getMethod().getParameterTypes();
+        int index = -1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (Collection.class.isAssignableFrom(parameterTypes[i])) {
+                if (index >= 0) {
+                    throw new IllegalStateException(
+                            "Bulk cached method must have only one collection parameter: " + invoker.getMethod());
+                }
+                index = i;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalStateException(
+                    "Bulk cached method must have a collection parameter: " + invoker.getMethod());
+        }
+        this.collectionIndex = index;
+        this.collectionType = parameterTypes[index];
+        this.returnType = invoker.getMethod().getReturnType();
+        if (!Map.class.isAssignableFrom(returnType) && !returnType.isAssignableFrom(ArrayList.class)
+                && !returnType.isAssignableFrom(LinkedHashSet.class)) {
+            throw new IllegalStateException(
+                    "Bulk cached method must return a map or collection: " + invoker.getMethod());
+        }
+        if (!collectionType.isAssignableFrom(ArrayList.class) && !collectionType.isAssignableFrom(LinkedHashSet.class)) {
+            throw new IllegalStateException(
+                    "Unsupported collection parameter type for bulk cached method: " + invoker.getMethod());
+        }
+        this.bulkKey = bulkKey != null ? PARSER.parseExpression(bulkKey) : null;
+    }
+
+    /**
+     * 获取调用参数中集合参数的元素。
+     *
+     * @param args the invocation arguments
+     * @return the elements of the collection argument
+     */
+    public Collection<?> getElements(Object[] args) {
+        Collection<?> elements = (Collection<?>) args[collectionIndex];
+        return elements != null ? elements : Collections.emptyList();
+    }
+
+    /**
+     * 获取元素对应的缓存 key，方法只有集合一个参数时即为元素本身，否则是将集合参数替换为元素后的所有参数。
+     *
+     * @param args the invocation arguments
+     * @param element the element of the collection argument
+     * @return the cache key of the element
+     */
+    public Object getElementKey(Object[] args, Object element) {
+        if (args.length == 1) {
+            return element;
+        }
+        Object[] keyArgs = args.clone();
+        keyArgs[collectionIndex] = element;
+        return new SimpleKey(keyArgs);
+    }
+
+    /**
+     * 获取只加载单个元素时的调用参数，用于刷新单个元素的缓存。
+     *
+     * @param args the invocation arguments
+     * @param element the element of the collection argument
+     * @return the invocation arguments with the singleton collection
+     */
+    public Object[] getElementArgs(Object[] args, Object element) {
+        return replaceElements(args, Collections.singletonList(element));
+    }
+
+    /**
+     * 使用指定的元素调用缓存方法，并将结果按元素拆分。
+     *
+     * @param args the invocation arguments
+     * @param elements the elements to load
+     * @return the loaded values by the elements, the elements without value are absent
+     */
+    public Map<Object, Object> load(Object[] args, Collection<?> elements) {
+        Object result = invoker.invoke(replaceElements(args, elements));
+        if (result == null) {
+            return Collections.emptyMap();
+        }
+        if (result instanceof Map) {
+            return (Map<Object, Object>) result;
+        }
+        Collection<?> values = (Collection<?>) result;
+        Map<Object, Object> loaded = new LinkedHashMap<>(values.size() * 2);
+        if (bulkKey != null) {
+            for (Object value : values) {
+                if (value != null) {
+                    loaded.put(bulkKey.getValue(value), value);
+                }
+            }
+            return loaded;
+        }
+        if (values.size() != elements.size()) {
+            throw new IllegalStateException("Bulk cached method returns " + values.size() + " values for "
+                    + elements.size() + " elements, configure the bulkKey if the values are not positional: "
+                    + invoker.getMethod());
+        }
+        Iterator<?> iterator = values.iterator();
+        for (Object element : elements) {
+            Object value = iterator.next();
+            if (value != null) {
+                loaded.put(element, value);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 加载调用参数中单个元素的值，调用参数一般是 {@link #getElementArgs(Object[], Object)}。
+     *
+     * @param args the invocation arguments
+     * @return the value of the element, or {@code null} if absent
+     */
+    public Object loadOne(Object[] args) {
+        Collection<?> elements = getElements(args);
+        if (elements.isEmpty()) {
+            return null;
+        }
+        return load(args, elements).get(elements.iterator().next());
+    }
+
+    /**
+     * 按集合参数中元素的顺序将缓存值合并为方法的返回值。
+     *
+     * @param elements the elements of the collection argument
+     * @param values the cached values by the elements
+     * @return the result of the cached method
+     */
+    public Object merge(Collection<?> elements, Map<Object, Object> values) {
+        if (Map.class.isAssignableFrom(returnType)) {
+            Map<Object, Object> result = new LinkedHashMap<>(values.size() * 2);
+            for (Object element : elements) {
+                Object value = values.get(element);
+                if (value != null) {
+                    result.put(element, value);
+                }
+            }
+            return result;
+        }
+        Collection<Object> result = returnType.isAssignableFrom(ArrayList.class) ? new ArrayList<>(values.size())
+                : new LinkedHashSet<>(values.size() * 2);
+        for (Object element : elements) {
+            Object value = values.get(element);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private Object[] replaceElements(Object[] args, Collection<?> elements) {
+        Object[] bulkArgs = args.clone();
+        if (collectionType.isAssignableFrom(elements.getClass())) {
+            bulkArgs[collectionIndex] = elements;
+        } else if (collectionType.isAssignableFrom(ArrayList.class)) {
+            bulkArgs[collectionIndex] = new ArrayList<>(elements);
+        } else {
+            bulkArgs[collectionIndex] = new LinkedHashSet<>(elements);
+        }
+        return bulkArgs;
+    }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * 按顺序调用多个 {@link CacheWriter}，caffeine 每个缓存只能设置一个 writer。
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheCompositeWriter implements CacheWriter<Object, Object> {
+
+    private final List<CacheWriter<Object, Object>> writers;
+
+    public CaffeineCacheCompositeWriter(List<? extends CacheWriter<Object, Object>> writers) {
+        this.writers = new ArrayList<>(writers);
+    }
+
+    @Override
+    public void write(@NonNull Object key, @NonNull Object value) {
+        for (CacheWriter<Object, Object> writer : writers) {
+            writer.write(key, value);
+        }
+    }
+
+    @Override
+    public void delete(@NonNull Object key, @Nullable Object value, @NonNull RemovalCause cause) {
+        for (CacheWriter<Object, Object> writer : writers) {
+            writer.delete(key, value, cause);
+        }
+    }
+
+}
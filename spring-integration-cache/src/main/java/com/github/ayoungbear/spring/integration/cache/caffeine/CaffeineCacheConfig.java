@@ -62,6 +62,45 @@ public @interface CaffeineCacheConfig {
      */
     String maximumSize() default "";
 
+    /**
+     * 缓存最大权重（默认权重为估算的内存占用字节数），可以直接配置 {@code "104857600"}，结果需为 int 类型。
+     * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
+     * 默认为空表示不配置，即按 {@link #maximumSize()} 限制或者取默认配置 {@link CaffeineCacheProperties#getMaximumWeight()}。
+     *
+     * 配置后按权重淘汰缓存，不再按 {@link #maximumSize()} 限制条数；如果多个同名 {@link org.springframework.cache.Cache}
+     * 配置了不同权重，则取最大值，但是否按权重淘汰以最先初始化 cache 的为准。
+     */
+    String maximumWeight() default "";
+
+    /**
+     * 缓存权重计算 {@link com.github.benmanes.caffeine.cache.Weigher} 的 bean name，配置了 {@link #maximumWeight()} 时生效。
+     * 默认为空表示使用估算对象内存占用的 {@link ObjectSizeWeigher}，或者默认配置的 {@link CaffeineCacheProperties#getWeigher()}；
+     * 如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    String weigher() default "";
+
+    /**
+     * 堆外二级存储的容量（MB），可以直接配置 {@code "1024"}，结果需为 int 类型。
+     * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
+     * 默认为空表示不配置，即不使用堆外存储或者取默认配置 {@link CaffeineCacheProperties#getOffHeapCapacity()}。
+     *
+     * 配置后因容量不足（{@link #maximumSize()} 或 {@link #maximumWeight()}）被淘汰的缓存值会序列化后保存到堆外内存，
+     * 读取缓存未命中时先从堆外取出并放回堆内，需要缓存值可以被 {@link com.github.ayoungbear.spring.integration.cache.CacheValueSerializer}
+     * 序列化；异步缓存不支持，如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    String offHeapCapacity() default "";
+
+    /**
+     * 压缩缓存值的阈值（字节），可以直接配置 {@code "4096"}，结果需为 int 类型。
+     * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
+     * 默认为空表示不配置，即不压缩或者取默认配置 {@link CaffeineCacheProperties#getCompressThreshold()}。
+     *
+     * 配置后序列化后超过阈值的缓存值通过 {@link com.github.ayoungbear.spring.integration.cache.CacheValueCodec}
+     * 压缩后保存，读取时才解压，适合比较大、压缩率高的缓存值，配合 {@link #maximumWeight()} 可以保存更多缓存；
+     * 异步缓存不支持，如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    String compressThreshold() default "";
+
     /**
      * 缓存读写操作后过期时间（ms），可以直接配置 {@code "1000"}，结果需为 int 类型。
      * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
@@ -76,14 +115,34 @@ public @interface CaffeineCacheConfig {
      */
     String expireAfterWrite() default "";
 
+    /**
+     * 缓存过期后仍可使用旧值的最长时间（ms），即 stale-if-error，可以直接配置 {@code "60000"}，结果需为 int 类型。
+     * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
+     * 默认为空表示不配置，即过期后不使用旧值或者取默认配置 {@link CaffeineCacheProperties#getMaxStale()}。
+     *
+     * 配置后缓存写入超过 {@link #expireAfterWrite()} 时返回旧值并在后台重新加载，加载失败则继续返回旧值，
+     * 并在后台按指数退避重试，直到加载成功或者超过该时间后缓存被移除；加载失败期间异步刷新也由后台重试代替。
+     */
+    String maxStale() default "";
+
+    /**
+     * 空结果（{@code null}、空的 {@link java.util.Optional}、集合或 Map）的过期时间（ms），即 negative caching，
+     * 可以直接配置 {@code "5000"}，结果需为 int 类型。支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
+     * 默认为空表示不配置，即空结果与其他结果相同或者取默认配置 {@link CaffeineCacheProperties#getNegativeExpireAfterWrite()}。
+     *
+     * 配置后 {@code null} 以共享的 {@link org.springframework.cache.support.NullValue} 保存（刷新结果为 {@code null} 时也不再移除缓存），
+     * 空结果按该时间和其他过期时间中较短的过期，读取不会延长，避免不存在的 key 每次都穿透到后端。
+     */
+    String negativeExpireAfterWrite() default "";
+
     /**
      * 缓存异步刷新时间（ms），可以直接配置 {@code "1000"}，结果需为 int 类型。
      * 支持 Spring Expression Language (SpEL) expression，表达式用法同 Spring Cache。
      * 默认为空表示不配置，即不设置刷新或者取默认配置的刷新时间 {@link CaffeineCacheProperties#getRefreshAfterWrite()}。
      *
      * 异步刷新时间需要比过期时间小才能生效。
-     * 如果多个同名 {@link org.springframework.cache.Cache} 配置了不同刷新时间，则取最大值；
-     * 现在 CaffeineCache 暂不支持根据 key 动态设置刷新时间。
+     * 刷新时间按 key 生效，读取缓存时根据本次调用配置的刷新时间判断是否需要刷新，
+     * 所以支持根据 key 动态设置刷新时间，多个同名 {@link org.springframework.cache.Cache} 配置了不同刷新时间也互不影响。
      */
     String refreshAfterWrite() default "";
 
@@ -104,4 +163,41 @@ public @interface CaffeineCacheConfig {
      */
     boolean softRef() default false;
 
+    /**
+     * 配置是否使用异步缓存 {@link com.github.benmanes.caffeine.cache.AsyncLoadingCache}。
+     * 如果缓存方法的返回类型是 {@link java.util.concurrent.CompletableFuture} 或 {@link java.util.concurrent.CompletionStage}，
+     * 缓存的是方法返回的 future，并发调用会共享同一个加载中的 future 而不会阻塞线程，加载失败的 future 会被移除。
+     *
+     * 类注解或方法注解任一配置为 {@code true} 即开启；
+     * 如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    boolean async() default false;
+
+    /**
+     * 配置是否在缓存快过期时提前异步刷新（probabilistic early recomputation），避免大量同时写入的缓存同时过期时请求都穿透到后端。
+     * 读取缓存时离过期越近、缓存加载耗时越长，触发提前刷新的概率越大，同个 key 同时只会有一个刷新。
+     *
+     * 类注解或方法注解任一配置为 {@code true} 即开启。
+     */
+    boolean earlyRefresh() default false;
+
+    /**
+     * 配置是否开启缓存统计（命中、加载、淘汰次数等），开启后可以通过 micrometer 输出缓存指标。
+     *
+     * 类注解或方法注解任一配置为 {@code true} 即开启，也可以通过 {@link CaffeineCacheProperties#isRecordStats()} 默认开启；
+     * 如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    boolean recordStats() default false;
+
+    /**
+     * 缓存值的引用强度，软引用或弱引用的缓存值可以被 GC 回收，作为内存紧张时的兜底，不需要精确配置缓存容量。
+     * 回收后相当于缓存失效，下次读取时同步重新加载，与过期时间、刷新等配置可以同时使用。
+     * 默认为 {@link ValueStrength#DEFAULT} 表示不配置，方法注解优先于类注解，
+     * 或者取默认配置的引用强度 {@link CaffeineCacheProperties#getValueStrength()}。
+     *
+     * 异步缓存 {@link #async()} 不支持，始终为强引用；
+     * 如果多个同名 {@link org.springframework.cache.Cache} 配置不同，以最先初始化 cache 的为准。
+     */
+    ValueStrength valueStrength() default ValueStrength.DEFAULT;
+
 }
@@ -16,6 +16,7 @@
 
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
+import java.util.Objects;
 import javax.annotation.Nullable;
 
 /**
@@ -45,12 +46,30 @@ public class CaffeineCacheConfigUtils {
         if (target.getMaximumSize() != null) {
             source.setMaximumSize(target.getMaximumSize());
         }
+        if (target.getMaximumWeight() != null) {
+            source.setMaximumWeight(target.getMaximumWeight());
+        }
+        if (target.getWeigher() != null) {
+            source.setWeigher(target.getWeigher());
+        }
+        if (target.getOffHeapCapacity() != null) {
+            source.setOffHeapCapacity(target.getOffHeapCapacity());
+        }
+        if (target.getCompressThreshold() != null) {
+            source.setCompressThreshold(target.getCompressThreshold());
+        }
         if (target.getExpireAfterAccess() != null) {
             source.setExpireAfterAccess(target.getExpireAfterAccess());
         }
         if (target.getExpireAfterWrite() != null) {
             source.setExpireAfterWrite(target.getExpireAfterWrite());
         }
+        if (target.getMaxStale() != null) {
+            source.setMaxStale(target.getMaxStale());
+        }
+        if (target.getNegativeExpireAfterWrite() != null) {
+            source.setNegativeExpireAfterWrite(target.getNegativeExpireAfterWrite());
+        }
         if (target.getRefreshAfterWrite() != null) {
             source.setRefreshAfterWrite(target.getRefreshAfterWrite());
         }
@@ -58,7 +77,68 @@ public class CaffeineCacheConfigUtils {
             source.setExecutor(target.getExecutor());
         }
         source.setSoftRef(target.getSoftRef());
+        if (target.getAsync()) {
+            source.setAsync(true);
+        }
+        if (target.getEarlyRefresh()) {
+            source.setEarlyRefresh(true);
+        }
+        if (target.getRecordStats()) {
+            source.setRecordStats(true);
+        }
+        if (target.getValueStrength() != null && target.getValueStrength() != ValueStrength.DEFAULT) {
+            source.setValueStrength(target.getValueStrength());
+        }
+        if (target.getBulk()) {
+            source.setBulk(true);
+        }
+        if (target.getBulkKey() != null) {
+            source.setBulkKey(target.getBulkKey());
+        }
+        if (target.getBatchLoader() != null) {
+            source.setBatchLoader(target.getBatchLoader());
+        }
+        if (target.getBatchSize() != null) {
+            source.setBatchSize(target.getBatchSize());
+        }
+        if (target.getBatchWindow() != null) {
+            source.setBatchWindow(target.getBatchWindow());
+        }
         return source;
     }
 
+    /**
+     * 比较两个配置的各项属性是否相同。
+     *
+     * @param config the config
+     * @param other the other config
+     * @return {@code true} if all the attributes are equal
+     */
+    public static boolean isSameConfig(CaffeineCacheOperationConfig config, CaffeineCacheOperationConfig other) {
+        if (config == other) {
+            return true;
+        }
+        return Objects.equals(config.getMaximumSize(), other.getMaximumSize())
+                && Objects.equals(config.getMaximumWeight(), other.getMaximumWeight())
+                && Objects.equals(config.getWeigher(), other.getWeigher())
+                && Objects.equals(config.getOffHeapCapacity(), other.getOffHeapCapacity())
+                && Objects.equals(config.getCompressThreshold(), other.getCompressThreshold())
+                && Objects.equals(config.getExpireAfterAccess(), other.getExpireAfterAccess())
+                && Objects.equals(config.getExpireAfterWrite(), other.getExpireAfterWrite())
+                && Objects.equals(config.getMaxStale(), other.getMaxStale())
+                && Objects.equals(config.getNegativeExpireAfterWrite(), other.getNegativeExpireAfterWrite())
+                && Objects.equals(config.getRefreshAfterWrite(), other.getRefreshAfterWrite())
+                && Objects.equals(config.getExecutor(), other.getExecutor())
+                && Objects.equals(config.getValueStrength(), other.getValueStrength())
+                && Objects.equals(config.getBulkKey(), other.getBulkKey())
+                && Objects.equals(config.getBatchLoader(), other.getBatchLoader())
+                && Objects.equals(config.getBatchSize(), other.getBatchSize())
+                && Objects.equals(config.getBatchWindow(), other.getBatchWindow())
+                && config.getSoftRef() == other.getSoftRef()
+                && config.getAsync() == other.getAsync()
+                && config.getEarlyRefresh() == other.getEarlyRefresh()
+                && config.getRecordStats() == other.getRecordStats()
+                && config.getBulk() == other.getBulk();
+    }
+
 }
@@ -16,13 +16,33 @@
 
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
+import com.github.ayoungbear.spring.integration.cache.CacheInvalidationTransport;
+import com.github.ayoungbear.spring.integration.cache.CacheStore;
+import com.github.ayoungbear.spring.integration.cache.CacheValueCodec;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.RespCacheStore;
+import com.github.ayoungbear.spring.integration.cache.UdpInvalidationTransport;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Role;
+import org.springframework.util.StringUtils;
 
 /**
  * Spring CaffeineCache 缓存增强配置类。
@@ -45,8 +65,83 @@ public class CaffeineCacheConfiguration {
 
     @Bean(CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME)
     @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
-    public CacheResolver caffeineCacheResolver() {
-        return new CaffeineCacheResolver(defaultConfigResolver());
+    public CacheResolver caffeineCacheResolver(ObjectProvider<CaffeineCacheRemovalListener> removalListeners,
+            ObjectProvider<CacheValueSerializer> valueSerializer, ObjectProvider<CacheValueCodec> valueCodec,
+            ObjectProvider<CacheStore> l2Store) {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(defaultConfigResolver());
+        List<CaffeineCacheRemovalListener> listeners = new ArrayList<>();
+        listeners.add(SimpleCaffeineCacheListener.newInstance());
+        removalListeners.orderedStream().forEach(listeners::add);
+        cacheResolver.setRemovalListeners(listeners);
+        valueSerializer.ifUnique(cacheResolver::setValueSerializer);
+        valueCodec.ifUnique(cacheResolver::setValueCodec);
+        cacheResolver.setCompressDecodedCacheSize(properties.getCompressDecodedCacheSize());
+        l2Store.ifUnique(cacheResolver::setL2Store);
+        cacheResolver.setL2CacheNames(properties.getL2CacheNames());
+        cacheResolver.setReuseCacheHandles(properties.isReuseCacheHandles());
+        cacheResolver.setRefreshConcurrency(properties.getRefreshConcurrency());
+        cacheResolver.setRefreshQueueCapacity(properties.getRefreshQueueCapacity());
+        cacheResolver.setRefreshSaturationPolicy(properties.getRefreshSaturationPolicy());
+        cacheResolver.setHotKeyTopK(properties.getHotKeyTopK());
+        cacheResolver.setHotKeySampleRate(properties.getHotKeySampleRate());
+        cacheResolver.setHotKeyWindow(properties.getHotKeyWindow());
+        cacheResolver.setHotKeyRecordInvocations(StringUtils.hasText(properties.getWarmupFile()));
+        if (StringUtils.hasText(properties.getSnapshotFile())) {
+            // restore before any cache is created
+            CaffeineCacheSnapshotManager.restore(cacheResolver, Paths.get(properties.getSnapshotFile()));
+        }
+        return cacheResolver;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "spring.cache.caffeine", name = "l2-url")
+    @ConditionalOnMissingBean(CacheStore.class)
+    public RespCacheStore caffeineCacheL2Store() {
+        return RespCacheStore.fromUrl(properties.getL2Url(), properties.getL2KeyPrefix());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cache.caffeine", name = "snapshot-file")
+    public CaffeineCacheSnapshotManager caffeineCacheSnapshotManager(
+            @Qualifier(CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME) CacheResolver caffeineCacheResolver) {
+        return new CaffeineCacheSnapshotManager((CaffeineCacheResolver) caffeineCacheResolver,
+                Paths.get(properties.getSnapshotFile()), properties.getSnapshotCacheNames(),
+                properties.getSnapshotInterval());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cache.caffeine", name = "warmup-file")
+    public CaffeineCacheWarmupManager caffeineCacheWarmupManager(
+            @Qualifier(CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME) CacheResolver caffeineCacheResolver,
+            BeanFactory beanFactory) {
+        return new CaffeineCacheWarmupManager((CaffeineCacheResolver) caffeineCacheResolver, beanFactory,
+                Paths.get(properties.getWarmupFile()), properties.getWarmupConcurrency(),
+                properties.getWarmupTimeout());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.cache.caffeine", name = "invalidation-enabled", havingValue = "true")
+    public CaffeineCacheInvalidationBus caffeineCacheInvalidationBus(
+            @Qualifier(CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME) CacheResolver caffeineCacheResolver,
+            ObjectProvider<CacheInvalidationTransport> transport) {
+        CaffeineCacheResolver cacheResolver = (CaffeineCacheResolver) caffeineCacheResolver;
+        CaffeineCacheInvalidationBus invalidationBus = new CaffeineCacheInvalidationBus(cacheResolver,
+                transport.getIfUnique(this::udpInvalidationTransport),
+                properties.getInvalidationBatchWindow(), properties.getInvalidationBatchSize());
+        cacheResolver.setInvalidationBus(invalidationBus);
+        return invalidationBus;
+    }
+
+    private UdpInvalidationTransport udpInvalidationTransport() {
+        if (!StringUtils.hasLength(properties.getInvalidationSecret())) {
+            throw new IllegalStateException("spring.cache.caffeine.invalidation-secret is required by the UDP "
+                    + "cache invalidation transport");
+        }
+        return new UdpInvalidationTransport(
+                new InetSocketAddress(properties.getInvalidationBindAddress(), properties.getInvalidationPort()),
+                properties.getInvalidationPeers().stream().map(UdpInvalidationTransport::parseAddress)
+                        .collect(Collectors.toList()),
+                properties.getInvalidationSecret().getBytes(StandardCharsets.UTF_8));
     }
 
     @Bean
@@ -54,11 +149,35 @@ public class CaffeineCacheConfiguration {
     public CaffeineCacheOperationConfigResolver defaultConfigResolver() {
         AnnotationCaffeineCacheConfigResolver configResolver = new AnnotationCaffeineCacheConfigResolver();
         configResolver.setMaximumSize(properties.getMaximumSize());
+        configResolver.setMaximumWeight(properties.getMaximumWeight());
+        configResolver.setWeigherName(properties.getWeigher());
+        configResolver.setOffHeapCapacity(properties.getOffHeapCapacity());
+        configResolver.setCompressThreshold(properties.getCompressThreshold());
         configResolver.setExpireAfterAccess(properties.getExpireAfterAccess());
         configResolver.setExpireAfterWrite(properties.getExpireAfterWrite());
+        configResolver.setMaxStale(properties.getMaxStale());
+        configResolver.setNegativeExpireAfterWrite(properties.getNegativeExpireAfterWrite());
         configResolver.setRefreshAfterWrite(properties.getRefreshAfterWrite());
         configResolver.setExecutorName(properties.getExecutor());
+        configResolver.setVirtualThreads(properties.isVirtualThreads());
+        configResolver.setRecordStats(properties.isRecordStats());
+        configResolver.setValueStrength(properties.getValueStrength());
         return configResolver;
     }
 
+    /**
+     * 引入了 micrometer 时注册缓存指标。
+     */
+    @Configuration
+    @ConditionalOnClass(MeterBinder.class)
+    static class CaffeineCacheMetricsConfiguration {
+
+        @Bean
+        public CaffeineCacheMeterBinder caffeineCacheMeterBinder(
+                @Qualifier(CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME) CacheResolver caffeineCacheResolver) {
+            return new CaffeineCacheMeterBinder((CaffeineCacheResolver) caffeineCacheResolver);
+        }
+
+    }
+
 }
@@ -0,0 +1,39 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/**
+ * {@link CaffeineCacheResolver} 创建 caffeine 缓存实例时的回调，比如注册缓存指标。
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheResolver#addCreationListener(CaffeineCacheCreationListener)
+ */
+@FunctionalInterface
+public interface CaffeineCacheCreationListener {
+
+    /**
+     * 缓存实例创建后回调。
+     *
+     * @param name the cache name
+     * @param cache the native cache, the synchronous view for the async cache
+     * @param refresher the refresher of the cache
+     */
+    void onCreated(String name, Cache<?, ?> cache, CaffeineCacheRefresher refresher);
+
+}
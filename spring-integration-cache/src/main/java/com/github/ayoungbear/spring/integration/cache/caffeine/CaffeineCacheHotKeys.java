@@ -0,0 +1,339 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 缓存热点 key 统计。
+ *
+ * <p>读写缓存时按 1/{@code sampleRate} 的概率采样，采样的 key 记录到 count-min sketch 估算访问次数，
+ * 估算次数排在前 {@code topK} 的 key 保存在候选集合中。统计按时间窗口进行，每个窗口结束时计算前 K 个 key 的访问频率（次/秒）
+ * 并清空重新统计，{@link #getTopKeys()} 返回最近一个完整窗口的结果。</p>
+ *
+ * <p>采样只需要一次随机数，未命中采样时不会有其他开销，适合在所有读写操作上开启。</p>
+ *
+ * <p>如果开启了 {@code recordInvocations}，key 成为候选时同时记录产生该 key 的缓存方法和调用参数，
+ * 用于应用重启后重放热点 key 的调用预热缓存，见 {@link CaffeineCacheWarmupManager}。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheHotKeys {
+
+    private static final int DEPTH = 4;
+
+    private static final int[] SEEDS = {0x97cb3127, 0x1d8e4e27, 0x2c2f8b4d, 0x7a2b8a95};
+
+    private final int topK;
+
+    private final int sampleRate;
+
+    private final long windowNanos;
+
+    private final int widthMask;
+
+    private final AtomicLongArray table;
+
+    private final boolean recordInvocations;
+
+    /**
+     * 当前窗口估算次数前 K 个的候选 key，只在采样时加锁更新
+     */
+    private final Map<CacheKey, Long> candidates;
+
+    /**
+     * 候选 key 对应的缓存方法调用，只在开启 {@code recordInvocations} 时记录
+     */
+    private final Map<CacheKey, Invocation> invocations;
+
+    private volatile long minCandidateCount;
+
+    private volatile long windowStartNanos;
+
+    private volatile List<HotKey> topKeys = Collections.emptyList();
+
+    /**
+     * @param topK the number of hot keys to track
+     * @param sampleRate record one in {@code sampleRate} accesses
+     * @param windowMillis the length of the statistics window in milliseconds
+     * @param width the width of the count-min sketch, rounded up to a power of two
+     */
+    public CaffeineCacheHotKeys(int topK, int sampleRate, long windowMillis, int width) {
+        this(topK, sampleRate, windowMillis, width, false);
+    }
+
+    /**
+     * @param topK the number of hot keys to track
+     * @param sampleRate record one in {@code sampleRate} accesses
+     * @param windowMillis the length of the statistics window in milliseconds
+     * @param width the width of the count-min sketch, rounded up to a power of two
+     * @param recordInvocations whether to record the cached method and arguments of the hot keys
+     */
+    public CaffeineCacheHotKeys(int topK, int sampleRate, long windowMillis, int width, boolean recordInvocations) {
+        if (topK <= 0 || sampleRate <= 0 || windowMillis <= 0 || width <= 0) {
+            throw new IllegalArgumentException("topK, sampleRate, window and width must be positive");
+        }
+        this.topK = topK;
+        this.sampleRate = sampleRate;
+        this.windowNanos = windowMillis * 1_000_000;
+        int tableWidth = Integer.highestOneBit(Math.max(width, topK * 8) - 1) << 1;
+        this.widthMask = tableWidth - 1;
+        this.table = new AtomicLongArray(DEPTH * tableWidth);
+        this.candidates = new HashMap<>(topK * 2);
+        this.recordInvocations = recordInvocations;
+        this.invocations = recordInvocations ? new HashMap<>(topK * 2) : Collections.emptyMap();
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    /**
+     * 记录一次缓存访问（按采样率采样）。
+     *
+     * @param key the cache key
+     */
+    public void record(CacheKey key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= windowNanos) {
+            rollWindow(now);
+        }
+        long count = increment(key.hashCode());
+        if (count > minCandidateCount) {
+            offer(key, count);
+        }
+    }
+
+    /**
+     * 获取最近一个完整统计窗口访问频率前 K 个的 key，按频率从高到低排序；还没有完整窗口时返回当前窗口的统计。
+     *
+     * @return the hot keys
+     */
+    public List<HotKey> getTopKeys() {
+        List<HotKey> keys = topKeys;
+        if (keys.isEmpty()) {
+            synchronized (this) {
+                return snapshot(System.nanoTime());
+            }
+        }
+        return keys;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public boolean isRecordInvocations() {
+        return recordInvocations;
+    }
+
+    private long increment(int hash) {
+        int width = widthMask + 1;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int h = (hash ^ SEEDS[i]) * 0x9e3779b9;
+            int index = i * width + ((h ^ (h >>> 16)) & widthMask);
+            min = Math.min(min, table.incrementAndGet(index));
+        }
+        return min;
+    }
+
+    private synchronized void offer(CacheKey key, long count) {
+        Long current = candidates.get(key);
+        if (current != null) {
+            candidates.put(key, Math.max(current, count));
+        } else if (candidates.size() < topK) {
+            // do not retain the context and args of the key
+            addCandidate(key, count);
+        } else {
+            CacheKey minKey = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<CacheKey, Long> entry : candidates.entrySet()) {
+                if (entry.getValue() < min) {
+                    min = entry.getValue();
+                    minKey = entry.getKey();
+                }
+            }
+            if (count <= min) {
+                minCandidateCount = min;
+                return;
+            }
+            candidates.remove(minKey);
+            invocations.remove(minKey);
+            addCandidate(key, count);
+        }
+        if (candidates.size() >= topK) {
+            minCandidateCount = Collections.min(candidates.values());
+        }
+    }
+
+    private void addCandidate(CacheKey key, long count) {
+        CacheKey candidate = CacheKey.of(key.getKey());
+        candidates.put(candidate, count);
+        if (recordInvocations) {
+            Invocation invocation = Invocation.of(key);
+            if (invocation != null) {
+                invocations.put(candidate, invocation);
+            }
+        }
+    }
+
+    private synchronized void rollWindow(long now) {
+        if (now - windowStartNanos < windowNanos) {
+            return;
+        }
+        topKeys = snapshot(now);
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, 0);
+        }
+        candidates.clear();
+        invocations.clear();
+        minCandidateCount = 0;
+        windowStartNanos = now;
+    }
+
+    private List<HotKey> snapshot(long now) {
+        double seconds = Math.max(now - windowStartNanos, 1_000_000) / 1e9;
+        List<HotKey> keys = new ArrayList<>(candidates.size());
+        candidates.forEach((key, count) -> keys.add(new HotKey(key, count * sampleRate / seconds,
+                invocations.get(key))));
+        keys.sort(Comparator.comparingDouble(HotKey::getRate).reversed());
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * 热点 key 及其估算的访问频率。
+     */
+    public static final class HotKey {
+
+        private final CacheKey key;
+
+        private final double rate;
+
+        private final Invocation invocation;
+
+        HotKey(CacheKey key, double rate, @Nullable Invocation invocation) {
+            this.key = key;
+            this.rate = rate;
+            this.invocation = invocation;
+        }
+
+        public CacheKey getKey() {
+            return key;
+        }
+
+        /**
+         * 估算的访问频率（次/秒）。
+         *
+         * @return the estimated rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        /**
+         * 产生该 key 的缓存方法所在的类，没有记录调用时返回 {@code null}。
+         *
+         * @return the target class
+         */
+        @Nullable
+        public Class<?> getTargetClass() {
+            return invocation != null ? invocation.targetClass : null;
+        }
+
+        /**
+         * 产生该 key 的缓存方法，没有记录调用时返回 {@code null}。
+         *
+         * @return the cached method
+         */
+        @Nullable
+        public Method getMethod() {
+            return invocation != null ? invocation.method : null;
+        }
+
+        /**
+         * 产生该 key 的调用参数，没有记录调用或者参数的软引用已经被回收时返回 {@code null}。
+         *
+         * @return the invocation arguments
+         */
+        @Nullable
+        public Object[] getArgs() {
+            return invocation != null ? invocation.args : null;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + String.format("%.1f/s", rate);
+        }
+
+    }
+
+    /**
+     * 缓存方法的一次调用。
+     */
+    private static final class Invocation {
+
+        private final Class<?> targetClass;
+
+        private final Method method;
+
+        private final Object[] args;
+
+        Invocation(Class<?> targetClass, Method method, Object[] args) {
+            this.targetClass = targetClass;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Nullable
+        static Invocation of(CacheKey key) {
+            if (!(key.getContext() instanceof CaffeineCacheOperationContext)) {
+                return null;
+            }
+            Object cacheLoader = ((CaffeineCacheOperationContext) key.getContext()).getCacheLoader();
+            if (!(cacheLoader instanceof CacheValueInvoker)) {
+                return null;
+            }
+            CacheValueInvoker invoker = (CacheValueInvoker) cacheLoader;
+            Object[] args = key instanceof InvocationCacheKey ? ((InvocationCacheKey) key).getArgs() : invoker.getArgs();
+            Object target = invoker.getTarget();
+            if (args == null || target == null) {
+                return null;
+            }
+            return new Invocation(ClassUtils.getUserClass(target), invoker.getMethod(), args);
+        }
+
+    }
+
+}
@@ -0,0 +1,502 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheInvalidationTransport;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * 跨节点的缓存失效广播，本节点清除（{@code @CacheEvict}）、更新（{@code @CachePut}）缓存后，
+ * 通过 {@link CacheInvalidationTransport} 通知其他节点清除本地缓存，避免其他节点在过期前一直使用旧值。
+ *
+ * <p>失效的 key 先在时间窗口内合并，同个缓存重复的 key（按序列化后的内容去重）只发送一次，清除整个缓存时覆盖之前的 key，
+ * 达到批量大小时立即发送。消息带有节点 id，收到自己发出的消息时忽略；其他节点只清除本地缓存、堆外二级存储和快照，
+ * 不会再次广播，共享的二级存储由发送方清除。key 使用 {@link CaffeineCacheInvalidationKeyCodec} 编码，只支持简单类型，
+ * 接收时不会反序列化任意的类，无法编码的 key 退化为清除整个缓存；接收时单个 key 无法解码或清除失败时，同样清除整个缓存。
+ * 发送失败的消息中的缓存改为清除整个缓存，在下次发送时重试。</p>
+ *
+ * <p>消息格式（整数都是 big-endian）：</p>
+ *
+ * <pre>
+ * int magic, long nodeIdHigh, long nodeIdLow, int entryCount
+ * entryCount * (byte type, utf cacheName, [int keyLength, byte[] key])
+ * </pre>
+ *
+ * @author yangzexiong
+ * @see CacheInvalidationTransport
+ * @see WrappedCaffeineCache
+ */
+public class CaffeineCacheInvalidationBus implements CaffeineCacheCreationListener, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheInvalidationBus.class);
+
+    private static final int MAGIC = 0x43434931;
+
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+
+    private static final byte TYPE_KEY = 1;
+
+    private static final byte TYPE_CLEAR = 2;
+
+    private final CaffeineCacheResolver cacheResolver;
+
+    private final CacheInvalidationTransport transport;
+
+    private final long batchWindow;
+
+    private final int maxBatchSize;
+
+    private final UUID nodeId = UUID.randomUUID();
+
+    private final ConcurrentMap<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * 等待发送的失效，value 为 {@code null} 表示清除整个缓存
+     */
+    private Map<String, Set<ByteBuffer>> pending = new LinkedHashMap<>();
+
+    private int pendingSize;
+
+    private final LongAdder publishedCount = new LongAdder();
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder receivedCount = new LongAdder();
+
+    private final LongAdder appliedCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    /**
+     * @param cacheResolver the cache resolver
+     * @param transport the transport to the peers
+     * @param batchWindow the window in milliseconds to batch the invalidations, less than or equal to 0 to send
+     * immediately
+     * @param maxBatchSize the max number of the pending invalidations before sending
+     */
+    public CaffeineCacheInvalidationBus(CaffeineCacheResolver cacheResolver, CacheInvalidationTransport transport,
+            long batchWindow, int maxBatchSize) {
+        this.cacheResolver = Objects.requireNonNull(cacheResolver, "cache resolver must not be null");
+        this.transport = Objects.requireNonNull(transport, "transport must not be null");
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        cacheResolver.addCreationListener(this);
+    }
+
+    @Override
+    public void onCreated(String name, Cache<?, ?> cache, CaffeineCacheRefresher refresher) {
+        caches.put(name, cache);
+    }
+
+    /**
+     * 通知其他节点清除缓存的 key。
+     *
+     * @param cacheName the cache name
+     * @param key the key, unwrapped from {@link CacheKey} if necessary
+     */
+    public void publish(String cacheName, Object key) {
+        byte[] keyBytes;
+        try {
+            keyBytes = CaffeineCacheInvalidationKeyCodec
+                    .encode(key instanceof CacheKey ? ((CacheKey) key).getKey() : key);
+        } catch (RuntimeException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache '{}' key '{}' could not be encoded, clear the cache on the peers", cacheName,
+                        key, ex);
+            }
+            publishClear(cacheName);
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            if (isClearPending(cacheName)) {
+                // superseded by clearing the whole cache
+                full = false;
+            } else if (pending.computeIfAbsent(cacheName, name -> new LinkedHashSet<>())
+                    .add(ByteBuffer.wrap(keyBytes))) {
+                pendingSize++;
+                full = pendingSize >= maxBatchSize;
+            } else {
+                full = false;
+            }
+        }
+        publishedCount.increment();
+        if (full || batchWindow <= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * 通知其他节点清除整个缓存。
+     *
+     * @param cacheName the cache name
+     */
+    public void publishClear(String cacheName) {
+        synchronized (this) {
+            pendClear(cacheName);
+        }
+        publishedCount.increment();
+        if (batchWindow <= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * 立即发送等待中的失效，未启动时继续等待。每条消息单独发送，发送失败的消息中的缓存改为等待清除整个缓存，
+     * 在下次发送时重试，其余的消息继续发送。
+     */
+    public void flush() {
+        if (!running) {
+            return;
+        }
+        Map<String, Set<ByteBuffer>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            pendingSize = 0;
+        }
+        List<Message> messages;
+        try {
+            messages = encode(batch);
+        } catch (RuntimeException ex) {
+            errorCount.increment();
+            logger.warn("cache invalidations {} could not be encoded, clear the caches on the next flush",
+                    batch.keySet(), ex);
+            requeueClear(batch.keySet());
+            return;
+        }
+        for (Message message : messages) {
+            try {
+                transport.send(message.bytes);
+                sentCount.increment();
+            } catch (RuntimeException ex) {
+                errorCount.increment();
+                logger.warn("cache invalidations {} could not be sent, clear the caches on the next flush",
+                        message.cacheNames, ex);
+                requeueClear(message.cacheNames);
+            }
+        }
+    }
+
+    /**
+     * 处理其他节点发送的消息，忽略自己发出的消息。
+     *
+     * @param message the encoded message
+     */
+    public void receive(byte[] message) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(message))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("not a cache invalidation message");
+            }
+            UUID sender = new UUID(input.readLong(), input.readLong());
+            if (nodeId.equals(sender)) {
+                return;
+            }
+            receivedCount.increment();
+            int entryCount = input.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                byte type = input.readByte();
+                String cacheName = input.readUTF();
+                if (type == TYPE_CLEAR) {
+                    clearLocal(cacheName);
+                } else {
+                    int keyLength = input.readInt();
+                    if (keyLength < 0 || keyLength > input.available()) {
+                        throw new IOException("invalid key length " + keyLength);
+                    }
+                    byte[] key = new byte[keyLength];
+                    input.readFully(key);
+                    try {
+                        invalidateLocal(cacheName, key);
+                    } catch (RuntimeException ex) {
+                        // the entry is fully read, the remaining entries are still applied
+                        errorCount.increment();
+                        logger.warn("cache '{}' invalidation could not be applied, clear the cache", cacheName, ex);
+                        clearLocal(cacheName);
+                    }
+                }
+                appliedCount.increment();
+            }
+        } catch (IOException | RuntimeException ex) {
+            errorCount.increment();
+            logger.warn("cache invalidation message could not be applied", ex);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        transport.start(this::receive);
+        running = true;
+        if (batchWindow > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "caffeine-cache-invalidation");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flush, batchWindow, batchWindow, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        flush();
+        synchronized (this) {
+            running = false;
+        }
+        transport.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public UUID getNodeId() {
+        return nodeId;
+    }
+
+    public CacheInvalidationTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * 发布的失效数，包括被合并的。
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * 收到的其他节点的消息数。
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    private boolean isClearPending(String cacheName) {
+        return pending.containsKey(cacheName) && pending.get(cacheName) == null;
+    }
+
+    /**
+     * 清除整个缓存，覆盖等待中的 key，需要持有锁。
+     */
+    private void pendClear(String cacheName) {
+        if (!isClearPending(cacheName)) {
+            Set<ByteBuffer> keys = pending.put(cacheName, null);
+            pendingSize += 1 - (keys != null ? keys.size() : 0);
+        }
+    }
+
+    private synchronized void requeueClear(Iterable<String> cacheNames) {
+        for (String cacheName : cacheNames) {
+            pendClear(cacheName);
+        }
+    }
+
+    private void invalidateLocal(String cacheName, byte[] keyBytes) {
+        Object key = CaffeineCacheInvalidationKeyCodec.decode(keyBytes);
+        Cache<?, ?> cache = caches.get(cacheName);
+        if (cache != null) {
+            // CacheKey equals the raw key regardless of the context
+            cache.invalidate(CacheKey.of(key));
+        }
+        CaffeineCacheOffHeapTier offHeapTier = cacheResolver.getOffHeapTier(cacheName);
+        if (offHeapTier != null) {
+            offHeapTier.invalidate(key);
+        }
+        CaffeineCacheSnapshot snapshot = cacheResolver.getSnapshot(cacheName);
+        if (snapshot != null) {
+            snapshot.invalidate(key);
+        }
+    }
+
+    private void clearLocal(String cacheName) {
+        Cache<?, ?> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        CaffeineCacheOffHeapTier offHeapTier = cacheResolver.getOffHeapTier(cacheName);
+        if (offHeapTier != null) {
+            offHeapTier.invalidateAll();
+        }
+        CaffeineCacheSnapshot snapshot = cacheResolver.getSnapshot(cacheName);
+        if (snapshot != null) {
+            snapshot.invalidateAll();
+        }
+    }
+
+    /**
+     * 按传输的消息大小拆分，单个 key 超过消息大小时改为清除整个缓存。
+     */
+    private List<Message> encode(Map<String, Set<ByteBuffer>> batch) {
+        int maxSize = transport.getMaxMessageSize();
+        List<Message> messages = new ArrayList<>();
+        MessageBuilder builder = new MessageBuilder();
+        for (Map.Entry<String, Set<ByteBuffer>> entry : batch.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            int clearSize = 1 + 2 + name.length;
+            boolean clear = entry.getValue() == null;
+            if (!clear) {
+                for (ByteBuffer key : entry.getValue()) {
+                    if (HEADER_SIZE + clearSize + 4 + key.remaining() > maxSize) {
+                        clear = true;
+                        break;
+                    }
+                }
+            }
+            if (clear) {
+                if (builder.size() + clearSize > maxSize) {
+                    messages.add(builder.build());
+                    builder = new MessageBuilder();
+                }
+                builder.clear(entry.getKey());
+                continue;
+            }
+            for (ByteBuffer key : entry.getValue()) {
+                if (builder.size() + clearSize + 4 + key.remaining() > maxSize) {
+                    messages.add(builder.build());
+                    builder = new MessageBuilder();
+                }
+                builder.key(entry.getKey(), key);
+            }
+        }
+        if (builder.count > 0) {
+            messages.add(builder.build());
+        }
+        return messages;
+    }
+
+    private final class MessageBuilder {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream output = new DataOutputStream(bytes);
+
+        private final Set<String> cacheNames = new LinkedHashSet<>();
+
+        private int count;
+
+        int size() {
+            return HEADER_SIZE + bytes.size();
+        }
+
+        void clear(String cacheName) {
+            write(TYPE_CLEAR, cacheName, null);
+        }
+
+        void key(String cacheName, ByteBuffer key) {
+            write(TYPE_KEY, cacheName, key);
+        }
+
+        Message build() {
+            ByteBuffer message = ByteBuffer.allocate(size());
+            message.putInt(MAGIC).putLong(nodeId.getMostSignificantBits()).putLong(nodeId.getLeastSignificantBits())
+                    .putInt(count).put(bytes.toByteArray());
+            return new Message(message.array(), cacheNames);
+        }
+
+        private void write(byte type, String cacheName, ByteBuffer key) {
+            try {
+                output.writeByte(type);
+                output.writeUTF(cacheName);
+                if (key != null) {
+                    output.writeInt(key.remaining());
+                    output.write(key.array(), key.arrayOffset() + key.position(), key.remaining());
+                }
+                cacheNames.add(cacheName);
+                count++;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+    }
+
+    /**
+     * 编码后的消息以及其中包含的缓存，发送失败时用于重试。
+     */
+    private static final class Message {
+
+        private final byte[] bytes;
+
+        private final Set<String> cacheNames;
+
+        Message(byte[] bytes, Set<String> cacheNames) {
+            this.bytes = bytes;
+            this.cacheNames = cacheNames;
+        }
+
+    }
+
+}
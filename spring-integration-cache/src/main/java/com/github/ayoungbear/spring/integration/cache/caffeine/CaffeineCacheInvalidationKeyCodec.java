@@ -0,0 +1,223 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 失效消息中 key 的编码，只支持字符串、基本类型的包装类、{@link BigInteger}、{@link BigDecimal}、{@link UUID}
+ * 以及由它们组成的 {@link List}，解码时不会加载任何类，网络上收到的数据不经过 JDK 反序列化。
+ * 其他类型的 key 无法编码，由调用方退化为清除整个缓存。
+ *
+ * @author yangzexiong
+ */
+final class CaffeineCacheInvalidationKeyCodec {
+
+    private static final byte STRING = 1;
+
+    private static final byte INTEGER = 2;
+
+    private static final byte LONG = 3;
+
+    private static final byte SHORT = 4;
+
+    private static final byte BYTE = 5;
+
+    private static final byte BOOLEAN = 6;
+
+    private static final byte CHARACTER = 7;
+
+    private static final byte DOUBLE = 8;
+
+    private static final byte FLOAT = 9;
+
+    private static final byte BIG_INTEGER = 10;
+
+    private static final byte BIG_DECIMAL = 11;
+
+    private static final byte UUID_TYPE = 12;
+
+    private static final byte LIST = 13;
+
+    /**
+     * 嵌套 {@link List} 的最大深度
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private CaffeineCacheInvalidationKeyCodec() {
+    }
+
+    /**
+     * 编码 key。
+     *
+     * @param key the key
+     * @return the encoded key
+     * @throws IllegalArgumentException if the type of the key is not supported
+     */
+    static byte[] encode(Object key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            write(output, key, 0);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to encode key " + key, ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 解码 key。
+     *
+     * @param bytes the encoded key
+     * @return the key
+     * @throws IllegalArgumentException if the bytes are not a valid key
+     */
+    static Object decode(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            Object key = read(input, 0);
+            if (input.available() > 0) {
+                throw new IOException("trailing bytes after the key");
+            }
+            return key;
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed to decode key", ex);
+        }
+    }
+
+    private static void write(DataOutputStream output, Object key, int depth) throws IOException {
+        if (key instanceof String) {
+            output.writeByte(STRING);
+            output.writeUTF((String) key);
+        } else if (key instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) key);
+        } else if (key instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) key);
+        } else if (key instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) key);
+        } else if (key instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) key);
+        } else if (key instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) key);
+        } else if (key instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) key);
+        } else if (key instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) key);
+        } else if (key instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) key);
+        } else if (key != null && key.getClass() == BigInteger.class) {
+            output.writeByte(BIG_INTEGER);
+            writeBytes(output, ((BigInteger) key).toByteArray());
+        } else if (key != null && key.getClass() == BigDecimal.class) {
+            output.writeByte(BIG_DECIMAL);
+            output.writeInt(((BigDecimal) key).scale());
+            writeBytes(output, ((BigDecimal) key).unscaledValue().toByteArray());
+        } else if (key instanceof UUID) {
+            output.writeByte(UUID_TYPE);
+            output.writeLong(((UUID) key).getMostSignificantBits());
+            output.writeLong(((UUID) key).getLeastSignificantBits());
+        } else if (key instanceof List && depth < MAX_DEPTH) {
+            List<?> list = (List<?>) key;
+            output.writeByte(LIST);
+            output.writeInt(list.size());
+            for (Object element : list) {
+                write(output, element, depth + 1);
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported key type " + (key != null ? key.getClass().getName() : "null"));
+        }
+    }
+
+    private static Object read(DataInputStream input, int depth) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case STRING:
+                return input.readUTF();
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case SHORT:
+                return input.readShort();
+            case BYTE:
+                return input.readByte();
+            case BOOLEAN:
+                return input.readBoolean();
+            case CHARACTER:
+                return input.readChar();
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(input));
+            case BIG_DECIMAL:
+                int scale = input.readInt();
+                return new BigDecimal(new BigInteger(readBytes(input)), scale);
+            case UUID_TYPE:
+                return new UUID(input.readLong(), input.readLong());
+            case LIST:
+                if (depth >= MAX_DEPTH) {
+                    throw new IOException("key is nested too deep");
+                }
+                int size = input.readInt();
+                // every element takes at least one byte
+                if (size < 0 || size > input.available()) {
+                    throw new IOException("invalid list size " + size);
+                }
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(input, depth + 1));
+                }
+                return list;
+            default:
+                throw new IOException("unknown key type " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length <= 0 || length > input.available()) {
+            throw new IOException("invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheStore;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存的二级存储，本地缓存未命中时先从共享的 {@link CacheStore} 获取，都没有时才调用缓存方法加载，每个 cache 一个。
+ *
+ * <p>作为 caffeine 的 {@link CacheWriter}，本地缓存写入新值（包括加载、刷新）时异步写入二级存储，
+ * 过期时间为 key 配置的有效时间（不包括 {@link CaffeineCacheOperationContext#getMaxStale()} 的时间）；
+ * 从二级存储取回的值不会再写回。本地缓存因容量或过期移除时不影响二级存储，只有主动清除缓存时才同时清除二级存储。</p>
+ *
+ * <p>写入在 caffeine 对该 key 加锁时回调，序列化和写入都交给每个 cache 单并发的执行器异步执行，不会阻塞读写本地缓存的线程；
+ * 执行器的队列满了时丢弃本次写入，只记录次数。清除不在加锁时调用，队列满了时由当前线程直接清除，避免二级存储保留旧值。
+ * 二级存储访问失败时只记录次数和日志，读取当作未命中，不影响本地缓存的使用。</p>
+ *
+ * @author yangzexiong
+ * @see CacheStore
+ */
+public class CaffeineCacheL2Tier implements CacheWriter<Object, Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheL2Tier.class);
+
+    private final String cacheName;
+
+    private final CacheStore store;
+
+    private final CacheValueSerializer serializer;
+
+    private final Executor executor;
+
+    /**
+     * 当前线程正在放回从二级存储取回的值，不需要再写回
+     */
+    private final ThreadLocal<Boolean> promoting = new ThreadLocal<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder writeCount = new LongAdder();
+
+    private final LongAdder errorCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    /**
+     * @param cacheName the cache name
+     * @param store the shared store
+     * @param serializer the key and value serializer
+     * @param executor the executor to write to the store, which should reject the writes instead of running them
+     *         on the caller thread when saturated
+     */
+    public CaffeineCacheL2Tier(String cacheName, CacheStore store, CacheValueSerializer serializer,
+            Executor executor) {
+        this.cacheName = cacheName;
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.serializer = Objects.requireNonNull(serializer, "serializer must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+    }
+
+    @Override
+    public void write(@NonNull Object key, @NonNull Object value) {
+        if (promoting.get() != null) {
+            return;
+        }
+        long ttlMillis = getTtlMillis(key, value);
+        if (ttlMillis < 0) {
+            return;
+        }
+        boolean submitted = submit(() -> {
+            byte[] keyBytes;
+            byte[] valueBytes;
+            try {
+                keyBytes = serializer.serialize(rawKey(key));
+                valueBytes = serializer.serialize(value);
+            } catch (RuntimeException ex) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("cache '{}' key '{}' could not be serialized to l2 store", cacheName, key, ex);
+                }
+                return;
+            }
+            try {
+                store.put(cacheName, keyBytes, valueBytes, ttlMillis);
+                writeCount.increment();
+            } catch (RuntimeException ex) {
+                onError("write", key, ex);
+            }
+        });
+        if (!submitted) {
+            // called while caffeine locks the entry, never access the store on this thread
+            droppedCount.increment();
+            logger.debug("cache '{}' key '{}' l2 store write dropped, the write queue is full", cacheName, key);
+        }
+    }
+
+    @Override
+    public void delete(@NonNull Object key, @Nullable Object value, @NonNull RemovalCause cause) {
+        // local removals do not affect the shared store, explicit evictions are handled by invalidate
+    }
+
+    /**
+     * 从二级存储获取缓存值，并放回本地缓存，过期时间按 key 的配置重新计算。
+     *
+     * @param cache the native cache
+     * @param key the cache key
+     * @return the cache value, or {@code null} if absent or the store could not be accessed
+     */
+    @Nullable
+    public Object promote(Cache<CacheKey, Object> cache, CacheKey key) {
+        Object value;
+        try {
+            byte[] bytes = store.get(cacheName, serializer.serialize(key.getKey()));
+            if (bytes == null) {
+                missCount.increment();
+                return null;
+            }
+            value = serializer.deserialize(bytes);
+        } catch (RuntimeException ex) {
+            onError("read", key, ex);
+            return null;
+        }
+        hitCount.increment();
+        promoting.set(Boolean.TRUE);
+        try {
+            // a concurrent put wins, which is also the latest value
+            cache.asMap().putIfAbsent(key, value);
+        } finally {
+            promoting.remove();
+        }
+        return value;
+    }
+
+    public void invalidate(Object key) {
+        byte[] keyBytes;
+        try {
+            keyBytes = serializer.serialize(rawKey(key));
+        } catch (RuntimeException ex) {
+            return;
+        }
+        Runnable evict = () -> {
+            try {
+                store.evict(cacheName, keyBytes);
+            } catch (RuntimeException ex) {
+                onError("evict", key, ex);
+            }
+        };
+        if (!submit(evict)) {
+            evict.run();
+        }
+    }
+
+    public void invalidateAll() {
+        Runnable clear = () -> {
+            try {
+                store.clear(cacheName);
+            } catch (RuntimeException ex) {
+                onError("clear", "*", ex);
+            }
+        };
+        if (!submit(clear)) {
+            clear.run();
+        }
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public CacheStore getStore() {
+        return store;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * 访问二级存储失败的次数。
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 写入二级存储的过期时间，返回 0 表示不过期，小于 0 表示不需要写入。
+     */
+    private static long getTtlMillis(Object key, Object value) {
+        if (!(key instanceof CacheKey) || !(((CacheKey) key).getContext() instanceof CaffeineCacheOperationContext)) {
+            return 0;
+        }
+        long expiresAfter = CacheKeyExpiry.getDurationNanos((CacheKey) key, value);
+        if (expiresAfter == Long.MAX_VALUE) {
+            return 0;
+        }
+        long freshMillis = TimeUnit.NANOSECONDS.toMillis(CacheKeyExpiry.getFreshNanos(key, expiresAfter));
+        return freshMillis > 0 ? freshMillis : -1;
+    }
+
+    /**
+     * 写入队列满了被丢弃的次数。
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    private void onError(String operation, Object key, RuntimeException ex) {
+        errorCount.increment();
+        if (logger.isDebugEnabled()) {
+            logger.debug("cache '{}' key '{}' l2 store {} failed", cacheName, key, operation, ex);
+        } else {
+            logger.warn("cache '{}' key '{}' l2 store {} failed: {}", cacheName, key, operation, ex.toString());
+        }
+    }
+
+    private static Object rawKey(Object key) {
+        return key instanceof CacheKey ? ((CacheKey) key).getKey() : key;
+    }
+
+}
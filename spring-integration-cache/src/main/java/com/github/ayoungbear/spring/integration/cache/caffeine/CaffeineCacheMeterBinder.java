@@ -0,0 +1,226 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheHotKeys.HotKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 为 {@link CaffeineCacheResolver} 创建的每个 caffeine 缓存实例注册 micrometer 指标，tag {@code cache} 为缓存名称。
+ *
+ * <p>开启了统计 {@link CaffeineCacheConfig#recordStats()} 的缓存通过 {@link CaffeineCacheMetrics} 注册命中、未命中、加载次数、
+ * 加载耗时和淘汰次数等指标（与 spring boot actuator 的缓存指标名称一致），另外按淘汰原因注册 {@code cache.eviction.count}。
+ * 所有缓存都会注册缓存大小、刷新队列（{@link CaffeineCacheRefreshExecutor}）和加载失败相关的指标。
+ * 所有缓存按移除原因注册 {@code cache.removals}（{@link CaffeineCacheRemovalPipeline}）。
+ * 开启了热点 key 统计的缓存按排名注册热点 key 的访问频率 {@code cache.hot.key.rate}，具体的 key 通过
+ * {@link CaffeineCacheHotKeys#getTopKeys()} 获取。
+ * 配置了堆外二级存储的缓存注册 {@code cache.offheap.*}（{@link CaffeineCacheOffHeapTier}），
+ * 使用共享二级存储的缓存注册 {@code cache.l2.*}（{@link CaffeineCacheL2Tier}），
+ * 配置了缓存值压缩的缓存注册 {@code cache.compression.*}（{@link CaffeineCacheValueCompressor}），
+ * 配置了空结果过期时间的缓存注册 {@code cache.negative.*}（{@link CaffeineCacheNegativeStats}）。</p>
+ *
+ * <p>每个 {@link MeterRegistry} 只注册一个缓存创建的回调，重复绑定同个 registry 不会重复注册；
+ * registry 关闭后或者调用 {@link #unbindFrom(MeterRegistry)} 后移除对应的回调。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheMeterBinder implements MeterBinder {
+
+    private final CaffeineCacheResolver cacheResolver;
+
+    private final Iterable<Tag> tags;
+
+    private final Map<MeterRegistry, CaffeineCacheCreationListener> listeners = new ConcurrentHashMap<>();
+
+    public CaffeineCacheMeterBinder(CaffeineCacheResolver cacheResolver) {
+        this(cacheResolver, Tags.empty());
+    }
+
+    public CaffeineCacheMeterBinder(CaffeineCacheResolver cacheResolver, Iterable<Tag> tags) {
+        this.cacheResolver = Objects.requireNonNull(cacheResolver, "cache resolver must not be null");
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheCreationListener listener = (name, cache, refresher) -> {
+            if (registry.isClosed()) {
+                unbindFrom(registry);
+            } else {
+                bindTo(registry, name, cache, refresher);
+            }
+        };
+        if (listeners.putIfAbsent(registry, listener) == null) {
+            cacheResolver.addCreationListener(listener);
+        }
+    }
+
+    /**
+     * 不再为之后创建的缓存注册指标，已经注册的指标不会移除。
+     *
+     * @param registry the registry bound before
+     */
+    public void unbindFrom(MeterRegistry registry) {
+        CaffeineCacheCreationListener listener = listeners.remove(registry);
+        if (listener != null) {
+            cacheResolver.removeCreationListener(listener);
+        }
+    }
+
+    private void bindTo(MeterRegistry registry, String name, Cache<?, ?> cache, CaffeineCacheRefresher refresher) {
+        Tags cacheTags = Tags.concat(tags, "cache", name);
+        if (refresher.getStatsCounter() instanceof CaffeineCacheStatsCounter) {
+            new CaffeineCacheMetrics(cache, name, tags).bindTo(registry);
+            CaffeineCacheStatsCounter statsCounter = (CaffeineCacheStatsCounter) refresher.getStatsCounter();
+            for (RemovalCause cause : RemovalCause.values()) {
+                if (cause.wasEvicted()) {
+                    FunctionCounter.builder("cache.eviction.count", statsCounter, s -> s.evictionCount(cause))
+                            .tags(cacheTags).tag("cause", cause.name())
+                            .description("The number of times the cache was evicted by the cause")
+                            .register(registry);
+                }
+            }
+        } else {
+            Gauge.builder("cache.size", cache, Cache::estimatedSize).tags(cacheTags)
+                    .description("The number of entries in this cache, may be an approximation")
+                    .register(registry);
+        }
+        FunctionCounter.builder("cache.reload.failures", refresher, CaffeineCacheRefresher::getFailureCount)
+                .tags(cacheTags).description("The number of failed refreshes and reloads")
+                .register(registry);
+        FunctionCounter.builder("cache.stale.hits", refresher, CaffeineCacheRefresher::getStaleCount)
+                .tags(cacheTags).description("The number of stale values returned while reloading or after the reload failed")
+                .register(registry);
+        CaffeineCacheRemovalPipeline removalPipeline = cacheResolver.getRemovalPipeline(name);
+        if (removalPipeline != null) {
+            for (RemovalCause cause : RemovalCause.values()) {
+                FunctionCounter.builder("cache.removals", removalPipeline, p -> p.removalCount(cause))
+                        .tags(cacheTags).tag("cause", cause.name())
+                        .description("The number of entries removed from the cache by the cause")
+                        .register(registry);
+            }
+            FunctionCounter.builder("cache.removal.dropped", removalPipeline,
+                    CaffeineCacheRemovalPipeline::getDroppedCount).tags(cacheTags)
+                    .description("The number of removal events dropped by the full buffer")
+                    .register(registry);
+        }
+        CaffeineCacheHotKeys hotKeys = cacheResolver.getHotKeys(name);
+        if (hotKeys != null) {
+            for (int i = 0; i < hotKeys.getTopK(); i++) {
+                int rank = i;
+                Gauge.builder("cache.hot.key.rate", hotKeys, h -> {
+                    List<HotKey> topKeys = h.getTopKeys();
+                    return rank < topKeys.size() ? topKeys.get(rank).getRate() : 0;
+                }).tags(cacheTags).tag("rank", String.valueOf(rank + 1))
+                        .description("The estimated access rate per second of the hot key at the rank")
+                        .register(registry);
+            }
+        }
+        CaffeineCacheOffHeapTier offHeapTier = cacheResolver.getOffHeapTier(name);
+        if (offHeapTier != null) {
+            CaffeineCacheOffHeapStore store = offHeapTier.getStore();
+            Gauge.builder("cache.offheap.size", store, CaffeineCacheOffHeapStore::size).tags(cacheTags)
+                    .description("The number of entries in the off-heap tier")
+                    .register(registry);
+            Gauge.builder("cache.offheap.used", store, CaffeineCacheOffHeapStore::getUsedBytes).tags(cacheTags)
+                    .baseUnit("bytes").description("The bytes of values in the off-heap tier")
+                    .register(registry);
+            Gauge.builder("cache.offheap.allocated", store, CaffeineCacheOffHeapStore::getAllocatedBytes)
+                    .tags(cacheTags).baseUnit("bytes").description("The direct memory allocated by the off-heap tier")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.hits", offHeapTier, CaffeineCacheOffHeapTier::getHitCount)
+                    .tags(cacheTags).description("The number of values promoted back from the off-heap tier")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.writes", offHeapTier, CaffeineCacheOffHeapTier::getWriteCount)
+                    .tags(cacheTags).description("The number of evicted values stored to the off-heap tier")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.rejected", offHeapTier, CaffeineCacheOffHeapTier::getRejectedCount)
+                    .tags(cacheTags).description("The number of evicted values could not be stored off-heap")
+                    .register(registry);
+            FunctionCounter.builder("cache.offheap.evictions", store, CaffeineCacheOffHeapStore::getEvictionCount)
+                    .tags(cacheTags).description("The number of values evicted from the off-heap tier")
+                    .register(registry);
+        }
+        CaffeineCacheL2Tier l2Tier = cacheResolver.getL2Tier(name);
+        if (l2Tier != null) {
+            FunctionCounter.builder("cache.l2.hits", l2Tier, CaffeineCacheL2Tier::getHitCount).tags(cacheTags)
+                    .description("The number of local misses served by the l2 store")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.misses", l2Tier, CaffeineCacheL2Tier::getMissCount).tags(cacheTags)
+                    .description("The number of local misses also missed in the l2 store")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.writes", l2Tier, CaffeineCacheL2Tier::getWriteCount).tags(cacheTags)
+                    .description("The number of values written through to the l2 store")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.errors", l2Tier, CaffeineCacheL2Tier::getErrorCount).tags(cacheTags)
+                    .description("The number of failed accesses to the l2 store")
+                    .register(registry);
+            FunctionCounter.builder("cache.l2.dropped", l2Tier, CaffeineCacheL2Tier::getDroppedCount).tags(cacheTags)
+                    .description("The number of writes dropped because the l2 write queue is full")
+                    .register(registry);
+        }
+        CaffeineCacheValueCompressor compressor = cacheResolver.getValueCompressor(name);
+        if (compressor != null) {
+            FunctionCounter.builder("cache.compression.compressed", compressor,
+                    CaffeineCacheValueCompressor::getCompressedCount).tags(cacheTags)
+                    .description("The number of values stored compressed").register(registry);
+            FunctionCounter.builder("cache.compression.decoded", compressor,
+                    CaffeineCacheValueCompressor::getDecodedCount).tags(cacheTags)
+                    .description("The number of compressed values decoded on read").register(registry);
+            FunctionCounter.builder("cache.compression.decoded.hits", compressor,
+                    CaffeineCacheValueCompressor::getDecodedHitCount).tags(cacheTags)
+                    .description("The number of reads served by the recently decoded values").register(registry);
+            Gauge.builder("cache.compression.ratio", compressor, CaffeineCacheValueCompressor::getCompressionRatio)
+                    .tags(cacheTags).description("The compressed size relative to the serialized size")
+                    .register(registry);
+        }
+        CaffeineCacheNegativeStats negativeStats = cacheResolver.getNegativeStats(name);
+        if (negativeStats != null) {
+            FunctionCounter.builder("cache.negative.writes", negativeStats, CaffeineCacheNegativeStats::getWriteCount)
+                    .tags(cacheTags).description("The number of negative results cached")
+                    .register(registry);
+            FunctionCounter.builder("cache.negative.hits", negativeStats, CaffeineCacheNegativeStats::getHitCount)
+                    .tags(cacheTags).description("The number of reads served by the cached negative results")
+                    .register(registry);
+        }
+        if (refresher.getExecutor() instanceof CaffeineCacheRefreshExecutor) {
+            CaffeineCacheRefreshExecutor executor = (CaffeineCacheRefreshExecutor) refresher.getExecutor();
+            Gauge.builder("cache.refresh.queue.size", executor, CaffeineCacheRefreshExecutor::getQueueSize)
+                    .tags(cacheTags).description("The number of refreshes waiting in the queue")
+                    .register(registry);
+            Gauge.builder("cache.refresh.active", executor, CaffeineCacheRefreshExecutor::getActiveCount)
+                    .tags(cacheTags).description("The number of running refreshes")
+                    .register(registry);
+            FunctionCounter.builder("cache.refresh.rejected", executor, CaffeineCacheRefreshExecutor::getRejectedCount)
+                    .tags(cacheTags).description("The number of refreshes rejected by the full queue")
+                    .register(registry);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.springframework.cache.support.NullValue;
+
+/**
+ * 空结果缓存（negative caching）的统计，写入在加载或者放入缓存值时记录，读取命中由 {@link CacheKeyExpiry} 记录。
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheOperationConfig#getNegativeExpireAfterWrite()
+ */
+public class CaffeineCacheNegativeStats {
+
+    private final LongAdder writeCount = new LongAdder();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * 是否是空结果：{@link NullValue}、空的 {@link Optional}、集合或 Map。
+     *
+     * @param value the cached value
+     * @return {@code true} if the value is negative
+     */
+    public static boolean isNegative(@Nullable Object value) {
+        if (value == null || value instanceof NullValue) {
+            return true;
+        }
+        if (value instanceof Optional) {
+            return !((Optional<?>) value).isPresent();
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        }
+        return value instanceof Map && ((Map<?, ?>) value).isEmpty();
+    }
+
+    /**
+     * 返回配置了空结果过期时间的缓存上下文对应的统计。
+     *
+     * @param context the cache operation context
+     * @return the negative stats, or {@code null} if negative caching is not configured
+     */
+    @Nullable
+    static CaffeineCacheNegativeStats forContext(@Nullable CaffeineCacheOperationContext context) {
+        if (context == null) {
+            return null;
+        }
+        Integer negativeExpireAfterWrite = context.getNegativeExpireAfterWrite();
+        return negativeExpireAfterWrite != null && negativeExpireAfterWrite > 0 ? context.getNegativeStats() : null;
+    }
+
+    /**
+     * 写入的缓存值是空结果时记录。
+     *
+     * @param storeValue the value stored into the cache
+     */
+    public void recordWrite(@Nullable Object storeValue) {
+        if (isNegative(storeValue)) {
+            writeCount.increment();
+        }
+    }
+
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    /**
+     * 写入的空结果数。
+     */
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * 读取命中空结果的次数。
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+}
@@ -0,0 +1,410 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * 堆外内存的 key-value 存储，按 slab 管理直接内存（memcached 的 slab 分配方式）。
+ *
+ * <p>容量按固定大小（1MB）的页划分，页在第一次使用时才通过 {@link ByteBuffer#allocateDirect(int)} 分配，
+ * 分配后归属到一个 chunk 大小的等级（从 64 字节开始按 1.25 倍递增到一页），每个值保存在所属等级的一个 chunk 中，
+ * 超过一页的值不保存。等级内没有空闲 chunk 并且没有未分配的页时，按写入顺序淘汰该等级最早的值；
+ * 等级内没有值可以淘汰时，从占用页最多的等级回收一页（淘汰该页上的所有值）重新划分给当前等级。</p>
+ *
+ * <p>索引保存在堆内，未命中时无锁返回；写入、读取和淘汰都在同一个锁内执行。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheOffHeapStore {
+
+    /**
+     * 页大小，也是可以保存的最大值
+     */
+    public static final int PAGE_SIZE = 1 << 20;
+
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private static final double CHUNK_GROWTH_FACTOR = 1.25;
+
+    private final ConcurrentMap<Object, Slot> index = new ConcurrentHashMap<>();
+
+    private final ByteBuffer[] pages;
+
+    private final SizeClass[] pageOwners;
+
+    private final SizeClass[] sizeClasses;
+
+    private final Ticker ticker;
+
+    private int allocatedPages;
+
+    private long usedBytes;
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param capacity the maximum direct memory in bytes, at least one page
+     */
+    public CaffeineCacheOffHeapStore(long capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity the maximum direct memory in bytes, at least one page
+     * @param ticker the ticker of the expire time, or {@code null} to use the system ticker
+     */
+    public CaffeineCacheOffHeapStore(long capacity, @Nullable Ticker ticker) {
+        Assert.isTrue(capacity >= PAGE_SIZE, "capacity must be at least " + PAGE_SIZE + " bytes");
+        this.pages = new ByteBuffer[(int) Math.min(capacity / PAGE_SIZE, Integer.MAX_VALUE)];
+        this.pageOwners = new SizeClass[pages.length];
+        List<SizeClass> classes = new ArrayList<>();
+        int chunkSize = MIN_CHUNK_SIZE;
+        while (chunkSize < PAGE_SIZE) {
+            classes.add(new SizeClass(chunkSize));
+            chunkSize = Math.min(PAGE_SIZE, (int) Math.ceil(chunkSize * CHUNK_GROWTH_FACTOR / 8) * 8);
+        }
+        classes.add(new SizeClass(PAGE_SIZE));
+        this.sizeClasses = classes.toArray(new SizeClass[0]);
+        this.ticker = ticker != null ? ticker : Ticker.systemTicker();
+    }
+
+    /**
+     * 保存值，替换已有的值，空间不足时淘汰同等级最早保存的值或者从其他等级回收一页。
+     *
+     * @param key the key
+     * @param bytes the value bytes
+     * @param expireTime the expire time in {@link Ticker#read()}
+     * @return {@code false} if the value is larger than a page or there is no space to reclaim
+     */
+    public synchronized boolean put(Object key, byte[] bytes, long expireTime) {
+        release(index.remove(key));
+        if (bytes.length > PAGE_SIZE) {
+            return false;
+        }
+        SizeClass sizeClass = sizeClassOf(bytes.length);
+        long address = sizeClass.allocate();
+        if (address < 0) {
+            return false;
+        }
+        ByteBuffer page = pages[pageOf(address)];
+        ((Buffer) page).position(offsetOf(address));
+        page.put(bytes);
+        Slot slot = new Slot(key, sizeClass, address, bytes.length, expireTime);
+        index.put(key, slot);
+        sizeClass.add(slot);
+        usedBytes += bytes.length;
+        return true;
+    }
+
+    /**
+     * 取出并移除值，已过期的值只移除。
+     *
+     * @param key the key
+     * @return the value entry, or {@code null} if absent or expired
+     */
+    public Entry take(Object key) {
+        if (!index.containsKey(key)) {
+            return null;
+        }
+        synchronized (this) {
+            Slot slot = index.remove(key);
+            if (slot == null) {
+                return null;
+            }
+            Entry entry = null;
+            if (slot.expireTime - ticker.read() > 0) {
+                byte[] bytes = new byte[slot.length];
+                ByteBuffer page = pages[pageOf(slot.address)];
+                ((Buffer) page).position(offsetOf(slot.address));
+                page.get(bytes);
+                entry = new Entry(bytes, slot.expireTime);
+            }
+            release(slot);
+            return entry;
+        }
+    }
+
+    public void remove(Object key) {
+        if (index.containsKey(key)) {
+            synchronized (this) {
+                release(index.remove(key));
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (Slot slot : index.values()) {
+            release(slot);
+        }
+        index.clear();
+        for (SizeClass sizeClass : sizeClasses) {
+            sizeClass.slots.clear();
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 已分配的直接内存大小。
+     *
+     * @return the allocated bytes
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) allocatedPages * PAGE_SIZE;
+    }
+
+    public long getCapacity() {
+        return (long) pages.length * PAGE_SIZE;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void release(Slot slot) {
+        if (slot == null || !slot.live) {
+            return;
+        }
+        slot.live = false;
+        slot.sizeClass.liveCount--;
+        slot.sizeClass.free(slot.address);
+        usedBytes -= slot.length;
+    }
+
+    /**
+     * 从占用页最多的其他等级回收一页，优先回收保存时间最早的值所在的页。
+     */
+    private int reclaimPage(SizeClass sizeClass) {
+        SizeClass victim = null;
+        for (SizeClass candidate : sizeClasses) {
+            if (candidate != sizeClass && candidate.pageCount > 0
+                    && (victim == null || candidate.pageCount > victim.pageCount)) {
+                victim = candidate;
+            }
+        }
+        if (victim == null) {
+            return -1;
+        }
+        int page = -1;
+        for (Slot slot : victim.slots) {
+            if (slot.live) {
+                page = pageOf(slot.address);
+                break;
+            }
+        }
+        for (int i = 0; i < pageOwners.length && page < 0; i++) {
+            if (pageOwners[i] == victim) {
+                page = i;
+            }
+        }
+        int reclaimed = page;
+        for (Slot slot : victim.slots) {
+            if (slot.live && pageOf(slot.address) == reclaimed) {
+                index.remove(slot.key, slot);
+                release(slot);
+                evictionCount.increment();
+            }
+        }
+        victim.slots.removeIf(slot -> !slot.live);
+        victim.removeFree(reclaimed);
+        victim.pageCount--;
+        return reclaimed;
+    }
+
+    private SizeClass sizeClassOf(int length) {
+        int low = 0;
+        int high = sizeClasses.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sizeClasses[mid].chunkSize < length) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return sizeClasses[low];
+    }
+
+    private static int pageOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    private static long addressOf(int page, int offset) {
+        return ((long) page << 32) | offset;
+    }
+
+    /**
+     * 取出的值。
+     */
+    public static final class Entry {
+
+        private final byte[] bytes;
+
+        private final long expireTime;
+
+        Entry(byte[] bytes, long expireTime) {
+            this.bytes = bytes;
+            this.expireTime = expireTime;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 过期时间。
+         *
+         * @return the expire time in {@link Ticker#read()}
+         */
+        public long getExpireTime() {
+            return expireTime;
+        }
+
+    }
+
+    /**
+     * 同个 chunk 大小的页，空闲 chunk 和保存顺序。
+     */
+    private final class SizeClass {
+
+        private final int chunkSize;
+
+        private long[] freeChunks = new long[16];
+
+        private int freeCount;
+
+        /**
+         * 按保存顺序，可能包含已经移除的值
+         */
+        private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+
+        private int liveCount;
+
+        private int pageCount;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        long allocate() {
+            if (freeCount == 0 && allocatedPages < pages.length) {
+                int page = allocatedPages++;
+                pages[page] = ByteBuffer.allocateDirect(PAGE_SIZE);
+                assign(page);
+            }
+            while (freeCount == 0) {
+                Slot eldest = slots.poll();
+                if (eldest == null) {
+                    int page = reclaimPage(this);
+                    if (page < 0) {
+                        return -1;
+                    }
+                    assign(page);
+                    break;
+                }
+                if (eldest.live) {
+                    index.remove(eldest.key, eldest);
+                    release(eldest);
+                    evictionCount.increment();
+                }
+            }
+            return freeChunks[--freeCount];
+        }
+
+        void assign(int page) {
+            pageOwners[page] = this;
+            pageCount++;
+            for (int offset = PAGE_SIZE - PAGE_SIZE % chunkSize - chunkSize; offset >= 0; offset -= chunkSize) {
+                free(addressOf(page, offset));
+            }
+        }
+
+        void removeFree(int page) {
+            int count = 0;
+            for (int i = 0; i < freeCount; i++) {
+                if (pageOf(freeChunks[i]) != page) {
+                    freeChunks[count++] = freeChunks[i];
+                }
+            }
+            freeCount = count;
+        }
+
+        void free(long address) {
+            if (freeCount == freeChunks.length) {
+                freeChunks = Arrays.copyOf(freeChunks, freeCount * 2);
+            }
+            freeChunks[freeCount++] = address;
+        }
+
+        void add(Slot slot) {
+            liveCount++;
+            slots.add(slot);
+            if (slots.size() > liveCount * 2 + 16) {
+                // drop the removed slots
+                slots.removeIf(s -> !s.live);
+            }
+        }
+
+    }
+
+    private static final class Slot {
+
+        private final Object key;
+
+        private final SizeClass sizeClass;
+
+        private final long address;
+
+        private final int length;
+
+        private final long expireTime;
+
+        private boolean live = true;
+
+        Slot(Object key, SizeClass sizeClass, long address, int length, long expireTime) {
+            this.key = key;
+            this.sizeClass = sizeClass;
+            this.address = address;
+            this.length = length;
+            this.expireTime = expireTime;
+        }
+
+    }
+
+}
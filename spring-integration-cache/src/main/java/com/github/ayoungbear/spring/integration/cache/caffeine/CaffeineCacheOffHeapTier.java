@@ -0,0 +1,200 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheOffHeapStore.Entry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存的堆外二级存储，保存因容量不足被淘汰的缓存值，每个 cache 一个。
+ *
+ * <p>作为 caffeine 的 {@link CacheWriter}，淘汰时在移除缓存的同时把序列化后的值写入 {@link CaffeineCacheOffHeapStore}，
+ * 保留剩余的有效时间（不包括 {@link CaffeineCacheOperationContext#getMaxStale()} 的时间）；
+ * 写入新值时移除堆外的旧值，保证一个 key 只会在堆内或者堆外其中一处。</p>
+ *
+ * <p>读取缓存未命中时先从堆外取出，反序列化后按剩余的有效时间放回堆内缓存，都没有时才调用缓存方法加载。
+ * 放回后刷新时间从放回时开始计算。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheOffHeapStore
+ */
+public class CaffeineCacheOffHeapTier implements CacheWriter<Object, Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheOffHeapTier.class);
+
+    private static final long MAX_EXPIRE_NANOS = Long.MAX_VALUE >> 2;
+
+    private final String cacheName;
+
+    private final CaffeineCacheOffHeapStore store;
+
+    private final CacheValueSerializer serializer;
+
+    private final Ticker ticker;
+
+    private volatile VarExpiration<Object, Object> expiration;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder writeCount = new LongAdder();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CaffeineCacheOffHeapTier(String cacheName, long capacity, CacheValueSerializer serializer) {
+        this(cacheName, capacity, serializer, null);
+    }
+
+    /**
+     * @param cacheName the cache name
+     * @param capacity the maximum direct memory in bytes
+     * @param serializer the value serializer
+     * @param ticker the ticker of the cache, or {@code null} to use the system ticker
+     */
+    public CaffeineCacheOffHeapTier(String cacheName, long capacity, CacheValueSerializer serializer,
+            @Nullable Ticker ticker) {
+        this.cacheName = cacheName;
+        this.ticker = ticker != null ? ticker : Ticker.systemTicker();
+        this.store = new CaffeineCacheOffHeapStore(capacity, this.ticker);
+        this.serializer = Objects.requireNonNull(serializer, "serializer must not be null");
+    }
+
+    /**
+     * 绑定使用该存储的缓存，用于获取淘汰时的剩余有效时间和按剩余有效时间放回缓存。
+     *
+     * @param cache the native cache
+     */
+    public void bind(Cache<?, ?> cache) {
+        Optional<? extends VarExpiration<?, ?>> varExpiration = cache.policy().expireVariably();
+        this.expiration = (VarExpiration<Object, Object>) varExpiration.orElse(null);
+    }
+
+    @Override
+    public void write(@NonNull Object key, @NonNull Object value) {
+        store.remove(rawKey(key));
+    }
+
+    @Override
+    public void delete(@NonNull Object key, @Nullable Object value, @NonNull RemovalCause cause) {
+        VarExpiration<Object, Object> expiration = this.expiration;
+        if (cause != RemovalCause.SIZE || value == null || expiration == null) {
+            return;
+        }
+        // the evicting entry is still visible to the policy
+        OptionalLong expiresAfter = expiration.getExpiresAfter(key, TimeUnit.NANOSECONDS);
+        long freshNanos = expiresAfter.isPresent() ? CacheKeyExpiry
+                .getFreshNanos(key, Math.min(expiresAfter.getAsLong(), MAX_EXPIRE_NANOS)) : 0;
+        if (freshNanos <= 0) {
+            return;
+        }
+        try {
+            if (store.put(rawKey(key), serializer.serialize(value), ticker.read() + freshNanos)) {
+                writeCount.increment();
+                return;
+            }
+        } catch (RuntimeException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache '{}' key '{}' could not be stored off-heap", cacheName, key, ex);
+            }
+        }
+        rejectedCount.increment();
+    }
+
+    /**
+     * 从堆外取出缓存值，并按剩余的有效时间放回缓存。
+     * 一个 key 只会在堆内或者堆外其中一处，所以堆内存在的 key 在这里会无锁地直接返回 {@code null}。
+     *
+     * @param cache the native cache
+     * @param key the cache key
+     * @return the cache value, or {@code null} if absent
+     */
+    @Nullable
+    public Object promote(Cache<CacheKey, Object> cache, CacheKey key) {
+        Entry entry = store.take(key.getKey());
+        if (entry == null) {
+            return null;
+        }
+        Object value;
+        try {
+            value = serializer.deserialize(entry.getBytes());
+        } catch (RuntimeException ex) {
+            logger.warn("cache '{}' key '{}' could not be restored from off-heap", cacheName, key, ex);
+            return null;
+        }
+        hitCount.increment();
+        long remaining = entry.getExpireTime() - ticker.read();
+        VarExpiration<Object, Object> expiration = this.expiration;
+        if (expiration == null || remaining <= 0) {
+            return value;
+        }
+        // a concurrent put wins, which is also the latest value
+        expiration.putIfAbsent(key, value, remaining, TimeUnit.NANOSECONDS);
+        return value;
+    }
+
+    public void invalidate(Object key) {
+        store.remove(rawKey(key));
+    }
+
+    public void invalidateAll() {
+        store.clear();
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public CaffeineCacheOffHeapStore getStore() {
+        return store;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    /**
+     * 无法保存到堆外的次数（值超过一页、无法序列化或者同等级没有可以淘汰的值）。
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private static Object rawKey(Object key) {
+        return key instanceof CacheKey ? ((CacheKey) key).getKey() : key;
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
+import com.github.benmanes.caffeine.cache.Weigher;
 import java.util.concurrent.Executor;
 
 /**
@@ -29,6 +30,22 @@ public class CaffeineCacheOperationConfig {
      * 缓存大小
      */
     private Integer maximumSize;
+    /**
+     * 缓存最大权重
+     */
+    private Integer maximumWeight;
+    /**
+     * 缓存权重计算
+     */
+    private Weigher<Object, Object> weigher;
+    /**
+     * 堆外二级存储的容量（MB）
+     */
+    private Integer offHeapCapacity;
+    /**
+     * 压缩缓存值的阈值（字节）
+     */
+    private Integer compressThreshold;
     /**
      * 缓存过期时间-操作后（ms）
      */
@@ -37,6 +54,14 @@ public class CaffeineCacheOperationConfig {
      * 缓存过期时间-操作后（ms）
      */
     private Integer expireAfterWrite;
+    /**
+     * 缓存过期后加载失败时仍可使用旧值的最长时间（ms）
+     */
+    private Integer maxStale;
+    /**
+     * 空结果的过期时间（ms）
+     */
+    private Integer negativeExpireAfterWrite;
     /**
      * 缓存刷新时间（ms）
      */
@@ -49,6 +74,42 @@ public class CaffeineCacheOperationConfig {
      * 是否使用软引用
      */
     private boolean softRef;
+    /**
+     * 是否使用异步缓存
+     */
+    private boolean async;
+    /**
+     * 是否在快过期时提前刷新
+     */
+    private boolean earlyRefresh;
+    /**
+     * 是否开启缓存统计
+     */
+    private boolean recordStats;
+    /**
+     * 缓存值的引用强度
+     */
+    private ValueStrength valueStrength;
+    /**
+     * 是否按集合参数的元素批量缓存
+     */
+    private boolean bulk;
+    /**
+     * 批量缓存时从方法返回的元素中获取对应集合参数元素的表达式
+     */
+    private String bulkKey;
+    /**
+     * 批量刷新方法名
+     */
+    private String batchLoader;
+    /**
+     * 批量刷新的最大数量
+     */
+    private Integer batchSize;
+    /**
+     * 批量刷新的收集时间窗口（ms）
+     */
+    private Integer batchWindow;
 
     public Integer getMaximumSize() {
         return maximumSize;
@@ -58,6 +119,38 @@ public class CaffeineCacheOperationConfig {
         this.maximumSize = maximumSize;
     }
 
+    public Integer getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(Integer maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public Weigher<Object, Object> getWeigher() {
+        return weigher;
+    }
+
+    public void setWeigher(Weigher<Object, Object> weigher) {
+        this.weigher = weigher;
+    }
+
+    public Integer getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    public void setOffHeapCapacity(Integer offHeapCapacity) {
+        this.offHeapCapacity = offHeapCapacity;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
     public Integer getExpireAfterAccess() {
         return expireAfterAccess;
     }
@@ -74,6 +167,22 @@ public class CaffeineCacheOperationConfig {
         this.expireAfterWrite = expireAfterWrite;
     }
 
+    public Integer getMaxStale() {
+        return maxStale;
+    }
+
+    public void setMaxStale(Integer maxStale) {
+        this.maxStale = maxStale;
+    }
+
+    public Integer getNegativeExpireAfterWrite() {
+        return negativeExpireAfterWrite;
+    }
+
+    public void setNegativeExpireAfterWrite(Integer negativeExpireAfterWrite) {
+        this.negativeExpireAfterWrite = negativeExpireAfterWrite;
+    }
+
     public Integer getRefreshAfterWrite() {
         return refreshAfterWrite;
     }
@@ -98,4 +207,76 @@ public class CaffeineCacheOperationConfig {
         this.softRef = softRef;
     }
 
+    public boolean getAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public boolean getEarlyRefresh() {
+        return earlyRefresh;
+    }
+
+    public void setEarlyRefresh(boolean earlyRefresh) {
+        this.earlyRefresh = earlyRefresh;
+    }
+
+    public boolean getRecordStats() {
+        return recordStats;
+    }
+
+    public void setRecordStats(boolean recordStats) {
+        this.recordStats = recordStats;
+    }
+
+    public ValueStrength getValueStrength() {
+        return valueStrength;
+    }
+
+    public void setValueStrength(ValueStrength valueStrength) {
+        this.valueStrength = valueStrength;
+    }
+
+    public boolean getBulk() {
+        return bulk;
+    }
+
+    public void setBulk(boolean bulk) {
+        this.bulk = bulk;
+    }
+
+    public String getBulkKey() {
+        return bulkKey;
+    }
+
+    public void setBulkKey(String bulkKey) {
+        this.bulkKey = bulkKey;
+    }
+
+    public String getBatchLoader() {
+        return batchLoader;
+    }
+
+    public void setBatchLoader(String batchLoader) {
+        this.batchLoader = batchLoader;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Integer getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Integer batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
 }
@@ -27,7 +27,8 @@ import org.springframework.cache.interceptor.CacheOperationInvocationContext;
 public interface CaffeineCacheOperationConfigResolver {
 
     /**
-     * 根据缓存执行上下文获取 CaffeineCache 相关信息
+     * 根据缓存执行上下文获取 CaffeineCache 相关信息。
+     * 返回的配置可能会被多次调用共享，调用方不应该修改。
      *
      * @param name cache name
      * @param context Representation of the context of the invocation of a cache operation
@@ -35,4 +36,16 @@ public interface CaffeineCacheOperationConfigResolver {
      */
     CaffeineCacheOperationConfig resolveConfig(String name, CacheOperationInvocationContext<?> context);
 
+    /**
+     * 判断缓存配置是否与调用参数无关，即同个缓存方法的每次调用解析得到的配置都相同。
+     * 默认为 {@code false}。
+     *
+     * @param name cache name
+     * @param context Representation of the context of the invocation of a cache operation
+     * @return {@code true} if the config can be resolved only once for the cached method
+     */
+    default boolean isInvocationIndependent(String name, CacheOperationInvocationContext<?> context) {
+        return false;
+    }
+
 }
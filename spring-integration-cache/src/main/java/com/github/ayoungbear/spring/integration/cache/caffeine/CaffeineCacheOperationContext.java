@@ -27,6 +27,36 @@ public class CaffeineCacheOperationContext extends CaffeineCacheOperationConfig
 
     private CacheOperationInvoker cacheLoader;
 
+    /**
+     * 缓存方法返回值的适配，创建上下文时解析一次
+     */
+    private AsyncCacheValueAdapter valueAdapter;
+
+    private CaffeineCacheBulkLoader bulkLoader;
+
+    private CaffeineCacheBatchRefresher batchRefresher;
+
+    private CaffeineCacheRefresher refresher;
+
+    private CaffeineCacheHotKeys hotKeys;
+
+    private CaffeineCacheOffHeapTier offHeapTier;
+
+    private CaffeineCacheSnapshot snapshot;
+
+    private CaffeineCacheL2Tier l2Tier;
+
+    private CaffeineCacheValueCompressor valueCompressor;
+
+    private CaffeineCacheNegativeStats negativeStats;
+
+    private CaffeineCacheInvalidationBus invalidationBus;
+
+    /**
+     * 写入缓存时是否通知其他节点失效，只有 {@code @CachePut} 需要，{@code @Cacheable} 加载后的写入不需要
+     */
+    private boolean broadcastPut;
+
     public CacheOperationInvoker getCacheLoader() {
         return cacheLoader;
     }
@@ -35,4 +65,100 @@ public class CaffeineCacheOperationContext extends CaffeineCacheOperationConfig
         this.cacheLoader = cacheLoader;
     }
 
+    public AsyncCacheValueAdapter getValueAdapter() {
+        return valueAdapter;
+    }
+
+    public void setValueAdapter(AsyncCacheValueAdapter valueAdapter) {
+        this.valueAdapter = valueAdapter;
+    }
+
+    public CaffeineCacheBulkLoader getBulkLoader() {
+        return bulkLoader;
+    }
+
+    public void setBulkLoader(CaffeineCacheBulkLoader bulkLoader) {
+        this.bulkLoader = bulkLoader;
+    }
+
+    public CaffeineCacheBatchRefresher getBatchRefresher() {
+        return batchRefresher;
+    }
+
+    public void setBatchRefresher(CaffeineCacheBatchRefresher batchRefresher) {
+        this.batchRefresher = batchRefresher;
+    }
+
+    public CaffeineCacheRefresher getRefresher() {
+        return refresher;
+    }
+
+    public void setRefresher(CaffeineCacheRefresher refresher) {
+        this.refresher = refresher;
+    }
+
+    public CaffeineCacheHotKeys getHotKeys() {
+        return hotKeys;
+    }
+
+    public void setHotKeys(CaffeineCacheHotKeys hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    public CaffeineCacheOffHeapTier getOffHeapTier() {
+        return offHeapTier;
+    }
+
+    public void setOffHeapTier(CaffeineCacheOffHeapTier offHeapTier) {
+        this.offHeapTier = offHeapTier;
+    }
+
+    public CaffeineCacheSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(CaffeineCacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public CaffeineCacheL2Tier getL2Tier() {
+        return l2Tier;
+    }
+
+    public void setL2Tier(CaffeineCacheL2Tier l2Tier) {
+        this.l2Tier = l2Tier;
+    }
+
+    public CaffeineCacheValueCompressor getValueCompressor() {
+        return valueCompressor;
+    }
+
+    public void setValueCompressor(CaffeineCacheValueCompressor valueCompressor) {
+        this.valueCompressor = valueCompressor;
+    }
+
+    public CaffeineCacheNegativeStats getNegativeStats() {
+        return negativeStats;
+    }
+
+    public void setNegativeStats(CaffeineCacheNegativeStats negativeStats) {
+        this.negativeStats = negativeStats;
+    }
+
+    public CaffeineCacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    public void setInvalidationBus(CaffeineCacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    public boolean isBroadcastPut() {
+        return broadcastPut;
+    }
+
+    public void setBroadcastPut(boolean broadcastPut) {
+        this.broadcastPut = broadcastPut;
+    }
+
 }
@@ -16,6 +16,9 @@
 
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.SaturationPolicy;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ForkJoinPool;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -27,10 +30,53 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "spring.cache.caffeine")
 public class CaffeineCacheProperties {
 
+    static final int DEFAULT_REFRESH_CONCURRENCY = 4;
+
+    static final int DEFAULT_REFRESH_QUEUE_CAPACITY = 1000;
+
+    static final int DEFAULT_HOT_KEY_SAMPLE_RATE = 16;
+
+    static final long DEFAULT_HOT_KEY_WINDOW = 10000;
+
+    static final long DEFAULT_SNAPSHOT_INTERVAL = 300000;
+
+    static final int DEFAULT_WARMUP_CONCURRENCY = 4;
+
+    static final long DEFAULT_WARMUP_TIMEOUT = 30000;
+
+    static final long DEFAULT_INVALIDATION_BATCH_WINDOW = 10;
+
+    static final int DEFAULT_INVALIDATION_BATCH_SIZE = 1000;
+
+    static final String DEFAULT_INVALIDATION_BIND_ADDRESS = "127.0.0.1";
+
+    static final int DEFAULT_COMPRESS_DECODED_CACHE_SIZE = 64;
+
     /**
      * 缓存大小
      */
     private Integer maximumSize;
+    /**
+     * 缓存最大权重，默认权重为估算的内存占用字节数，配置后按权重淘汰而不再按大小
+     */
+    private Integer maximumWeight;
+    /**
+     * 缓存权重计算 {@link com.github.benmanes.caffeine.cache.Weigher} 对象name，需要注册到spring上下文中。
+     * 默认使用 {@link ObjectSizeWeigher}
+     */
+    private String weigher;
+    /**
+     * 堆外二级存储的容量（MB），保存因容量不足被淘汰的缓存值，默认不使用
+     */
+    private Integer offHeapCapacity;
+    /**
+     * 压缩缓存值的阈值（字节），序列化后超过阈值的缓存值压缩后保存，默认不压缩
+     */
+    private Integer compressThreshold;
+    /**
+     * 每个 cache 保留最近解压的缓存值数量，小于等于 0 表示每次读取都解压。默认为 64
+     */
+    private int compressDecodedCacheSize = DEFAULT_COMPRESS_DECODED_CACHE_SIZE;
     /**
      * 读写操作后过期时间（ms）
      */
@@ -39,6 +85,14 @@ public class CaffeineCacheProperties {
      * 写操作后过期时间（ms）
      */
     private Integer expireAfterWrite;
+    /**
+     * 过期后加载失败时仍可使用旧值的最长时间（ms）
+     */
+    private Integer maxStale;
+    /**
+     * 空结果（null、空的 Optional、集合或 Map）的过期时间（ms），默认与其他结果相同
+     */
+    private Integer negativeExpireAfterWrite;
     /**
      * 缓存刷新时间（ms），要比过期时间短才有效
      */
@@ -48,6 +102,115 @@ public class CaffeineCacheProperties {
      * 默认使用 {@link ForkJoinPool#commonPool()}
      */
     private String executor;
+    /**
+     * 没有配置 executor 时是否使用虚拟线程执行异步任务（需要 Java 21，不支持时使用 {@link ForkJoinPool#commonPool()}）。
+     * 默认为 false
+     */
+    private boolean virtualThreads;
+    /**
+     * 是否默认开启缓存统计，开启后可以通过 micrometer 输出缓存指标。默认为 false
+     */
+    private boolean recordStats;
+    /**
+     * 默认的缓存值引用强度，软引用或弱引用的缓存值可以被 GC 回收（异步缓存不支持）。默认为 STRONG
+     */
+    private ValueStrength valueStrength = ValueStrength.STRONG;
+    /**
+     * 每个 cache 同时执行的刷新任务数，小于等于 0 表示不限制。默认为 4
+     */
+    private int refreshConcurrency = DEFAULT_REFRESH_CONCURRENCY;
+    /**
+     * 每个 cache 等待执行的刷新任务队列大小。默认为 1000
+     */
+    private int refreshQueueCapacity = DEFAULT_REFRESH_QUEUE_CAPACITY;
+    /**
+     * 刷新队列满了之后的处理策略，丢弃刷新（继续使用旧值）或者由读取缓存的线程执行。默认为 DISCARD
+     */
+    private SaturationPolicy refreshSaturationPolicy = SaturationPolicy.DISCARD;
+    /**
+     * 每个 cache 统计的热点 key 数量，小于等于 0 表示不统计。默认为 0
+     */
+    private int hotKeyTopK;
+    /**
+     * 热点 key 统计的采样率，每多少次读写采样一次。默认为 16
+     */
+    private int hotKeySampleRate = DEFAULT_HOT_KEY_SAMPLE_RATE;
+    /**
+     * 热点 key 统计的时间窗口（ms）。默认为 10000
+     */
+    private long hotKeyWindow = DEFAULT_HOT_KEY_WINDOW;
+    /**
+     * 是否复用缓存方法预先解析的缓存上下文，只对配置都是常量的缓存方法生效。默认为 false
+     */
+    private boolean reuseCacheHandles;
+    /**
+     * 缓存快照文件路径，配置后定时以及应用关闭时把缓存写入该文件，重启后缓存未命中时从快照中恢复。默认不使用
+     */
+    private String snapshotFile;
+    /**
+     * 写入快照的缓存名称，默认为空表示所有缓存（异步缓存除外）
+     */
+    private List<String> snapshotCacheNames = new ArrayList<>();
+    /**
+     * 定时写入快照的间隔（ms），小于等于 0 表示只在应用关闭时写入。默认为 300000
+     */
+    private long snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+    /**
+     * 缓存预热文件路径，配置后应用关闭时把热点 key 对应的缓存方法调用写入该文件，启动时重放这些调用预热缓存。
+     * 需要开启 hotKeyTopK，默认不使用
+     */
+    private String warmupFile;
+    /**
+     * 重放预热调用的线程数。默认为 4
+     */
+    private int warmupConcurrency = DEFAULT_WARMUP_CONCURRENCY;
+    /**
+     * 预热的最长时间（ms），超过后剩余的调用不再执行。默认为 30000
+     */
+    private long warmupTimeout = DEFAULT_WARMUP_TIMEOUT;
+    /**
+     * 二级缓存 Redis 地址，格式为 {@code redis://[:password@]host[:port][/database]}，
+     * 配置后没有注册 {@link com.github.ayoungbear.spring.integration.cache.CacheStore} 时使用该地址作为二级存储。默认不使用
+     */
+    private String l2Url;
+    /**
+     * 二级缓存所有 key 的前缀。默认为空
+     */
+    private String l2KeyPrefix = "";
+    /**
+     * 使用二级缓存的缓存名称，默认为空表示所有缓存（异步缓存除外）
+     */
+    private List<String> l2CacheNames = new ArrayList<>();
+    /**
+     * 是否开启跨节点的缓存失效广播，清除缓存以及 {@code @CachePut} 写入缓存后通知其他节点清除本地缓存。
+     * 没有注册 {@link com.github.ayoungbear.spring.integration.cache.CacheInvalidationTransport} 时使用 UDP 发送给
+     * invalidationPeers。默认为 false
+     */
+    private boolean invalidationEnabled;
+    /**
+     * UDP 广播监听的地址。默认为 127.0.0.1，跨机器广播时需要指定本机的内网地址
+     */
+    private String invalidationBindAddress = DEFAULT_INVALIDATION_BIND_ADDRESS;
+    /**
+     * UDP 广播接收消息的端口。默认为 0 表示随机端口
+     */
+    private int invalidationPort;
+    /**
+     * UDP 广播的节点地址列表，格式为 {@code host:port}，可以包括自己，来源不在列表中的消息被丢弃
+     */
+    private List<String> invalidationPeers = new ArrayList<>();
+    /**
+     * UDP 广播签名消息的共享密钥，所有节点需要一致，至少 16 个字节，使用 UDP 广播时必须配置
+     */
+    private String invalidationSecret;
+    /**
+     * 合并失效消息的时间窗口（ms），小于等于 0 表示立即发送。默认为 10
+     */
+    private long invalidationBatchWindow = DEFAULT_INVALIDATION_BATCH_WINDOW;
+    /**
+     * 合并的失效 key 达到该数量时立即发送。默认为 1000
+     */
+    private int invalidationBatchSize = DEFAULT_INVALIDATION_BATCH_SIZE;
 
     public Integer getMaximumSize() {
         return maximumSize;
@@ -57,6 +220,46 @@ public class CaffeineCacheProperties {
         this.maximumSize = maximumSize;
     }
 
+    public Integer getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(Integer maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public String getWeigher() {
+        return weigher;
+    }
+
+    public void setWeigher(String weigher) {
+        this.weigher = weigher;
+    }
+
+    public Integer getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    public void setOffHeapCapacity(Integer offHeapCapacity) {
+        this.offHeapCapacity = offHeapCapacity;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public int getCompressDecodedCacheSize() {
+        return compressDecodedCacheSize;
+    }
+
+    public void setCompressDecodedCacheSize(int compressDecodedCacheSize) {
+        this.compressDecodedCacheSize = compressDecodedCacheSize;
+    }
+
     public Integer getExpireAfterAccess() {
         return expireAfterAccess;
     }
@@ -73,6 +276,22 @@ public class CaffeineCacheProperties {
         this.expireAfterWrite = expireAfterWrite;
     }
 
+    public Integer getMaxStale() {
+        return maxStale;
+    }
+
+    public void setMaxStale(Integer maxStale) {
+        this.maxStale = maxStale;
+    }
+
+    public Integer getNegativeExpireAfterWrite() {
+        return negativeExpireAfterWrite;
+    }
+
+    public void setNegativeExpireAfterWrite(Integer negativeExpireAfterWrite) {
+        this.negativeExpireAfterWrite = negativeExpireAfterWrite;
+    }
+
     public Integer getRefreshAfterWrite() {
         return refreshAfterWrite;
     }
@@ -89,4 +308,212 @@ public class CaffeineCacheProperties {
         this.executor = executor;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isRecordStats() {
+        return recordStats;
+    }
+
+    public void setRecordStats(boolean recordStats) {
+        this.recordStats = recordStats;
+    }
+
+    public ValueStrength getValueStrength() {
+        return valueStrength;
+    }
+
+    public void setValueStrength(ValueStrength valueStrength) {
+        this.valueStrength = valueStrength;
+    }
+
+    public int getRefreshConcurrency() {
+        return refreshConcurrency;
+    }
+
+    public void setRefreshConcurrency(int refreshConcurrency) {
+        this.refreshConcurrency = refreshConcurrency;
+    }
+
+    public int getRefreshQueueCapacity() {
+        return refreshQueueCapacity;
+    }
+
+    public void setRefreshQueueCapacity(int refreshQueueCapacity) {
+        this.refreshQueueCapacity = refreshQueueCapacity;
+    }
+
+    public SaturationPolicy getRefreshSaturationPolicy() {
+        return refreshSaturationPolicy;
+    }
+
+    public void setRefreshSaturationPolicy(SaturationPolicy refreshSaturationPolicy) {
+        this.refreshSaturationPolicy = refreshSaturationPolicy;
+    }
+
+    public int getHotKeyTopK() {
+        return hotKeyTopK;
+    }
+
+    public void setHotKeyTopK(int hotKeyTopK) {
+        this.hotKeyTopK = hotKeyTopK;
+    }
+
+    public int getHotKeySampleRate() {
+        return hotKeySampleRate;
+    }
+
+    public void setHotKeySampleRate(int hotKeySampleRate) {
+        this.hotKeySampleRate = hotKeySampleRate;
+    }
+
+    public long getHotKeyWindow() {
+        return hotKeyWindow;
+    }
+
+    public void setHotKeyWindow(long hotKeyWindow) {
+        this.hotKeyWindow = hotKeyWindow;
+    }
+
+    public boolean isReuseCacheHandles() {
+        return reuseCacheHandles;
+    }
+
+    public void setReuseCacheHandles(boolean reuseCacheHandles) {
+        this.reuseCacheHandles = reuseCacheHandles;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public List<String> getSnapshotCacheNames() {
+        return snapshotCacheNames;
+    }
+
+    public void setSnapshotCacheNames(List<String> snapshotCacheNames) {
+        this.snapshotCacheNames = snapshotCacheNames;
+    }
+
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public String getWarmupFile() {
+        return warmupFile;
+    }
+
+    public void setWarmupFile(String warmupFile) {
+        this.warmupFile = warmupFile;
+    }
+
+    public int getWarmupConcurrency() {
+        return warmupConcurrency;
+    }
+
+    public void setWarmupConcurrency(int warmupConcurrency) {
+        this.warmupConcurrency = warmupConcurrency;
+    }
+
+    public long getWarmupTimeout() {
+        return warmupTimeout;
+    }
+
+    public void setWarmupTimeout(long warmupTimeout) {
+        this.warmupTimeout = warmupTimeout;
+    }
+
+    public String getL2Url() {
+        return l2Url;
+    }
+
+    public void setL2Url(String l2Url) {
+        this.l2Url = l2Url;
+    }
+
+    public String getL2KeyPrefix() {
+        return l2KeyPrefix;
+    }
+
+    public void setL2KeyPrefix(String l2KeyPrefix) {
+        this.l2KeyPrefix = l2KeyPrefix;
+    }
+
+    public List<String> getL2CacheNames() {
+        return l2CacheNames;
+    }
+
+    public void setL2CacheNames(List<String> l2CacheNames) {
+        this.l2CacheNames = l2CacheNames;
+    }
+
+    public boolean isInvalidationEnabled() {
+        return invalidationEnabled;
+    }
+
+    public void setInvalidationEnabled(boolean invalidationEnabled) {
+        this.invalidationEnabled = invalidationEnabled;
+    }
+
+    public String getInvalidationBindAddress() {
+        return invalidationBindAddress;
+    }
+
+    public void setInvalidationBindAddress(String invalidationBindAddress) {
+        this.invalidationBindAddress = invalidationBindAddress;
+    }
+
+    public int getInvalidationPort() {
+        return invalidationPort;
+    }
+
+    public void setInvalidationPort(int invalidationPort) {
+        this.invalidationPort = invalidationPort;
+    }
+
+    public List<String> getInvalidationPeers() {
+        return invalidationPeers;
+    }
+
+    public void setInvalidationPeers(List<String> invalidationPeers) {
+        this.invalidationPeers = invalidationPeers;
+    }
+
+    public String getInvalidationSecret() {
+        return invalidationSecret;
+    }
+
+    public void setInvalidationSecret(String invalidationSecret) {
+        this.invalidationSecret = invalidationSecret;
+    }
+
+    public long getInvalidationBatchWindow() {
+        return invalidationBatchWindow;
+    }
+
+    public void setInvalidationBatchWindow(long invalidationBatchWindow) {
+        this.invalidationBatchWindow = invalidationBatchWindow;
+    }
+
+    public int getInvalidationBatchSize() {
+        return invalidationBatchSize;
+    }
+
+    public void setInvalidationBatchSize(int invalidationBatchSize) {
+        this.invalidationBatchSize = invalidationBatchSize;
+    }
+
 }
@@ -0,0 +1,260 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存刷新使用的隔离执行器（bulkhead）。
+ *
+ * <p>每个 cache 单独一个，任务仍然提交到底层的执行器执行，但同时执行的刷新任务不超过 {@code maxConcurrency}，
+ * 超出的任务进入有界队列等待，队列满了按 {@link SaturationPolicy} 处理，避免单个加载缓慢的 cache 占满共用的线程池，
+ * 影响其他 cache 的刷新或者使用同个线程池的其他任务。</p>
+ *
+ * <p>排队的任务稍后提交到底层执行器时也可能被拒绝，这时同样按 {@link SaturationPolicy} 处理：由当前线程执行，
+ * 或者丢弃并回调 {@link RejectableTask#reject}，提交任务的一方借此结束等待的 future，然后继续处理队列中剩余的任务。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRefreshExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheRefreshExecutor.class);
+
+    private final String name;
+
+    private final Executor delegate;
+
+    private final int maxConcurrency;
+
+    private final int queueCapacity;
+
+    private final SaturationPolicy saturationPolicy;
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger queueSize = new AtomicInteger();
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CaffeineCacheRefreshExecutor(String name, Executor delegate, int maxConcurrency, int queueCapacity,
+            SaturationPolicy saturationPolicy) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.name = name;
+        this.delegate = Objects.requireNonNull(delegate, "delegate executor must not be null");
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = Math.max(queueCapacity, 0);
+        this.saturationPolicy = Objects.requireNonNull(saturationPolicy, "saturation policy must not be null");
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (tryAcquire()) {
+            try {
+                dispatch(task);
+            } catch (RuntimeException ex) {
+                rejectedCount.increment();
+                throw ex;
+            }
+            return;
+        }
+        if (queueSize.incrementAndGet() <= queueCapacity) {
+            queue.offer(task);
+            // the running tasks may have finished before the task is queued
+            drain();
+            return;
+        }
+        queueSize.decrementAndGet();
+        rejectedCount.increment();
+        if (saturationPolicy == SaturationPolicy.CALLER_RUNS) {
+            task.run();
+            return;
+        }
+        throw new RejectedExecutionException("Refresh queue of cache [" + name + "] is full");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    /**
+     * 等待执行的刷新任务数。
+     *
+     * @return the queue depth
+     */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * 正在执行的刷新任务数。
+     *
+     * @return the active count
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * 队列满了或者被底层执行器拒绝（丢弃或者由调用线程执行）的任务数。
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CaffeineCacheRefreshExecutor{" + "name=" + name + ",maxConcurrency=" + maxConcurrency
+                + ",queueCapacity=" + queueCapacity + ",saturationPolicy=" + saturationPolicy + '}';
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int active = activeCount.get();
+            if (active >= maxConcurrency) {
+                return false;
+            }
+            if (activeCount.compareAndSet(active, active + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            delegate.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                    drain();
+                }
+            });
+        } catch (RuntimeException ex) {
+            activeCount.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && tryAcquire()) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                activeCount.decrementAndGet();
+                continue;
+            }
+            queueSize.decrementAndGet();
+            try {
+                dispatch(task);
+            } catch (RuntimeException ex) {
+                rejectedCount.increment();
+                logger.warn("Refresh task of cache [{}] rejected by the delegate executor", name, ex);
+                // keep draining, the remaining tasks would be stuck until the next submission
+                reject(task, ex);
+            }
+        }
+    }
+
+    /**
+     * 排队的任务被底层执行器拒绝，按饱和策略由当前线程执行，或者通知任务已被丢弃。
+     */
+    private void reject(Runnable task, RuntimeException ex) {
+        if (saturationPolicy == SaturationPolicy.CALLER_RUNS) {
+            try {
+                task.run();
+            } catch (RuntimeException runEx) {
+                logger.warn("Refresh task of cache [{}] failed", name, runEx);
+            }
+        } else if (task instanceof RejectableTask) {
+            ((RejectableTask) task).reject(ex instanceof RejectedExecutionException ? (RejectedExecutionException) ex
+                    : new RejectedExecutionException("Refresh task of cache [" + name + "] rejected", ex));
+        }
+    }
+
+    /**
+     * 可以感知被丢弃的任务，排队后被底层执行器拒绝并且按 {@link SaturationPolicy#DISCARD} 丢弃时回调 {@link #reject}。
+     */
+    public interface RejectableTask extends Runnable {
+
+        /**
+         * 任务已被丢弃，不会再执行。
+         *
+         * @param ex the rejection
+         */
+        void reject(RejectedExecutionException ex);
+
+        static RejectableTask of(Runnable task, Consumer<? super RejectedExecutionException> onRejected) {
+            return new RejectableTask() {
+
+                @Override
+                public void run() {
+                    task.run();
+                }
+
+                @Override
+                public void reject(RejectedExecutionException ex) {
+                    onRejected.accept(ex);
+                }
+            };
+        }
+
+    }
+
+    /**
+     * 刷新队列满了之后的处理策略。
+     */
+    public enum SaturationPolicy {
+
+        /**
+         * 丢弃本次刷新，继续使用旧值
+         */
+        DISCARD,
+
+        /**
+         * 由提交刷新的线程（读取缓存的线程）直接执行
+         */
+        CALLER_RUNS
+
+    }
+
+}
@@ -0,0 +1,453 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.RejectableTask;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy.Expiration;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按 key 异步刷新缓存。
+ *
+ * <p>caffeine 的 refreshAfterWrite 是整个 cache 共用的，这里只用它记录缓存的写入时间（不会自动刷新），
+ * 读取缓存时根据 key 上下文 {@link CaffeineCacheOperationContext#getRefreshAfterWrite()} 判断是否需要刷新，
+ * 所以同个 cache 不同方法、不同 key 可以使用不同的刷新时间。同个 key 同时只会有一个刷新，刷新失败保留旧值。</p>
+ *
+ * <p>如果开启了提前刷新 {@link CaffeineCacheOperationContext#getEarlyRefresh()}，按 XFetch 算法在快过期时以一定概率提前刷新：
+ * 当 {@code -loadTime * ln(random)} 不小于剩余有效时间（不包括 {@link CaffeineCacheOperationContext#getMaxStale()}
+ * 额外保留的时间）时刷新，离过期越近、加载耗时越长，刷新的概率越大。
+ * 加载耗时取该 cache 最近加载耗时的指数加权平均值。加载耗时和缓存一样使用 {@link Ticker} 计时，随机数来源也可以指定，
+ * 两者默认为系统时间和 {@link ThreadLocalRandom}。</p>
+ *
+ * <p>如果配置了 {@link CaffeineCacheOperationContext#getMaxStale()}（stale-if-error），缓存写入超过过期时间后会多保留这段时间，
+ * 读取时直接返回旧值并交给刷新执行器重新加载（异步缓存返回重新加载的结果，失败时为旧值），加载失败则在后台按指数退避重试，
+ * 重试期间不再触发刷新。没有旧值时由缓存方法同步加载，和普通的缓存未命中一样。</p>
+ *
+ * <p>如果缓存开启了统计，刷新、失败重试以及同步缓存未命中后由缓存方法加载的耗时会记录到 {@link StatsCounter}。</p>
+ *
+ * <p>刷新提交到 {@link CaffeineCacheRefreshExecutor} 这类有界执行器被拒绝时（包括排队后才被丢弃），直接放弃本次刷新并继续使用旧值，
+ * 不算作加载失败。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheRefresher.class);
+
+    /**
+     * 加载耗时指数加权平均中新值的权重为 1/8
+     */
+    private static final int LOAD_TIME_WEIGHT_SHIFT = 3;
+
+    /**
+     * 加载失败后重试的初始间隔和最大间隔（ms）
+     */
+    private static final long RETRY_INITIAL_DELAY = 1000;
+
+    private static final long RETRY_MAX_DELAY = 60000;
+
+    private final Cache<CacheKey, Object> cache;
+
+    private final AsyncCache<CacheKey, Object> asyncCache;
+
+    private final Expiration<CacheKey, Object> writeTime;
+
+    private final VarExpiration<CacheKey, Object> expiration;
+
+    private final Executor executor;
+
+    private final StatsCounter statsCounter;
+
+    private final Ticker ticker;
+
+    private final DoubleSupplier random;
+
+    private final AtomicLong loadTimeNanos = new AtomicLong();
+
+    private final Set<CacheKey> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 加载失败正在后台重试的 key
+     */
+    private final Set<CacheKey> failing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    private final LongAdder staleCount = new LongAdder();
+
+    public CaffeineCacheRefresher(Cache<? extends CacheKey, Object> cache,
+            @Nullable AsyncCache<? extends CacheKey, Object> asyncCache, @Nullable Executor executor) {
+        this(cache, asyncCache, executor, null);
+    }
+
+    public CaffeineCacheRefresher(Cache<? extends CacheKey, Object> cache,
+            @Nullable AsyncCache<? extends CacheKey, Object> asyncCache, @Nullable Executor executor,
+            @Nullable StatsCounter statsCounter) {
+        this(cache, asyncCache, executor, statsCounter, null, null);
+    }
+
+    /**
+     * 创建刷新。
+     *
+     * @param cache the cache, built with the same ticker
+     * @param asyncCache the async cache, or {@code null} if the cache is synchronous
+     * @param executor the refresh executor, or {@code null} to use the common pool
+     * @param statsCounter the stats counter, or {@code null} if the stats are not recorded
+     * @param ticker the ticker to time the loads, or {@code null} to use the system ticker
+     * @param random the random source in [0, 1) of the early refresh, or {@code null} to use {@link ThreadLocalRandom}
+     */
+    public CaffeineCacheRefresher(Cache<? extends CacheKey, Object> cache,
+            @Nullable AsyncCache<? extends CacheKey, Object> asyncCache, @Nullable Executor executor,
+            @Nullable StatsCounter statsCounter, @Nullable Ticker ticker, @Nullable DoubleSupplier random) {
+        this.cache = (Cache) cache;
+        this.asyncCache = (AsyncCache) asyncCache;
+        this.writeTime = this.cache.policy().refreshAfterWrite().orElseThrow(
+                () -> new IllegalArgumentException("The cache must be built with refreshAfterWrite to record write time"));
+        this.expiration = this.cache.policy().expireVariably().orElse(null);
+        this.executor = executor != null ? executor : ForkJoinPool.commonPool();
+        this.statsCounter = statsCounter;
+        this.ticker = ticker != null ? ticker : Ticker.systemTicker();
+        this.random = random != null ? random : () -> ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * 记录缓存加载耗时，用于判断是否需要提前刷新。
+     *
+     * @param nanos the load time in nanoseconds
+     */
+    public void recordLoadTime(long nanos) {
+        loadTimeNanos.accumulateAndGet(nanos, (current, x) -> current == 0 ? x
+                : current - (current >> LOAD_TIME_WEIGHT_SHIFT) + (x >> LOAD_TIME_WEIGHT_SHIFT));
+    }
+
+    /**
+     * 记录缓存方法加载成功（缓存未命中后由缓存方法加载并写入缓存），同时计入统计。
+     *
+     * @param nanos the load time in nanoseconds
+     */
+    public void recordLoadSuccess(long nanos) {
+        recordLoadTime(nanos);
+        if (statsCounter != null) {
+            statsCounter.recordLoadSuccess(nanos);
+        }
+    }
+
+    /**
+     * 刷新使用的执行器。
+     *
+     * @return the refresh executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 缓存的统计，未开启统计时为 {@code null}。
+     *
+     * @return the stats counter
+     */
+    @Nullable
+    public StatsCounter getStatsCounter() {
+        return statsCounter;
+    }
+
+    /**
+     * 加载计时使用的 {@link Ticker}，和缓存使用的一致。
+     *
+     * @return the ticker
+     */
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    public long getLoadTimeNanos() {
+        return loadTimeNanos.get();
+    }
+
+    /**
+     * 失败加载（包括刷新和重试）的次数。
+     *
+     * @return the failure count
+     */
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /**
+     * 过期后返回旧值（后台正在重新加载或者加载失败）的次数。
+     *
+     * @return the stale hit count
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    /**
+     * 读取缓存后检查缓存值，如果缓存已经超过写入过期时间（处于 maxStale 时间内）则返回旧值并在后台重新加载；
+     * 否则如果超过 key 上下文配置的刷新时间或者需要提前刷新，则异步刷新。
+     *
+     * @param key the cache key with the context of the current invocation
+     * @param value the cached value, or the cached future for the async cache
+     * @return the value to return, or the future of the value for the async cache
+     */
+    public Object revalidate(CacheKey<Object, CaffeineCacheOperationContext> key, @Nullable Object value) {
+        CaffeineCacheOperationContext context = key.getContext();
+        if (value == null || context == null) {
+            return value;
+        }
+        if (isStale(key, context)) {
+            return reloadStale(key, value);
+        }
+        if ((isRefreshAfterWrite(key, context) || (context.getEarlyRefresh() && isEarlyRefresh(key)))
+                && !failing.contains(key) && refreshing.add(key)) {
+            refresh(key, value);
+        }
+        return value;
+    }
+
+    private boolean isStale(CacheKey key, CaffeineCacheOperationContext context) {
+        Integer maxStale = context.getMaxStale();
+        Integer expireAfterWrite = context.getExpireAfterWrite();
+        if (maxStale == null || maxStale <= 0 || expireAfterWrite == null || expireAfterWrite <= 0) {
+            return false;
+        }
+        OptionalLong age = writeTime.ageOf(key, TimeUnit.MILLISECONDS);
+        return age.isPresent() && age.getAsLong() >= expireAfterWrite;
+    }
+
+    private boolean isRefreshAfterWrite(CacheKey key, CaffeineCacheOperationContext context) {
+        Integer refreshAfterWrite = context.getRefreshAfterWrite();
+        if (refreshAfterWrite == null || refreshAfterWrite <= 0) {
+            return false;
+        }
+        OptionalLong age = writeTime.ageOf(key, TimeUnit.MILLISECONDS);
+        return age.isPresent() && age.getAsLong() >= refreshAfterWrite;
+    }
+
+    private boolean isEarlyRefresh(CacheKey key) {
+        long loadTime = loadTimeNanos.get();
+        if (expiration == null || loadTime <= 0) {
+            return false;
+        }
+        OptionalLong expiresAfter = expiration.getExpiresAfter(key, TimeUnit.NANOSECONDS);
+        // compare with the fresh time, the entry is kept longer for the max stale time
+        return expiresAfter.isPresent() && -loadTime * Math.log(random.getAsDouble())
+                >= CacheKeyExpiry.getFreshNanos(key, expiresAfter.getAsLong());
+    }
+
+    /**
+     * 重新加载已过期的缓存。同步缓存不在读取线程上加载，交给刷新执行器后直接返回旧值；
+     * 异步缓存返回重新加载的 future，加载失败时为旧值。正在重试或者其他线程正在加载时直接返回旧值。
+     */
+    private Object reloadStale(CacheKey<Object, CaffeineCacheOperationContext> key, Object value) {
+        if (failing.contains(key) || !refreshing.add(key)) {
+            staleCount.increment();
+            return value;
+        }
+        if (asyncCache == null) {
+            staleCount.increment();
+            refresh(key, value);
+            return value;
+        }
+        CompletableFuture<Object> oldFuture = (CompletableFuture<Object>) value;
+        if (!oldFuture.isDone() || oldFuture.isCompletedExceptionally()) {
+            refreshing.remove(key);
+            return value;
+        }
+        Object oldValue = oldFuture.join();
+        return reload(key, oldValue).handle((newValue, error) -> {
+            // store the result before the key can be reloaded again
+            try {
+                if (error != null) {
+                    if (!isRejected(error)) {
+                        onFailure(key, error);
+                    }
+                    staleCount.increment();
+                    return oldValue;
+                }
+                complete(key, value, newValue);
+                return newValue;
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private void refresh(CacheKey<Object, CaffeineCacheOperationContext> key, Object value) {
+        if (asyncCache != null) {
+            CompletableFuture<Object> oldFuture = (CompletableFuture<Object>) value;
+            if (!oldFuture.isDone() || oldFuture.isCompletedExceptionally()) {
+                refreshing.remove(key);
+                return;
+            }
+        }
+        Object oldValue = asyncCache != null ? ((CompletableFuture<Object>) value).join() : value;
+        reload(key, oldValue).whenComplete((newValue, error) -> {
+            // store the result before the key can be refreshed again
+            try {
+                if (isRejected(error)) {
+                    logger.debug("Refresh discarded for key={}", key);
+                } else if (error != null) {
+                    onFailure(key, error);
+                } else {
+                    complete(key, value, newValue);
+                }
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private CompletableFuture<Object> reload(CacheKey<Object, CaffeineCacheOperationContext> key, Object oldValue) {
+        long startTime = ticker.read();
+        // the queued reload may be discarded later, complete the future so the key is not left refreshing
+        CompletableFuture<Object> rejected = new CompletableFuture<>();
+        Executor reloadExecutor = task -> executor.execute(RejectableTask.of(task, ex -> {
+            rejected.completeExceptionally(ex);
+            if (task instanceof RejectableTask) {
+                ((RejectableTask) task).reject(ex);
+            }
+        }));
+        CompletableFuture<Object> future;
+        try {
+            future = asyncCache != null ? AsyncCacheValueInvokerLoader.newInstance()
+                    .asyncReload(key, oldValue, reloadExecutor)
+                    : CacheValueInvokerLoader.newInstance().asyncReload(key, oldValue, reloadExecutor);
+            future = future.applyToEither(rejected, Function.identity());
+        } catch (RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+        if (statsCounter != null) {
+            future.whenComplete((value, error) -> {
+                if (!isRejected(error)) {
+                    recordLoad(startTime, error);
+                }
+            });
+        }
+        return future;
+    }
+
+    private void recordLoad(long startTime, @Nullable Throwable error) {
+        if (statsCounter == null) {
+            return;
+        }
+        long loadTime = ticker.read() - startTime;
+        if (error == null) {
+            statsCounter.recordLoadSuccess(loadTime);
+        } else {
+            statsCounter.recordLoadFailure(loadTime);
+        }
+    }
+
+    /**
+     * 用加载结果替换缓存中的旧值，加载结果为 {@code null} 则移除。
+     */
+    private void complete(CacheKey key, Object oldValue, @Nullable Object newValue) {
+        failing.remove(key);
+        if (asyncCache != null) {
+            if (newValue == null) {
+                asyncCache.asMap().remove(key, oldValue);
+            } else {
+                asyncCache.asMap().replace(key, (CompletableFuture<Object>) oldValue,
+                        CompletableFuture.completedFuture(newValue));
+            }
+        } else if (newValue == null) {
+            cache.asMap().remove(key, oldValue);
+        } else {
+            cache.asMap().replace(key, oldValue, newValue);
+        }
+    }
+
+    /**
+     * 加载失败时保留旧值，如果配置了 maxStale 则在后台按指数退避重试。
+     */
+    private void onFailure(CacheKey<Object, CaffeineCacheOperationContext> key, Throwable error) {
+        failureCount.increment();
+        logger.warn("Reload failed for key={}", key, error);
+        Integer maxStale = key.getContext().getMaxStale();
+        if (maxStale != null && maxStale > 0 && failing.add(key)) {
+            scheduleRetry(key, RETRY_INITIAL_DELAY);
+        }
+    }
+
+    private void scheduleRetry(CacheKey<Object, CaffeineCacheOperationContext> key, long delay) {
+        try {
+            CaffeineCacheScheduler.get().schedule(() -> {
+                try {
+                    executor.execute(RejectableTask.of(() -> retry(key, delay), ex -> scheduleRetry(key, delay)));
+                } catch (RejectedExecutionException ex) {
+                    // the refresh executor is saturated, try again later
+                    scheduleRetry(key, delay);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            failing.remove(key);
+            logger.warn("Unable to schedule the reload retry for key={}", key, ex);
+        }
+    }
+
+    private void retry(CacheKey<Object, CaffeineCacheOperationContext> key, long delay) {
+        Object value = asyncCache != null ? asyncCache.asMap().get(key) : cache.asMap().get(key);
+        if (value == null) {
+            // expired after max stale or evicted
+            failing.remove(key);
+            return;
+        }
+        long startTime = ticker.read();
+        try {
+            Object newValue = asyncCache != null ? AsyncCacheValueInvokerLoader.newInstance().asyncLoad(key, executor)
+                    .join() : CacheValueInvokerLoader.newInstance().load(key);
+            recordLoad(startTime, null);
+            complete(key, value, newValue);
+        } catch (Exception ex) {
+            recordLoad(startTime, ex);
+            failureCount.increment();
+            long nextDelay = Math.min(delay * 2, RETRY_MAX_DELAY);
+            logger.warn("Reload retry failed for key={}, retry after {}ms", key, nextDelay, ex);
+            scheduleRetry(key, nextDelay);
+        }
+    }
+
+    private static boolean isRejected(@Nullable Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * 缓存移除（淘汰、过期、替换等）监听。
+ *
+ * <p>移除事件先写入每个 cache 的 {@link CaffeineCacheRemovalPipeline} 缓冲区，再由后台线程批量回调，
+ * 不会在执行淘汰的线程上执行；注册到 spring 上下文中的实现会自动添加到所有缓存。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheRemovalPipeline
+ */
+@FunctionalInterface
+public interface CaffeineCacheRemovalListener {
+
+    /**
+     * 缓存移除回调，在后台线程中依次执行，不应该阻塞。
+     *
+     * @param cacheName the cache name
+     * @param key the removed key, may be {@code null} if collected
+     * @param value the removed value, may be {@code null} if collected
+     * @param cause the removal cause
+     */
+    void onRemoval(String cacheName, Object key, Object value, RemovalCause cause);
+
+}
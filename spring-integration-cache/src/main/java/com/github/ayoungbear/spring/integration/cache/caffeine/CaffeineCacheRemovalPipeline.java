@@ -0,0 +1,259 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存移除事件处理管道，作为 caffeine 的 {@link RemovalListener}，每个 cache 一个。
+ *
+ * <p>移除时只按 {@link RemovalCause} 计数，并把事件写入无锁的有界环形缓冲区（满了则丢弃事件并计数），
+ * 由所有 cache 共用的后台线程定时批量取出，依次回调 {@link CaffeineCacheRemovalListener}，
+ * 日志输出等耗时操作都不会在执行淘汰的线程上执行。</p>
+ *
+ * <p>后台线程在第一个有监听的管道创建时启动，所有管道 {@link #close()} 后停止，
+ * 由创建管道的 {@link CaffeineCacheResolver} 在销毁时关闭。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRemovalPipeline implements RemovalListener<Object, Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheRemovalPipeline.class);
+
+    private static final int BUFFER_CAPACITY = 8192;
+
+    private static final int MAX_DRAIN_SIZE = 1024;
+
+    private static final long DRAIN_DELAY_MILLIS = 100;
+
+    private static final Set<CaffeineCacheRemovalPipeline> PIPELINES = ConcurrentHashMap.newKeySet();
+
+    private static ScheduledExecutorService drainer;
+
+    private final String cacheName;
+
+    private final List<CaffeineCacheRemovalListener> listeners;
+
+    private final RingBuffer buffer = new RingBuffer(BUFFER_CAPACITY);
+
+    private final Map<RemovalCause, LongAdder> removalCounts = new EnumMap<>(RemovalCause.class);
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    public CaffeineCacheRemovalPipeline(String cacheName, List<CaffeineCacheRemovalListener> listeners) {
+        this.cacheName = cacheName;
+        this.listeners = Objects.requireNonNull(listeners, "listeners must not be null");
+        for (RemovalCause cause : RemovalCause.values()) {
+            removalCounts.put(cause, new LongAdder());
+        }
+        if (!listeners.isEmpty()) {
+            register(this);
+        }
+    }
+
+    @Override
+    public void onRemoval(Object key, Object value, RemovalCause cause) {
+        removalCounts.get(cause).increment();
+        if (!listeners.isEmpty() && !closed && !buffer.offer(new RemovalEvent(key, value, cause))) {
+            droppedCount.increment();
+        }
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * 按移除原因获取移除次数。
+     *
+     * @param cause the removal cause
+     * @return the removal count
+     */
+    public long removalCount(RemovalCause cause) {
+        return removalCounts.get(cause).sum();
+    }
+
+    /**
+     * 缓冲区满了被丢弃（没有回调监听）的事件数。
+     *
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * 等待处理的事件数。
+     *
+     * @return the pending count
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 停止处理该管道的事件，剩余的事件会在关闭时处理，之后的移除只计数。
+     */
+    public void close() {
+        closed = true;
+        if (unregister(this)) {
+            drain(Integer.MAX_VALUE);
+        }
+    }
+
+    private static synchronized void register(CaffeineCacheRemovalPipeline pipeline) {
+        PIPELINES.add(pipeline);
+        if (drainer == null) {
+            drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "caffeine-cache-removal");
+                thread.setDaemon(true);
+                return thread;
+            });
+            drainer.scheduleWithFixedDelay(CaffeineCacheRemovalPipeline::drainAll, DRAIN_DELAY_MILLIS,
+                    DRAIN_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static synchronized boolean unregister(CaffeineCacheRemovalPipeline pipeline) {
+        if (!PIPELINES.remove(pipeline)) {
+            return false;
+        }
+        if (PIPELINES.isEmpty() && drainer != null) {
+            drainer.shutdown();
+            drainer = null;
+        }
+        return true;
+    }
+
+    private static void drainAll() {
+        for (CaffeineCacheRemovalPipeline pipeline : PIPELINES) {
+            try {
+                pipeline.drain();
+            } catch (Throwable ex) {
+                logger.warn("Drain removal events of cache [{}] failed", pipeline.cacheName, ex);
+            }
+        }
+    }
+
+    private void drain() {
+        drain(MAX_DRAIN_SIZE);
+    }
+
+    /**
+     * 关闭时调用方线程也会消费缓冲区，和后台线程互斥。
+     */
+    private synchronized void drain(int maxSize) {
+        buffer.drain(maxSize, event -> {
+            for (CaffeineCacheRemovalListener listener : listeners) {
+                try {
+                    listener.onRemoval(cacheName, event.key, event.value, event.cause);
+                } catch (RuntimeException ex) {
+                    logger.warn("Removal listener [{}] of cache [{}] failed", listener, cacheName, ex);
+                }
+            }
+        });
+    }
+
+    private static final class RemovalEvent {
+
+        final Object key;
+
+        final Object value;
+
+        final RemovalCause cause;
+
+        RemovalEvent(Object key, Object value, RemovalCause cause) {
+            this.key = key;
+            this.value = value;
+            this.cause = cause;
+        }
+
+    }
+
+    /**
+     * 多生产者单消费者的有界环形缓冲区，只由后台线程消费。
+     */
+    private static final class RingBuffer {
+
+        private final AtomicReferenceArray<RemovalEvent> slots;
+
+        private final int mask;
+
+        private final AtomicLong tail = new AtomicLong();
+
+        private volatile long head;
+
+        RingBuffer(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+
+        boolean offer(RemovalEvent event) {
+            for (;;) {
+                long current = tail.get();
+                if (current - head >= slots.length()) {
+                    return false;
+                }
+                if (tail.compareAndSet(current, current + 1)) {
+                    slots.lazySet((int) current & mask, event);
+                    return true;
+                }
+            }
+        }
+
+        void drain(int maxSize, Consumer<RemovalEvent> consumer) {
+            long current = head;
+            long end = Math.min(tail.get(), current + maxSize);
+            while (current < end) {
+                int index = (int) current & mask;
+                RemovalEvent event = slots.get(index);
+                if (event == null) {
+                    // claimed but not published yet
+                    break;
+                }
+                slots.lazySet(index, null);
+                current++;
+                head = current;
+                consumer.accept(event);
+            }
+        }
+
+        int size() {
+            return (int) Math.max(tail.get() - head, 0);
+        }
+
+    }
+
+}
@@ -17,21 +17,48 @@
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
 import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheStore;
+import com.github.ayoungbear.spring.integration.cache.CacheValueCodec;
 import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.DeflateCacheValueCodec;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.SaturationPolicy;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheWriter;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cache.Cache;
 import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.BasicOperation;
 import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CachePutOperation;
 import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.util.ClassUtils;
 
@@ -39,15 +66,107 @@ import org.springframework.util.ClassUtils;
  * Determine the {@link org.springframework.cache.caffeine.CaffeineCache} instance(s)
  * to use for an intercepted method invocation.
  *
+ * <p>同个缓存方法相同配置的调用共享同一个 {@link CaffeineCacheOperationContext} 和 {@link InvocationCaffeineCache}，
+ * 缓存中的 key 只引用共享的上下文，并且只保存无法从 key 还原的调用参数，每次调用只创建一个保存调用参数的小对象。</p>
+ *
+ * <p>如果开启了 {@link #setReuseCacheHandles(boolean)}，对于配置都是常量的缓存方法，
+ * 会记住该方法每个 cache 共享的缓存实例，调用时不再解析配置和查找共享的上下文，只绑定当前调用参数，
+ * 调用参数保存在 key 里，只在加载或刷新时使用。</p>
+ *
+ * <p>每个 cache 的异步刷新通过单独的 {@link CaffeineCacheRefreshExecutor} 限制并发数和等待队列，
+ * 避免单个 cache 的刷新占满共用的异步执行器。</p>
+ *
+ * <p>销毁时关闭所有 cache 的移除事件处理管道，没有管道时停止处理移除事件的后台线程。</p>
+ *
  * @author yangzexiong
  */
-public class CaffeineCacheResolver implements CacheResolver {
+public class CaffeineCacheResolver implements CacheResolver, DisposableBean {
+
+    /**
+     * 同个方法最多缓存的 handle 数量（不同的 target 或 operation）
+     */
+    private static final int MAX_HANDLES_PER_METHOD = 16;
+
+    /**
+     * 同个方法最多共享的上下文数量（不同的 cache、target、operation 或者依赖调用参数的配置）
+     */
+    private static final int MAX_SHARED_CONTEXTS_PER_METHOD = 64;
+
+    /**
+     * 热点 key 统计的 count-min sketch 宽度
+     */
+    private static final int HOT_KEY_SKETCH_WIDTH = 4096;
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheResolver.class);
 
     private final ConcurrentMap<String, com.github.benmanes.caffeine.cache.Cache
             <CacheKey<Object, CaffeineCacheOperationContext>, Object>> cacheMap = new ConcurrentHashMap<>();
 
+    private final ConcurrentMap<String, AsyncLoadingCache
+            <CacheKey<Object, CaffeineCacheOperationContext>, Object>> asyncCacheMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheRefresher> refresherMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheHotKeys> hotKeysMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheRemovalPipeline> removalPipelineMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheOffHeapTier> offHeapTierMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheSnapshot> snapshotMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheL2Tier> l2TierMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheValueCompressor> compressorMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CaffeineCacheNegativeStats> negativeStatsMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<BatchRefresherKey, CaffeineCacheBatchRefresher> batchRefresherMap
+            = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, CacheHandles> cacheHandlesMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Method, SharedContext> sharedContextMap = new ConcurrentHashMap<>();
+
+    private final List<CaffeineCacheCreationListener> creationListeners = new CopyOnWriteArrayList<>();
+
     private final CaffeineCacheOperationConfigResolver caffeineCacheOperationConfigResolver;
 
+    private boolean reuseCacheHandles;
+
+    private int refreshConcurrency = CaffeineCacheProperties.DEFAULT_REFRESH_CONCURRENCY;
+
+    private int refreshQueueCapacity = CaffeineCacheProperties.DEFAULT_REFRESH_QUEUE_CAPACITY;
+
+    private SaturationPolicy refreshSaturationPolicy = SaturationPolicy.DISCARD;
+
+    private List<CaffeineCacheRemovalListener> removalListeners = Collections
+            .singletonList(SimpleCaffeineCacheListener.newInstance());
+
+    private int hotKeyTopK;
+
+    private int hotKeySampleRate = CaffeineCacheProperties.DEFAULT_HOT_KEY_SAMPLE_RATE;
+
+    private long hotKeyWindow = CaffeineCacheProperties.DEFAULT_HOT_KEY_WINDOW;
+
+    private boolean hotKeyRecordInvocations;
+
+    private CacheValueSerializer valueSerializer = JdkCacheValueSerializer.newInstance();
+
+    private CacheValueCodec valueCodec = DeflateCacheValueCodec.newInstance();
+
+    private int compressDecodedCacheSize = CaffeineCacheProperties.DEFAULT_COMPRESS_DECODED_CACHE_SIZE;
+
+    private CacheStore l2Store;
+
+    private Set<String> l2CacheNames = Collections.emptySet();
+
+    private CaffeineCacheInvalidationBus invalidationBus;
+
+    private Ticker ticker;
+
+    private DoubleSupplier earlyRefreshRandom;
+
     public CaffeineCacheResolver(CaffeineCacheOperationConfigResolver cacheOperationContextResolver) {
         this.caffeineCacheOperationConfigResolver = Objects
                 .requireNonNull(cacheOperationContextResolver, "config resolver must not be null");
@@ -55,13 +174,372 @@ public class CaffeineCacheResolver implements CacheResolver {
 
     @Override
     public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        if (reuseCacheHandles) {
+            CacheHandles handles = getCacheHandles(context);
+            if (handles != null) {
+                return bindCacheHandles(handles, context);
+            }
+        }
+        return getCacheNames(context).stream()
+                .map(name -> getCaffeineCache(name, context))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 关闭所有 cache 的移除事件处理管道。
+     */
+    @Override
+    public void destroy() {
+        removalPipelineMap.values().forEach(CaffeineCacheRemovalPipeline::close);
+    }
+
+    public boolean isReuseCacheHandles() {
+        return reuseCacheHandles;
+    }
+
+    /**
+     * 设置是否复用缓存方法预先解析的缓存上下文。
+     * 开启后对于配置都是常量的缓存方法，调用时不需要再解析配置和查找共享的上下文，
+     * 每次调用只创建一个保存调用参数的小对象绑定共享的缓存实例，调用参数随 key 一起保存。
+     *
+     * @param reuseCacheHandles whether to reuse the cache handles
+     */
+    public void setReuseCacheHandles(boolean reuseCacheHandles) {
+        this.reuseCacheHandles = reuseCacheHandles;
+    }
+
+    /**
+     * 添加缓存实例创建时的回调，已经创建的缓存实例也会回调。
+     *
+     * @param listener the creation listener
+     */
+    public void addCreationListener(CaffeineCacheCreationListener listener) {
+        creationListeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+        cacheMap.forEach((name, cache) -> listener.onCreated(name, cache, refresherMap.get(name)));
+    }
+
+    /**
+     * 移除缓存实例创建时的回调。
+     *
+     * @param listener the creation listener
+     * @return whether the listener was added
+     */
+    public boolean removeCreationListener(CaffeineCacheCreationListener listener) {
+        return creationListeners.remove(listener);
+    }
+
+    public int getRefreshConcurrency() {
+        return refreshConcurrency;
+    }
+
+    /**
+     * 设置每个 cache 同时执行的刷新任务数，小于等于 0 表示不限制，直接使用配置的异步执行器。
+     *
+     * @param refreshConcurrency the max concurrent refreshes per cache
+     */
+    public void setRefreshConcurrency(int refreshConcurrency) {
+        this.refreshConcurrency = refreshConcurrency;
+    }
+
+    public int getRefreshQueueCapacity() {
+        return refreshQueueCapacity;
+    }
+
+    /**
+     * 设置每个 cache 等待执行的刷新任务队列大小。
+     *
+     * @param refreshQueueCapacity the refresh queue capacity per cache
+     */
+    public void setRefreshQueueCapacity(int refreshQueueCapacity) {
+        this.refreshQueueCapacity = refreshQueueCapacity;
+    }
+
+    public SaturationPolicy getRefreshSaturationPolicy() {
+        return refreshSaturationPolicy;
+    }
+
+    /**
+     * 设置刷新队列满了之后的处理策略。
+     *
+     * @param refreshSaturationPolicy the saturation policy
+     */
+    public void setRefreshSaturationPolicy(SaturationPolicy refreshSaturationPolicy) {
+        this.refreshSaturationPolicy = Objects.requireNonNull(refreshSaturationPolicy, "policy must not be null");
+    }
+
+    /**
+     * 获取缓存的移除事件处理管道。
+     *
+     * @param name the cache name
+     * @return the removal pipeline of the cache, or {@code null} if the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheRemovalPipeline getRemovalPipeline(String name) {
+        return removalPipelineMap.get(name);
+    }
+
+    public List<CaffeineCacheRemovalListener> getRemovalListeners() {
+        return removalListeners;
+    }
+
+    /**
+     * 设置缓存移除监听，默认只有输出日志的 {@link SimpleCaffeineCacheListener}，只对之后创建的缓存生效。
+     *
+     * @param removalListeners the removal listeners
+     */
+    public void setRemovalListeners(List<CaffeineCacheRemovalListener> removalListeners) {
+        this.removalListeners = Collections.unmodifiableList(new ArrayList<>(removalListeners));
+    }
+
+    /**
+     * 获取缓存的堆外二级存储。
+     *
+     * @param name the cache name
+     * @return the off-heap tier of the cache, or {@code null} if not configured or the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheOffHeapTier getOffHeapTier(String name) {
+        return offHeapTierMap.get(name);
+    }
+
+    public CacheValueSerializer getValueSerializer() {
+        return valueSerializer;
+    }
+
+    /**
+     * 设置保存到堆外时缓存值的序列化方式，默认使用 JDK 序列化，只对之后创建的缓存生效。
+     *
+     * @param valueSerializer the value serializer
+     */
+    public void setValueSerializer(CacheValueSerializer valueSerializer) {
+        this.valueSerializer = Objects.requireNonNull(valueSerializer, "value serializer must not be null");
+    }
+
+    /**
+     * 获取缓存值的压缩。
+     *
+     * @param name the cache name
+     * @return the value compressor of the cache, or {@code null} if not configured or the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheValueCompressor getValueCompressor(String name) {
+        return compressorMap.get(name);
+    }
+
+    /**
+     * 获取缓存的空结果统计。
+     *
+     * @param name the cache name
+     * @return the negative stats of the cache, or {@code null} if not configured or the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheNegativeStats getNegativeStats(String name) {
+        return negativeStatsMap.get(name);
+    }
+
+    public CacheValueCodec getValueCodec() {
+        return valueCodec;
+    }
+
+    /**
+     * 设置缓存值的压缩编码，默认使用 {@link DeflateCacheValueCodec}，只对之后创建的缓存生效。
+     *
+     * @param valueCodec the value codec
+     */
+    public void setValueCodec(CacheValueCodec valueCodec) {
+        this.valueCodec = Objects.requireNonNull(valueCodec, "value codec must not be null");
+    }
+
+    public int getCompressDecodedCacheSize() {
+        return compressDecodedCacheSize;
+    }
+
+    /**
+     * 设置每个 cache 保留最近解压的缓存值数量，小于等于 0 表示每次读取都解压，只对之后创建的缓存生效。
+     *
+     * @param compressDecodedCacheSize the max number of the decoded values
+     */
+    public void setCompressDecodedCacheSize(int compressDecodedCacheSize) {
+        this.compressDecodedCacheSize = compressDecodedCacheSize;
+    }
+
+    /**
+     * 获取缓存的二级存储。
+     *
+     * @param name the cache name
+     * @return the l2 tier of the cache, or {@code null} if not configured or the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheL2Tier getL2Tier(String name) {
+        return l2TierMap.get(name);
+    }
+
+    public CacheStore getL2Store() {
+        return l2Store;
+    }
+
+    /**
+     * 设置本地缓存之后共享的二级存储，只对之后创建的缓存生效，异步缓存不支持。
+     *
+     * @param l2Store the shared store, or {@code null} to disable
+     */
+    public void setL2Store(@Nullable CacheStore l2Store) {
+        this.l2Store = l2Store;
+    }
+
+    public Set<String> getL2CacheNames() {
+        return l2CacheNames;
+    }
+
+    /**
+     * 设置使用二级存储的缓存名称，为空表示所有缓存。
+     *
+     * @param l2CacheNames the cache names
+     */
+    public void setL2CacheNames(Collection<String> l2CacheNames) {
+        this.l2CacheNames = Collections.unmodifiableSet(new HashSet<>(l2CacheNames));
+    }
+
+    public CaffeineCacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
+    }
+
+    /**
+     * 设置跨节点的缓存失效广播，之后清除、更新缓存时通知其他节点。
+     *
+     * @param invalidationBus the invalidation bus, or {@code null} to disable
+     */
+    public void setInvalidationBus(@Nullable CaffeineCacheInvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * 设置缓存过期、刷新以及加载计时使用的 {@link Ticker}，只对之后创建的缓存生效，默认为系统时间。
+     *
+     * @param ticker the ticker, or {@code null} to use the system ticker
+     */
+    public void setTicker(@Nullable Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public DoubleSupplier getEarlyRefreshRandom() {
+        return earlyRefreshRandom;
+    }
+
+    /**
+     * 设置提前刷新使用的 [0, 1) 随机数来源，只对之后创建的缓存生效，默认为 {@link java.util.concurrent.ThreadLocalRandom}。
+     *
+     * @param earlyRefreshRandom the random source, or {@code null} to use the default
+     */
+    public void setEarlyRefreshRandom(@Nullable DoubleSupplier earlyRefreshRandom) {
+        this.earlyRefreshRandom = earlyRefreshRandom;
+    }
+
+    /**
+     * 获取缓存用于重启后预热的快照。
+     *
+     * @param name the cache name
+     * @return the snapshot of the cache, or {@code null} if absent
+     */
+    @Nullable
+    public CaffeineCacheSnapshot getSnapshot(String name) {
+        return snapshotMap.get(name);
+    }
+
+    /**
+     * 设置读取的缓存快照，缓存未命中时从快照中恢复，需要在缓存创建前设置。
+     *
+     * @param snapshots the snapshots by cache name
+     * @see CaffeineCacheSnapshotFile#read
+     */
+    public void setSnapshots(Map<String, CaffeineCacheSnapshot> snapshots) {
+        this.snapshotMap.putAll(snapshots);
+    }
+
+    /**
+     * 是否是异步缓存。
+     *
+     * @param name the cache name
+     * @return {@code true} if the cache is created as a async cache
+     */
+    public boolean isAsyncCache(String name) {
+        return asyncCacheMap.containsKey(name);
+    }
+
+    /**
+     * 获取缓存的热点 key 统计。
+     *
+     * @param name the cache name
+     * @return the hot keys of the cache, or {@code null} if hot key detection is disabled or the cache is not created
+     */
+    @Nullable
+    public CaffeineCacheHotKeys getHotKeys(String name) {
+        return hotKeysMap.get(name);
+    }
+
+    public int getHotKeyTopK() {
+        return hotKeyTopK;
+    }
+
+    /**
+     * 设置每个 cache 统计的热点 key 数量，小于等于 0 表示不统计。
+     *
+     * @param hotKeyTopK the number of hot keys to track per cache
+     */
+    public void setHotKeyTopK(int hotKeyTopK) {
+        this.hotKeyTopK = hotKeyTopK;
+    }
+
+    public int getHotKeySampleRate() {
+        return hotKeySampleRate;
+    }
+
+    /**
+     * 设置热点 key 统计的采样率，每 {@code hotKeySampleRate} 次读写采样一次。
+     *
+     * @param hotKeySampleRate the sample rate
+     */
+    public void setHotKeySampleRate(int hotKeySampleRate) {
+        this.hotKeySampleRate = hotKeySampleRate;
+    }
+
+    public long getHotKeyWindow() {
+        return hotKeyWindow;
+    }
+
+    /**
+     * 设置热点 key 统计的时间窗口（ms）。
+     *
+     * @param hotKeyWindow the statistics window in milliseconds
+     */
+    public void setHotKeyWindow(long hotKeyWindow) {
+        this.hotKeyWindow = hotKeyWindow;
+    }
+
+    public boolean isHotKeyRecordInvocations() {
+        return hotKeyRecordInvocations;
+    }
+
+    /**
+     * 设置热点 key 统计是否同时记录产生 key 的缓存方法和调用参数，用于重启后重放调用预热缓存，只对之后创建的缓存生效。
+     *
+     * @param hotKeyRecordInvocations whether to record the invocations of the hot keys
+     * @see CaffeineCacheWarmupManager
+     */
+    public void setHotKeyRecordInvocations(boolean hotKeyRecordInvocations) {
+        this.hotKeyRecordInvocations = hotKeyRecordInvocations;
+    }
+
+    private Collection<String> getCacheNames(CacheOperationInvocationContext<?> context) {
         Collection<String> cacheNames = context.getOperation().getCacheNames();
         if (CollectionUtils.isEmpty(cacheNames)) {
             cacheNames = Collections.singletonList(getDefaultCacheName(context));
         }
-        return cacheNames.stream()
-                .map(name -> getCaffeineCache(name, context))
-                .collect(Collectors.toList());
+        return cacheNames;
     }
 
     /**
@@ -86,55 +564,513 @@ public class CaffeineCacheResolver implements CacheResolver {
     protected com.github.benmanes.caffeine.cache.Cache getNativeCaffeineCache(String name,
             CaffeineCacheOperationConfig config) {
         com.github.benmanes.caffeine.cache.Cache
-                <CacheKey<Object, CaffeineCacheOperationContext>, Object> localCache = this.cacheMap
-                .computeIfAbsent(name, cacheName -> createNativeCaffeineCache(cacheName, config));
-        // refresh cache policy
-        if (config.getMaximumSize() != null) {
-            localCache.policy().eviction().ifPresent(eviction -> {
-                if (eviction.getMaximum() < config.getMaximumSize()) {
-                    eviction.setMaximum(config.getMaximumSize());
-                }
+                <CacheKey<Object, CaffeineCacheOperationContext>, Object> localCache = this.cacheMap.get(name);
+        if (localCache == null) {
+            AtomicBoolean created = new AtomicBoolean();
+            localCache = this.cacheMap.computeIfAbsent(name, cacheName -> {
+                created.set(true);
+                return createNativeCaffeineCache(cacheName, config);
             });
-        }
-        if (config.getRefreshAfterWrite() != null) {
-            localCache.policy().refreshAfterWrite().ifPresent(expiration -> {
-                long refreshAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(config.getRefreshAfterWrite());
-                if (expiration.getExpiresAfter(TimeUnit.NANOSECONDS) > refreshAfterWriteNanos) {
-                    expiration.setExpiresAfter(refreshAfterWriteNanos, TimeUnit.NANOSECONDS);
+            if (created.get()) {
+                // outside the map, so that the listeners are free to use the resolver
+                for (CaffeineCacheCreationListener listener : creationListeners) {
+                    listener.onCreated(name, localCache, refresherMap.get(name));
                 }
-            });
+            }
         }
+        // refresh cache policy
+        localCache.policy().eviction().ifPresent(eviction -> {
+            Integer maximum = eviction.isWeighted() ? config.getMaximumWeight() : config.getMaximumSize();
+            if (maximum != null && eviction.getMaximum() < maximum) {
+                eviction.setMaximum(maximum);
+            }
+        });
         return localCache;
     }
 
     private Cache getCaffeineCache(String name, CacheOperationInvocationContext<?> context) {
+        return getSharedCache(name, context).bind(context.getArgs());
+    }
+
+    /**
+     * 获取同个缓存方法相同配置的调用共享的上下文和缓存实例，缓存中的 key 都引用该上下文，只额外保存各自的调用参数。
+     * 配置依赖调用参数时按配置的值共享，同个方法不同的配置超过 {@value #MAX_SHARED_CONTEXTS_PER_METHOD} 个后不再共享。
+     *
+     * <p>上下文在 map 外创建（会创建缓存、回调创建监听），再通过 CAS 放入链表，并发时可能多创建一个被丢弃的上下文，
+     * 缓存本身只会创建一次。链表只弱引用 target，target 被回收后对应的节点在下次放入时清除。</p>
+     */
+    private InvocationCaffeineCache getSharedCache(String name, CacheOperationInvocationContext<?> context) {
         CaffeineCacheOperationConfig config = caffeineCacheOperationConfigResolver.resolveConfig(name, context);
+        Method method = context.getMethod();
+        SharedContext shared = SharedContext.find(sharedContextMap.get(method), name, config, context);
+        if (shared != null) {
+            return shared.cache;
+        }
+        CaffeineCacheOperationContext createdContext = createContext(name, config, context);
+        InvocationCaffeineCache created = new InvocationCaffeineCache(name, cacheMap.get(name),
+                asyncCacheMap.get(name), createdContext);
+        for (;;) {
+            SharedContext head = sharedContextMap.get(method);
+            shared = SharedContext.find(head, name, config, context);
+            if (shared != null) {
+                return shared.cache;
+            }
+            SharedContext live = SharedContext.purge(head);
+            if (SharedContext.size(live) >= MAX_SHARED_CONTEXTS_PER_METHOD) {
+                return created;
+            }
+            SharedContext added = new SharedContext(name, config, context, created, live);
+            if (head == null ? sharedContextMap.putIfAbsent(method, added) == null
+                    : sharedContextMap.replace(method, head, added)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * 获取缓存方法预先解析的各个 cache 的上下文，如果该方法的配置依赖调用参数则返回 {@code null}。
+     * 和共享的上下文一样在 map 外构建，再通过 CAS 放入只弱引用 target 的链表。
+     */
+    private CacheHandles getCacheHandles(CacheOperationInvocationContext<?> context) {
+        Method method = context.getMethod();
+        CacheHandles handles = CacheHandles.find(cacheHandlesMap.get(method), context);
+        if (handles == null) {
+            handles = buildCacheHandles(context);
+            for (;;) {
+                CacheHandles head = cacheHandlesMap.get(method);
+                CacheHandles current = CacheHandles.find(head, context);
+                if (current != null) {
+                    handles = current;
+                    break;
+                }
+                CacheHandles live = CacheHandles.purge(head);
+                if (CacheHandles.size(live) >= MAX_HANDLES_PER_METHOD) {
+                    break;
+                }
+                CacheHandles added = handles.link(live);
+                if (head == null ? cacheHandlesMap.putIfAbsent(method, added) == null
+                        : cacheHandlesMap.replace(method, head, added)) {
+                    break;
+                }
+            }
+        }
+        return handles.names != null ? handles : null;
+    }
+
+    private CacheHandles buildCacheHandles(CacheOperationInvocationContext<?> context) {
+        Collection<String> cacheNames = getCacheNames(context);
+        for (String name : cacheNames) {
+            if (!caffeineCacheOperationConfigResolver.isInvocationIndependent(name, context)) {
+                return new CacheHandles(context.getOperation(), context.getTarget(), null, null, null);
+            }
+        }
+        String[] names = cacheNames.toArray(new String[0]);
+        InvocationCaffeineCache[] caches = new InvocationCaffeineCache[names.length];
+        for (int i = 0; i < names.length; i++) {
+            caches[i] = getSharedCache(names[i], context);
+        }
+        return new CacheHandles(context.getOperation(), context.getTarget(), names, caches, null);
+    }
+
+    /**
+     * 将共享的缓存实例绑定本次调用参数，每个 cache 只创建一个保存调用状态的小对象，参数在生成 key 时保存，
+     * 不依赖当前线程的状态，嵌套调用其他缓存方法或者同个方法有多个缓存操作时也能保存正确的参数。
+     * 只有一个 cache 时该对象本身就是返回的集合。
+     */
+    private Collection<? extends Cache> bindCacheHandles(CacheHandles handles,
+            CacheOperationInvocationContext<?> context) {
+        if (handles.caches.length == 1) {
+            return handles.caches[0].bindSingleton(context.getArgs());
+        }
+        Cache[] caches = new Cache[handles.caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = handles.caches[i].bind(context.getArgs());
+        }
+        return Arrays.asList(caches);
+    }
+
+    /**
+     * 创建不绑定调用参数的缓存上下文，同时创建对应的缓存。上下文只弱引用 target，
+     * 被共享的上下文和缓存中的 key 不会阻止 target 被回收。
+     */
+    private CaffeineCacheOperationContext createContext(String name, CaffeineCacheOperationConfig config,
+            CacheOperationInvocationContext<?> context) {
         CaffeineCacheOperationContext caffeineCacheOperationContext = CaffeineCacheConfigUtils
                 .mergeConfig(new CaffeineCacheOperationContext(), config);
         caffeineCacheOperationContext
-                .setCacheLoader(new CacheValueInvoker(context, caffeineCacheOperationContext.getSoftRef()));
+                .setCacheLoader(new CacheValueInvoker(context.getMethod(), context.getTarget(), true));
+        AsyncCacheValueAdapter valueAdapter = resolveValueAdapter(caffeineCacheOperationContext);
+        resolveBulkLoader(caffeineCacheOperationContext);
+        resolveBatchRefresher(name, caffeineCacheOperationContext, context);
+
+        getNativeCaffeineCache(name, caffeineCacheOperationContext);
+        if (caffeineCacheOperationContext.getAsync() && !asyncCacheMap.containsKey(name)) {
+            // the cache with the same name was created by a synchronous config first
+            if (valueAdapter != null && valueAdapter.isDeferred()) {
+                throw new IllegalStateException("Cache '" + name + "' is synchronous and unable to cache the "
+                        + "deferred results of [" + context.getMethod() + "], use another cache name");
+            }
+            logger.warn("cache '{}' is synchronous, the async config of [{}] is ignored", name, context.getMethod());
+        }
+        caffeineCacheOperationContext.setRefresher(refresherMap.get(name));
+        caffeineCacheOperationContext.setHotKeys(hotKeysMap.get(name));
+        caffeineCacheOperationContext.setOffHeapTier(offHeapTierMap.get(name));
+        caffeineCacheOperationContext.setSnapshot(snapshotMap.get(name));
+        caffeineCacheOperationContext.setL2Tier(l2TierMap.get(name));
+        caffeineCacheOperationContext.setValueCompressor(compressorMap.get(name));
+        caffeineCacheOperationContext.setNegativeStats(negativeStatsMap.get(name));
+        caffeineCacheOperationContext.setInvalidationBus(invalidationBus);
+        caffeineCacheOperationContext.setBroadcastPut(context.getOperation() instanceof CachePutOperation);
+        return caffeineCacheOperationContext;
+    }
+
+    /**
+     * 获取缓存方法返回值的适配，返回 Reactor {@code Mono}、{@code Flux} 这类延迟执行的值时必须使用异步缓存保存结果。
+     */
+    private AsyncCacheValueAdapter resolveValueAdapter(CaffeineCacheOperationContext context) {
+        AsyncCacheValueAdapter valueAdapter = AsyncCacheValueAdapters.forContext(context);
+        if (valueAdapter != null && valueAdapter.isDeferred()) {
+            context.setAsync(true);
+        }
+        context.setValueAdapter(valueAdapter);
+        return valueAdapter;
+    }
+
+    private void resolveBulkLoader(CaffeineCacheOperationContext context) {
+        if (context.getBulk()) {
+            context.setBulkLoader(
+                    new CaffeineCacheBulkLoader((CacheValueInvoker) context.getCacheLoader(), context.getBulkKey()));
+        }
+    }
 
-        com.github.benmanes.caffeine.cache.Cache<CacheKey, Object> localCache = getNativeCaffeineCache(name, config);
-        return new WrappedCaffeineCache(name, localCache, caffeineCacheOperationContext);
+    /**
+     * 同个 cache、缓存方法、批量加载方法以及 target 共享同个批量刷新，批量大小和时间窗口以最先初始化的配置为准。
+     * 批量刷新只弱引用 target，target 被回收后对应的批量刷新在下次创建时清除。
+     */
+    private void resolveBatchRefresher(String name, CaffeineCacheOperationContext context,
+            CacheOperationInvocationContext<?> invocationContext) {
+        if (context.getBatchLoader() == null) {
+            return;
+        }
+        Object target = invocationContext.getTarget();
+        BatchRefresherKey key = new BatchRefresherKey(name, invocationContext.getMethod(), context.getBatchLoader(),
+                target);
+        CaffeineCacheBatchRefresher batchRefresher = batchRefresherMap.get(key);
+        if (batchRefresher == null) {
+            batchRefresherMap.keySet().removeIf(BatchRefresherKey::isCollected);
+            batchRefresher = batchRefresherMap.computeIfAbsent(key,
+                    k -> new CaffeineCacheBatchRefresher(target, context.getBatchLoader(), context.getBatchSize(),
+                            context.getBatchWindow()));
+        }
+        context.setBatchRefresher(batchRefresher);
     }
 
     private com.github.benmanes.caffeine.cache.Cache createNativeCaffeineCache(String name,
             CaffeineCacheOperationConfig config) {
-        Caffeine caffeine = Caffeine.newBuilder()
-                .maximumSize(Optional.ofNullable(config.getMaximumSize()).filter(m -> m > 0).orElse(Integer.MAX_VALUE))
-                .refreshAfterWrite(Optional.ofNullable(config.getRefreshAfterWrite()).filter(r -> r > 0)
-                        .map(TimeUnit.MILLISECONDS::toNanos).orElse(Long.MAX_VALUE), TimeUnit.NANOSECONDS)
+        Caffeine caffeine = Caffeine.newBuilder();
+        if (ticker != null) {
+            caffeine.ticker(ticker);
+        }
+        if (config.getMaximumWeight() != null && config.getMaximumWeight() > 0) {
+            caffeine.maximumWeight(config.getMaximumWeight())
+                    .weigher(config.getWeigher() != null ? config.getWeigher() : ObjectSizeWeigher.newInstance());
+        } else {
+            caffeine.maximumSize(
+                    Optional.ofNullable(config.getMaximumSize()).filter(m -> m > 0).orElse(Integer.MAX_VALUE));
+        }
+        caffeine
+                // only record the write time, refresh per key by CaffeineCacheRefresher
+                .refreshAfterWrite(Long.MAX_VALUE, TimeUnit.NANOSECONDS)
                 .expireAfter(CacheKeyExpiry.newInstance())
-                .removalListener(SimpleCaffeineCacheListener.newInstance());
+                .removalListener(removalPipelineMap.computeIfAbsent(name,
+                        cacheName -> new CaffeineCacheRemovalPipeline(cacheName, removalListeners)));
         if (config.getExecutor() != null) {
             // unsupported redefine executor
             caffeine.executor(config.getExecutor());
         }
-        if (config.getSoftRef()) {
-            // temporarily needless
-            // caffeine.softValues();
+        CaffeineCacheStatsCounter statsCounter = config.getRecordStats() ? new CaffeineCacheStatsCounter() : null;
+        if (statsCounter != null) {
+            caffeine.recordStats(() -> statsCounter);
+        }
+        ValueStrength valueStrength = config.getValueStrength();
+        if (config.getAsync() && (valueStrength == ValueStrength.SOFT || valueStrength == ValueStrength.WEAK)) {
+            // caffeine unsupported weak or soft values for async cache
+            logger.warn("cache '{}' is async and unsupported value strength [{}], use strong values", name,
+                    valueStrength);
+        } else if (valueStrength == ValueStrength.SOFT) {
+            caffeine.softValues();
+        } else if (valueStrength == ValueStrength.WEAK) {
+            caffeine.weakValues();
+        }
+        List<CacheWriter<Object, Object>> writers = new ArrayList<>(2);
+        CaffeineCacheOffHeapTier offHeapTier = null;
+        if (config.getOffHeapCapacity() != null && config.getOffHeapCapacity() > 0) {
+            if (config.getAsync()) {
+                // caffeine unsupported cache writer for async cache
+                logger.warn("cache '{}' is async and unsupported off-heap tier", name);
+            } else {
+                offHeapTier = new CaffeineCacheOffHeapTier(name, config.getOffHeapCapacity() * 1024L * 1024L,
+                        valueSerializer, ticker);
+                writers.add(offHeapTier);
+            }
+        }
+        CaffeineCacheL2Tier l2Tier = null;
+        if (l2Store != null && (l2CacheNames.isEmpty() || l2CacheNames.contains(name))) {
+            if (config.getAsync()) {
+                logger.warn("cache '{}' is async and unsupported l2 store", name);
+            } else {
+                // write to the store one at a time, so the writes and evictions are mostly in order,
+                // and never on the caller thread, which holds the entry lock of caffeine
+                l2Tier = new CaffeineCacheL2Tier(name, l2Store, valueSerializer, new CaffeineCacheRefreshExecutor(
+                        name, config.getExecutor() != null ? config.getExecutor() : ForkJoinPool.commonPool(), 1,
+                        refreshQueueCapacity, SaturationPolicy.DISCARD));
+                writers.add(l2Tier);
+            }
+        }
+        if (config.getCompressThreshold() != null && config.getCompressThreshold() > 0) {
+            if (config.getAsync()) {
+                logger.warn("cache '{}' is async and unsupported value compression", name);
+            } else {
+                compressorMap.put(name, new CaffeineCacheValueCompressor(name, config.getCompressThreshold(),
+                        valueSerializer, valueCodec, compressDecodedCacheSize));
+            }
+        }
+        if (config.getNegativeExpireAfterWrite() != null && config.getNegativeExpireAfterWrite() > 0) {
+            if (config.getAsync()) {
+                logger.warn("cache '{}' is async and unsupported negative caching", name);
+            } else {
+                negativeStatsMap.put(name, new CaffeineCacheNegativeStats());
+            }
+        }
+        if (!writers.isEmpty()) {
+            caffeine.writer(writers.size() == 1 ? writers.get(0) : new CaffeineCacheCompositeWriter(writers));
+        }
+        Executor refreshExecutor = createRefreshExecutor(name, config.getExecutor());
+        com.github.benmanes.caffeine.cache.Cache localCache;
+        CaffeineCacheRefresher refresher;
+        if (config.getAsync()) {
+            AsyncLoadingCache asyncCache = caffeine.buildAsync(AsyncCacheValueInvokerLoader.newInstance());
+            asyncCacheMap.put(name, asyncCache);
+            localCache = asyncCache.synchronous();
+            refresher = new CaffeineCacheRefresher(localCache, asyncCache, refreshExecutor, statsCounter, ticker,
+                    earlyRefreshRandom);
+        } else {
+            localCache = caffeine.build(CacheValueInvokerLoader.newInstance());
+            refresher = new CaffeineCacheRefresher(localCache, null, refreshExecutor, statsCounter, ticker,
+                    earlyRefreshRandom);
+        }
+        refresherMap.put(name, refresher);
+        if (offHeapTier != null) {
+            offHeapTier.bind(localCache);
+            offHeapTierMap.put(name, offHeapTier);
+        }
+        if (l2Tier != null) {
+            l2TierMap.put(name, l2Tier);
+        }
+        if (hotKeyTopK > 0) {
+            hotKeysMap.put(name, new CaffeineCacheHotKeys(hotKeyTopK, hotKeySampleRate, hotKeyWindow,
+                    HOT_KEY_SKETCH_WIDTH, hotKeyRecordInvocations));
+        }
+        return localCache;
+    }
+
+    /**
+     * 每个 cache 的刷新使用单独的有界执行器，底层仍然是配置的异步执行器，缓存未命中时的加载不受限制。
+     */
+    private Executor createRefreshExecutor(String name, @Nullable Executor executor) {
+        if (refreshConcurrency <= 0) {
+            return executor;
+        }
+        return new CaffeineCacheRefreshExecutor(name, executor != null ? executor : ForkJoinPool.commonPool(),
+                refreshConcurrency, refreshQueueCapacity, refreshSaturationPolicy);
+    }
+
+    /**
+     * 批量刷新的 key，只弱引用 target，按 target 的引用比较。
+     */
+    private static final class BatchRefresherKey {
+
+        private final String name;
+
+        private final Method method;
+
+        private final String batchLoader;
+
+        private final WeakReference<Object> target;
+
+        private final int hash;
+
+        BatchRefresherKey(String name, Method method, String batchLoader, Object target) {
+            this.name = name;
+            this.method = method;
+            this.batchLoader = batchLoader;
+            this.target = new WeakReference<>(target);
+            this.hash = Objects.hash(name, method, batchLoader, System.identityHashCode(target));
+        }
+
+        boolean isCollected() {
+            return target.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BatchRefresherKey)) {
+                return false;
+            }
+            BatchRefresherKey other = (BatchRefresherKey) obj;
+            Object referent = target.get();
+            return referent != null && referent == other.target.get() && name.equals(other.name)
+                    && method.equals(other.method) && batchLoader.equals(other.batchLoader);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    /**
+     * 同个缓存方法不同 operation、target 对应的 cache 名称和共享上下文的不可变链表，只弱引用 target。
+     */
+    private static final class CacheHandles {
+
+        private final BasicOperation operation;
+
+        private final WeakReference<Object> target;
+
+        /**
+         * {@code null} 表示该方法的配置依赖调用参数，无法复用
+         */
+        private final String[] names;
+
+        private final InvocationCaffeineCache[] caches;
+
+        private final CacheHandles next;
+
+        CacheHandles(BasicOperation operation, Object target, String[] names, InvocationCaffeineCache[] caches,
+                CacheHandles next) {
+            this(operation, new WeakReference<>(target), names, caches, next);
         }
-        return caffeine.build(CacheValueInvokerLoader.newInstance());
+
+        private CacheHandles(BasicOperation operation, WeakReference<Object> target, String[] names,
+                InvocationCaffeineCache[] caches, CacheHandles next) {
+            this.operation = operation;
+            this.target = target;
+            this.names = names;
+            this.caches = caches;
+            this.next = next;
+        }
+
+        CacheHandles link(CacheHandles next) {
+            return new CacheHandles(operation, target, names, caches, next);
+        }
+
+        static CacheHandles find(CacheHandles head, CacheOperationInvocationContext<?> context) {
+            for (CacheHandles handles = head; handles != null; handles = handles.next) {
+                if (handles.operation == context.getOperation() && handles.target.get() == context.getTarget()) {
+                    return handles;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 复制 target 未被回收的节点。
+         */
+        static CacheHandles purge(CacheHandles head) {
+            if (head == null) {
+                return null;
+            }
+            CacheHandles next = purge(head.next);
+            if (head.target.get() == null) {
+                return next;
+            }
+            return next == head.next ? head : head.link(next);
+        }
+
+        static int size(CacheHandles head) {
+            int size = 0;
+            for (CacheHandles handles = head; handles != null; handles = handles.next) {
+                size++;
+            }
+            return size;
+        }
+
+    }
+
+    /**
+     * 同个方法的共享上下文的不可变链表，按 cache 名、operation、target 和配置查找，只弱引用 target。
+     */
+    private static final class SharedContext {
+
+        private final String name;
+
+        private final BasicOperation operation;
+
+        private final WeakReference<Object> target;
+
+        private final CaffeineCacheOperationConfig config;
+
+        private final InvocationCaffeineCache cache;
+
+        private final SharedContext next;
+
+        SharedContext(String name, CaffeineCacheOperationConfig config,
+                CacheOperationInvocationContext<?> invocationContext, InvocationCaffeineCache cache,
+                SharedContext next) {
+            this(name, invocationContext.getOperation(), new WeakReference<>(invocationContext.getTarget()), config,
+                    cache, next);
+        }
+
+        private SharedContext(String name, BasicOperation operation, WeakReference<Object> target,
+                CaffeineCacheOperationConfig config, InvocationCaffeineCache cache, SharedContext next) {
+            this.name = name;
+            this.operation = operation;
+            this.target = target;
+            this.config = config;
+            this.cache = cache;
+            this.next = next;
+        }
+
+        static SharedContext find(SharedContext head, String name, CaffeineCacheOperationConfig config,
+                CacheOperationInvocationContext<?> invocationContext) {
+            for (SharedContext shared = head; shared != null; shared = shared.next) {
+                if (shared.operation == invocationContext.getOperation()
+                        && shared.target.get() == invocationContext.getTarget() && shared.name.equals(name)
+                        && CaffeineCacheConfigUtils.isSameConfig(shared.config, config)) {
+                    return shared;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 复制 target 未被回收的节点。
+         */
+        static SharedContext purge(SharedContext head) {
+            if (head == null) {
+                return null;
+            }
+            SharedContext next = purge(head.next);
+            if (head.target.get() == null) {
+                return next;
+            }
+            return next == head.next ? head
+                    : new SharedContext(head.name, head.operation, head.target, head.config, head.cache, next);
+        }
+
+        static int size(SharedContext head) {
+            int size = 0;
+            for (SharedContext shared = head; shared != null; shared = shared.next) {
+                size++;
+            }
+            return size;
+        }
+
     }
 
 }
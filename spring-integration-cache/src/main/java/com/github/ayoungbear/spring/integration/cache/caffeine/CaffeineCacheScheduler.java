@@ -0,0 +1,45 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 缓存后台任务（批量刷新、失败重试等）共用的定时调度线程，只负责定时，具体任务提交到缓存的异步执行器执行。
+ *
+ * @author yangzexiong
+ */
+final class CaffeineCacheScheduler {
+
+    private static final Supplier<ScheduledExecutorService> SCHEDULER = SingletonSupplier
+            .of(() -> Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "caffeine-cache-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    private CaffeineCacheScheduler() {
+    }
+
+    static ScheduledExecutorService get() {
+        return SCHEDULER.get();
+    }
+
+}
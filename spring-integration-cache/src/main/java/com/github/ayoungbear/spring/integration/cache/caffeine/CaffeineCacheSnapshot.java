@@ -0,0 +1,155 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 从快照文件 {@link CaffeineCacheSnapshotFile} 中读取的一个 cache 的缓存，用于重启后预热。
+ *
+ * <p>启动时只反序列化 key 建立索引，缓存值留在映射的文件中，读取缓存未命中时才反序列化，
+ * 并使用本次调用的缓存上下文按剩余的有效时间放回缓存，所以恢复后的缓存同样支持刷新。
+ * 已经写入或清除过的 key 不会再恢复，每个 key 最多恢复一次。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheSnapshot.class);
+
+    private final String cacheName;
+
+    private final ByteBuffer buffer;
+
+    private final CacheValueSerializer serializer;
+
+    private final ConcurrentMap<Object, Entry> entries;
+
+    private final LongAdder restoredCount = new LongAdder();
+
+    CaffeineCacheSnapshot(String cacheName, ByteBuffer buffer, CacheValueSerializer serializer,
+            Map<Object, Entry> entries) {
+        this.cacheName = cacheName;
+        this.buffer = buffer;
+        this.serializer = serializer;
+        this.entries = new ConcurrentHashMap<>(entries);
+    }
+
+    /**
+     * 从快照中恢复缓存值，并按剩余的有效时间放回缓存。
+     *
+     * @param cache the native cache
+     * @param key the cache key of the current invocation
+     * @return the cache value, or {@code null} if absent or expired
+     */
+    @Nullable
+    public Object restore(Cache<CacheKey, Object> cache, CacheKey key) {
+        Entry entry = entries.isEmpty() ? null : entries.remove(key.getKey());
+        if (entry == null) {
+            return null;
+        }
+        long remaining = entry.expireTime - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return null;
+        }
+        byte[] bytes = new byte[entry.length];
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(entry.position);
+        source.get(bytes);
+        Object value;
+        try {
+            value = serializer.deserialize(bytes);
+        } catch (RuntimeException ex) {
+            logger.warn("cache '{}' key '{}' could not be restored from snapshot", cacheName, key, ex);
+            return null;
+        }
+        Optional<VarExpiration<CacheKey, Object>> expiration = cache.policy().expireVariably();
+        if (expiration.isPresent()) {
+            expiration.get().putIfAbsent(key, value, remaining, TimeUnit.MILLISECONDS);
+        } else {
+            cache.asMap().putIfAbsent(key, value);
+        }
+        restoredCount.increment();
+        return value;
+    }
+
+    /**
+     * 写入或清除缓存时移除快照中的值，避免之后恢复旧值。
+     *
+     * @param key the key
+     */
+    public void invalidate(Object key) {
+        if (!entries.isEmpty()) {
+            entries.remove(key instanceof CacheKey ? ((CacheKey) key).getKey() : key);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /**
+     * 还没有恢复的缓存数量。
+     *
+     * @return the number of entries not restored
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getRestoredCount() {
+        return restoredCount.sum();
+    }
+
+    /**
+     * 缓存值在文件中的位置。
+     */
+    static final class Entry {
+
+        private final int position;
+
+        private final int length;
+
+        private final long expireTime;
+
+        Entry(int position, int length, long expireTime) {
+            this.position = position;
+            this.length = length;
+            this.expireTime = expireTime;
+        }
+
+    }
+
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheSnapshot.Entry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy.VarExpiration;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 缓存快照文件的读写，文件通过内存映射读写，格式如下（整数都是 big-endian）：
+ *
+ * <pre>
+ * int magic, int version, long createTime, int cacheCount
+ * cacheCount * (int nameLength, byte[] name, int entryCount,
+ *     entryCount * (long expireTime, int keyLength, byte[] key, int valueLength, byte[] value))
+ * </pre>
+ *
+ * <p>只保存还在有效期内的缓存，过期时间 expireTime 是剩余有效时间（不包括
+ * {@link CaffeineCacheOperationContext#getMaxStale()}）对应的毫秒时间戳，key 和值通过 {@link CacheValueSerializer}
+ * 序列化，无法序列化的缓存会被跳过。先写入临时文件再替换，文件大小不能超过 2GB。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheSnapshot
+ */
+public final class CaffeineCacheSnapshotFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheSnapshotFile.class);
+
+    private static final int MAGIC = 0x43435331;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private static final int ENTRY_HEADER_SIZE = 8 + 4 + 4;
+
+    private CaffeineCacheSnapshotFile() {
+    }
+
+    /**
+     * 把缓存写入快照文件。
+     *
+     * @param path the snapshot file
+     * @param caches the caches to write by name
+     * @param serializer the key and value serializer
+     * @return the number of entries written
+     * @throws IOException if the file could not be written
+     */
+    public static int write(Path path, Map<String, ? extends Cache<?, ?>> caches, CacheValueSerializer serializer)
+            throws IOException {
+        long now = System.currentTimeMillis();
+        Map<String, List<Record>> records = new LinkedHashMap<>();
+        long size = HEADER_SIZE;
+        int count = 0;
+        for (Map.Entry<String, ? extends Cache<?, ?>> cache : caches.entrySet()) {
+            List<Record> cacheRecords = collect(cache.getKey(), (Cache<Object, Object>) cache.getValue(), serializer,
+                    now);
+            records.put(cache.getKey(), cacheRecords);
+            size += 4 + cache.getKey().getBytes(StandardCharsets.UTF_8).length + 4;
+            for (Record record : cacheRecords) {
+                size += ENTRY_HEADER_SIZE + record.key.length + record.value.length;
+            }
+            count += cacheRecords.size();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("cache snapshot is too large: " + size + " bytes");
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer output = channel.map(MapMode.READ_WRITE, 0, size);
+            output.putInt(MAGIC).putInt(VERSION).putLong(now).putInt(records.size());
+            for (Map.Entry<String, List<Record>> cache : records.entrySet()) {
+                byte[] name = cache.getKey().getBytes(StandardCharsets.UTF_8);
+                output.putInt(name.length).put(name).putInt(cache.getValue().size());
+                for (Record record : cache.getValue()) {
+                    output.putLong(record.expireTime).putInt(record.key.length).put(record.key)
+                            .putInt(record.value.length).put(record.value);
+                }
+            }
+            output.force();
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return count;
+    }
+
+    /**
+     * 映射并读取快照文件，只反序列化还在有效期内的 key，缓存值在恢复时才反序列化。
+     *
+     * @param path the snapshot file
+     * @param serializer the key and value serializer
+     * @return the snapshots by cache name, empty if the file does not exist
+     * @throws IOException if the file could not be read or is not a cache snapshot
+     */
+    public static Map<String, CaffeineCacheSnapshot> read(Path path, CacheValueSerializer serializer)
+            throws IOException {
+        if (!Files.exists(path)) {
+            return Collections.emptyMap();
+        }
+        ByteBuffer input;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("cache snapshot is too large: " + channel.size() + " bytes");
+            }
+            // the mapping remains valid after the channel is closed
+            input = channel.map(MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (input.getInt() != MAGIC || input.getInt() != VERSION) {
+                throw new IOException("not a cache snapshot: " + path);
+            }
+            long now = System.currentTimeMillis();
+            input.getLong();
+            int cacheCount = input.getInt();
+            Map<String, CaffeineCacheSnapshot> snapshots = new HashMap<>();
+            for (int i = 0; i < cacheCount; i++) {
+                byte[] name = new byte[input.getInt()];
+                input.get(name);
+                String cacheName = new String(name, StandardCharsets.UTF_8);
+                int entryCount = input.getInt();
+                Map<Object, Entry> entries = new HashMap<>();
+                for (int j = 0; j < entryCount; j++) {
+                    long expireTime = input.getLong();
+                    byte[] key = new byte[input.getInt()];
+                    input.get(key);
+                    int valueLength = input.getInt();
+                    int valuePosition = input.position();
+                    ((Buffer) input).position(valuePosition + valueLength);
+                    if (expireTime <= now) {
+                        continue;
+                    }
+                    try {
+                        entries.put(serializer.deserialize(key), new Entry(valuePosition, valueLength, expireTime));
+                    } catch (RuntimeException ex) {
+                        logger.debug("cache '{}' snapshot key could not be deserialized", cacheName, ex);
+                    }
+                }
+                if (!entries.isEmpty()) {
+                    snapshots.put(cacheName, new CaffeineCacheSnapshot(cacheName, input, serializer, entries));
+                }
+            }
+            return snapshots;
+        } catch (RuntimeException ex) {
+            throw new IOException("corrupted cache snapshot: " + path, ex);
+        }
+    }
+
+    private static List<Record> collect(String cacheName, Cache<Object, Object> cache,
+            CacheValueSerializer serializer, long now) {
+        Optional<VarExpiration<Object, Object>> expiration = cache.policy().expireVariably();
+        List<Record> records = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : cache.asMap().entrySet()) {
+            Object key = entry.getKey();
+            OptionalLong expiresAfter = expiration.isPresent() ? expiration.get()
+                    .getExpiresAfter(key, TimeUnit.NANOSECONDS) : OptionalLong.of(Long.MAX_VALUE);
+            if (!expiresAfter.isPresent()) {
+                continue;
+            }
+            long freshMillis = TimeUnit.NANOSECONDS.toMillis(CacheKeyExpiry.getFreshNanos(key,
+                    expiresAfter.getAsLong()));
+            if (freshMillis <= 0) {
+                continue;
+            }
+            try {
+                byte[] keyBytes = serializer.serialize(key instanceof CacheKey ? ((CacheKey) key).getKey() : key);
+                byte[] valueBytes = serializer.serialize(entry.getValue());
+                long expireTime = freshMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + freshMillis;
+                records.add(new Record(expireTime, keyBytes, valueBytes));
+            } catch (RuntimeException ex) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("cache '{}' key '{}' could not be written to snapshot", cacheName, key, ex);
+                }
+            }
+        }
+        return records;
+    }
+
+    private static final class Record {
+
+        private final long expireTime;
+
+        private final byte[] key;
+
+        private final byte[] value;
+
+        Record(long expireTime, byte[] key, byte[] value) {
+            this.expireTime = expireTime;
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * 缓存快照管理，定时以及应用关闭时把选定的缓存写入快照文件，应用重启后通过 {@link #restore(CaffeineCacheResolver, Path)}
+ * 读取快照，缓存未命中时从快照中恢复，避免发布后缓存全部未命中导致请求都穿透到后端。
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheSnapshotFile
+ * @see CaffeineCacheSnapshot
+ */
+public class CaffeineCacheSnapshotManager implements CaffeineCacheCreationListener, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheSnapshotManager.class);
+
+    private final CaffeineCacheResolver cacheResolver;
+
+    private final Path path;
+
+    private final Set<String> cacheNames;
+
+    private final long interval;
+
+    private final ConcurrentMap<String, Cache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    /**
+     * @param cacheResolver the cache resolver
+     * @param path the snapshot file
+     * @param cacheNames the names of the caches to write, empty for all caches
+     * @param interval the write interval in milliseconds, less than or equal to 0 to write on stop only
+     */
+    public CaffeineCacheSnapshotManager(CaffeineCacheResolver cacheResolver, Path path, Collection<String> cacheNames,
+            long interval) {
+        this.cacheResolver = Objects.requireNonNull(cacheResolver, "cache resolver must not be null");
+        this.path = Objects.requireNonNull(path, "path must not be null");
+        this.cacheNames = new HashSet<>(cacheNames);
+        this.interval = interval;
+        cacheResolver.addCreationListener(this);
+    }
+
+    /**
+     * 读取快照文件并设置到 {@link CaffeineCacheResolver}，需要在缓存创建前调用，读取失败时只输出日志。
+     *
+     * @param cacheResolver the cache resolver
+     * @param path the snapshot file
+     */
+    public static void restore(CaffeineCacheResolver cacheResolver, Path path) {
+        try {
+            long startTime = System.nanoTime();
+            Map<String, CaffeineCacheSnapshot> snapshots = CaffeineCacheSnapshotFile
+                    .read(path, cacheResolver.getValueSerializer());
+            cacheResolver.setSnapshots(snapshots);
+            if (!snapshots.isEmpty()) {
+                logger.info("cache snapshot '{}' mapped in {}ms, caches {}", path,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), snapshots.keySet());
+            }
+        } catch (IOException ex) {
+            logger.warn("cache snapshot '{}' could not be restored", path, ex);
+        }
+    }
+
+    @Override
+    public void onCreated(String name, Cache<?, ?> cache, CaffeineCacheRefresher refresher) {
+        // the async cache could not be restored from the snapshot
+        if ((cacheNames.isEmpty() || cacheNames.contains(name)) && !cacheResolver.isAsyncCache(name)) {
+            caches.put(name, cache);
+        }
+    }
+
+    /**
+     * 把选定的缓存写入快照文件，写入失败时只输出日志。
+     *
+     * @return the number of entries written, or -1 if failed
+     */
+    public synchronized int write() {
+        try {
+            long startTime = System.nanoTime();
+            int count = CaffeineCacheSnapshotFile.write(path, new TreeMap<>(caches),
+                    cacheResolver.getValueSerializer());
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache snapshot '{}' written {} entries in {}ms", path, count,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            }
+            return count;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("cache snapshot '{}' could not be written", path, ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        if (scheduler != null || interval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caffeine-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::write, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+        write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+}
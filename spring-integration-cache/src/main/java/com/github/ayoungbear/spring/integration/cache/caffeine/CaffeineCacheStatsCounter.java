@@ -0,0 +1,113 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存统计，在 {@link ConcurrentStatsCounter} 的基础上按 {@link RemovalCause} 分别统计淘汰次数。
+ *
+ * <p>同步缓存未命中时由 spring 调用缓存方法后写入缓存，不经过 caffeine 的加载，
+ * 这部分加载以及 {@link CaffeineCacheRefresher} 的刷新由 {@link CaffeineCacheRefresher} 记录到这里。</p>
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheStatsCounter implements StatsCounter {
+
+    private final StatsCounter delegate = new ConcurrentStatsCounter();
+
+    private final Map<RemovalCause, LongAdder> evictionCounts = new EnumMap<>(RemovalCause.class);
+
+    public CaffeineCacheStatsCounter() {
+        for (RemovalCause cause : RemovalCause.values()) {
+            evictionCounts.put(cause, new LongAdder());
+        }
+    }
+
+    @Override
+    public void recordHits(int count) {
+        delegate.recordHits(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        delegate.recordMisses(count);
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        delegate.recordLoadSuccess(loadTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        delegate.recordLoadFailure(loadTime);
+    }
+
+    /**
+     * caffeine 2.x 已经废弃但仍是接口的一部分，委托给同样废弃的实现以保持统计一致。
+     */
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public void recordEviction() {
+        delegate.recordEviction();
+    }
+
+    /**
+     * 同 {@link #recordEviction()}，caffeine 淘汰时调用的是 {@link #recordEviction(int, RemovalCause)}。
+     */
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public void recordEviction(int weight) {
+        delegate.recordEviction(weight);
+    }
+
+    @Override
+    public void recordEviction(int weight, RemovalCause cause) {
+        delegate.recordEviction(weight, cause);
+        evictionCounts.get(cause).increment();
+    }
+
+    /**
+     * 按淘汰原因获取淘汰次数。
+     *
+     * @param cause the removal cause
+     * @return the eviction count
+     */
+    public long evictionCount(RemovalCause cause) {
+        return evictionCounts.get(cause).sum();
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheValueCodec;
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+
+/**
+ * 缓存值的压缩，序列化后超过阈值的缓存值压缩后以 {@link CompressedValue} 保存在缓存中，读取时才解压。
+ *
+ * <p>最近解压的值保存在一个很小的缓存中，热点 key 不需要每次读取都反序列化；这个缓存以 {@link CompressedValue}
+ * 实例为 key（弱引用），缓存值被替换或淘汰后对应的解压结果也随之失效。配合按权重淘汰（{@link ObjectSizeWeigher}
+ * 按压缩后的大小计算权重），同样的堆内存可以保存更多的缓存。</p>
+ *
+ * @author yangzexiong
+ * @see CacheValueCodec
+ */
+public class CaffeineCacheValueCompressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheValueCompressor.class);
+
+    private final String cacheName;
+
+    private final int threshold;
+
+    private final CacheValueSerializer serializer;
+
+    private final CacheValueCodec codec;
+
+    private final Cache<CompressedValue, Object> decodedValues;
+
+    private final LongAdder compressedCount = new LongAdder();
+
+    private final LongAdder decodedCount = new LongAdder();
+
+    private final LongAdder decodedHitCount = new LongAdder();
+
+    private final LongAdder rawBytes = new LongAdder();
+
+    private final LongAdder compressedBytes = new LongAdder();
+
+    /**
+     * @param cacheName the cache name
+     * @param threshold the min serialized size in bytes to compress
+     * @param serializer the value serializer
+     * @param codec the compression codec
+     * @param decodedCacheSize the max number of the decoded values to retain, less than or equal to 0 to disable
+     */
+    public CaffeineCacheValueCompressor(String cacheName, int threshold, CacheValueSerializer serializer,
+            CacheValueCodec codec, int decodedCacheSize) {
+        this.cacheName = cacheName;
+        this.threshold = threshold;
+        this.serializer = Objects.requireNonNull(serializer, "serializer must not be null");
+        this.codec = Objects.requireNonNull(codec, "codec must not be null");
+        this.decodedValues = decodedCacheSize > 0 ? Caffeine.newBuilder().weakKeys().maximumSize(decodedCacheSize)
+                .executor(Runnable::run).build() : null;
+    }
+
+    /**
+     * 压缩缓存值，估算的内存占用或者序列化后的大小没有超过阈值、无法序列化或者压缩后没有变小时返回原值。
+     *
+     * @param value the cache value
+     * @return the value to store
+     */
+    public Object compress(Object value) {
+        if (value == null || value instanceof NullValue || value instanceof CompressedValue
+                || ObjectSizeWeigher.newInstance().estimate(value) < threshold) {
+            return value;
+        }
+        byte[] bytes;
+        try {
+            bytes = serializer.serialize(value);
+        } catch (RuntimeException ex) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache '{}' value of type {} could not be compressed", cacheName,
+                        value.getClass().getName(), ex);
+            }
+            return value;
+        }
+        if (bytes.length < threshold) {
+            return value;
+        }
+        byte[] compressed = codec.encode(bytes);
+        if (compressed.length >= bytes.length) {
+            return value;
+        }
+        compressedCount.increment();
+        rawBytes.add(bytes.length);
+        compressedBytes.add(compressed.length);
+        CompressedValue compressedValue = new CompressedValue(compressed, bytes.length);
+        if (decodedValues != null) {
+            // the value is likely to be read soon
+            decodedValues.put(compressedValue, value);
+        }
+        return compressedValue;
+    }
+
+    /**
+     * 解压缓存值，不是压缩的值时直接返回。
+     *
+     * @param value the stored value
+     * @return the cache value
+     * @throws IllegalArgumentException if the value could not be decompressed
+     */
+    public Object decompress(Object value) {
+        if (!(value instanceof CompressedValue)) {
+            return value;
+        }
+        CompressedValue compressedValue = (CompressedValue) value;
+        if (decodedValues == null) {
+            return decode(compressedValue);
+        }
+        Object decoded = decodedValues.getIfPresent(compressedValue);
+        if (decoded != null) {
+            decodedHitCount.increment();
+            return decoded;
+        }
+        return decodedValues.get(compressedValue, this::decode);
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public CacheValueCodec getCodec() {
+        return codec;
+    }
+
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    /**
+     * 解压（反序列化）的次数，不包括命中最近解压的值。
+     */
+    public long getDecodedCount() {
+        return decodedCount.sum();
+    }
+
+    public long getDecodedHitCount() {
+        return decodedHitCount.sum();
+    }
+
+    /**
+     * 压缩后的总大小与压缩前的比例，没有压缩过时为 1。
+     */
+    public double getCompressionRatio() {
+        long raw = rawBytes.sum();
+        return raw > 0 ? (double) compressedBytes.sum() / raw : 1.0;
+    }
+
+    private Object decode(CompressedValue value) {
+        decodedCount.increment();
+        return serializer.deserialize(codec.decode(value.bytes, value.length));
+    }
+
+    /**
+     * 压缩后保存在缓存中的值，可以被序列化保存到堆外存储、快照和二级存储。
+     */
+    public static final class CompressedValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        private final int length;
+
+        CompressedValue(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        /**
+         * 压缩后的大小。
+         */
+        public int getSize() {
+            return bytes.length;
+        }
+
+        /**
+         * 压缩前序列化的大小。
+         */
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return "CompressedValue{" + "size=" + bytes.length + ",length=" + length + '}';
+        }
+
+    }
+
+}
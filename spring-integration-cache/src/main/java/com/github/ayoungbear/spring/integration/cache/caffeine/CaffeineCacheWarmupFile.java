@@ -0,0 +1,255 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheHotKeys.HotKey;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 缓存预热文件的读写，保存各个缓存热点 key 对应的缓存方法调用，格式如下（整数都是 big-endian，字符串为 modified UTF-8）：
+ *
+ * <pre>
+ * int magic, int version, long createTime, int count
+ * count * (UTF cacheName, UTF targetClass, UTF methodName, int parameterCount, parameterCount * UTF parameterType,
+ *     double rate, int argsLength, byte[] args)
+ * </pre>
+ *
+ * <p>调用按热点 key 的访问频率从高到低排列，调用参数通过 {@link CacheValueSerializer} 序列化，无法序列化的调用会被跳过；
+ * 读取时无法加载的类或方法同样跳过。先写入临时文件再替换。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheWarmupManager
+ */
+public final class CaffeineCacheWarmupFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheWarmupFile.class);
+
+    private static final int MAGIC = 0x43435731;
+
+    private static final int VERSION = 1;
+
+    private CaffeineCacheWarmupFile() {
+    }
+
+    /**
+     * 把热点 key 对应的缓存方法调用写入预热文件。
+     *
+     * @param path the warmup file
+     * @param hotKeys the hot keys by cache name
+     * @param serializer the arguments serializer
+     * @return the number of invocations written
+     * @throws IOException if the file could not be written
+     */
+    public static int write(Path path, Map<String, List<HotKey>> hotKeys, CacheValueSerializer serializer)
+            throws IOException {
+        List<Record> records = new ArrayList<>();
+        hotKeys.forEach((cacheName, keys) -> {
+            for (HotKey key : keys) {
+                if (key.getMethod() == null || key.getArgs() == null) {
+                    continue;
+                }
+                try {
+                    records.add(new Record(cacheName, key, serializer.serialize(key.getArgs())));
+                } catch (RuntimeException ex) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("cache '{}' key '{}' could not be written to warmup file", cacheName,
+                                key.getKey(), ex);
+                    }
+                }
+            }
+        });
+        records.sort(Comparator.comparingDouble((Record record) -> record.key.getRate()).reversed());
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(System.currentTimeMillis());
+            output.writeInt(records.size());
+            for (Record record : records) {
+                Method method = record.key.getMethod();
+                output.writeUTF(record.cacheName);
+                output.writeUTF(record.key.getTargetClass().getName());
+                output.writeUTF(method.getName());
+                output.writeInt(method.getParameterCount());
+                for (Class<?> parameterType : method.getParameterTypes()) {
+                    output.writeUTF(parameterType.getName());
+                }
+                output.writeDouble(record.key.getRate());
+                output.writeInt(record.args.length);
+                output.write(record.args);
+            }
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return records.size();
+    }
+
+    /**
+     * 读取预热文件中的缓存方法调用，按访问频率从高到低排列。
+     *
+     * @param path the warmup file
+     * @param serializer the arguments serializer
+     * @return the invocations, empty if the file does not exist
+     * @throws IOException if the file could not be read or is corrupted
+     */
+    public static List<Invocation> read(Path path, CacheValueSerializer serializer) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return Collections.emptyList();
+        }
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("unsupported cache warmup file: " + path);
+            }
+            input.readLong();
+            int count = input.readInt();
+            List<Invocation> invocations = new ArrayList<>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                String cacheName = input.readUTF();
+                String className = input.readUTF();
+                String methodName = input.readUTF();
+                String[] parameterTypes = new String[input.readInt()];
+                for (int j = 0; j < parameterTypes.length; j++) {
+                    parameterTypes[j] = input.readUTF();
+                }
+                double rate = input.readDouble();
+                byte[] args = new byte[input.readInt()];
+                input.readFully(args);
+                try {
+                    Class<?> targetClass = ClassUtils.forName(className, classLoader);
+                    Class<?>[] types = new Class<?>[parameterTypes.length];
+                    for (int j = 0; j < types.length; j++) {
+                        types[j] = ClassUtils.forName(parameterTypes[j], classLoader);
+                    }
+                    Method method = ReflectionUtils.findMethod(targetClass, methodName, types);
+                    if (method == null) {
+                        throw new NoSuchMethodException(className + "." + methodName);
+                    }
+                    invocations.add(new Invocation(cacheName, targetClass, method,
+                            (Object[]) serializer.deserialize(args), rate));
+                } catch (ClassNotFoundException | NoSuchMethodException | RuntimeException ex) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("cache '{}' warmup invocation {}#{} could not be resolved", cacheName, className,
+                                methodName, ex);
+                    }
+                }
+            }
+            return invocations;
+        } catch (RuntimeException ex) {
+            throw new IOException("corrupted cache warmup file: " + path, ex);
+        }
+    }
+
+    /**
+     * 用于预热的缓存方法调用。
+     */
+    public static final class Invocation {
+
+        private final String cacheName;
+
+        private final Class<?> targetClass;
+
+        private final Method method;
+
+        private final Object[] args;
+
+        private final double rate;
+
+        Invocation(String cacheName, Class<?> targetClass, Method method, Object[] args, double rate) {
+            this.cacheName = cacheName;
+            this.targetClass = targetClass;
+            this.method = method;
+            this.args = args;
+            this.rate = rate;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        public Class<?> getTargetClass() {
+            return targetClass;
+        }
+
+        public Method getMethod() {
+            return method;
+        }
+
+        public Object[] getArgs() {
+            return args;
+        }
+
+        /**
+         * 写入时热点 key 估算的访问频率（次/秒）。
+         *
+         * @return the estimated rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        @Override
+        public String toString() {
+            return cacheName + ":" + targetClass.getSimpleName() + "#" + method.getName();
+        }
+
+    }
+
+    private static final class Record {
+
+        private final String cacheName;
+
+        private final HotKey key;
+
+        private final byte[] args;
+
+        Record(String cacheName, HotKey key, byte[] args) {
+            this.cacheName = cacheName;
+            this.key = key;
+            this.args = args;
+        }
+
+    }
+
+}
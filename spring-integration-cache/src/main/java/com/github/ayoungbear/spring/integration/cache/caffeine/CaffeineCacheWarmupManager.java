@@ -0,0 +1,321 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheHotKeys.HotKey;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheWarmupFile.Invocation;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * 缓存预热管理，应用关闭时把各个缓存热点 key 对应的缓存方法调用写入预热文件，应用启动时按访问频率从高到低重放这些调用，
+ * 通过 Spring 代理调用缓存方法重新加载缓存，使发布后热点 key 的缓存是最新加载的值，而不是全部未命中或者从快照恢复的旧值。
+ *
+ * <p>需要开启热点 key 统计 {@link CaffeineCacheResolver#setHotKeyTopK(int)} 并记录调用
+ * {@link CaffeineCacheResolver#setHotKeyRecordInvocations(boolean)}，每个缓存最多重放 topK 个调用。</p>
+ *
+ * <p>重放使用固定并发数的线程池执行，超过预热时间后剩余的调用不再执行。重放在 web 服务器启动前同步执行，
+ * 所以预热完成（或者超时）之前应用不会开始接收请求，预热进度可以通过 {@link #getProgress()} 获取。</p>
+ *
+ * @author yangzexiong
+ * @see CaffeineCacheWarmupFile
+ */
+public class CaffeineCacheWarmupManager implements CaffeineCacheCreationListener, SmartLifecycle {
+
+    /**
+     * 在 web 服务器（{@code Integer.MAX_VALUE - 1}）之前启动，之后停止
+     */
+    static final int PHASE = Integer.MAX_VALUE - 2;
+
+    private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheWarmupManager.class);
+
+    private final CaffeineCacheResolver cacheResolver;
+
+    private final BeanFactory beanFactory;
+
+    private final Path path;
+
+    private final int concurrency;
+
+    private final long timeout;
+
+    private final Set<String> cacheNames = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile int total;
+
+    private volatile boolean ready;
+
+    private volatile boolean running;
+
+    private boolean replayed;
+
+    /**
+     * @param cacheResolver the cache resolver
+     * @param beanFactory the bean factory to find the proxies of the cached methods
+     * @param path the warmup file
+     * @param concurrency the number of threads to replay the invocations
+     * @param timeout the time budget of the replay in milliseconds
+     */
+    public CaffeineCacheWarmupManager(CaffeineCacheResolver cacheResolver, BeanFactory beanFactory, Path path,
+            int concurrency, long timeout) {
+        this.cacheResolver = Objects.requireNonNull(cacheResolver, "cache resolver must not be null");
+        this.beanFactory = Objects.requireNonNull(beanFactory, "bean factory must not be null");
+        this.path = Objects.requireNonNull(path, "path must not be null");
+        this.concurrency = Math.max(concurrency, 1);
+        this.timeout = timeout;
+        if (cacheResolver.getHotKeyTopK() <= 0 || !cacheResolver.isHotKeyRecordInvocations()) {
+            logger.warn("hot key invocations are not recorded, cache warmup file '{}' will not be written", path);
+        }
+        cacheResolver.addCreationListener(this);
+    }
+
+    @Override
+    public void onCreated(String name, Cache<?, ?> cache, CaffeineCacheRefresher refresher) {
+        cacheNames.add(name);
+    }
+
+    /**
+     * 读取预热文件并重放其中的调用，读取失败时只输出日志。
+     *
+     * @return the number of invocations replayed
+     */
+    public int replay() {
+        List<Invocation> invocations;
+        try {
+            invocations = CaffeineCacheWarmupFile.read(path, cacheResolver.getValueSerializer());
+        } catch (IOException ex) {
+            logger.warn("cache warmup file '{}' could not be read", path, ex);
+            invocations = Collections.emptyList();
+        }
+        return replay(invocations);
+    }
+
+    /**
+     * 通过 Spring 代理并发重放缓存方法调用，超过预热时间后剩余的调用不再执行，调用失败只输出日志。
+     *
+     * @param invocations the invocations to replay in order
+     * @return the number of invocations replayed
+     */
+    public int replay(List<Invocation> invocations) {
+        total = invocations.size();
+        completed.set(0);
+        failed.set(0);
+        if (invocations.isEmpty()) {
+            ready = true;
+            return 0;
+        }
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeout);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "caffeine-cache-warmup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<Class<?>, Optional<Object>> beans = new HashMap<>();
+        try {
+            for (Invocation invocation : invocations) {
+                Object bean = beans.computeIfAbsent(invocation.getTargetClass(), this::findBean).orElse(null);
+                executor.execute(() -> {
+                    if (System.nanoTime() - deadline < 0) {
+                        invoke(bean, invocation);
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS)) {
+                logger.warn("cache warmup exceeded {}ms, {}/{} invocations replayed", timeout, completed.get(),
+                        total);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+            ready = true;
+        }
+        logger.info("cache warmup replayed {}/{} invocations in {}ms, {} failed", completed.get(), total,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), failed.get());
+        return completed.get();
+    }
+
+    /**
+     * 把已创建缓存的热点 key 对应的调用写入预热文件，没有记录到调用时保留原来的文件，写入失败时只输出日志。
+     *
+     * @return the number of invocations written, or -1 if failed
+     */
+    public synchronized int write() {
+        Map<String, List<HotKey>> hotKeys = new TreeMap<>();
+        boolean recorded = false;
+        for (String name : cacheNames) {
+            CaffeineCacheHotKeys cacheHotKeys = cacheResolver.getHotKeys(name);
+            if (cacheHotKeys != null) {
+                List<HotKey> keys = cacheHotKeys.getTopKeys();
+                hotKeys.put(name, keys);
+                recorded |= keys.stream().anyMatch(key -> key.getMethod() != null);
+            }
+        }
+        if (!recorded) {
+            return 0;
+        }
+        try {
+            int count = CaffeineCacheWarmupFile.write(path, hotKeys, cacheResolver.getValueSerializer());
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache warmup file '{}' written {} invocations", path, count);
+            }
+            return count;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("cache warmup file '{}' could not be written", path, ex);
+            return -1;
+        }
+    }
+
+    @Override
+    public void start() {
+        synchronized (this) {
+            running = true;
+            if (replayed) {
+                return;
+            }
+            replayed = true;
+        }
+        replay();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        write();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 预热是否已经完成（包括超时结束）。
+     *
+     * @return {@code true} if the replay has finished
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 预热进度，已经执行（包括失败）的调用占比，没有需要重放的调用时为 1。
+     *
+     * @return the progress between 0 and 1
+     */
+    public double getProgress() {
+        int count = total;
+        return count > 0 ? (double) (completed.get() + failed.get()) / count : (ready ? 1 : 0);
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private void invoke(Object bean, Invocation invocation) {
+        if (bean == null) {
+            failed.incrementAndGet();
+            logger.debug("cache warmup invocation {} skipped, no unique bean found", invocation);
+            return;
+        }
+        try {
+            Method method = invocation.getMethod();
+            if (!method.getDeclaringClass().isInstance(bean)) {
+                // jdk dynamic proxy
+                method = ClassUtils.getInterfaceMethodIfPossible(method);
+            }
+            ReflectionUtils.makeAccessible(method);
+            method.invoke(bean, invocation.getArgs());
+            completed.incrementAndGet();
+        } catch (InvocationTargetException | IllegalAccessException | RuntimeException ex) {
+            failed.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("cache warmup invocation {} failed", invocation, ex);
+            }
+        }
+    }
+
+    /**
+     * 查找缓存方法所在类唯一的 bean，jdk 动态代理的 bean 通过接口查找。
+     */
+    private Optional<Object> findBean(Class<?> targetClass) {
+        try {
+            Object bean = beanFactory.getBeanProvider(targetClass).getIfUnique();
+            if (bean == null) {
+                for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+                    Object candidate = beanFactory.getBeanProvider(type).getIfUnique();
+                    if (candidate != null && AopProxyUtils.ultimateTargetClass(candidate) == targetClass) {
+                        bean = candidate;
+                        break;
+                    }
+                }
+            }
+            return Optional.ofNullable(bean);
+        } catch (RuntimeException ex) {
+            logger.warn("cache warmup bean of type {} could not be resolved", targetClass.getName(), ex);
+            return Optional.empty();
+        }
+    }
+
+}
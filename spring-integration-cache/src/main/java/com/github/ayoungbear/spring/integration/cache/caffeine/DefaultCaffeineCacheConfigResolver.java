@@ -16,6 +16,7 @@
 
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
+import com.github.benmanes.caffeine.cache.Weigher;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
@@ -37,12 +38,31 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
 
     private final ConcurrentMap<String, Executor> executorMap = new ConcurrentHashMap<>();
 
+    private final ConcurrentMap<String, Weigher<Object, Object>> weigherMap = new ConcurrentHashMap<>();
+
     protected BeanFactory beanFactory;
 
     /**
      * 缓存大小
      */
     private Integer maximumSize;
+    /**
+     * 缓存最大权重
+     */
+    private Integer maximumWeight;
+    /**
+     * 缓存权重计算对象name，需要注册到spring上下文中。
+     * 默认使用 {@link ObjectSizeWeigher}
+     */
+    private String weigherName;
+    /**
+     * 堆外二级存储的容量（MB）
+     */
+    private Integer offHeapCapacity;
+    /**
+     * 压缩缓存值的阈值（字节）
+     */
+    private Integer compressThreshold;
     /**
      * 读写操作后过期时间（ms）
      */
@@ -51,6 +71,14 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
      * 写操作后过期时间（ms）
      */
     private Integer expireAfterWrite;
+    /**
+     * 过期后加载失败时仍可使用旧值的最长时间（ms）
+     */
+    private Integer maxStale;
+    /**
+     * 空结果（null、空的 Optional、集合或 Map）的过期时间（ms），默认与其他结果相同
+     */
+    private Integer negativeExpireAfterWrite;
     /**
      * 缓存刷新时间，要比过期时间短才有效
      */
@@ -60,20 +88,49 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
      * 默认使用 {@link ForkJoinPool#commonPool()}
      */
     private String executorName;
+    /**
+     * 没有配置异步任务执行用线程池时，是否使用虚拟线程执行（需要 Java 21）
+     */
+    private boolean virtualThreads;
+    /**
+     * 是否默认开启缓存统计
+     */
+    private boolean recordStats;
+    /**
+     * 默认的缓存值引用强度
+     */
+    private ValueStrength valueStrength;
 
     @Override
     public CaffeineCacheOperationConfig resolveConfig(String name, CacheOperationInvocationContext<?> context) {
         CaffeineCacheOperationConfig defaultConfig = new CaffeineCacheOperationConfig();
         defaultConfig.setMaximumSize(maximumSize);
+        defaultConfig.setMaximumWeight(maximumWeight);
+        if (StringUtils.hasText(weigherName)) {
+            defaultConfig.setWeigher(findWeigher(weigherName));
+        }
+        defaultConfig.setOffHeapCapacity(offHeapCapacity);
+        defaultConfig.setCompressThreshold(compressThreshold);
         defaultConfig.setExpireAfterAccess(expireAfterAccess);
         defaultConfig.setExpireAfterWrite(expireAfterWrite);
+        defaultConfig.setMaxStale(maxStale);
+        defaultConfig.setNegativeExpireAfterWrite(negativeExpireAfterWrite);
         defaultConfig.setRefreshAfterWrite(refreshAfterWrite);
+        defaultConfig.setRecordStats(recordStats);
+        defaultConfig.setValueStrength(valueStrength);
         if (StringUtils.hasText(executorName)) {
             defaultConfig.setExecutor(findExecutor(executorName));
+        } else if (virtualThreads) {
+            defaultConfig.setExecutor(VirtualThreadExecutors.get());
         }
         return defaultConfig;
     }
 
+    @Override
+    public boolean isInvocationIndependent(String name, CacheOperationInvocationContext<?> context) {
+        return true;
+    }
+
     public Integer getMaximumSize() {
         return maximumSize;
     }
@@ -82,6 +139,38 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
         this.maximumSize = maximumSize;
     }
 
+    public Integer getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public void setMaximumWeight(Integer maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    public String getWeigherName() {
+        return weigherName;
+    }
+
+    public void setWeigherName(String weigherName) {
+        this.weigherName = weigherName;
+    }
+
+    public Integer getOffHeapCapacity() {
+        return offHeapCapacity;
+    }
+
+    public void setOffHeapCapacity(Integer offHeapCapacity) {
+        this.offHeapCapacity = offHeapCapacity;
+    }
+
+    public Integer getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    public void setCompressThreshold(Integer compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
     public Integer getExpireAfterAccess() {
         return expireAfterAccess;
     }
@@ -98,6 +187,22 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
         this.expireAfterWrite = expireAfterWrite;
     }
 
+    public Integer getMaxStale() {
+        return maxStale;
+    }
+
+    public void setMaxStale(Integer maxStale) {
+        this.maxStale = maxStale;
+    }
+
+    public Integer getNegativeExpireAfterWrite() {
+        return negativeExpireAfterWrite;
+    }
+
+    public void setNegativeExpireAfterWrite(Integer negativeExpireAfterWrite) {
+        this.negativeExpireAfterWrite = negativeExpireAfterWrite;
+    }
+
     public Integer getRefreshAfterWrite() {
         return refreshAfterWrite;
     }
@@ -114,10 +219,44 @@ public class DefaultCaffeineCacheConfigResolver implements BeanFactoryAware, Caf
         this.executorName = executorName;
     }
 
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 设置没有配置异步执行器时是否使用虚拟线程执行，运行环境不支持虚拟线程（Java 21 以下）时仍然使用
+     * {@link ForkJoinPool#commonPool()}。
+     *
+     * @param virtualThreads whether to use virtual threads
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isRecordStats() {
+        return recordStats;
+    }
+
+    public void setRecordStats(boolean recordStats) {
+        this.recordStats = recordStats;
+    }
+
+    public ValueStrength getValueStrength() {
+        return valueStrength;
+    }
+
+    public void setValueStrength(ValueStrength valueStrength) {
+        this.valueStrength = valueStrength;
+    }
+
     protected Executor findExecutor(String name) {
         return executorMap.computeIfAbsent(name, key -> getQualifierBean(key, Executor.class));
     }
 
+    protected Weigher<Object, Object> findWeigher(String name) {
+        return weigherMap.computeIfAbsent(name, key -> getQualifierBean(key, Weigher.class));
+    }
+
     @Override
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
         this.beanFactory = beanFactory;
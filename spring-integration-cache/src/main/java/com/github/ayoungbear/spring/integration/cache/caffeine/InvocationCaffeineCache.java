@@ -0,0 +1,221 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
+
+/**
+ * 使用缓存方法共享的 {@link CaffeineCacheOperationContext} 的 {@link WrappedCaffeineCache}。
+ *
+ * <p>实例和上下文一起被同个缓存方法的所有调用共享，每次调用通过 {@link #bind(Object[])} 创建一个只保存本次调用参数的
+ * {@link org.springframework.cache.Cache}，上下文不绑定调用参数，每个 key 只额外保存生成它的调用参数
+ * （参数就是 key 本身时不保存），见 {@link InvocationCacheKey}。绑定的实例也记录本次调用未命中到写入的加载耗时。</p>
+ *
+ * <p>绑定的实例本身也是只包含它自己的 {@link Collection}，只有一个 cache 的缓存方法可以直接作为解析结果返回，
+ * 每次调用除了 key 只创建这一个对象。</p>
+ *
+ * @author yangzexiong
+ */
+class InvocationCaffeineCache extends WrappedCaffeineCache<Object, CaffeineCacheOperationContext> {
+
+    InvocationCaffeineCache(String name, Cache<? extends CacheKey<Object, CaffeineCacheOperationContext>, Object> cache,
+            AsyncCache<? extends CacheKey<Object, CaffeineCacheOperationContext>, Object> asyncCache,
+            CaffeineCacheOperationContext context) {
+        super(name, cache, asyncCache, context, context.getValueAdapter());
+    }
+
+    /**
+     * 绑定本次调用的参数。
+     *
+     * @param args the arguments of the invocation
+     * @return the cache bound to the invocation
+     */
+    org.springframework.cache.Cache bind(Object[] args) {
+        return new Invocation(this, args);
+    }
+
+    /**
+     * 绑定本次调用的参数，返回只包含绑定的缓存的集合。
+     *
+     * @param args the arguments of the invocation
+     * @return the singleton collection of the cache bound to the invocation
+     */
+    Collection<org.springframework.cache.Cache> bindSingleton(Object[] args) {
+        return new Invocation(this, args);
+    }
+
+    @Override
+    protected CacheKey toCacheKey(Object key, @Nullable Call call) {
+        if (key instanceof CacheKey || call == null) {
+            return super.toCacheKey(key, call);
+        }
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return new InvocationCacheKey<>(key, getContext(), call.getArgs());
+    }
+
+    @Override
+    protected CacheKey toStoreKey(Object key, @Nullable Call call) {
+        CacheKey cacheKey = toCacheKey(key, call);
+        if (getContext().getSoftRef() && cacheKey instanceof InvocationCacheKey) {
+            ((InvocationCacheKey) cacheKey).softenArgs();
+        }
+        return cacheKey;
+    }
+
+    /**
+     * 绑定一次调用的缓存，只保存调用的状态，其余操作交给共享的 {@link InvocationCaffeineCache}。
+     * 同时作为只包含自己的不可修改的集合，{@link #clear()} 是清除缓存。
+     */
+    private static final class Invocation extends AbstractCollection<org.springframework.cache.Cache>
+            implements org.springframework.cache.Cache, Call {
+
+        private final InvocationCaffeineCache cache;
+
+        private final Object[] args;
+
+        private boolean loading;
+
+        private long loadStartTime;
+
+        Invocation(InvocationCaffeineCache cache, Object[] args) {
+            this.cache = cache;
+            this.args = args;
+        }
+
+        @Override
+        public Object[] getArgs() {
+            return args;
+        }
+
+        @Override
+        public void startLoading(long startTime) {
+            loading = true;
+            loadStartTime = startTime;
+        }
+
+        @Override
+        public boolean isLoading() {
+            return loading;
+        }
+
+        @Override
+        public long finishLoading() {
+            loading = false;
+            return loadStartTime;
+        }
+
+        @Override
+        public Iterator<org.springframework.cache.Cache> iterator() {
+            return new Iterator<org.springframework.cache.Cache>() {
+
+                private boolean hasNext = true;
+
+                @Override
+                public boolean hasNext() {
+                    return hasNext;
+                }
+
+                @Override
+                public org.springframework.cache.Cache next() {
+                    if (!hasNext) {
+                        throw new NoSuchElementException();
+                    }
+                    hasNext = false;
+                    return Invocation.this;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public String getName() {
+            return cache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return cache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return cache.doGet(key, this);
+        }
+
+        @Override
+        public <T> T get(Object key, @Nullable Class<T> type) {
+            return cache.doGet(key, type, this);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return cache.doGet(key, valueLoader, this);
+        }
+
+        @Override
+        public void put(Object key, @Nullable Object value) {
+            cache.doPut(key, value, this);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+            return cache.doPutIfAbsent(key, value, this);
+        }
+
+        @Override
+        public void evict(Object key) {
+            cache.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return cache.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            cache.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return cache.invalidate();
+        }
+
+        @Override
+        public String toString() {
+            return cache.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 按估算的对象占用内存（字节）计算缓存权重，用于 {@link CaffeineCacheConfig#maximumWeight()}。
+ *
+ * <p>通过反射遍历对象引用的对象估算总大小（按 64 位 JVM 开启压缩指针计算），每个类的字段布局只解析一次并缓存。
+ * 数组、集合和 Map 超过 {@value #SAMPLE_SIZE} 个元素时只估算前面的元素，再按平均大小推算整体大小；
+ * 每次估算最多遍历 {@value #MAX_NODES} 个对象，超过后不再继续遍历，已经估算的元素按平均大小推算剩余元素；
+ * 无法反射访问的 JDK 内部字段（Java 9 以上的模块限制）只计算字段本身的大小，
+ * 所以结果是近似值，只适合作为缓存的内存预算。</p>
+ *
+ * @author yangzexiong
+ */
+public class ObjectSizeWeigher implements Weigher<Object, Object> {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * HashMap 每个 entry 的 node 和 table 槽位
+     */
+    private static final int MAP_ENTRY_OVERHEAD = 36;
+
+    /**
+     * ArrayList 等每个元素的数组槽位（包含预留容量）
+     */
+    private static final int ELEMENT_OVERHEAD = 6;
+
+    private static final int SAMPLE_SIZE = 64;
+
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * 每次估算最多遍历的对象数，限制大对象图的估算耗时
+     */
+    private static final int MAX_NODES = 10000;
+
+    private static final Supplier<ObjectSizeWeigher> INSTANCE = SingletonSupplier.of(ObjectSizeWeigher::new);
+
+    private static final ClassValue<Shape> SHAPES = new ClassValue<Shape>() {
+        @Override
+        protected Shape computeValue(Class<?> type) {
+            return new Shape(type);
+        }
+    };
+
+    public static ObjectSizeWeigher newInstance() {
+        return INSTANCE.get();
+    }
+
+    @Override
+    public int weigh(Object key, Object value) {
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Object rawKey = key instanceof CacheKey ? ((CacheKey) key).getKey() : key;
+        long size = sizeOf(rawKey, visited, 0) + sizeOf(value, visited, 0);
+        return (int) Math.max(1, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    /**
+     * 估算对象及其引用的对象占用的内存大小。
+     *
+     * @param value the object
+     * @return the estimated size in bytes
+     */
+    public long estimate(Object value) {
+        return sizeOf(value, Collections.newSetFromMap(new IdentityHashMap<>()), 0);
+    }
+
+    private static long sizeOf(Object value, Set<Object> visited, int depth) {
+        if (value == null || depth > MAX_DEPTH || visited.size() >= MAX_NODES || !visited.add(value)) {
+            return 0;
+        }
+        Class<?> type = value.getClass();
+        if (value instanceof String) {
+            // latin1 compact string, the value array is shared by the same string
+            return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + ((String) value).length());
+        }
+        if (type.isArray()) {
+            return sizeOfArray(value, type.getComponentType(), visited, depth);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            int overhead = value instanceof Set ? MAP_ENTRY_OVERHEAD : ELEMENT_OVERHEAD;
+            return SHAPES.get(type).shallowSize + (long) collection.size() * overhead
+                    + sizeOfElements(collection.iterator(), collection.size(), visited, depth);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return SHAPES.get(type).shallowSize + (long) map.size() * MAP_ENTRY_OVERHEAD
+                    + sizeOfElements(map.keySet().iterator(), map.size(), visited, depth)
+                    + sizeOfElements(map.values().iterator(), map.size(), visited, depth);
+        }
+        Shape shape = SHAPES.get(type);
+        long size = shape.shallowSize;
+        for (Field field : shape.referenceFields) {
+            try {
+                size += sizeOf(field.get(value), visited, depth + 1);
+            } catch (IllegalAccessException ex) {
+                // ignore the inaccessible field
+            }
+        }
+        return size;
+    }
+
+    private static long sizeOfArray(Object array, Class<?> componentType, Set<Object> visited, int depth) {
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(ARRAY_HEADER + (long) length * primitiveSize(componentType));
+        }
+        Object[] elements = (Object[]) array;
+        List<Object> list = new ArrayList<>(Math.min(length, SAMPLE_SIZE));
+        for (int i = 0; i < length && list.size() < SAMPLE_SIZE; i++) {
+            list.add(elements[i]);
+        }
+        return align(ARRAY_HEADER + (long) length * REFERENCE)
+                + sizeOfElements(list.iterator(), length, visited, depth);
+    }
+
+    /**
+     * 估算前 {@value #SAMPLE_SIZE} 个元素的大小，再按平均大小推算全部元素的大小，
+     * 遍历的对象数达到上限时只按已经估算的元素推算。
+     */
+    private static long sizeOfElements(Iterator<?> iterator, int size, Set<Object> visited, int depth) {
+        long sampled = 0;
+        int count = 0;
+        while (count < SAMPLE_SIZE && iterator.hasNext() && visited.size() < MAX_NODES) {
+            sampled += sizeOf(iterator.next(), visited, depth + 1);
+            count++;
+        }
+        return count == 0 || size <= count ? sampled : sampled * size / count;
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * 类的字段布局：对象本身的大小以及需要继续遍历的引用字段。
+     */
+    private static final class Shape {
+
+        final long shallowSize;
+
+        final Field[] referenceFields;
+
+        Shape(Class<?> type) {
+            long size = OBJECT_HEADER;
+            List<Field> fields = new ArrayList<>();
+            boolean shared = type.isEnum() || Class.class == type || ClassLoader.class.isAssignableFrom(type)
+                    || Thread.class.isAssignableFrom(type);
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive()) {
+                        size += primitiveSize(field.getType());
+                        continue;
+                    }
+                    size += REFERENCE;
+                    if (!shared && isAccessible(field)) {
+                        fields.add(field);
+                    }
+                }
+            }
+            // the shared instances are not retained by the cache
+            this.shallowSize = shared ? 0 : align(size);
+            this.referenceFields = fields.toArray(new Field[0]);
+        }
+
+        private static boolean isAccessible(Field field) {
+            try {
+                field.setAccessible(true);
+                return true;
+            } catch (RuntimeException ex) {
+                // InaccessibleObjectException since Java 9
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactor {@link Mono}、{@link Flux} 的异步缓存值适配，缓存中保存的是 {@link Mono} 的结果或 {@link Flux} 收集的列表。
+ *
+ * <p>返回的 {@link Mono}、{@link Flux} 在订阅时才从缓存获取 future，同个 key 并发的订阅共享同一次加载，
+ * 订阅方取消订阅也不会取消缓存中正在加载的 future。</p>
+ *
+ * @author yangzexiong
+ */
+enum ReactorCacheValueAdapter implements AsyncCacheValueAdapter {
+
+    MONO {
+        @Override
+        public CompletableFuture<Object> toFuture(Object value) {
+            if (value instanceof Mono) {
+                return ((Mono<Object>) value).toFuture();
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public Object fromFuture(Supplier<CompletableFuture<Object>> future) {
+            return Mono.fromCompletionStage(() -> future.get().thenApply(Function.identity()));
+        }
+    },
+
+    FLUX {
+        @Override
+        public CompletableFuture<Object> toFuture(Object value) {
+            if (value instanceof Flux) {
+                return ((Flux<Object>) value).collectList().<Object>map(Function.identity()).toFuture();
+            }
+            return CompletableFuture.completedFuture(value);
+        }
+
+        @Override
+        public Object fromFuture(Supplier<CompletableFuture<Object>> future) {
+            return Mono.fromCompletionStage(() -> future.get().thenApply(Function.identity()))
+                    .flatMapIterable(list -> (List<Object>) list);
+        }
+    };
+
+    @Override
+    public boolean isDeferred() {
+        return true;
+    }
+
+    static AsyncCacheValueAdapter forReturnType(Class<?> returnType) {
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return MONO;
+        }
+        if (Flux.class.isAssignableFrom(returnType)) {
+            return FLUX;
+        }
+        return null;
+    }
+
+}
@@ -17,7 +17,8 @@
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
 import com.github.benmanes.caffeine.cache.RemovalCause;
-import com.github.benmanes.caffeine.cache.RemovalListener;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,22 +27,62 @@ import org.springframework.util.function.SingletonSupplier;
 /**
  * CaffeineCache 缓存变动监听，输出相关日志，比如过期等。
  *
+ * <p>由 {@link CaffeineCacheRemovalPipeline} 在后台线程回调，每个 cache 每秒最多输出 {@value #MAX_LOGS_PER_SECOND} 条，
+ * 超出的只在下一秒输出被忽略的数量，避免大量淘汰时输出过多日志。</p>
+ *
  * @author yangzexiong
  */
-public class SimpleCaffeineCacheListener implements RemovalListener {
+public class SimpleCaffeineCacheListener implements CaffeineCacheRemovalListener {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleCaffeineCacheListener.class);
 
+    private static final int MAX_LOGS_PER_SECOND = 10;
+
     private static final Supplier<SimpleCaffeineCacheListener> INSTANCE = SingletonSupplier
             .of(SimpleCaffeineCacheListener::new);
 
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+
     public static SimpleCaffeineCacheListener newInstance() {
         return INSTANCE.get();
     }
 
     @Override
-    public void onRemoval(Object key, Object value, RemovalCause cause) {
-        logger.info("cache {} key={} value={}", cause, key, value);
+    public void onRemoval(String cacheName, Object key, Object value, RemovalCause cause) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        RateLimit rateLimit = rateLimits.computeIfAbsent(cacheName, name -> new RateLimit());
+        long suppressed;
+        synchronized (rateLimit) {
+            long second = System.currentTimeMillis() / 1000;
+            suppressed = 0;
+            if (second != rateLimit.second) {
+                suppressed = rateLimit.suppressed;
+                rateLimit.second = second;
+                rateLimit.count = 0;
+                rateLimit.suppressed = 0;
+            }
+            if (rateLimit.count >= MAX_LOGS_PER_SECOND) {
+                rateLimit.suppressed++;
+                return;
+            }
+            rateLimit.count++;
+        }
+        if (suppressed > 0) {
+            logger.info("cache [{}] {} removal logs suppressed", cacheName, suppressed);
+        }
+        logger.info("cache [{}] {} key={} value={}", cacheName, cause, key, value);
+    }
+
+    private static final class RateLimit {
+
+        long second;
+
+        int count;
+
+        long suppressed;
+
     }
 
 }
@@ -0,0 +1,52 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+/**
+ * 缓存值的引用强度。
+ *
+ * <p>软引用和弱引用的缓存值可以被 GC 回收，回收后相当于缓存失效，下次读取时同步重新加载，
+ * 回收的数量可以通过 {@link com.github.benmanes.caffeine.cache.RemovalCause#COLLECTED} 原因的移除统计获取。
+ * 异步缓存 {@link com.github.benmanes.caffeine.cache.AsyncLoadingCache} 不支持，始终为强引用。</p>
+ *
+ * @author yangzexiong
+ * @see com.github.benmanes.caffeine.cache.Caffeine#softValues()
+ * @see com.github.benmanes.caffeine.cache.Caffeine#weakValues()
+ */
+public enum ValueStrength {
+
+    /**
+     * 不配置，使用优先级更低的配置，都没有配置时为 {@link #STRONG}
+     */
+    DEFAULT,
+
+    /**
+     * 强引用，不会被 GC 回收
+     */
+    STRONG,
+
+    /**
+     * 软引用 {@link java.lang.ref.SoftReference}，内存不足时按 LRU 被 GC 回收
+     */
+    SOFT,
+
+    /**
+     * 弱引用 {@link java.lang.ref.WeakReference}，缓存值没有其他强引用时就会被 GC 回收
+     */
+    WEAK
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.function.SingletonSupplier;
+
+/**
+ * 虚拟线程执行器，每个任务使用一个新的虚拟线程执行。
+ *
+ * <p>组件按 Java 8 编译，这里通过反射调用 Java 21 的 {@code Executors.newVirtualThreadPerTaskExecutor()}，
+ * 运行环境不支持虚拟线程时返回 {@code null}。</p>
+ *
+ * @author yangzexiong
+ */
+final class VirtualThreadExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadExecutors.class);
+
+    private static final Supplier<Optional<Executor>> EXECUTOR = SingletonSupplier
+            .of(() -> Optional.ofNullable(create(VirtualThreadExecutors::findFactory)));
+
+    private VirtualThreadExecutors() {
+    }
+
+    /**
+     * 获取共用的虚拟线程执行器。
+     *
+     * @return the virtual thread executor, or {@code null} if virtual threads are not supported
+     */
+    @Nullable
+    static Executor get() {
+        return EXECUTOR.get().orElse(null);
+    }
+
+    /**
+     * 通过查找到的无参静态工厂方法创建执行器，找不到方法或者调用失败时返回 {@code null}。
+     *
+     * @param lookup the lookup of the factory method, returns {@code null} if the method is missing
+     * @return the executor, or {@code null} if not supported
+     */
+    @Nullable
+    static Executor create(Supplier<Method> lookup) {
+        Method factory = lookup.get();
+        if (factory == null) {
+            logger.warn("Virtual threads are not supported by Java {}, use the default executor",
+                    System.getProperty("java.version"));
+            return null;
+        }
+        try {
+            return (Executor) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // e.g. preview feature not enabled on Java 19/20
+            logger.warn("Unable to create the virtual thread executor, use the default executor", ex);
+            return null;
+        }
+    }
+
+    @Nullable
+    static Method findFactory() {
+        return ReflectionUtils.findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+    }
+
+}
@@ -17,13 +17,42 @@
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
 import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nullable;
 import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.CacheOperationInvoker;
+import org.springframework.cache.support.NullValue;
 
 /**
  * 扩展 {@link CaffeineCache} 使用特定上下文包装key，使key能附带一些信息。
  *
+ * <p>也支持包装异步缓存 {@link AsyncCache}，缓存中保存的是值的 future，
+ * 如果指定了 {@link AsyncCacheValueAdapter}（比如缓存方法返回的是 future 或 Reactor 的 {@code Mono}、{@code Flux}），
+ * 则通过适配将缓存的 future 转换为方法的返回值，否则等待 future 完成后返回值。</p>
+ *
+ * <p>如果上下文配置了批量缓存 {@link CaffeineCacheBulkLoader}，则按当前调用的集合参数元素批量获取缓存。
+ * 读写缓存时记录到上下文的热点 key 统计 {@link CaffeineCacheHotKeys}（如果开启）。
+ * 配置了堆外二级存储 {@link CaffeineCacheOffHeapTier}、有重启前的快照 {@link CaffeineCacheSnapshot}
+ * 或者共享的二级存储 {@link CaffeineCacheL2Tier} 时，未命中的 key 依次从中取回。
+ * 配置了缓存值压缩 {@link CaffeineCacheValueCompressor} 时，缓存中保存的是压缩后的值，读取时解压。
+ * 读取缓存时通过上下文的 {@link CaffeineCacheRefresher} 按 key 的刷新时间异步刷新，或者在过期后加载失败时返回旧值。</p>
+ *
+ * <p>配置了 {@link CaffeineCacheInvalidationBus} 时，清除缓存以及 {@code @CachePut} 写入缓存后通知其他节点清除本地缓存。</p>
+ *
  * @author yangzexiong
  * @see CacheKey
  * @see CaffeineCache
@@ -32,9 +61,62 @@ public class WrappedCaffeineCache<K, C> extends CaffeineCache {
 
     private final C context;
 
+    private final AsyncCache<CacheKey, Object> asyncCache;
+
+    private final AsyncCacheValueAdapter valueAdapter;
+
+    private final CaffeineCacheBulkLoader bulkLoader;
+
+    private final CaffeineCacheRefresher refresher;
+
+    private final CaffeineCacheHotKeys hotKeys;
+
+    private final CaffeineCacheOffHeapTier offHeapTier;
+
+    private final CaffeineCacheSnapshot snapshot;
+
+    private final CaffeineCacheL2Tier l2Tier;
+
+    private final CaffeineCacheValueCompressor compressor;
+
+    private final CaffeineCacheNegativeStats negativeStats;
+
+    private final CaffeineCacheInvalidationBus invalidationBus;
+
+    private final boolean broadcastPut;
+
+    private final boolean recordLoadTime;
+
     public WrappedCaffeineCache(String name, Cache<? extends CacheKey<K, C>, Object> cache, C context) {
+        this(name, cache, null, context, null);
+    }
+
+    public WrappedCaffeineCache(String name, AsyncCache<? extends CacheKey<K, C>, Object> cache, C context,
+            @Nullable AsyncCacheValueAdapter valueAdapter) {
+        this(name, cache.synchronous(), cache, context, valueAdapter);
+    }
+
+    protected WrappedCaffeineCache(String name, Cache<? extends CacheKey<K, C>, Object> cache,
+            @Nullable AsyncCache<? extends CacheKey<K, C>, Object> asyncCache, C context,
+            @Nullable AsyncCacheValueAdapter valueAdapter) {
         super(name, toCache(cache));
         this.context = context;
+        this.asyncCache = (AsyncCache) asyncCache;
+        this.valueAdapter = asyncCache != null ? valueAdapter : null;
+        CaffeineCacheOperationContext operationContext = context instanceof CaffeineCacheOperationContext
+                ? (CaffeineCacheOperationContext) context : null;
+        this.bulkLoader = operationContext != null ? operationContext.getBulkLoader() : null;
+        this.refresher = operationContext != null ? operationContext.getRefresher() : null;
+        this.hotKeys = operationContext != null ? operationContext.getHotKeys() : null;
+        this.offHeapTier = operationContext != null && asyncCache == null ? operationContext.getOffHeapTier() : null;
+        this.snapshot = operationContext != null && asyncCache == null ? operationContext.getSnapshot() : null;
+        this.l2Tier = operationContext != null && asyncCache == null ? operationContext.getL2Tier() : null;
+        this.compressor = operationContext != null && asyncCache == null ? operationContext.getValueCompressor() : null;
+        this.negativeStats = CaffeineCacheNegativeStats.forContext(operationContext);
+        this.invalidationBus = operationContext != null ? operationContext.getInvalidationBus() : null;
+        this.broadcastPut = invalidationBus != null && operationContext.isBroadcastPut();
+        this.recordLoadTime = refresher != null && (operationContext.getEarlyRefresh()
+                || refresher.getStatsCounter() != null);
     }
 
     private static Cache toCache(Cache<? extends CacheKey, Object> cache) {
@@ -47,22 +129,167 @@ public class WrappedCaffeineCache<K, C> extends CaffeineCache {
 
     @Override
     public ValueWrapper get(Object key) {
-        return toValueWrapper(lookup(toCacheKey(key)));
+        return doGet(key, (Call) null);
     }
 
     @Override
     public <T> T get(Object key, Callable<T> valueLoader) {
-        return super.get(toCacheKey(key), valueLoader);
+        return doGet(key, valueLoader, null);
+    }
+
+    /**
+     * {@link #get(Object)} in the invocation.
+     *
+     * @param key the key
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the value wrapper
+     */
+    protected ValueWrapper doGet(Object key, @Nullable Call call) {
+        return toValueWrapper(doLookup(key, call));
+    }
+
+    /**
+     * {@link #get(Object, Class)} in the invocation.
+     *
+     * @param key the key
+     * @param type the required type of the value
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the value
+     */
+    protected <T> T doGet(Object key, @Nullable Class<T> type, @Nullable Call call) {
+        Object value = fromStoreValue(doLookup(key, call));
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * {@link #get(Object, Callable)} in the invocation.
+     *
+     * @param key the key
+     * @param valueLoader the value loader
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the value
+     */
+    protected <T> T doGet(Object key, Callable<T> valueLoader, @Nullable Call call) {
+        if (bulkLoader != null) {
+            Object[] args = currentArgs(call);
+            if (args != null) {
+                return (T) getAll(args, call);
+            }
+        }
+        CacheKey storeKey = toStoreKey(key, call);
+        recordAccess(storeKey);
+        if (valueAdapter != null) {
+            CompletableFuture<Object> future = asyncCache.get(storeKey, (cacheKey, executor) -> {
+                try {
+                    return valueAdapter.toFuture(valueLoader.call());
+                } catch (Exception ex) {
+                    throw new ValueRetrievalException(key, valueLoader, ex);
+                }
+            });
+            CompletableFuture<Object> revalidated = (CompletableFuture<Object>) revalidate(storeKey, future);
+            return (T) valueAdapter.fromFuture(() -> revalidated);
+        }
+        promote(storeKey);
+        Object storeValue = nativeCache().get(storeKey, cacheKey -> {
+            // the load is recorded to the stats by caffeine
+            long startTime = recordLoadTime ? refresher.getTicker().read() : 0L;
+            try {
+                return toStoreValue(valueLoader.call());
+            } catch (Exception ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            } finally {
+                if (recordLoadTime) {
+                    refresher.recordLoadTime(refresher.getTicker().read() - startTime);
+                }
+            }
+        });
+        // revalidate the stored value so that the refreshed value could replace it, the null value is not refreshed
+        return (T) fromStoreValue(storeValue instanceof NullValue ? storeValue : revalidate(storeKey, storeValue));
     }
 
     @Override
     protected Object lookup(Object key) {
-        return super.lookup(toCacheKey(key));
+        return doLookup(key, null);
+    }
+
+    /**
+     * {@link #lookup(Object)} in the invocation.
+     *
+     * @param key the key
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the store value
+     */
+    protected Object doLookup(Object key, @Nullable Call call) {
+        if (bulkLoader != null) {
+            Object[] args = currentArgs(call);
+            if (args != null) {
+                return getAll(args, call);
+            }
+        }
+        CacheKey cacheKey = toCacheKey(key, call);
+        recordAccess(cacheKey);
+        if (asyncCache == null) {
+            Object value = super.lookup(cacheKey);
+            if (value == null) {
+                value = promote(cacheKey);
+            }
+            if (value == null && recordLoadTime && call != null) {
+                // the value will be loaded by the cached method and then put
+                call.startLoading(refresher.getTicker().read());
+            }
+            return revalidate(cacheKey, value);
+        }
+        if (asyncCache instanceof AsyncLoadingCache) {
+            AsyncLoadingCache<CacheKey, Object> loadingCache = (AsyncLoadingCache) asyncCache;
+            // the future is retrieved on subscription for the deferred values
+            return valueAdapter != null ? valueAdapter.fromFuture(() -> getFuture(loadingCache, cacheKey))
+                    : join(getFuture(loadingCache, cacheKey));
+        }
+        CompletableFuture<Object> future = asyncCache.getIfPresent(cacheKey);
+        if (future == null) {
+            return null;
+        }
+        return valueAdapter != null ? valueAdapter.fromFuture(() -> future) : join(future);
     }
 
     @Override
     public void put(Object key, Object value) {
-        super.put(toCacheKey(key), value);
+        doPut(key, value, null);
+    }
+
+    /**
+     * {@link #put(Object, Object)} in the invocation.
+     *
+     * @param key the key
+     * @param value the value
+     * @param call the state of the invocation, or {@code null} if unknown
+     */
+    protected void doPut(Object key, Object value, @Nullable Call call) {
+        if (recordLoadTime && call != null && call.isLoading()) {
+            refresher.recordLoadSuccess(refresher.getTicker().read() - call.finishLoading());
+        }
+        if (hotKeys != null) {
+            hotKeys.record(toCacheKey(key, call));
+        }
+        if (valueAdapter != null && valueAdapter.isDeferred()) {
+            // storing the deferred value would execute it twice, so let it be reloaded on the next lookup
+            super.evict(toCacheKey(key, call));
+            publishInvalidation(key, broadcastPut);
+            return;
+        }
+        if (valueAdapter != null && value instanceof CompletionStage) {
+            asyncCache.put(toStoreKey(key, call), valueAdapter.toFuture(value));
+            publishInvalidation(key, broadcastPut);
+            return;
+        }
+        super.put(toStoreKey(key, call), value);
+        if (snapshot != null) {
+            snapshot.invalidate(key);
+        }
+        publishInvalidation(key, broadcastPut);
     }
 
     public void putValue(K key, Object value) {
@@ -71,17 +298,87 @@ public class WrappedCaffeineCache<K, C> extends CaffeineCache {
 
     @Override
     public ValueWrapper putIfAbsent(Object key, Object value) {
-        return super.putIfAbsent(toCacheKey(key), value);
+        return doPutIfAbsent(key, value, null);
+    }
+
+    /**
+     * {@link #putIfAbsent(Object, Object)} in the invocation.
+     *
+     * @param key the key
+     * @param value the value
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the existing value wrapper, or {@code null} if absent
+     */
+    protected ValueWrapper doPutIfAbsent(Object key, Object value, @Nullable Call call) {
+        if (valueAdapter != null && valueAdapter.isDeferred()) {
+            CompletableFuture<Object> existing = asyncCache.getIfPresent(toCacheKey(key, call));
+            return existing != null ? toValueWrapper(valueAdapter.fromFuture(() -> existing)) : null;
+        }
+        if (valueAdapter != null && value instanceof CompletionStage) {
+            CompletableFuture<Object> existing = asyncCache.asMap()
+                    .putIfAbsent(toStoreKey(key, call), valueAdapter.toFuture(value));
+            return existing != null ? toValueWrapper(valueAdapter.fromFuture(() -> existing)) : null;
+        }
+        if (snapshot != null || l2Tier != null) {
+            promote(toCacheKey(key, call));
+        }
+        return super.putIfAbsent(toStoreKey(key, call), value);
     }
 
     @Override
     public void evict(Object key) {
-        super.evict(toCacheKey(key));
+        super.evict(toCacheKey(key, null));
+        invalidateLowerTiers(key);
+        publishInvalidation(key, true);
     }
 
     @Override
     public boolean evictIfPresent(Object key) {
-        return super.evictIfPresent(toCacheKey(key));
+        boolean evicted = super.evictIfPresent(toCacheKey(key, null));
+        invalidateLowerTiers(key);
+        publishInvalidation(key, true);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        invalidateLowerTiers(null);
+        publishInvalidation(null, true);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = super.invalidate();
+        invalidateLowerTiers(null);
+        publishInvalidation(null, true);
+        return invalidated;
+    }
+
+    /**
+     * 只在值确实写入缓存时调用（包括 put、不存在时的 putIfAbsent 以及加载），同时记录写入的空结果。
+     */
+    @Override
+    protected Object toStoreValue(@Nullable Object userValue) {
+        Object storeValue = super.toStoreValue(userValue);
+        if (negativeStats != null) {
+            negativeStats.recordWrite(storeValue);
+        }
+        return compressor != null ? compressor.compress(storeValue) : storeValue;
+    }
+
+    @Override
+    protected Object fromStoreValue(@Nullable Object storeValue) {
+        return super.fromStoreValue(compressor != null ? compressor.decompress(storeValue) : storeValue);
+    }
+
+    /**
+     * 是否是异步缓存。
+     *
+     * @return {@code true} if the native cache is a {@link AsyncCache}
+     */
+    public boolean isAsync() {
+        return asyncCache != null;
     }
 
     @Override
@@ -90,11 +387,213 @@ public class WrappedCaffeineCache<K, C> extends CaffeineCache {
                 + '}';
     }
 
-    private CacheKey toCacheKey(Object key) {
+    /**
+     * 批量缓存时按集合参数的元素获取缓存，只使用未命中的元素调用缓存方法。
+     */
+    private Object getAll(Object[] args, @Nullable Call call) {
+        Collection<?> elements = bulkLoader.getElements(args);
+        Map<CacheKey, Object> elementKeys = new LinkedHashMap<>(elements.size() * 2);
+        for (Object element : elements) {
+            if (element == null) {
+                // no cache key for the null element, which is absent from the result
+                continue;
+            }
+            CacheKey cacheKey = toStoreKey(new InvocationCacheKey<>(bulkLoader.getElementKey(args, element), context,
+                    bulkLoader.getElementArgs(args, element)), call);
+            elementKeys.put(cacheKey, element);
+            recordAccess(cacheKey);
+        }
+        Cache<CacheKey, Object> nativeCache = nativeCache();
+        for (CacheKey cacheKey : elementKeys.keySet()) {
+            promote(cacheKey);
+        }
+        Map<CacheKey, Object> values = nativeCache.getAll(elementKeys.keySet(), missingKeys -> {
+            List<Object> missingElements = new ArrayList<>();
+            for (CacheKey missingKey : missingKeys) {
+                missingElements.add(elementKeys.get(missingKey));
+            }
+            Map<Object, Object> loaded = bulkLoader.load(args, missingElements);
+            Map<CacheKey, Object> result = new HashMap<>(loaded.size() * 2);
+            for (CacheKey missingKey : missingKeys) {
+                Object value = loaded.get(elementKeys.get(missingKey));
+                if (value != null) {
+                    if (negativeStats != null) {
+                        negativeStats.recordWrite(value);
+                    }
+                    result.put(missingKey, compressor != null ? compressor.compress(value) : value);
+                }
+            }
+            return result;
+        });
+        Map<Object, Object> elementValues = new HashMap<>(values.size() * 2);
+        elementKeys.forEach((cacheKey, element) -> {
+            Object value = revalidate(cacheKey, values.get(cacheKey));
+            if (value != null) {
+                elementValues.put(element, compressor != null ? compressor.decompress(value) : value);
+            }
+        });
+        return bulkLoader.merge(elements, elementValues);
+    }
+
+    private CompletableFuture<Object> getFuture(AsyncLoadingCache<CacheKey, Object> loadingCache, CacheKey cacheKey) {
+        return (CompletableFuture<Object>) revalidate(cacheKey, loadingCache.get(cacheKey));
+    }
+
+    private Cache<CacheKey, Object> nativeCache() {
+        return (Cache) getNativeCache();
+    }
+
+    /**
+     * 缓存未命中时依次从堆外二级存储、重启前的快照、共享的二级存储中取回缓存值，并放回缓存。
+     */
+    private Object promote(CacheKey cacheKey) {
+        Object value = null;
+        if (offHeapTier != null) {
+            value = offHeapTier.promote(nativeCache(), cacheKey);
+        }
+        if (value == null && snapshot != null) {
+            value = snapshot.restore(nativeCache(), cacheKey);
+        }
+        if (value == null && l2Tier != null) {
+            value = l2Tier.promote(nativeCache(), cacheKey);
+        }
+        return value;
+    }
+
+    /**
+     * 清除堆外二级存储、快照和共享的二级存储中的缓存值，key 为 {@code null} 时全部清除。
+     */
+    private void invalidateLowerTiers(@Nullable Object key) {
+        if (offHeapTier != null) {
+            if (key != null) {
+                offHeapTier.invalidate(key);
+            } else {
+                offHeapTier.invalidateAll();
+            }
+        }
+        if (snapshot != null) {
+            if (key != null) {
+                snapshot.invalidate(key);
+            } else {
+                snapshot.invalidateAll();
+            }
+        }
+        if (l2Tier != null) {
+            if (key != null) {
+                l2Tier.invalidate(key);
+            } else {
+                l2Tier.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * 通知其他节点清除缓存，key 为 {@code null} 时清除整个缓存。
+     */
+    private void publishInvalidation(@Nullable Object key, boolean broadcast) {
+        if (invalidationBus == null || !broadcast) {
+            return;
+        }
+        if (key != null) {
+            invalidationBus.publish(getName(), key);
+        } else {
+            invalidationBus.publishClear(getName());
+        }
+    }
+
+    private void recordAccess(CacheKey cacheKey) {
+        if (hotKeys != null) {
+            hotKeys.record(cacheKey);
+        }
+    }
+
+    private Object revalidate(CacheKey cacheKey, Object value) {
+        return refresher != null ? refresher.revalidate(cacheKey, value) : value;
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Return the arguments of the current invocation, or {@code null} if unknown.
+     *
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the invocation arguments
+     */
+    protected Object[] currentArgs(@Nullable Call call) {
+        if (call != null) {
+            return call.getArgs();
+        }
+        if (context instanceof CaffeineCacheOperationContext) {
+            CacheOperationInvoker cacheLoader = ((CaffeineCacheOperationContext) context).getCacheLoader();
+            if (cacheLoader instanceof CacheValueInvoker) {
+                return ((CacheValueInvoker) cacheLoader).getArgs();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wrap the key with the context.
+     *
+     * @param key the key
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the cache key
+     */
+    protected CacheKey toCacheKey(Object key, @Nullable Call call) {
         if (key == null) {
             throw new NullPointerException();
         }
         return key instanceof CacheKey ? (CacheKey) key : CacheKey.of(key, context);
     }
 
+    /**
+     * Wrap the key with the context for the operations which may store the key to the cache.
+     *
+     * @param key the key
+     * @param call the state of the invocation, or {@code null} if unknown
+     * @return the cache key
+     */
+    protected CacheKey toStoreKey(Object key, @Nullable Call call) {
+        return toCacheKey(key, call);
+    }
+
+    /**
+     * 一次缓存方法调用的状态：调用参数，以及未命中到写入缓存的加载开始时间，每次调用独享。
+     * 同一个缓存实例被多个调用共享时，通过该状态区分各个调用。
+     */
+    protected interface Call {
+
+        @Nullable
+        Object[] getArgs();
+
+        /**
+         * 缓存未命中，开始由缓存方法加载。
+         *
+         * @param startTime the start time of the load
+         */
+        void startLoading(long startTime);
+
+        boolean isLoading();
+
+        /**
+         * 加载的值写入缓存，结束加载。
+         *
+         * @return the start time of the load
+         */
+        long finishLoading();
+
+    }
+
 }
@@ -17,6 +17,7 @@
 package com.github.ayoungbear.spring.integration;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -65,6 +66,20 @@ public abstract class BaseTest {
         sleep(millis, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * 轮询等待条件成立, 超时返回 false
+     */
+    public static boolean await(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            sleep(10);
+        }
+        return true;
+    }
+
     @Before
     public void baseSetUp() throws Exception {
     }
@@ -0,0 +1,65 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.context.expression.AnnotatedElementKey;
+
+/**
+ * CacheConfigExpressionEvaluatorTest
+ *
+ * @author yangzexiong
+ */
+public class CacheConfigExpressionEvaluatorTest {
+
+    private final CacheConfigExpressionEvaluator evaluator = new CacheConfigExpressionEvaluator();
+
+    private final AnnotatedElementKey elementKey = new AnnotatedElementKey(CacheConfigExpressionEvaluatorTest.class,
+            null);
+
+    @Test
+    public void testInvocationIndependent() {
+        Assert.assertTrue(isInvocationIndependent("1000"));
+        Assert.assertTrue(isInvocationIndependent("60 * 1000"));
+        Assert.assertTrue(isInvocationIndependent("{100, 200}[1]"));
+        Assert.assertTrue(isInvocationIndependent("true and !false ? 1000 : 2000"));
+    }
+
+    @Test
+    public void testInvocationDependent() {
+        Assert.assertFalse(isInvocationIndependent("#expireAfterAccess"));
+        Assert.assertFalse(isInvocationIndependent("#p0 + 1000"));
+        Assert.assertFalse(isInvocationIndependent("#root.args[0]"));
+        Assert.assertFalse(isInvocationIndependent("args[0]"));
+        Assert.assertFalse(isInvocationIndependent("methodName.length()"));
+        Assert.assertFalse(isInvocationIndependent("T(java.lang.Integer).parseInt(#refreshAfterWrite) + 1000"));
+        Assert.assertFalse(isInvocationIndependent("'MASTER'.equals(#productId) ? 1800000 : 600000"));
+        Assert.assertFalse(isInvocationIndependent("@caffeineCacheTestService.refreshAfterWrite(#key)"));
+        // the beans and methods may return different values on each call
+        Assert.assertFalse(isInvocationIndependent("@environment.getProperty('cache.maxSize')"));
+        Assert.assertFalse(isInvocationIndependent("T(java.lang.Integer).parseInt('100') + 1000"));
+        Assert.assertFalse(isInvocationIndependent("T(System).currentTimeMillis() % 2 == 0 ? 1000 : 2000"));
+        Assert.assertFalse(isInvocationIndependent("'1000'.length()"));
+    }
+
+    private boolean isInvocationIndependent(String expression) {
+        return CacheConfigExpressionEvaluator
+                .isInvocationIndependent(evaluator.getExpression(expression, elementKey));
+    }
+
+}
@@ -38,6 +38,36 @@ public class CacheKeyTest {
         Assert.assertEquals(111, CacheKey.of("111", 111).getContext().intValue());
     }
 
+    @Test
+    public void testInvocationCacheKey() {
+        Object[] args = new Object[] {"a"};
+        InvocationCacheKey<Object, Object> key = new InvocationCacheKey<>("a", null, args);
+        key.softenArgs();
+        Assert.assertArrayEquals(args, key.getArgs());
+        Assert.assertNotSame(args, key.getArgs());
+
+        // the args which differ from the key are retained
+        args = new Object[] {"a", 1};
+        key = new InvocationCacheKey<>("a1", null, args);
+        Assert.assertSame(args, key.getArgs());
+        key.softenArgs();
+        Assert.assertSame(args, key.getArgs());
+
+        args = new Object[] {1L};
+        key = new InvocationCacheKey<>(1, null, args);
+        Assert.assertSame(args, key.getArgs());
+
+        // an equal but distinct argument is not the key itself
+        args = new Object[] {new String("a")};
+        key = new InvocationCacheKey<>("a", null, args);
+        key.softenArgs();
+        Assert.assertSame(args[0], key.getArgs()[0]);
+
+        key = new InvocationCacheKey<>("a", null, new Object[0]);
+        Assert.assertEquals(0, key.getArgs().length);
+        Assert.assertNull(new InvocationCacheKey<>("a", null, null).getArgs());
+    }
+
     @Test
     public void testWrappedCaffeineCache() {
         WrappedCaffeineCache cache = new WrappedCaffeineCache("test", Caffeine.newBuilder().build(),
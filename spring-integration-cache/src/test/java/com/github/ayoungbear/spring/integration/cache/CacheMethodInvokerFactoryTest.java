@@ -0,0 +1,107 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.lang.reflect.Method;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.cache.interceptor.CacheOperationInvoker.ThrowableWrapper;
+
+/**
+ * CacheMethodInvokerFactoryTest
+ *
+ * @author yangzexiong
+ */
+public class CacheMethodInvokerFactoryTest {
+
+    private final InvokeTarget target = new InvokeTarget();
+
+    @Test
+    public void testInvoke() throws Throwable {
+        Assert.assertEquals("a-1", invoker("concat", String.class, int.class).invoke(target, new Object[]{"a", 1}));
+        Assert.assertEquals(3L, invoker("sum", long.class, Long.class).invoke(target, new Object[]{1L, 2L}));
+        Assert.assertEquals("private", invoker("hidden").invoke(target, new Object[0]));
+        Assert.assertNull(invoker("nothing").invoke(target, new Object[0]));
+        Assert.assertEquals("static-x", invoker("staticValue", String.class).invoke(null, new Object[]{"x"}));
+        Assert.assertEquals(2, invoker("count", String[].class).invoke(target, new Object[]{new String[]{"1", "2"}}));
+        Assert.assertSame(invoker("hidden"), invoker("hidden"));
+    }
+
+    @Test
+    public void testMethodHandleInvoker() throws Throwable {
+        Assert.assertTrue(invoker("concat", String.class, int.class)
+                instanceof CacheMethodInvokerFactory.MethodHandleInvoker);
+        Assert.assertTrue(invoker("hidden") instanceof CacheMethodInvokerFactory.MethodHandleInvoker);
+        Assert.assertTrue(invoker("staticValue", String.class) instanceof CacheMethodInvokerFactory.MethodHandleInvoker);
+        Assert.assertTrue(invoker("count", String[].class) instanceof CacheMethodInvokerFactory.MethodHandleInvoker);
+    }
+
+    @Test
+    public void testException() throws Throwable {
+        try {
+            invoker("fail", String.class).invoke(target, new Object[]{"error"});
+            Assert.fail();
+        } catch (IllegalStateException ex) {
+            Assert.assertEquals("error", ex.getMessage());
+        }
+        try {
+            new CacheValueInvoker(InvokeTarget.class.getDeclaredMethod("fail", String.class), target,
+                    new Object[]{"wrapped"}, false).invoke();
+            Assert.fail();
+        } catch (ThrowableWrapper ex) {
+            Assert.assertTrue(ex.getOriginal() instanceof IllegalStateException);
+            Assert.assertEquals("wrapped", ex.getOriginal().getMessage());
+        }
+    }
+
+    private CacheMethodInvoker invoker(String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        Method method = InvokeTarget.class.getDeclaredMethod(name, parameterTypes);
+        return CacheMethodInvokerFactory.getInvoker(method);
+    }
+
+    static class InvokeTarget {
+
+        public String concat(String value, int index) {
+            return value + "-" + index;
+        }
+
+        public long sum(long a, Long b) {
+            return a + b;
+        }
+
+        private String hidden() {
+            return "private";
+        }
+
+        public void nothing() {
+        }
+
+        public static String staticValue(String value) {
+            return "static-" + value;
+        }
+
+        public int count(String... values) {
+            return values.length;
+        }
+
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
+    }
+
+}
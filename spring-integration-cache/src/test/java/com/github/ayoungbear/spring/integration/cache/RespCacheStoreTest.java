@@ -0,0 +1,239 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * RespCacheStoreTest
+ *
+ * @author yangzexiong
+ */
+public class RespCacheStoreTest {
+
+    private FakeRespServer server;
+
+    private RespCacheStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRespServer();
+        store = RespCacheStore.fromUrl("redis://:secret@127.0.0.1:" + server.getPort() + "/0", "app:");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+        server.close();
+    }
+
+    @Test
+    public void testCommands() {
+        byte[] key = {1, 2, 3};
+        Assert.assertNull(store.get("cache", key));
+        store.put("cache", key, bytes("value"), 60000);
+        store.put("cache", new byte[]{4}, bytes("other"), 0);
+        store.put("other[1]", key, bytes("value"), 0);
+        Assert.assertEquals("value", new String(store.get("cache", key), StandardCharsets.UTF_8));
+        Assert.assertEquals("60000", server.ttls.get("app:cache:\u0001\u0002\u0003"));
+        Assert.assertEquals("AUTH secret", server.commands.get(0));
+
+        store.evict("cache", key);
+        Assert.assertNull(store.get("cache", key));
+        store.clear("cache");
+        Assert.assertNull(store.get("cache", new byte[]{4}));
+        Assert.assertNotNull(store.get("other[1]", key));
+        store.clear("other[1]");
+        Assert.assertNull(store.get("other[1]", key));
+        Assert.assertTrue(server.commands.contains("SCAN 0 MATCH app:other\\[1\\]:* COUNT 500"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testErrorReply() {
+        store.execute(bytes("UNKNOWN"));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 只支持测试用到的命令的 RESP 服务端
+     */
+    private static class FakeRespServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+
+        private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+
+        private final Map<String, String> ttls = new ConcurrentHashMap<>();
+
+        private final List<String> commands = new CopyOnWriteArrayList<>();
+
+        FakeRespServer() throws IOException {
+            serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::accept, "fake-resp-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread thread = new Thread(() -> serve(socket), "fake-resp-connection");
+                    thread.setDaemon(true);
+                    thread.start();
+                } catch (IOException ex) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (Socket client = socket) {
+                InputStream input = new BufferedInputStream(client.getInputStream());
+                OutputStream output = client.getOutputStream();
+                while (true) {
+                    List<byte[]> command = readCommand(input);
+                    if (command == null) {
+                        return;
+                    }
+                    output.write(execute(command));
+                    output.flush();
+                }
+            } catch (IOException ex) {
+                // closed
+            }
+        }
+
+        private byte[] execute(List<byte[]> command) {
+            List<String> args = new ArrayList<>();
+            for (byte[] arg : command) {
+                args.add(new String(arg, StandardCharsets.ISO_8859_1));
+            }
+            commands.add(String.join(" ", args));
+            switch (args.get(0)) {
+                case "AUTH":
+                case "SELECT":
+                    return bytes("+OK\r\n");
+                case "GET": {
+                    byte[] value = values.get(args.get(1));
+                    return value == null ? bytes("$-1\r\n") : bulk(value);
+                }
+                case "SET":
+                    values.put(args.get(1), command.get(2));
+                    if (args.size() > 4) {
+                        ttls.put(args.get(1), args.get(4));
+                    }
+                    return bytes("+OK\r\n");
+                case "DEL": {
+                    int count = 0;
+                    for (String key : args.subList(1, args.size())) {
+                        count += values.remove(key) != null ? 1 : 0;
+                    }
+                    return bytes(":" + count + "\r\n");
+                }
+                case "SCAN": {
+                    String prefix = args.get(3).substring(0, args.get(3).length() - 1).replace("\\", "");
+                    ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                    List<String> keys = new ArrayList<>();
+                    values.keySet().stream().filter(key -> key.startsWith(prefix)).forEach(keys::add);
+                    write(reply, bytes("*2\r\n"));
+                    write(reply, bulk(bytes("0")));
+                    write(reply, bytes("*" + keys.size() + "\r\n"));
+                    for (String key : keys) {
+                        write(reply, bulk(key.getBytes(StandardCharsets.ISO_8859_1)));
+                    }
+                    return reply.toByteArray();
+                }
+                default:
+                    return bytes("-ERR unknown command\r\n");
+            }
+        }
+
+        private static List<byte[]> readCommand(InputStream input) throws IOException {
+            int type = input.read();
+            if (type < 0) {
+                return null;
+            }
+            int count = Integer.parseInt(readLine(input));
+            List<byte[]> command = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                input.read();
+                byte[] arg = new byte[Integer.parseInt(readLine(input))];
+                int offset = 0;
+                while (offset < arg.length) {
+                    offset += input.read(arg, offset, arg.length - offset);
+                }
+                readLine(input);
+                command.add(arg);
+            }
+            return command;
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = input.read()) != '\r') {
+                line.append((char) b);
+            }
+            input.read();
+            return line.toString();
+        }
+
+        private static byte[] bulk(byte[] value) {
+            ByteArrayOutputStream reply = new ByteArrayOutputStream();
+            write(reply, bytes("$" + value.length + "\r\n"));
+            write(reply, value);
+            write(reply, bytes("\r\n"));
+            return reply.toByteArray();
+        }
+
+        private static void write(ByteArrayOutputStream output, byte[] bytes) {
+            output.write(bytes, 0, bytes.length);
+        }
+
+    }
+
+}
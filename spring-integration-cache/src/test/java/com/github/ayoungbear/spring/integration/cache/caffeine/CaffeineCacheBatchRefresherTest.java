@@ -0,0 +1,145 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefresherTest.Invocation;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * CaffeineCacheBatchRefresherTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheBatchRefresherTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private CaffeineCacheResolver cacheResolver;
+
+    @Before
+    public void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("refreshExecutor", (Executor) tasks::add);
+        AnnotationCaffeineCacheConfigResolver configResolver = new AnnotationCaffeineCacheConfigResolver();
+        configResolver.setBeanFactory(beanFactory);
+        configResolver.setExecutorName("refreshExecutor");
+        cacheResolver = new CaffeineCacheResolver(configResolver);
+        cacheResolver.setTicker(nanos::get);
+    }
+
+    @Test
+    public void testBatchRefreshPerTarget() {
+        Service first = new Service("first");
+        Service second = new Service("second");
+        load(first, "get", "a");
+        load(second, "get", "b");
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals("a", resolve(first, "get").get("a").get());
+        Assert.assertEquals("b", resolve(second, "get").get("b").get());
+        runTasks();
+        // each bean loads its own keys
+        Assert.assertEquals("a-first-loadBatch", resolve(first, "get").get("a").get());
+        Assert.assertEquals("b-second-loadBatch", resolve(second, "get").get("b").get());
+    }
+
+    @Test
+    public void testBatchRefreshPerMethod() {
+        Service service = new Service("service");
+        load(service, "get", "c");
+        load(service, "getOther", "d");
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals("c", resolve(service, "get").get("c").get());
+        Assert.assertEquals("d", resolve(service, "getOther").get("d").get());
+        runTasks();
+        // the methods sharing the cache name use their own batch loader
+        Assert.assertEquals("c-service-loadBatch", resolve(service, "get").get("c").get());
+        Assert.assertEquals("d-service-loadOtherBatch", resolve(service, "getOther").get("d").get());
+    }
+
+    private void load(Service service, String methodName, String key) {
+        Cache cache = resolve(service, methodName);
+        Assert.assertNull(cache.get(key));
+        cache.put(key, key);
+    }
+
+    private Cache resolve(Service service, String methodName) {
+        Method method = ReflectionUtils.findMethod(Service.class, methodName, String.class);
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheName("batch");
+        return cacheResolver.resolveCaches(new Invocation(builder.build(), service, method, "key"))
+                .iterator().next();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    static class Service {
+
+        private final String name;
+
+        Service(String name) {
+            this.name = name;
+        }
+
+        @CaffeineCacheable(cacheNames = "batch", refreshAfterWrite = "100", batchLoader = "loadBatch",
+                batchWindow = 0)
+        public String get(String key) {
+            return key;
+        }
+
+        @CaffeineCacheable(cacheNames = "batch", refreshAfterWrite = "100", batchLoader = "loadOtherBatch",
+                batchWindow = 0)
+        public String getOther(String key) {
+            return key;
+        }
+
+        public Map<String, String> loadBatch(List<String> keys) {
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> key + "-" + name + "-loadBatch"));
+        }
+
+        public Map<String, String> loadOtherBatch(List<String> keys) {
+            return keys.stream()
+                    .collect(Collectors.toMap(Function.identity(), key -> key + "-" + name + "-loadOtherBatch"));
+        }
+
+    }
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.github.ayoungbear.spring.integration.BaseTest;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * CaffeineCacheFootprintTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheFootprintTest {
+
+    private static final int ENTRIES = 1000;
+
+    private final ObjectSizeWeigher weigher = ObjectSizeWeigher.newInstance();
+
+    @Test
+    public void testSharedContext() {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        Method method = ReflectionUtils.findMethod(Service.class, "get", String.class);
+        Service service = new Service();
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheName("footprint");
+        CacheableOperation operation = builder.build();
+        for (int i = 0; i < ENTRIES; i++) {
+            String key = "key" + i;
+            Cache cache = cacheResolver.resolveCaches(new Invocation(operation, service, method, key)).iterator()
+                    .next();
+            cache.put(key, service.get(key));
+        }
+        com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> nativeCache
+                = cacheResolver.getNativeCaffeineCache("footprint", new CaffeineCacheOperationConfig());
+        List<CacheKey<Object, CaffeineCacheOperationContext>> keys = new ArrayList<>(nativeCache.asMap().keySet());
+        Assert.assertEquals(ENTRIES, keys.size());
+
+        long size = 0;
+        long legacySize = 0;
+        CaffeineCacheOperationContext context = keys.get(0).getContext();
+        for (CacheKey<Object, CaffeineCacheOperationContext> cacheKey : keys) {
+            // the keys share the same context and the args is the key itself
+            Assert.assertSame(context, cacheKey.getContext());
+            Assert.assertArrayEquals(new Object[] {cacheKey.getKey()}, ((InvocationCacheKey) cacheKey).getArgs());
+            // a context copied and bound to the args per key
+            CaffeineCacheOperationContext legacyContext = CaffeineCacheConfigUtils
+                    .mergeConfig(new CaffeineCacheOperationContext(), context);
+            legacyContext.setRefresher(context.getRefresher());
+            legacyContext.setCacheLoader(new CacheValueInvoker(method, service, new Object[] {cacheKey.getKey()},
+                    context.getSoftRef()));
+            size += footprint(context, cacheKey);
+            legacySize += footprint(context, CacheKey.of(cacheKey.getKey(), legacyContext));
+        }
+        Assert.assertTrue(size / ENTRIES + " vs " + legacySize / ENTRIES, size * 4 < legacySize);
+    }
+
+    @Test
+    public void testHitAllocation() {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        cacheResolver.setReuseCacheHandles(true);
+        Method method = ReflectionUtils.findMethod(Service.class, "get", String.class);
+        Service service = new Service();
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheName("allocation");
+        CacheableOperation operation = builder.build();
+        Invocation[] invocations = new Invocation[ENTRIES * 10];
+        for (int i = 0; i < invocations.length; i++) {
+            invocations[i] = new Invocation(operation, service, method, "a");
+        }
+        Collection<? extends Cache> caches = cacheResolver.resolveCaches(invocations[0]);
+        // the cache bound to the invocation is the resolved collection itself
+        Assert.assertSame(caches, caches.iterator().next());
+        caches.iterator().next().put("a", service.get("a"));
+
+        // the debug logs of every read are not part of the hit path
+        Logger logger = (Logger) LoggerFactory.getLogger(CaffeineCacheResolver.class.getPackage().getName());
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        long perHit;
+        try {
+            hit(cacheResolver, invocations);
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+            hit(cacheResolver, invocations);
+            perHit = (threadMXBean.getThreadAllocatedBytes(threadId) - allocated) / invocations.length;
+        } finally {
+            logger.setLevel(level);
+        }
+        // the invocation, the key, the iterator and the value wrapper, each of them at most 32 bytes
+        Assert.assertTrue(perHit + " bytes per hit", perHit <= 4 * 32);
+    }
+
+    private static void hit(CaffeineCacheResolver cacheResolver, Invocation[] invocations) {
+        for (Invocation invocation : invocations) {
+            for (Cache cache : cacheResolver.resolveCaches(invocation)) {
+                Assert.assertNotNull(cache.get("a"));
+            }
+        }
+    }
+
+    @Test
+    public void testCreationListenerUsesResolver() {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        cacheResolver.setReuseCacheHandles(true);
+        Method method = ReflectionUtils.findMethod(Service.class, "get", String.class);
+        Service service = new Service();
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheName("listener");
+        CacheableOperation operation = builder.build();
+        builder.setCacheName("listener-nested");
+        CacheableOperation nestedOperation = builder.build();
+        List<String> created = new ArrayList<>();
+        cacheResolver.addCreationListener((name, cache, refresher) -> {
+            created.add(name);
+            if (name.equals("listener")) {
+                // resolving the same method again while its first cache is created
+                cacheResolver.resolveCaches(new Invocation(nestedOperation, service, method, "a"));
+            }
+        });
+        Cache cache = cacheResolver.resolveCaches(new Invocation(operation, service, method, "a")).iterator().next();
+        cache.put("a", "value-a");
+        Assert.assertEquals(Arrays.asList("listener", "listener-nested"), created);
+        Assert.assertEquals("value-a", cache.get("a").get());
+    }
+
+    @Test
+    public void testTargetNotPinned() {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        Method method = ReflectionUtils.findMethod(Service.class, "get", String.class);
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheName("pinned");
+        CacheableOperation operation = builder.build();
+        WeakReference<Service> target = putWithNewTarget(cacheResolver, operation, method, "a");
+        cacheResolver.setReuseCacheHandles(true);
+        WeakReference<Service> reusedTarget = putWithNewTarget(cacheResolver, operation, method, "b");
+        // the resolver and the cached keys only hold the targets weakly
+        Assert.assertTrue(BaseTest.await(() -> {
+            System.gc();
+            return target.get() == null && reusedTarget.get() == null;
+        }, 5000));
+        Assert.assertEquals(2, cacheResolver.getNativeCaffeineCache("pinned", new CaffeineCacheOperationConfig())
+                .estimatedSize());
+
+        // the stale entries are replaced by the contexts of a new target
+        Service service = new Service();
+        Cache cache = cacheResolver.resolveCaches(new Invocation(operation, service, method, "c")).iterator().next();
+        cache.put("c", service.get("c"));
+        Assert.assertEquals("value-c", cache.get("c").get());
+    }
+
+    private static WeakReference<Service> putWithNewTarget(CaffeineCacheResolver cacheResolver,
+            CacheableOperation operation, Method method, String key) {
+        Service service = new Service();
+        Cache cache = cacheResolver.resolveCaches(new Invocation(operation, service, method, key)).iterator().next();
+        cache.put(key, service.get(key));
+        return new WeakReference<>(service);
+    }
+
+    /**
+     * 估算 key 除了 key 本身和共享的上下文之外额外占用的内存。
+     */
+    private long footprint(CaffeineCacheOperationContext sharedContext, CacheKey<?, ?> cacheKey) {
+        Object[] shared = new Object[] {sharedContext, cacheKey.getKey()};
+        return weigher.estimate(new Object[] {sharedContext, cacheKey.getKey(), cacheKey}) - weigher.estimate(shared);
+    }
+
+    static class Service {
+
+        public String get(String id) {
+            return "value-" + id;
+        }
+
+    }
+
+    private static class Invocation implements CacheOperationInvocationContext<BasicOperation> {
+
+        private final BasicOperation operation;
+
+        private final Object target;
+
+        private final Method method;
+
+        private final Object[] args;
+
+        Invocation(BasicOperation operation, Object target, Method method, Object... args) {
+            this.operation = operation;
+            this.target = target;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public BasicOperation getOperation() {
+            return operation;
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArgs() {
+            return args;
+        }
+
+    }
+
+}
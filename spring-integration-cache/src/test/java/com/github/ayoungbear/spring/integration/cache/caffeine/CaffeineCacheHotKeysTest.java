@@ -0,0 +1,68 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheHotKeys.HotKey;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheHotKeysTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheHotKeysTest {
+
+    @Test
+    public void testTopKeys() {
+        CaffeineCacheHotKeys hotKeys = new CaffeineCacheHotKeys(2, 1, 60000, 1024);
+        for (int i = 0; i < 1000; i++) {
+            hotKeys.record(CacheKey.of("hot1", "context"));
+            if (i % 2 == 0) {
+                hotKeys.record(CacheKey.of("hot2"));
+            }
+            if (i % 10 == 0) {
+                hotKeys.record(CacheKey.of("warm"));
+            }
+            hotKeys.record(CacheKey.of("cold" + i));
+        }
+        List<HotKey> topKeys = hotKeys.getTopKeys();
+        Assert.assertEquals(2, topKeys.size());
+        Assert.assertEquals("hot1", topKeys.get(0).getKey().getKey());
+        Assert.assertNull(topKeys.get(0).getKey().getContext());
+        Assert.assertEquals("hot2", topKeys.get(1).getKey().getKey());
+        Assert.assertTrue(topKeys.get(0).getRate() > topKeys.get(1).getRate());
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        CaffeineCacheHotKeys hotKeys = new CaffeineCacheHotKeys(3, 1, 100, 1024);
+        for (int i = 0; i < 100; i++) {
+            hotKeys.record(CacheKey.of("first"));
+        }
+        Thread.sleep(150);
+        hotKeys.record(CacheKey.of("second"));
+        // the completed window
+        Assert.assertEquals("[first]", hotKeys.getTopKeys().stream().map(key -> key.getKey().toString())
+                .collect(Collectors.toList()).toString());
+        Assert.assertTrue(hotKeys.getTopKeys().get(0).getRate() > 0);
+    }
+
+}
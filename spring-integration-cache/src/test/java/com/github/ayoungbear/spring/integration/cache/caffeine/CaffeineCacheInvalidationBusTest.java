@@ -0,0 +1,319 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.BaseTest;
+import com.github.ayoungbear.spring.integration.cache.CacheInvalidationTransport;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.LoopbackInvalidationTransport;
+import com.github.ayoungbear.spring.integration.cache.UdpInvalidationTransport;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheInvalidationBusTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheInvalidationBusTest {
+
+    private static final InetSocketAddress LOCALHOST = new InetSocketAddress("127.0.0.1", 0);
+
+    private static final byte[] SECRET = "the secret shared by the peers".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testLoopback() {
+        Cache<Object, Object> cache1 = newCache();
+        Cache<Object, Object> cache2 = newCache();
+        CaffeineCacheInvalidationBus bus1 = newBus(new LoopbackInvalidationTransport("testLoopback"), cache1);
+        CaffeineCacheInvalidationBus bus2 = newBus(new LoopbackInvalidationTransport("testLoopback"), cache2);
+        try {
+            bus1.publish("test", "a");
+            bus1.publish("test", "a");
+            bus1.publish("test", CacheKey.of("b", new CaffeineCacheOperationContext()));
+            Assert.assertEquals(0, bus1.getSentCount());
+            bus1.flush();
+            Assert.assertEquals(1, bus1.getSentCount());
+            // the duplicate key is sent once, and the own message is ignored
+            Assert.assertEquals(1, bus2.getReceivedCount());
+            Assert.assertEquals(2, bus2.getAppliedCount());
+            Assert.assertEquals(0, bus1.getReceivedCount());
+            Assert.assertEquals(3, cache1.estimatedSize());
+            Assert.assertNull(cache2.getIfPresent(CacheKey.of("a")));
+            Assert.assertNull(cache2.getIfPresent(CacheKey.of("b")));
+            Assert.assertEquals("c", cache2.getIfPresent(CacheKey.of("c")));
+
+            // clearing the cache supersedes the keys
+            bus2.publish("test", "a");
+            bus2.publishClear("test");
+            bus2.publish("test", "b");
+            bus2.flush();
+            Assert.assertEquals(1, bus1.getReceivedCount());
+            Assert.assertEquals(1, bus1.getAppliedCount());
+            Assert.assertEquals(0, cache1.estimatedSize());
+
+            // the key could not be serialized
+            cache2.put(CacheKey.of("c"), "c");
+            bus1.publish("test", new Object());
+            bus1.flush();
+            Assert.assertEquals(0, cache2.estimatedSize());
+            Assert.assertEquals(0, bus1.getErrorCount() + bus2.getErrorCount());
+        } finally {
+            bus1.stop();
+            bus2.stop();
+        }
+    }
+
+    @Test
+    public void testSplitMessages() {
+        Cache<Object, Object> cache = newCache();
+        for (int i = 0; i < 100; i++) {
+            cache.put(CacheKey.of("key" + i), i);
+        }
+        LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport("testSplitMessages") {
+            @Override
+            public int getMaxMessageSize() {
+                return 512;
+            }
+        };
+        CaffeineCacheInvalidationBus bus1 = newBus(transport, newCache());
+        CaffeineCacheInvalidationBus bus2 = newBus(new LoopbackInvalidationTransport("testSplitMessages"), cache);
+        try {
+            for (int i = 0; i < 50; i++) {
+                bus1.publish("test", "key" + i);
+            }
+            bus1.flush();
+            Assert.assertTrue(bus1.getSentCount() > 1);
+            Assert.assertEquals(bus1.getSentCount(), bus2.getReceivedCount());
+            Assert.assertEquals(50, bus2.getAppliedCount());
+            Assert.assertEquals(53, cache.estimatedSize());
+        } finally {
+            bus1.stop();
+            bus2.stop();
+        }
+    }
+
+    @Test
+    public void testUdp() throws Exception {
+        Cache<Object, Object> cache = newCache();
+        UdpInvalidationTransport transport2 = new UdpInvalidationTransport(LOCALHOST,
+                Collections.singletonList(UdpInvalidationTransport.parseAddress("127.0.0.1:1")), SECRET);
+        CaffeineCacheInvalidationBus bus2 = newBus(transport2, cache);
+        UdpInvalidationTransport transport1 = new UdpInvalidationTransport(LOCALHOST, Collections.singletonList(
+                UdpInvalidationTransport.parseAddress("127.0.0.1:" + transport2.getLocalPort())), SECRET);
+        CaffeineCacheInvalidationBus bus1 = newBus(transport1, newCache());
+        try {
+            // neither signed with the secret nor a message of the bus
+            try (DatagramSocket socket = new DatagramSocket(LOCALHOST)) {
+                byte[] forged = new byte[64];
+                socket.send(new DatagramPacket(forged, forged.length, LOCALHOST.getAddress(),
+                        transport2.getLocalPort()));
+            }
+            UdpInvalidationTransport forger = new UdpInvalidationTransport(LOCALHOST, Collections.singletonList(
+                    UdpInvalidationTransport.parseAddress("127.0.0.1:" + transport2.getLocalPort())),
+                    "another secret of the forger".getBytes(StandardCharsets.UTF_8));
+            CaffeineCacheInvalidationBus forgerBus = newBus(forger, newCache());
+            forgerBus.publishClear("test");
+            forgerBus.stop();
+
+            bus1.publish("test", "a");
+            bus1.flush();
+            Assert.assertTrue(BaseTest.await(() -> cache.getIfPresent(CacheKey.of("a")) == null, 2000));
+            Assert.assertEquals("b", cache.getIfPresent(CacheKey.of("b")));
+            Assert.assertEquals(1, bus2.getReceivedCount());
+        } finally {
+            bus1.stop();
+            bus2.stop();
+        }
+    }
+
+    @Test
+    public void testUdpUnknownPeer() throws Exception {
+        Cache<Object, Object> cache = newCache();
+        // the datagrams are sent from 127.0.0.1
+        UdpInvalidationTransport transport2 = new UdpInvalidationTransport(LOCALHOST,
+                Collections.singletonList(UdpInvalidationTransport.parseAddress("127.0.0.2:1")), SECRET);
+        CaffeineCacheInvalidationBus bus2 = newBus(transport2, cache);
+        UdpInvalidationTransport transport1 = new UdpInvalidationTransport(LOCALHOST, Collections.singletonList(
+                UdpInvalidationTransport.parseAddress("127.0.0.1:" + transport2.getLocalPort())), SECRET);
+        CaffeineCacheInvalidationBus bus1 = newBus(transport1, newCache());
+        try {
+            bus1.publishClear("test");
+            bus1.flush();
+            Assert.assertFalse(BaseTest.await(() -> bus2.getReceivedCount() > 0, 300));
+            Assert.assertEquals(3, cache.estimatedSize());
+        } finally {
+            bus1.stop();
+            bus2.stop();
+        }
+    }
+
+    @Test
+    public void testUndecodableKey() throws Exception {
+        Cache<Object, Object> cache = newCache();
+        Cache<Object, Object> other = newCache();
+        CaffeineCacheInvalidationBus bus = newBus(new LoopbackInvalidationTransport("testUndecodableKey"), cache);
+        bus.onCreated("other", other, null);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(0x43434931);
+            output.writeLong(0);
+            output.writeLong(0);
+            output.writeInt(2);
+            // a JDK serialized key is not accepted
+            byte[] serialized = JdkCacheValueSerializer.newInstance().serialize("a");
+            output.writeByte(1);
+            output.writeUTF("test");
+            output.writeInt(serialized.length);
+            output.write(serialized);
+            byte[] key = CaffeineCacheInvalidationKeyCodec.encode("b");
+            output.writeByte(1);
+            output.writeUTF("other");
+            output.writeInt(key.length);
+            output.write(key);
+            bus.receive(bytes.toByteArray());
+
+            // the cache of the bad entry is cleared, and the next entry is still applied
+            Assert.assertEquals(0, cache.estimatedSize());
+            Assert.assertNull(other.getIfPresent(CacheKey.of("b")));
+            Assert.assertEquals("a", other.getIfPresent(CacheKey.of("a")));
+            Assert.assertEquals(2, bus.getAppliedCount());
+            Assert.assertEquals(1, bus.getErrorCount());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    public void testSendFailure() {
+        Cache<Object, Object> cache = newCache();
+        AtomicInteger failures = new AtomicInteger(1);
+        LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport("testSendFailure") {
+            @Override
+            public void send(byte[] message) {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IllegalStateException("send failed");
+                }
+                super.send(message);
+            }
+
+            @Override
+            public int getMaxMessageSize() {
+                return 50;
+            }
+        };
+        CaffeineCacheInvalidationBus bus1 = newBus(transport, newCache());
+        CaffeineCacheInvalidationBus bus2 = newBus(new LoopbackInvalidationTransport("testSendFailure"), cache);
+        bus2.onCreated("other", newCache(), null);
+        try {
+            bus1.publish("test", "a");
+            bus1.publish("other", "a");
+            bus1.flush();
+            // the first message fails, the remaining one is still sent
+            Assert.assertEquals(1, bus1.getErrorCount());
+            Assert.assertEquals(1, bus1.getSentCount());
+            Assert.assertEquals(3, cache.estimatedSize());
+            // the failed cache is cleared on the next flush
+            bus1.flush();
+            Assert.assertEquals(2, bus1.getSentCount());
+            Assert.assertEquals(0, cache.estimatedSize());
+        } finally {
+            bus1.stop();
+            bus2.stop();
+        }
+    }
+
+    @Test
+    public void testKeyCodec() {
+        for (Object key : Arrays.asList("a", 1, 2L, (short) 3, (byte) 4, true, 'c', 1.5d, 2.5f,
+                new BigInteger("123456789012345678901234567890"), new BigDecimal("-1.25"), UUID.randomUUID(),
+                Arrays.asList("a", 1, Collections.singletonList(2L)))) {
+            Assert.assertEquals(key, CaffeineCacheInvalidationKeyCodec.decode(CaffeineCacheInvalidationKeyCodec
+                    .encode(key)));
+        }
+        try {
+            CaffeineCacheInvalidationKeyCodec.encode(new Object());
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            CaffeineCacheInvalidationKeyCodec.decode(JdkCacheValueSerializer.newInstance().serialize("a"));
+            Assert.fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWrappedCache() {
+        CaffeineCacheInvalidationBus bus = newBus(new LoopbackInvalidationTransport("testWrappedCache"), newCache());
+        try {
+            Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache = (Cache) newCache();
+            CaffeineCacheOperationContext loadContext = new CaffeineCacheOperationContext();
+            loadContext.setInvalidationBus(bus);
+            // the value loaded by @Cacheable is not broadcast
+            new WrappedCaffeineCache<>("test", cache, loadContext).put("a", "a");
+            Assert.assertEquals(0, bus.getPublishedCount());
+
+            CaffeineCacheOperationContext putContext = new CaffeineCacheOperationContext();
+            putContext.setInvalidationBus(bus);
+            putContext.setBroadcastPut(true);
+            new WrappedCaffeineCache<>("test", cache, putContext).put("a", "a");
+            Assert.assertEquals(1, bus.getPublishedCount());
+            new WrappedCaffeineCache<>("test", cache, loadContext).evict("a");
+            new WrappedCaffeineCache<>("test", cache, loadContext).clear();
+            Assert.assertEquals(3, bus.getPublishedCount());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    private static Cache<Object, Object> newCache() {
+        Cache<Object, Object> cache = Caffeine.newBuilder().build();
+        cache.put(CacheKey.of("a"), "a");
+        cache.put(CacheKey.of("b"), "b");
+        cache.put(CacheKey.of("c"), "c");
+        return cache;
+    }
+
+    private static CaffeineCacheInvalidationBus newBus(CacheInvalidationTransport transport,
+            Cache<Object, Object> cache) {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        CaffeineCacheInvalidationBus bus = new CaffeineCacheInvalidationBus(cacheResolver, transport, 60000, 1000);
+        bus.onCreated("test", cache, null);
+        bus.start();
+        return bus;
+    }
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.BaseSpringTest;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.InMemoryCacheStore;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.SaturationPolicy;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheL2StoreTest.L2StoreTestConfiguration;
+import com.google.common.util.concurrent.AtomicLongMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * CaffeineCacheL2StoreTest
+ *
+ * @author yangzexiong
+ */
+@TestPropertySource(properties = {"spring.cache.caffeine.l2CacheNames=l2,l2-negative"})
+@ContextConfiguration(classes = {L2StoreTestConfiguration.class})
+public class CaffeineCacheL2StoreTest extends BaseSpringTest {
+
+    @Autowired
+    private L2StoreTestService l2StoreTestService;
+
+    @Autowired
+    private CaffeineCacheResolver caffeineCacheResolver;
+
+    @Autowired
+    private CaffeineCacheMeterBinder caffeineCacheMeterBinder;
+
+    @Autowired
+    private InMemoryCacheStore cacheStore;
+
+    @Test
+    public void testL2Store() {
+        Assert.assertEquals(1L, l2StoreTestService.getL2("l2key1"));
+        Assert.assertEquals(1L, l2StoreTestService.getLocal("local1"));
+        // written through asynchronously
+        Assert.assertTrue(await(() -> cacheStore.size("l2") == 1, 1000));
+        // clear the local cache only, like another node
+        caffeineCacheResolver.getNativeCaffeineCache("l2", new CaffeineCacheOperationConfig()).invalidateAll();
+        Assert.assertEquals(1L, l2StoreTestService.getL2("l2key1"));
+        Assert.assertEquals(1L, L2StoreTestService.COUNT.get("l2key1"));
+        // only the configured caches use the l2 store
+        Assert.assertEquals(0, cacheStore.size("local"));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertEquals(1.0, registry.get("cache.l2.hits").tag("cache", "l2").functionCounter().count(), 0.0);
+        registry.close();
+    }
+
+    @Test
+    public void testNegativeWrite() {
+        Assert.assertNull(l2StoreTestService.getNegative("absent1"));
+        Assert.assertNull(l2StoreTestService.getNegative("absent1"));
+        Assert.assertTrue(await(() -> cacheStore.size("l2-negative") == 1, 1000));
+        // the ttl of the l2 store and the replacement do not count the negative write again
+        com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache
+                = caffeineCacheResolver.getNativeCaffeineCache("l2-negative", new CaffeineCacheOperationConfig());
+        CacheKey<Object, CaffeineCacheOperationContext> cacheKey = cache.asMap().keySet().iterator().next();
+        cache.asMap().replace(cacheKey, NullValue.INSTANCE);
+        Assert.assertEquals(1, caffeineCacheResolver.getNegativeStats("l2-negative").getWriteCount());
+        Assert.assertEquals(1, caffeineCacheResolver.getNegativeStats("l2-negative").getHitCount());
+    }
+
+    @Test
+    public void testWriteOffTheCallerThread() {
+        InMemoryCacheStore store = new InMemoryCacheStore();
+        AtomicInteger serialized = new AtomicInteger();
+        JdkCacheValueSerializer serializer = new JdkCacheValueSerializer() {
+            @Override
+            public byte[] serialize(Object value) {
+                serialized.incrementAndGet();
+                return super.serialize(value);
+            }
+        };
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        CaffeineCacheL2Tier l2Tier = new CaffeineCacheL2Tier("write", store, serializer,
+                new CaffeineCacheRefreshExecutor("write", tasks::add, 1, 0, SaturationPolicy.DISCARD));
+
+        // serialized and written by the executor
+        l2Tier.write("key1", "value1");
+        Assert.assertEquals(0, serialized.get());
+        Assert.assertEquals(0, store.size("write"));
+
+        // the executor is saturated, the write is dropped instead of running on the caller thread
+        l2Tier.write("key2", "value2");
+        Assert.assertEquals(1, l2Tier.getDroppedCount());
+        Assert.assertEquals(0, serialized.get());
+
+        tasks.poll().run();
+        Assert.assertEquals(1, store.size("write"));
+        Assert.assertEquals(1, l2Tier.getWriteCount());
+    }
+
+    @Test
+    public void testInvalidateWhenSaturated() {
+        InMemoryCacheStore store = new InMemoryCacheStore();
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("saturated");
+        };
+        JdkCacheValueSerializer serializer = new JdkCacheValueSerializer();
+        store.put("invalidate", serializer.serialize("key1"), serializer.serialize("value1"), 0);
+        CaffeineCacheL2Tier l2Tier = new CaffeineCacheL2Tier("invalidate", store, serializer, rejecting);
+
+        l2Tier.write("key2", "value2");
+        Assert.assertEquals(1, l2Tier.getDroppedCount());
+        // evicted on the caller thread so the store does not keep the old value
+        l2Tier.invalidate("key1");
+        Assert.assertEquals(0, store.size("invalidate"));
+    }
+
+    /**
+     * 测试用配置类
+     */
+    @TestConfiguration
+    @EnableCaffeineCaching
+    public static class L2StoreTestConfiguration {
+
+        @Bean
+        public L2StoreTestService l2StoreTestService() {
+            return new L2StoreTestService();
+        }
+
+        @Bean
+        public InMemoryCacheStore cacheStore() {
+            return new InMemoryCacheStore();
+        }
+    }
+
+    /**
+     * 测试用 service 服务
+     */
+    public static class L2StoreTestService {
+
+        public static final AtomicLongMap<String> COUNT = AtomicLongMap.create();
+
+        @CaffeineCacheable(cacheNames = "l2", expireAfterWrite = "60000")
+        public long getL2(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "local", expireAfterWrite = "60000")
+        public long getLocal(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "l2-negative", expireAfterWrite = "60000", negativeExpireAfterWrite = "60000")
+        public String getNegative(String key) {
+            COUNT.incrementAndGet(key);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheMeterBinderTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheMeterBinderTest {
+
+    private final CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(
+            new AnnotationCaffeineCacheConfigResolver());
+
+    private final CaffeineCacheMeterBinder meterBinder = new CaffeineCacheMeterBinder(cacheResolver);
+
+    @Test
+    public void testBindOnce() {
+        createCache("meter1");
+        MeterRegistry registry = new SimpleMeterRegistry();
+        meterBinder.bindTo(registry);
+        meterBinder.bindTo(registry);
+        Assert.assertTrue(isBound(registry, "meter1"));
+        createCache("meter2");
+        Assert.assertTrue(isBound(registry, "meter2"));
+
+        // only one listener was added for the registry
+        meterBinder.unbindFrom(registry);
+        createCache("meter3");
+        Assert.assertFalse(isBound(registry, "meter3"));
+    }
+
+    @Test
+    public void testClosedRegistry() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        meterBinder.bindTo(registry);
+        registry.close();
+        createCache("closed1");
+        Assert.assertFalse(isBound(registry, "closed1"));
+
+        // bound again as a new registry after the listener of the closed one is removed
+        MeterRegistry other = new SimpleMeterRegistry();
+        meterBinder.bindTo(other);
+        createCache("closed2");
+        Assert.assertTrue(isBound(other, "closed1"));
+        Assert.assertTrue(isBound(other, "closed2"));
+        Assert.assertFalse(isBound(registry, "closed2"));
+    }
+
+    private void createCache(String name) {
+        cacheResolver.getNativeCaffeineCache(name, new CaffeineCacheOperationConfig());
+    }
+
+    private static boolean isBound(MeterRegistry registry, String name) {
+        return registry.find("cache.reload.failures").tag("cache", name).functionCounter() != null;
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheOffHeapStore.Entry;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheOffHeapStoreTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheOffHeapStoreTest {
+
+    private static final long EXPIRE_TIME = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    public void testPutAndTake() {
+        CaffeineCacheOffHeapStore store = new CaffeineCacheOffHeapStore(4 * CaffeineCacheOffHeapStore.PAGE_SIZE);
+        Assert.assertTrue(store.put("a", bytes(100, 1), EXPIRE_TIME));
+        Assert.assertTrue(store.put("b", bytes(3000, 2), EXPIRE_TIME));
+        Assert.assertTrue(store.put("b", bytes(10, 3), EXPIRE_TIME));
+        Assert.assertFalse(store.put("c", bytes(CaffeineCacheOffHeapStore.PAGE_SIZE + 1, 4), EXPIRE_TIME));
+        Assert.assertTrue(store.put("d", bytes(10, 5), System.nanoTime() - 1));
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(120, store.getUsedBytes());
+
+        Entry entry = store.take("a");
+        Assert.assertArrayEquals(bytes(100, 1), entry.getBytes());
+        Assert.assertEquals(EXPIRE_TIME, entry.getExpireTime());
+        Assert.assertNull(store.take("a"));
+        Assert.assertArrayEquals(bytes(10, 3), store.take("b").getBytes());
+        // expired
+        Assert.assertNull(store.take("d"));
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    public void testEviction() {
+        CaffeineCacheOffHeapStore store = new CaffeineCacheOffHeapStore(2 * CaffeineCacheOffHeapStore.PAGE_SIZE);
+        int large = CaffeineCacheOffHeapStore.PAGE_SIZE / 2 + 1;
+        Assert.assertTrue(store.put("a", bytes(large, 1), EXPIRE_TIME));
+        Assert.assertTrue(store.put("b", bytes(large, 2), EXPIRE_TIME));
+        Assert.assertEquals(2 * CaffeineCacheOffHeapStore.PAGE_SIZE, store.getAllocatedBytes());
+        // no more pages, evict the eldest of the same size class
+        Assert.assertTrue(store.put("c", bytes(large, 3), EXPIRE_TIME));
+        Assert.assertEquals(1, store.getEvictionCount());
+        Assert.assertNull(store.take("a"));
+        Assert.assertArrayEquals(bytes(large, 2), store.take("b").getBytes());
+        Assert.assertArrayEquals(bytes(large, 3), store.take("c").getBytes());
+
+        // reclaim the page of the large size class for the small values
+        Assert.assertTrue(store.put("d", bytes(10, 4), EXPIRE_TIME));
+        Assert.assertTrue(store.put("e", bytes(large, 5), EXPIRE_TIME));
+        Assert.assertTrue(store.put("f", bytes(large, 6), EXPIRE_TIME));
+        Assert.assertTrue(store.put("g", bytes(10, 7), EXPIRE_TIME));
+        Assert.assertEquals(2, store.getEvictionCount());
+        Assert.assertNull(store.take("e"));
+        Assert.assertArrayEquals(bytes(10, 4), store.take("d").getBytes());
+        Assert.assertArrayEquals(bytes(large, 6), store.take("f").getBytes());
+        Assert.assertArrayEquals(bytes(10, 7), store.take("g").getBytes());
+
+        store.put("h", bytes(large, 8), EXPIRE_TIME);
+        store.clear();
+        Assert.assertEquals(0, store.size());
+        Assert.assertEquals(0, store.getUsedBytes());
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefresherTest.Invocation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * CaffeineCacheOffHeapTierTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheOffHeapTierTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private CaffeineCacheResolver cacheResolver;
+
+    private Cache cache;
+
+    @Before
+    public void setUp() {
+        cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        cacheResolver.setTicker(nanos::get);
+        Method method = ReflectionUtils.findMethod(Service.class, "get", String.class);
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheNames("offheap-ticker");
+        cache = cacheResolver.resolveCaches(new Invocation(builder.build(), new Service(), method, "key"))
+                .iterator().next();
+    }
+
+    @Test
+    public void testRemainingTimeByTicker() {
+        cache.put("a", "a");
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        evict("b");
+        Assert.assertEquals(1, cacheResolver.getOffHeapTier("offheap-ticker").getStore().size());
+
+        // the remaining 500ms is kept by the ticker of the cache
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals("a", cache.get("a").get());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+        Assert.assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testExpiredByTicker() {
+        cache.put("a", "a");
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        evict("b");
+
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(0, cacheResolver.getOffHeapTier("offheap-ticker").getStore().size());
+    }
+
+    /**
+     * 写入新值并立即执行容量淘汰，把之前的值淘汰到堆外。
+     */
+    private void evict(String key) {
+        cache.put(key, key);
+        cacheResolver.getNativeCaffeineCache("offheap-ticker", new CaffeineCacheOperationConfig()).cleanUp();
+    }
+
+    public static class Service {
+
+        @CaffeineCacheable(cacheNames = "offheap-ticker", maximumSize = "1", expireAfterWrite = "1000",
+                offHeapCapacity = "1")
+        public String get(String key) {
+            return key;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.RejectableTask;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheRefreshExecutor.SaturationPolicy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheRefreshExecutorTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRefreshExecutorTest {
+
+    private final ExecutorService delegate = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    public void testDiscardWhenSaturated() throws Exception {
+        CaffeineCacheRefreshExecutor executor = new CaffeineCacheRefreshExecutor("test", delegate, 1, 1,
+                SaturationPolicy.DISCARD);
+        CountDownLatch blocking = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        executor.execute(() -> {
+            await(blocking);
+            finished.countDown();
+        });
+        executor.execute(finished::countDown);
+        Assert.assertEquals(1, executor.getActiveCount());
+        Assert.assertEquals(1, executor.getQueueSize());
+
+        try {
+            executor.execute(() -> Assert.fail("should be discarded"));
+            Assert.fail();
+        } catch (RejectedExecutionException ex) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+        }
+
+        blocking.countDown();
+        Assert.assertTrue(finished.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        Assert.assertEquals(0, executor.getActiveCount());
+        Assert.assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated() {
+        CaffeineCacheRefreshExecutor executor = new CaffeineCacheRefreshExecutor("test", delegate, 1, 0,
+                SaturationPolicy.CALLER_RUNS);
+        CountDownLatch blocking = new CountDownLatch(1);
+        executor.execute(() -> await(blocking));
+
+        AtomicInteger count = new AtomicInteger();
+        Thread caller = Thread.currentThread();
+        executor.execute(() -> {
+            Assert.assertSame(caller, Thread.currentThread());
+            count.incrementAndGet();
+        });
+        blocking.countDown();
+        Assert.assertEquals(1, count.get());
+        Assert.assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testDiscardWhenDelegateRejects() throws Exception {
+        AtomicBoolean accepting = new AtomicBoolean(true);
+        CaffeineCacheRefreshExecutor executor = new CaffeineCacheRefreshExecutor("test", rejecting(accepting), 1, 2,
+                SaturationPolicy.DISCARD);
+        CountDownLatch blocking = new CountDownLatch(1);
+        executor.execute(() -> await(blocking));
+        accepting.set(false);
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        CompletableFuture<Object> second = new CompletableFuture<>();
+        executor.execute(RejectableTask.of(() -> first.complete("refreshed"), first::completeExceptionally));
+        executor.execute(RejectableTask.of(() -> second.complete("refreshed"), second::completeExceptionally));
+        Assert.assertEquals(2, executor.getQueueSize());
+
+        // all the queued tasks are rejected by the delegate when the running task finishes
+        blocking.countDown();
+        for (CompletableFuture<Object> future : new CompletableFuture[] {first, second}) {
+            try {
+                future.get(1, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof RejectedExecutionException);
+            }
+        }
+        Assert.assertEquals(2, executor.getRejectedCount());
+        Assert.assertEquals(0, executor.getActiveCount());
+        Assert.assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void testCallerRunsWhenDelegateRejects() throws Exception {
+        AtomicBoolean accepting = new AtomicBoolean(true);
+        CaffeineCacheRefreshExecutor executor = new CaffeineCacheRefreshExecutor("test", rejecting(accepting), 1, 1,
+                SaturationPolicy.CALLER_RUNS);
+        CountDownLatch blocking = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        executor.execute(() -> {
+            worker.set(Thread.currentThread());
+            await(blocking);
+        });
+        accepting.set(false);
+        CompletableFuture<Thread> future = new CompletableFuture<>();
+        executor.execute(() -> future.complete(Thread.currentThread()));
+
+        // the queued task runs on the thread draining the queue
+        blocking.countDown();
+        Thread runner = future.get(1, TimeUnit.SECONDS);
+        Assert.assertSame(worker.get(), runner);
+        Assert.assertEquals(1, executor.getRejectedCount());
+        Assert.assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void testRejectedDispatch() {
+        CaffeineCacheRefreshExecutor executor = new CaffeineCacheRefreshExecutor("test",
+                rejecting(new AtomicBoolean(false)), 1, 1, SaturationPolicy.DISCARD);
+        try {
+            executor.execute(() -> Assert.fail("should be rejected"));
+            Assert.fail();
+        } catch (RejectedExecutionException ex) {
+            Assert.assertEquals(1, executor.getRejectedCount());
+            Assert.assertEquals(0, executor.getActiveCount());
+        }
+    }
+
+    private Executor rejecting(AtomicBoolean accepting) {
+        return task -> {
+            if (!accepting.get()) {
+                throw new RejectedExecutionException("saturated");
+            }
+            delegate.execute(task);
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
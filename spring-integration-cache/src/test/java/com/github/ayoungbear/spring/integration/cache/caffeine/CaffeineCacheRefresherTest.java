@@ -0,0 +1,218 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * CaffeineCacheRefresherTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRefresherTest {
+
+    private static final long LOAD_TIME = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private volatile double random;
+
+    private CaffeineCacheResolver cacheResolver;
+
+    @Before
+    public void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("refreshExecutor", (Executor) tasks::add);
+        AnnotationCaffeineCacheConfigResolver configResolver = new AnnotationCaffeineCacheConfigResolver();
+        configResolver.setBeanFactory(beanFactory);
+        configResolver.setExecutorName("refreshExecutor");
+        cacheResolver = new CaffeineCacheResolver(configResolver);
+        cacheResolver.setTicker(nanos::get);
+        cacheResolver.setEarlyRefreshRandom(() -> random);
+    }
+
+    @Test
+    public void testEarlyRefresh() {
+        Service service = new Service(nanos);
+        load(service, "getEarly", "early1");
+        Assert.assertEquals(LOAD_TIME, refresher().getLoadTimeNanos());
+
+        // -200ms * ln(0.5) ≈ 139ms is less than the remaining 200ms
+        random = 0.5;
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(800));
+        Assert.assertEquals(1L, resolve(service, "getEarly").get("early1").get());
+        runTasks();
+        Assert.assertEquals(1L, service.count.get());
+
+        // 139ms is not less than the remaining 100ms, refreshed in background before expired
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(1L, resolve(service, "getEarly").get("early1").get());
+        runTasks();
+        Assert.assertEquals(2L, service.count.get());
+        Assert.assertEquals(2L, resolve(service, "getEarly").get("early1").get());
+    }
+
+    @Test
+    public void testNoEarlyRefreshWithSmallChance() {
+        Service service = new Service(nanos);
+        load(service, "getEarly", "early2");
+
+        // -200ms * ln(0.99) ≈ 2ms is less than the remaining 10ms
+        random = 0.99;
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(990));
+        Assert.assertEquals(1L, resolve(service, "getEarly").get("early2").get());
+        runTasks();
+        Assert.assertEquals(1L, service.count.get());
+    }
+
+    @Test
+    public void testEarlyRefreshWithMaxStale() {
+        Service service = new Service(nanos);
+        load(service, "getEarlyStale", "early3");
+
+        // -200ms * ln(0.5) ≈ 139ms is not less than the remaining fresh 100ms, although kept for another 2000ms
+        random = 0.5;
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(900));
+        Assert.assertEquals(1L, resolve(service, "getEarlyStale").get("early3").get());
+        runTasks();
+        Assert.assertEquals(2L, service.count.get());
+        Assert.assertEquals(2L, resolve(service, "getEarlyStale").get("early3").get());
+    }
+
+    /**
+     * 缓存未命中后由缓存方法加载，加载耗时 200ms，之后的刷新不再耗时。
+     */
+    private void load(Service service, String methodName, String key) {
+        Cache cache = resolve(service, methodName);
+        Assert.assertNull(cache.get(key));
+        service.loadTime = LOAD_TIME;
+        cache.put(key, ReflectionUtils.invokeMethod(method(methodName), service, key));
+        service.loadTime = 0;
+    }
+
+    private CaffeineCacheRefresher refresher() {
+        CaffeineCacheRefresher[] refresher = new CaffeineCacheRefresher[1];
+        cacheResolver.addCreationListener((name, cache, cacheRefresher) -> {
+            if (name.equals("early")) {
+                refresher[0] = cacheRefresher;
+            }
+        });
+        return refresher[0];
+    }
+
+    private Cache resolve(Service service, String methodName) {
+        Method method = method(methodName);
+        CacheableOperation.Builder builder = new CacheableOperation.Builder();
+        builder.setCacheNames(method.getAnnotation(CaffeineCacheable.class).cacheNames());
+        return cacheResolver.resolveCaches(new Invocation(builder.build(), service, method, "key")).iterator().next();
+    }
+
+    private static Method method(String methodName) {
+        return ReflectionUtils.findMethod(Service.class, methodName, String.class);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    public static class Service {
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong nanos;
+
+        private volatile long loadTime;
+
+        Service(AtomicLong nanos) {
+            this.nanos = nanos;
+        }
+
+        @CaffeineCacheable(cacheNames = "early", expireAfterWrite = "1000", refreshAfterWrite = "0",
+                earlyRefresh = true)
+        public long getEarly(String key) {
+            nanos.addAndGet(loadTime);
+            return count.incrementAndGet();
+        }
+
+        @CaffeineCacheable(cacheNames = "early-stale", expireAfterWrite = "1000", refreshAfterWrite = "0",
+                maxStale = "2000", earlyRefresh = true)
+        public long getEarlyStale(String key) {
+            nanos.addAndGet(loadTime);
+            return count.incrementAndGet();
+        }
+
+    }
+
+    static class Invocation implements CacheOperationInvocationContext<BasicOperation> {
+
+        private final BasicOperation operation;
+
+        private final Object target;
+
+        private final Method method;
+
+        private final Object[] args;
+
+        Invocation(BasicOperation operation, Object target, Method method, Object... args) {
+            this.operation = operation;
+            this.target = target;
+            this.method = method;
+            this.args = args;
+        }
+
+        @Override
+        public BasicOperation getOperation() {
+            return operation;
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArgs() {
+            return args;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheRemovalPipelineTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheRemovalPipelineTest {
+
+    @Test
+    public void testRemovalPipeline() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CaffeineCacheRemovalPipeline pipeline = new CaffeineCacheRemovalPipeline("removal",
+                Arrays.asList(SimpleCaffeineCacheListener.newInstance(), (cacheName, key, value, cause) -> {
+                    events.add(cacheName + ":" + key + "=" + value + ":" + cause);
+                    threads.add(Thread.currentThread().getName());
+                }));
+        Cache<String, String> cache = Caffeine.newBuilder().executor(Runnable::run).removalListener(pipeline)
+                .build();
+        cache.put("1", "a");
+        cache.put("1", "b");
+        cache.put("2", "c");
+        cache.invalidate("2");
+
+        Assert.assertEquals(1, pipeline.removalCount(RemovalCause.REPLACED));
+        Assert.assertEquals(1, pipeline.removalCount(RemovalCause.EXPLICIT));
+        for (int i = 0; i < 20 && events.size() < 2; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(Arrays.asList("removal:1=a:REPLACED", "removal:2=c:EXPLICIT"), events);
+        Assert.assertEquals("caffeine-cache-removal", threads.get(0));
+        Assert.assertEquals(0, pipeline.getPendingCount());
+        Assert.assertEquals(0, pipeline.getDroppedCount());
+        pipeline.close();
+    }
+
+    @Test
+    public void testClose() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CaffeineCacheRemovalPipeline pipeline = new CaffeineCacheRemovalPipeline("close",
+                Arrays.asList((cacheName, key, value, cause) -> events.add(key + "=" + value)));
+        Cache<String, String> cache = Caffeine.newBuilder().executor(Runnable::run).removalListener(pipeline)
+                .build();
+        cache.put("1", "a");
+        cache.invalidate("1");
+        // the pending events are handled on close
+        pipeline.close();
+        Assert.assertEquals(Arrays.asList("1=a"), events);
+
+        cache.put("2", "b");
+        cache.invalidate("2");
+        Assert.assertEquals(2, pipeline.removalCount(RemovalCause.EXPLICIT));
+        Assert.assertEquals(0, pipeline.getPendingCount());
+        Assert.assertEquals(Arrays.asList("1=a"), events);
+    }
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.BaseSpringTest;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheReuseHandlesTest.ReuseHandlesTestConfiguration;
+import com.google.common.util.concurrent.AtomicLongMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * CaffeineCacheReuseHandlesTest
+ *
+ * @author yangzexiong
+ */
+@TestPropertySource(properties = {"spring.cache.caffeine.reuseCacheHandles=true"})
+@ContextConfiguration(classes = {ReuseHandlesTestConfiguration.class})
+public class CaffeineCacheReuseHandlesTest extends BaseSpringTest {
+
+    @Autowired
+    private ReuseHandlesTestService reuseHandlesTestService;
+
+    @Autowired
+    private CaffeineCacheResolver caffeineCacheResolver;
+
+    @Before
+    public void setUp() throws Exception {
+        ReuseHandlesTestService.COUNT.clear();
+    }
+
+    @Test
+    public void testReuse() {
+        Assert.assertTrue(caffeineCacheResolver.isReuseCacheHandles());
+        Assert.assertEquals(1L, reuseHandlesTestService.get("key1"));
+        Assert.assertEquals(1L, reuseHandlesTestService.get("key1"));
+        Assert.assertEquals(1L, reuseHandlesTestService.get("key2"));
+        Assert.assertEquals(1L, ReuseHandlesTestService.COUNT.get("key1"));
+
+        com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache
+                = caffeineCacheResolver.getNativeCaffeineCache("reuse", new CaffeineCacheOperationConfig());
+        Assert.assertEquals(2, cache.estimatedSize());
+        CaffeineCacheOperationContext context = null;
+        for (CacheKey<Object, CaffeineCacheOperationContext> cacheKey : cache.asMap().keySet()) {
+            // every key keeps the args of its own invocation and refers to the same context
+            Assert.assertArrayEquals(new Object[] {cacheKey.getKey()}, ((InvocationCacheKey) cacheKey).getArgs());
+            Assert.assertTrue(context == null || context == cacheKey.getContext());
+            context = cacheKey.getContext();
+        }
+    }
+
+    @Test
+    public void testMultipleCaches() {
+        Assert.assertEquals(1L, reuseHandlesTestService.getMultiple("multi1"));
+        Assert.assertEquals(1L, reuseHandlesTestService.getMultiple("multi1"));
+        Assert.assertEquals(1L, ReuseHandlesTestService.COUNT.get("multi1"));
+        for (String name : new String[] {"reuse-a", "reuse-b"}) {
+            com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache
+                    = caffeineCacheResolver.getNativeCaffeineCache(name, new CaffeineCacheOperationConfig());
+            CacheKey<Object, CaffeineCacheOperationContext> cacheKey = cache.asMap().keySet().iterator().next();
+            Assert.assertArrayEquals(new Object[] {"multi1"}, ((InvocationCacheKey) cacheKey).getArgs());
+        }
+    }
+
+    @Test
+    public void testNestedInvocation() {
+        Assert.assertEquals("nested1-1", reuseHandlesTestService.getNested("nested1"));
+        Assert.assertEquals("nested1-1", reuseHandlesTestService.getNested("nested1"));
+        Assert.assertEquals(1L, ReuseHandlesTestService.COUNT.get("nested1-inner"));
+        // the outer key keeps its own args although the nested cached method is invoked before it is stored
+        com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache
+                = caffeineCacheResolver.getNativeCaffeineCache("reuse-nested", new CaffeineCacheOperationConfig());
+        CacheKey<Object, CaffeineCacheOperationContext> cacheKey = cache.asMap().keySet().iterator().next();
+        Assert.assertArrayEquals(new Object[] {"nested1"}, ((InvocationCacheKey) cacheKey).getArgs());
+    }
+
+    @Test
+    public void testInvocationDependentConfig() {
+        // the config depends on the args, the handles are not reused and the config is resolved per invocation
+        Assert.assertEquals(1L, reuseHandlesTestService.getExpr("expr1", 300));
+        Assert.assertEquals(1L, reuseHandlesTestService.getExpr("expr1", 300));
+        Assert.assertTrue(await(() -> reuseHandlesTestService.getExpr("expr1", 300) == 2L, 2000));
+        Assert.assertEquals(1L, reuseHandlesTestService.getExpr("expr2", 60000));
+        sleep(400);
+        Assert.assertEquals(1L, reuseHandlesTestService.getExpr("expr2", 60000));
+    }
+
+    /**
+     * 测试用配置类
+     */
+    @TestConfiguration
+    @EnableCaffeineCaching
+    public static class ReuseHandlesTestConfiguration {
+
+        @Bean
+        public ReuseHandlesTestService reuseHandlesTestService() {
+            return new ReuseHandlesTestService();
+        }
+    }
+
+    /**
+     * 测试用 service 服务
+     */
+    @CaffeineCacheConfig(maximumSize = "100", expireAfterWrite = "60000")
+    public static class ReuseHandlesTestService {
+
+        public static final AtomicLongMap<String> COUNT = AtomicLongMap.create();
+
+        @Lazy
+        @Autowired
+        private ReuseHandlesTestService self;
+
+        @CaffeineCacheable(cacheNames = "reuse")
+        public long get(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = {"reuse-a", "reuse-b"})
+        public long getMultiple(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "reuse-nested")
+        public String getNested(String key) {
+            COUNT.incrementAndGet(key);
+            return key + "-" + self.get(key + "-inner");
+        }
+
+        @CaffeineCacheable(cacheNames = "reuse-expr", key = "#key", expireAfterWrite = "#expireAfterWrite")
+        public long getExpr(String key, int expireAfterWrite) {
+            return COUNT.incrementAndGet(key);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * CaffeineCacheSnapshotTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRestore() throws Exception {
+        CaffeineCacheOperationContext context = new CaffeineCacheOperationContext();
+        context.setExpireAfterWrite(60000);
+        context.setMaxStale(30000);
+        CaffeineCacheOperationContext shortContext = new CaffeineCacheOperationContext();
+        shortContext.setExpireAfterWrite(50);
+
+        Cache<CacheKey, Object> cache = newCache();
+        cache.put(CacheKey.of("a", context), "value-a");
+        cache.put(CacheKey.of("b", shortContext), "value-b");
+        // not serializable
+        cache.put(CacheKey.of("c", context), new Object());
+        Path path = folder.getRoot().toPath().resolve("cache.snapshot");
+        Assert.assertEquals(2, CaffeineCacheSnapshotFile.write(path, Collections.singletonMap("test", cache),
+                JdkCacheValueSerializer.newInstance()));
+
+        Thread.sleep(100);
+        Map<String, CaffeineCacheSnapshot> snapshots = CaffeineCacheSnapshotFile
+                .read(path, JdkCacheValueSerializer.newInstance());
+        CaffeineCacheSnapshot snapshot = snapshots.get("test");
+        // the expired entry is skipped
+        Assert.assertEquals(1, snapshot.size());
+
+        Cache<CacheKey, Object> restored = newCache();
+        CacheKey key = CacheKey.of("a", context);
+        Assert.assertEquals("value-a", snapshot.restore(restored, key));
+        Assert.assertEquals("value-a", restored.getIfPresent(key));
+        long expiresAfter = restored.policy().expireVariably().get().getExpiresAfter(key, TimeUnit.MILLISECONDS)
+                .getAsLong();
+        // the max stale time is not restored
+        Assert.assertTrue(String.valueOf(expiresAfter), expiresAfter > 50000 && expiresAfter <= 60000);
+        Assert.assertNull(snapshot.restore(newCache(), key));
+        Assert.assertEquals(1, snapshot.getRestoredCount());
+
+        snapshot = CaffeineCacheSnapshotFile.read(path, JdkCacheValueSerializer.newInstance()).get("test");
+        snapshot.invalidate("a");
+        Assert.assertNull(snapshot.restore(newCache(), key));
+    }
+
+    private static Cache<CacheKey, Object> newCache() {
+        return Caffeine.newBuilder().executor(Runnable::run).expireAfter(CacheKeyExpiry.newInstance()).build();
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.DeflateCacheValueCodec;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheValueCompressor.CompressedValue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CaffeineCacheValueCompressorTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheValueCompressorTest {
+
+    @Test
+    public void testCompress() {
+        CaffeineCacheValueCompressor compressor = new CaffeineCacheValueCompressor("test", 1024,
+                JdkCacheValueSerializer.newInstance(), DeflateCacheValueCodec.newInstance(), 0);
+        List<String> value = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            value.add("value-" + (i % 10));
+        }
+        Object stored = compressor.compress(value);
+        Assert.assertTrue(stored instanceof CompressedValue);
+        Assert.assertTrue(((CompressedValue) stored).getSize() * 5 < ((CompressedValue) stored).getLength());
+        Assert.assertSame(stored, compressor.compress(stored));
+        Assert.assertEquals(value, compressor.decompress(stored));
+        Assert.assertEquals(value, compressor.decompress(stored));
+        // decoded on every read without the decoded cache
+        Assert.assertEquals(2, compressor.getDecodedCount());
+
+        // below the threshold, not serializable, or incompressible
+        Assert.assertEquals("small", compressor.compress("small"));
+        Object unserializable = new Object[]{new Object(), value};
+        Assert.assertSame(unserializable, compressor.compress(unserializable));
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        Assert.assertSame(random, compressor.compress(random));
+        Assert.assertEquals("small", compressor.decompress("small"));
+        Assert.assertEquals(1, compressor.getCompressedCount());
+    }
+
+    @Test
+    public void testDecodedCache() {
+        CaffeineCacheValueCompressor compressor = new CaffeineCacheValueCompressor("test", 64,
+                JdkCacheValueSerializer.newInstance(), new DeflateCacheValueCodec(9), 16);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            value.append("compressed");
+        }
+        Object stored = compressor.compress(value.toString());
+        Assert.assertEquals(value.toString(), compressor.decompress(stored));
+        Assert.assertEquals(value.toString(), compressor.decompress(stored));
+        Assert.assertEquals(0, compressor.getDecodedCount());
+        Assert.assertEquals(2, compressor.getDecodedHitCount());
+
+        // the serialized copy is decoded again
+        Object copy = JdkCacheValueSerializer.newInstance().deserialize(JdkCacheValueSerializer.newInstance()
+                .serialize(stored));
+        Assert.assertEquals(value.toString(), compressor.decompress(copy));
+        Assert.assertEquals(1, compressor.getDecodedCount());
+    }
+
+}
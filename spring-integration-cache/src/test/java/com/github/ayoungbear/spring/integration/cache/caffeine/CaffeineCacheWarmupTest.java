@@ -0,0 +1,129 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.CacheValueInvoker;
+import com.github.ayoungbear.spring.integration.cache.JdkCacheValueSerializer;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheHotKeys.HotKey;
+import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheWarmupFile.Invocation;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+/**
+ * CaffeineCacheWarmupTest
+ *
+ * @author yangzexiong
+ */
+public class CaffeineCacheWarmupTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndReplay() throws Exception {
+        WarmupTarget target = new WarmupTarget();
+        Method method = WarmupTarget.class.getMethod("load", String.class, int.class);
+        CaffeineCacheHotKeys hotKeys = new CaffeineCacheHotKeys(2, 1, 60000, 1024, true);
+        for (int i = 0; i < 100; i++) {
+            hotKeys.record(newKey("hot1", new CacheValueInvoker(method, target, new Object[]{"hot1", 1}, false)));
+            if (i % 2 == 0) {
+                hotKeys.record(newKey("hot2", new CacheValueInvoker(method, target, new Object[]{"hot2", 2}, false)));
+            }
+            hotKeys.record(newKey("cold" + i, new CacheValueInvoker(method, target, new Object[]{"cold", i}, false)));
+        }
+        List<HotKey> topKeys = hotKeys.getTopKeys();
+        Assert.assertEquals(WarmupTarget.class, topKeys.get(0).getTargetClass());
+        Assert.assertEquals(method, topKeys.get(0).getMethod());
+        Assert.assertArrayEquals(new Object[]{"hot1", 1}, topKeys.get(0).getArgs());
+        // the context is not retained
+        Assert.assertNull(topKeys.get(0).getKey().getContext());
+
+        Path path = folder.getRoot().toPath().resolve("cache.warmup");
+        Assert.assertEquals(2, CaffeineCacheWarmupFile.write(path, Collections.singletonMap("test", topKeys),
+                JdkCacheValueSerializer.newInstance()));
+        List<Invocation> invocations = CaffeineCacheWarmupFile.read(path, JdkCacheValueSerializer.newInstance());
+        Assert.assertEquals(2, invocations.size());
+        Assert.assertEquals("test", invocations.get(0).getCacheName());
+        Assert.assertEquals(method, invocations.get(0).getMethod());
+        Assert.assertArrayEquals(new Object[]{"hot1", 1}, invocations.get(0).getArgs());
+
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("warmupTarget", target);
+        CaffeineCacheWarmupManager warmupManager = new CaffeineCacheWarmupManager(newResolver(), beanFactory, path, 2,
+                10000);
+        Assert.assertFalse(warmupManager.isReady());
+        Assert.assertEquals(2, warmupManager.replay());
+        Assert.assertTrue(warmupManager.isReady());
+        Assert.assertEquals(1.0, warmupManager.getProgress(), 0.0);
+        Assert.assertEquals(2, target.loaded.size());
+        Assert.assertTrue(target.loaded.contains("hot1:1"));
+        Assert.assertTrue(target.loaded.contains("hot2:2"));
+    }
+
+    @Test
+    public void testReplayTimeout() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("missing.warmup");
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        WarmupTarget target = new WarmupTarget();
+        beanFactory.registerSingleton("warmupTarget", target);
+        CaffeineCacheWarmupManager warmupManager = new CaffeineCacheWarmupManager(newResolver(), beanFactory, path, 1,
+                0);
+        // no warmup file
+        Assert.assertEquals(0, warmupManager.replay());
+        Assert.assertEquals(1.0, warmupManager.getProgress(), 0.0);
+
+        Method method = WarmupTarget.class.getMethod("load", String.class, int.class);
+        Assert.assertEquals(0, warmupManager.replay(Collections.singletonList(
+                new Invocation("test", WarmupTarget.class, method, new Object[]{"key", 0}, 1.0))));
+        Assert.assertTrue(warmupManager.isReady());
+        Assert.assertTrue(target.loaded.isEmpty());
+    }
+
+    private static CaffeineCacheResolver newResolver() {
+        CaffeineCacheResolver cacheResolver = new CaffeineCacheResolver(new AnnotationCaffeineCacheConfigResolver());
+        cacheResolver.setHotKeyTopK(2);
+        cacheResolver.setHotKeyRecordInvocations(true);
+        return cacheResolver;
+    }
+
+    private static CacheKey newKey(String key, CacheValueInvoker invoker) {
+        CaffeineCacheOperationContext context = new CaffeineCacheOperationContext();
+        context.setCacheLoader(invoker);
+        return CacheKey.of(key, context);
+    }
+
+    public static class WarmupTarget {
+
+        private final List<String> loaded = new CopyOnWriteArrayList<>();
+
+        public String load(String key, int version) {
+            loaded.add(key + ":" + version);
+            return key;
+        }
+
+    }
+
+}
@@ -17,9 +17,26 @@
 package com.github.ayoungbear.spring.integration.cache.caffeine;
 
 import com.github.ayoungbear.spring.integration.BaseSpringTest;
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.ayoungbear.spring.integration.cache.InvocationCacheKey;
 import com.github.ayoungbear.spring.integration.cache.caffeine.CaffeineCacheableTest.CaffeineCacheTestConfiguration;
 import com.google.common.util.concurrent.AtomicLongMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -30,9 +47,12 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * CaffeineCacheableTest
@@ -47,6 +67,12 @@ public class CaffeineCacheableTest extends BaseSpringTest {
     @Autowired
     private CaffeineCacheTestService caffeineCacheTestService;
 
+    @Autowired
+    private CaffeineCacheMeterBinder caffeineCacheMeterBinder;
+
+    @Autowired
+    private CaffeineCacheResolver caffeineCacheResolver;
+
     @Before
     public void setUp() throws Exception {
         CaffeineCacheTestService.COUNT.clear();
@@ -118,6 +144,231 @@ public class CaffeineCacheableTest extends BaseSpringTest {
         Assert.assertEquals(4L, caffeineCacheTestService.getCache("100"));
     }
 
+    @Test
+    public void testAsyncCaffeineCacheable() {
+        CompletableFuture<Long> first = caffeineCacheTestService.getFuture("async1");
+        CompletableFuture<Long> second = caffeineCacheTestService.getFuture("async1");
+        Assert.assertFalse(first.isDone());
+        Assert.assertEquals(1L, first.join().longValue());
+        Assert.assertEquals(1L, second.join().longValue());
+        Assert.assertEquals(1L, caffeineCacheTestService.getFuture("async1").join().longValue());
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("async1"));
+    }
+
+    @Test
+    public void testBulkCaffeineCacheable() {
+        CaffeineCacheTestService.BULK_INVOCATIONS.clear();
+        Assert.assertEquals(Arrays.asList("bulk1-1", "bulk2-1"),
+                caffeineCacheTestService.getBulk(Arrays.asList("bulk1", "bulk2")));
+        Assert.assertEquals(Arrays.asList("bulk2-1", "bulk3-1", "bulk1-1"),
+                caffeineCacheTestService.getBulk(Arrays.asList("bulk2", "bulk3", "bulk1")));
+        Assert.assertEquals(Arrays.asList(Arrays.asList("bulk1", "bulk2"), Collections.singletonList("bulk3")),
+                CaffeineCacheTestService.BULK_INVOCATIONS);
+        // the null element is skipped
+        Assert.assertEquals(Arrays.asList("bulk4-1", "bulk1-1"),
+                caffeineCacheTestService.getBulk(Arrays.asList("bulk4", null, "bulk1")));
+        Assert.assertEquals(Collections.singletonList("bulk4"), CaffeineCacheTestService.BULK_INVOCATIONS.get(2));
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("bulk3", "a-bulk3");
+        expected.put("bulk1", "a-bulk1");
+        Assert.assertEquals(expected, caffeineCacheTestService.getBulkMap("a", new HashSet<>(expected.keySet())));
+        Assert.assertEquals(expected, caffeineCacheTestService.getBulkMap("a", new HashSet<>(expected.keySet())));
+        Assert.assertEquals("b-bulk1",
+                caffeineCacheTestService.getBulkMap("b", Collections.singleton("bulk1")).get("bulk1"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("a-bulk1"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("b-bulk1"));
+    }
+
+    @Test
+    public void testRefreshPerKey() {
+        Assert.assertEquals(1L, caffeineCacheTestService.getRefresh("refresh1", 300));
+        Assert.assertEquals(1L, caffeineCacheTestService.getRefresh("refresh2", 3000));
+
+        sleep(400);
+        Assert.assertEquals(1L, caffeineCacheTestService.getRefresh("refresh1", 300));
+        Assert.assertEquals(1L, caffeineCacheTestService.getRefresh("refresh2", 3000));
+        sleep(100);
+        Assert.assertEquals(2L, caffeineCacheTestService.getRefresh("refresh1", 300));
+        Assert.assertEquals(1L, caffeineCacheTestService.getRefresh("refresh2", 3000));
+    }
+
+    @Test
+    public void testServeStaleOnError() {
+        Assert.assertEquals(1L, caffeineCacheTestService.getStale("stale1"));
+        CaffeineCacheTestService.failing = true;
+        try {
+            sleep(600);
+            // expired but the reload fails, so the stale value is returned
+            Assert.assertEquals(1L, caffeineCacheTestService.getStale("stale1"));
+            Assert.assertEquals(1L, caffeineCacheTestService.getStale("stale1"));
+        } finally {
+            CaffeineCacheTestService.failing = false;
+        }
+        // reloaded by the background retry
+        Assert.assertTrue(await(() -> CaffeineCacheTestService.COUNT.get("stale1") == 2L, 5000));
+        // the retried value is stored right after the invocation
+        Assert.assertTrue(await(() -> caffeineCacheTestService.getStale("stale1") == 2L, 1000));
+        Assert.assertEquals(2L, CaffeineCacheTestService.COUNT.get("stale1"));
+    }
+
+    @Test
+    public void testStaleReloadInBackground() {
+        Assert.assertEquals(1L, caffeineCacheTestService.getStale("stale2"));
+        sleep(600);
+        // expired, the stale value is returned right away and reloaded by the refresh executor
+        Assert.assertEquals(1L, caffeineCacheTestService.getStale("stale2"));
+        Assert.assertTrue(await(() -> caffeineCacheTestService.getStale("stale2") == 2L, 1000));
+        Assert.assertEquals(2L, CaffeineCacheTestService.COUNT.get("stale2"));
+    }
+
+    @Test
+    public void testNestedInvocation() {
+        Assert.assertEquals("nested1-1", caffeineCacheTestService.getNested("nested1"));
+        Assert.assertEquals("nested1-1", caffeineCacheTestService.getNested("nested1"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("nested1-inner"));
+        // the outer key keeps its own args although the nested cached method is invoked before it is stored
+        com.github.benmanes.caffeine.cache.Cache<CacheKey<Object, CaffeineCacheOperationContext>, Object> cache
+                = caffeineCacheResolver.getNativeCaffeineCache("nested", new CaffeineCacheOperationConfig());
+        CacheKey<Object, CaffeineCacheOperationContext> cacheKey = cache.asMap().keySet().iterator().next();
+        Assert.assertArrayEquals(new Object[] {"nested1"}, ((InvocationCacheKey) cacheKey).getArgs());
+    }
+
+    @Test
+    public void testCacheMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertEquals(1L, caffeineCacheTestService.getStats("stats1"));
+        Assert.assertEquals(1L, caffeineCacheTestService.getStats("stats1"));
+        Assert.assertEquals(1L, caffeineCacheTestService.getStats("stats2"));
+
+        Assert.assertEquals(1, registry.get("cache.gets").tag("cache", "stats").tag("result", "hit")
+                .functionCounter().count(), 0);
+        Assert.assertEquals(2, registry.get("cache.gets").tag("cache", "stats").tag("result", "miss")
+                .functionCounter().count(), 0);
+        Assert.assertEquals(2, registry.get("cache.load").tag("cache", "stats").tag("result", "success")
+                .functionCounter().count(), 0);
+        Assert.assertEquals(2, registry.get("cache.size").tag("cache", "stats").gauge().value(), 0);
+        Assert.assertEquals(0, registry.get("cache.refresh.queue.size").tag("cache", "stats").gauge().value(), 0);
+        Assert.assertEquals(0, registry.get("cache.eviction.count").tag("cache", "stats").tag("cause", "SIZE")
+                .functionCounter().count(), 0);
+    }
+
+    @Test
+    public void testWeakValues() {
+        WeakReference<String> value = new WeakReference<>(caffeineCacheTestService.getWeak("weak1"));
+        Assert.assertSame(value.get(), caffeineCacheTestService.getWeak("weak1"));
+        Assert.assertEquals("weak1-1", value.get());
+        // only weakly reachable from the cache, a strongly held value would never be cleared
+        Assert.assertTrue(await(() -> {
+            System.gc();
+            return value.get() == null;
+        }, 5000));
+        // the value is collected and reloaded
+        Assert.assertEquals("weak1-2", caffeineCacheTestService.getWeak("weak1"));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertTrue(await(() -> registry.get("cache.removals").tag("cache", "weak").tag("cause", "COLLECTED")
+                .functionCounter().count() >= 1, 5000));
+    }
+
+    @Test
+    public void testOffHeapTier() {
+        for (String key : Arrays.asList("offheap1", "offheap2", "offheap3")) {
+            Assert.assertEquals(1L, caffeineCacheTestService.getOffHeap(key));
+        }
+        // run the pending size eviction now instead of waiting for the maintenance
+        caffeineCacheResolver.getNativeCaffeineCache("offheap", new CaffeineCacheOperationConfig()).cleanUp();
+        // the evicted values are promoted back from the off-heap tier
+        for (String key : Arrays.asList("offheap1", "offheap2", "offheap3")) {
+            Assert.assertEquals(1L, caffeineCacheTestService.getOffHeap(key));
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertTrue(registry.get("cache.offheap.hits").tag("cache", "offheap").functionCounter().count() > 0);
+    }
+
+    @Test
+    public void testCompression() {
+        String value = String.join("", Collections.nCopies(200, "compress1"));
+        Assert.assertEquals(value, caffeineCacheTestService.getCompressed("compress1", 200));
+        Assert.assertEquals(value, caffeineCacheTestService.getCompressed("compress1", 200));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("compress1"));
+        // below the threshold
+        Assert.assertEquals("compress2", caffeineCacheTestService.getCompressed("compress2", 1));
+        Assert.assertEquals("compress2", caffeineCacheTestService.getCompressed("compress2", 1));
+
+        CaffeineCacheValueCompressor compressor = caffeineCacheResolver.getValueCompressor("compressed");
+        Assert.assertEquals(1, compressor.getCompressedCount());
+        Assert.assertTrue(compressor.getCompressionRatio() < 0.1);
+        Assert.assertEquals(1, compressor.getDecodedHitCount());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertEquals(1.0, registry.get("cache.compression.compressed").tag("cache", "compressed")
+                .functionCounter().count(), 0.0);
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        Assert.assertNull(caffeineCacheTestService.getNegative("absent1"));
+        Assert.assertNull(caffeineCacheTestService.getNegative("absent1"));
+        Assert.assertEquals(Collections.emptyList(), caffeineCacheTestService.getNegativeList("absent2"));
+        Assert.assertEquals(Collections.emptyList(), caffeineCacheTestService.getNegativeList("absent2"));
+        Assert.assertEquals("present1", caffeineCacheTestService.getNegative("present1"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("absent1"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("absent2"));
+
+        // the negative results expire earlier
+        sleep(350);
+        Assert.assertNull(caffeineCacheTestService.getNegative("absent1"));
+        Assert.assertEquals(Collections.emptyList(), caffeineCacheTestService.getNegativeList("absent2"));
+        Assert.assertEquals("present1", caffeineCacheTestService.getNegative("present1"));
+        Assert.assertEquals(2L, CaffeineCacheTestService.COUNT.get("absent1"));
+        Assert.assertEquals(2L, CaffeineCacheTestService.COUNT.get("absent2"));
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("present1"));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        caffeineCacheMeterBinder.bindTo(registry);
+        Assert.assertEquals(4.0, registry.get("cache.negative.writes").tag("cache", "negative").functionCounter()
+                .count(), 0.0);
+        Assert.assertEquals(2.0, registry.get("cache.negative.hits").tag("cache", "negative").functionCounter()
+                .count(), 0.0);
+    }
+
+    @Test
+    public void testBatchRefresh() {
+        CaffeineCacheTestService.BULK_INVOCATIONS.clear();
+        Assert.assertEquals("batch1-1", caffeineCacheTestService.getBatch("batch1"));
+        Assert.assertEquals("batch2-1", caffeineCacheTestService.getBatch("batch2"));
+        Assert.assertEquals("batch3-1", caffeineCacheTestService.getBatch("batch3"));
+
+        sleep(600);
+        Assert.assertEquals("batch1-1", caffeineCacheTestService.getBatch("batch1"));
+        Assert.assertEquals("batch2-1", caffeineCacheTestService.getBatch("batch2"));
+        Assert.assertEquals("batch3-1", caffeineCacheTestService.getBatch("batch3"));
+        sleep(200);
+        Assert.assertEquals("batch1-batch", caffeineCacheTestService.getBatch("batch1"));
+        Assert.assertEquals("batch2-batch", caffeineCacheTestService.getBatch("batch2"));
+        Assert.assertEquals("batch3-batch", caffeineCacheTestService.getBatch("batch3"));
+        Assert.assertEquals(Collections.singletonList(Arrays.asList("batch1", "batch2", "batch3")),
+                CaffeineCacheTestService.BULK_INVOCATIONS);
+    }
+
+    @Test
+    public void testReactiveCaffeineCacheable() {
+        Mono<Long> mono = caffeineCacheTestService.getMono("mono1");
+        Assert.assertEquals(0L, CaffeineCacheTestService.COUNT.get("mono1"));
+        Mono<Long> other = caffeineCacheTestService.getMono("mono1");
+        Assert.assertEquals(Arrays.asList(1L, 1L), Flux.merge(mono, other).collectList().block());
+        Assert.assertEquals(1L, mono.block().longValue());
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("mono1"));
+
+        Assert.assertEquals(Arrays.asList(1L, 2L), caffeineCacheTestService.getFlux("flux1").collectList().block());
+        Assert.assertEquals(Arrays.asList(1L, 2L), caffeineCacheTestService.getFlux("flux1").collectList().block());
+        Assert.assertEquals(1L, CaffeineCacheTestService.COUNT.get("flux1"));
+    }
+
     /**
      * 测试用配置类
      */
@@ -149,8 +400,16 @@ public class CaffeineCacheableTest extends BaseSpringTest {
 
         public static final AtomicLongMap<String> COUNT = AtomicLongMap.create();
 
+        public static final List<List<String>> BULK_INVOCATIONS = new CopyOnWriteArrayList<>();
+
+        public static volatile boolean failing;
+
         private static final Logger logger = LoggerFactory.getLogger(CaffeineCacheTestService.class);
 
+        @Lazy
+        @Autowired
+        private CaffeineCacheTestService self;
+
         @CaffeineCacheable
         public long getDefault(String key) {
             logger.info("load getDefault");
@@ -181,6 +440,103 @@ public class CaffeineCacheableTest extends BaseSpringTest {
             return COUNT.incrementAndGet(key);
         }
 
+        @CaffeineCacheable(async = true)
+        public CompletableFuture<Long> getFuture(String key) {
+            return CompletableFuture.supplyAsync(() -> {
+                sleep(200);
+                return COUNT.incrementAndGet(key);
+            });
+        }
+
+        @CaffeineCacheable(bulk = true)
+        public List<String> getBulk(List<String> keys) {
+            BULK_INVOCATIONS.add(new ArrayList<>(keys));
+            return keys.stream().map(key -> key + "-" + COUNT.incrementAndGet(key)).collect(Collectors.toList());
+        }
+
+        @CaffeineCacheable(bulk = true)
+        public Map<String, String> getBulkMap(String prefix, Set<String> keys) {
+            return keys.stream().peek(key -> COUNT.incrementAndGet(prefix + "-" + key))
+                    .collect(Collectors.toMap(Function.identity(), key -> prefix + "-" + key));
+        }
+
+        @CaffeineCacheable(cacheNames = "refresh", key = "#key", refreshAfterWrite = "#refreshAfterWrite")
+        public long getRefresh(String key, int refreshAfterWrite) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "stale", expireAfterWrite = "500", refreshAfterWrite = "0", maxStale = "2000")
+        public long getStale(String key) {
+            if (failing) {
+                throw new IllegalStateException("failing");
+            }
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "nested", expireAfterWrite = "60000")
+        public String getNested(String key) {
+            COUNT.incrementAndGet(key);
+            return key + "-" + self.getDefault(key + "-inner");
+        }
+
+        @CaffeineCacheable(cacheNames = "stats", recordStats = true)
+        public long getStats(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "weak", expireAfterWrite = "60000", refreshAfterWrite = "30000",
+                valueStrength = ValueStrength.WEAK)
+        public String getWeak(String key) {
+            return new StringBuilder(key).append('-').append(COUNT.incrementAndGet(key)).toString();
+        }
+
+        @CaffeineCacheable(cacheNames = "compressed", expireAfterWrite = "60000", compressThreshold = "256")
+        public String getCompressed(String key, int copies) {
+            COUNT.incrementAndGet(key);
+            return String.join("", Collections.nCopies(copies, key));
+        }
+
+        @CaffeineCacheable(cacheNames = "negative", expireAfterWrite = "60000", negativeExpireAfterWrite = "300")
+        public String getNegative(String key) {
+            COUNT.incrementAndGet(key);
+            return key.startsWith("absent") ? null : key;
+        }
+
+        @CaffeineCacheable(cacheNames = "negative", key = "'list-' + #key", expireAfterWrite = "60000",
+                negativeExpireAfterWrite = "300")
+        public List<String> getNegativeList(String key) {
+            COUNT.incrementAndGet(key);
+            return new ArrayList<>();
+        }
+
+        @CaffeineCacheable(cacheNames = "offheap", maximumSize = "1", expireAfterWrite = "60000", offHeapCapacity = "1")
+        public long getOffHeap(String key) {
+            return COUNT.incrementAndGet(key);
+        }
+
+        @CaffeineCacheable(cacheNames = "batch", batchLoader = "loadBatch", batchWindow = 50)
+        public String getBatch(String key) {
+            return key + "-" + COUNT.incrementAndGet(key);
+        }
+
+        public Map<String, String> loadBatch(List<String> keys) {
+            BULK_INVOCATIONS.add(new ArrayList<>(keys));
+            return keys.stream().collect(Collectors.toMap(Function.identity(), key -> key + "-batch"));
+        }
+
+        @CaffeineCacheable
+        public Mono<Long> getMono(String key) {
+            return Mono.delay(Duration.ofMillis(200)).map(i -> COUNT.incrementAndGet(key));
+        }
+
+        @CaffeineCacheable
+        public Flux<Long> getFlux(String key) {
+            return Flux.defer(() -> {
+                long count = COUNT.incrementAndGet(key);
+                return Flux.just(count, count + 1);
+            });
+        }
+
         @CacheEvict(cacheNames = "test", key = "'test-'+#key", cacheResolver = CaffeineCacheConfigUtils.CACHE_RESOLVER_BEAN_NAME)
         public void evictCache(String key) {
         }
@@ -0,0 +1,111 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import com.github.ayoungbear.spring.integration.cache.CacheKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * ObjectSizeWeigherTest
+ *
+ * @author yangzexiong
+ */
+public class ObjectSizeWeigherTest {
+
+    private final ObjectSizeWeigher weigher = ObjectSizeWeigher.newInstance();
+
+    @Test
+    public void testEstimate() {
+        Assert.assertEquals(1016, weigher.estimate(new byte[1000]));
+        Assert.assertEquals(24, weigher.estimate(1L));
+        Assert.assertEquals(24 + 24, weigher.estimate("12345678"));
+
+        // header + 2 references + int, the shared array is counted once
+        byte[] data = new byte[1000];
+        Assert.assertEquals(24 + 1016, weigher.estimate(new Holder(data, data, 1)));
+
+        List<String> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(String.valueOf(100000 + i));
+        }
+        long listSize = weigher.estimate(list);
+        Assert.assertTrue(String.valueOf(listSize), listSize > 1000 * 48 && listSize < 1000 * 64);
+
+        Map<String, Holder> map = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(String.valueOf(i), new Holder(new byte[100], null, i));
+        }
+        long mapSize = weigher.estimate(map);
+        Assert.assertTrue(String.valueOf(mapSize), mapSize > 100 * (24 + 112) && mapSize < 100 * 240);
+    }
+
+    @Test
+    public void testNodeBudget() {
+        List<List<List<String>>> lists = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            List<List<String>> middle = new ArrayList<>();
+            for (int j = 0; j < 64; j++) {
+                List<String> inner = new ArrayList<>();
+                for (int k = 0; k < 64; k++) {
+                    inner.add(i + "-" + j + "-" + k);
+                }
+                middle.add(inner);
+            }
+            lists.add(middle);
+        }
+        // only a few of the middle lists are traversed, the rest is extrapolated from them
+        long expected = weigher.estimate(lists.get(0)) * 64;
+        long size = weigher.estimate(lists);
+        Assert.assertTrue(size + " vs " + expected, Math.abs(size - expected) < expected / 4);
+    }
+
+    @Test
+    public void testWeightedCache() {
+        Cache<CacheKey, Object> cache = Caffeine.newBuilder().executor(Runnable::run).maximumWeight(10000)
+                .weigher(weigher).build();
+        for (int i = 0; i < 20; i++) {
+            cache.put(CacheKey.of(i), new byte[1000]);
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.estimatedSize() <= 10);
+        Assert.assertTrue(weigher.weigh(CacheKey.of("key", "context"), new byte[1000]) > 1016);
+    }
+
+    static class Holder {
+
+        private final byte[] data;
+
+        private final byte[] same;
+
+        private final int id;
+
+        Holder(byte[] data, byte[] same, int id) {
+            this.data = data;
+            this.same = same;
+            this.id = id;
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright [2023] [yangzexiong]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ayoungbear.spring.integration.cache.caffeine;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * VirtualThreadExecutorsTest
+ *
+ * @author yangzexiong
+ */
+public class VirtualThreadExecutorsTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    @Test
+    public void testRunningJdk() throws Exception {
+        Executor executor = VirtualThreadExecutors.get();
+        Assert.assertSame(executor, VirtualThreadExecutors.get());
+        Method isVirtual = ReflectionUtils.findMethod(Thread.class, "isVirtual");
+        if (VirtualThreadExecutors.findFactory() == null) {
+            // before Java 21
+            Assert.assertNull(executor);
+            return;
+        }
+        Assert.assertNotNull(executor);
+        CompletableFuture<Object> virtual = CompletableFuture
+                .supplyAsync(() -> ReflectionUtils.invokeMethod(isVirtual, Thread.currentThread()), executor);
+        Assert.assertEquals(Boolean.TRUE, virtual.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFallback() {
+        // the factory method is missing
+        Assert.assertNull(VirtualThreadExecutors.create(() -> null));
+        // the factory method fails, e.g. preview feature not enabled
+        Assert.assertNull(VirtualThreadExecutors.create(() -> factory("failingExecutor")));
+        Assert.assertSame(EXECUTOR, VirtualThreadExecutors.create(() -> factory("newExecutor")));
+    }
+
+    private static Method factory(String name) {
+        return ReflectionUtils.findMethod(VirtualThreadExecutorsTest.class, name);
+    }
+
+    static Executor newExecutor() {
+        return EXECUTOR;
+    }
+
+    static Executor failingExecutor() {
+        throw new UnsupportedOperationException("Preview features are not enabled");
+    }
+
+}